@@ -0,0 +1,348 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.index.query.ip2geo;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+import org.apache.lucene.document.InetAddressPoint;
+import org.apache.lucene.sandbox.search.MultiRangeQuery;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.MatchNoDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.util.BitUtil;
+import org.opensearch.OpenSearchStatusException;
+import org.opensearch.ResourceNotFoundException;
+import org.opensearch.common.network.InetAddresses;
+import org.opensearch.core.ParseField;
+import org.opensearch.core.action.ActionListener;
+import org.opensearch.core.common.io.stream.StreamInput;
+import org.opensearch.core.common.io.stream.StreamOutput;
+import org.opensearch.core.rest.RestStatus;
+import org.opensearch.core.xcontent.ConstructingObjectParser;
+import org.opensearch.core.xcontent.XContentBuilder;
+import org.opensearch.core.xcontent.XContentParser;
+import org.opensearch.geospatial.annotation.VisibleForTesting;
+import org.opensearch.geospatial.ip2geo.common.DatasourceState;
+import org.opensearch.geospatial.ip2geo.dao.DatasourceMetadata;
+import org.opensearch.geospatial.ip2geo.dao.Ip2GeoCachedDao;
+import org.opensearch.geospatial.ip2geo.lookup.GeoIpAttributeIndex;
+import org.opensearch.index.mapper.IpFieldMapper;
+import org.opensearch.index.mapper.MappedFieldType;
+import org.opensearch.index.query.AbstractQueryBuilder;
+import org.opensearch.index.query.QueryBuilder;
+import org.opensearch.index.query.QueryRewriteContext;
+import org.opensearch.index.query.QueryShardContext;
+import org.opensearch.index.query.QueryShardException;
+
+/**
+ * Query to match documents whose ip in a field has a given value of a property of GeoIP data
+ *
+ * {
+ *     "ip2geo_match": {
+ *         "field": "client_ip",
+ *         "datasource": "my-datasource",
+ *         "property": "country_iso_code",
+ *         "value": "US"
+ *     }
+ * }
+ *
+ * On each shard, the query is turned into a single multi range query on points of the ip field, with ranges taken from a
+ * node local {@link GeoIpAttributeIndex} of the current GeoIP data index of the datasource.
+ * The GeoIP data index is resolved during rewrite and is part of the serialized query so that a cached shard result
+ * of the query is never served after the datasource moves to a new GeoIP data index.
+ */
+public class Ip2GeoMatchQueryBuilder extends AbstractQueryBuilder<Ip2GeoMatchQueryBuilder> {
+    public static final String NAME = "ip2geo_match";
+    public static final ParseField FIELD_FIELD = new ParseField("field");
+    public static final ParseField DATASOURCE_FIELD = new ParseField("datasource");
+    public static final ParseField PROPERTY_FIELD = new ParseField("property");
+    public static final ParseField VALUE_FIELD = new ParseField("value");
+    private static final int IPV4_MAPPED_PREFIX_LENGTH = 12;
+    private static final ConstructingObjectParser<Ip2GeoMatchQueryBuilder, Supplier<Ip2GeoCachedDao>> PARSER =
+        new ConstructingObjectParser<>(
+            NAME,
+            false,
+            (args, ip2GeoCachedDaoSupplier) -> new Ip2GeoMatchQueryBuilder(
+                (String) args[0],
+                (String) args[1],
+                (String) args[2],
+                (String) args[3],
+                ip2GeoCachedDaoSupplier
+            )
+        );
+
+    static {
+        PARSER.declareString(ConstructingObjectParser.constructorArg(), FIELD_FIELD);
+        PARSER.declareString(ConstructingObjectParser.constructorArg(), DATASOURCE_FIELD);
+        PARSER.declareString(ConstructingObjectParser.constructorArg(), PROPERTY_FIELD);
+        PARSER.declareString(ConstructingObjectParser.constructorArg(), VALUE_FIELD);
+        declareStandardFields(PARSER);
+    }
+
+    private final String fieldName;
+    private final String datasource;
+    private final String property;
+    private final String value;
+    private final String indexName;
+    private final Supplier<Ip2GeoCachedDao> ip2GeoCachedDaoSupplier;
+
+    /**
+     * Creates a new instance of {@link Ip2GeoMatchQueryBuilder}
+     * @param fieldName ip field to perform query
+     * @param datasource datasource name to look up GeoIP data from
+     * @param property property of GeoIP data to match
+     * @param value value of the property to match
+     * @param ip2GeoCachedDaoSupplier supplier of the ip2geo cached dao
+     */
+    public Ip2GeoMatchQueryBuilder(
+        final String fieldName,
+        final String datasource,
+        final String property,
+        final String value,
+        final Supplier<Ip2GeoCachedDao> ip2GeoCachedDaoSupplier
+    ) {
+        this(fieldName, datasource, property, value, null, ip2GeoCachedDaoSupplier);
+    }
+
+    private Ip2GeoMatchQueryBuilder(
+        final String fieldName,
+        final String datasource,
+        final String property,
+        final String value,
+        final String indexName,
+        final Supplier<Ip2GeoCachedDao> ip2GeoCachedDaoSupplier
+    ) {
+        this.fieldName = requireValue(fieldName, FIELD_FIELD);
+        this.datasource = requireValue(datasource, DATASOURCE_FIELD);
+        this.property = requireValue(property, PROPERTY_FIELD);
+        this.value = requireValue(value, VALUE_FIELD);
+        this.indexName = indexName;
+        this.ip2GeoCachedDaoSupplier = ip2GeoCachedDaoSupplier;
+    }
+
+    public Ip2GeoMatchQueryBuilder(final StreamInput in, final Supplier<Ip2GeoCachedDao> ip2GeoCachedDaoSupplier) throws IOException {
+        super(in);
+        this.fieldName = in.readString();
+        this.datasource = in.readString();
+        this.property = in.readString();
+        this.value = in.readString();
+        this.indexName = in.readOptionalString();
+        this.ip2GeoCachedDaoSupplier = ip2GeoCachedDaoSupplier;
+    }
+
+    /**
+     * Parse a query
+     * @param parser the parser
+     * @param ip2GeoCachedDaoSupplier supplier of the ip2geo cached dao
+     * @return the query builder
+     */
+    public static Ip2GeoMatchQueryBuilder fromXContent(
+        final XContentParser parser,
+        final Supplier<Ip2GeoCachedDao> ip2GeoCachedDaoSupplier
+    ) {
+        return PARSER.apply(parser, ip2GeoCachedDaoSupplier);
+    }
+
+    private static String requireValue(final String value, final ParseField field) {
+        if (value == null) {
+            throw new IllegalArgumentException(String.format(Locale.ROOT, "[%s] requires [%s] to be set", NAME, field.getPreferredName()));
+        }
+        return value;
+    }
+
+    public String fieldName() {
+        return fieldName;
+    }
+
+    public String datasource() {
+        return datasource;
+    }
+
+    public String property() {
+        return property;
+    }
+
+    public String value() {
+        return value;
+    }
+
+    /**
+     * @return the GeoIP data index resolved during rewrite, or null if the query is not rewritten yet
+     */
+    public String indexName() {
+        return indexName;
+    }
+
+    @Override
+    public String getWriteableName() {
+        return NAME;
+    }
+
+    @Override
+    protected void doWriteTo(final StreamOutput out) throws IOException {
+        out.writeString(fieldName);
+        out.writeString(datasource);
+        out.writeString(property);
+        out.writeString(value);
+        out.writeOptionalString(indexName);
+    }
+
+    @Override
+    protected void doXContent(final XContentBuilder builder, final Params params) throws IOException {
+        builder.startObject(NAME);
+        builder.field(FIELD_FIELD.getPreferredName(), fieldName);
+        builder.field(DATASOURCE_FIELD.getPreferredName(), datasource);
+        builder.field(PROPERTY_FIELD.getPreferredName(), property);
+        builder.field(VALUE_FIELD.getPreferredName(), value);
+        printBoostAndQueryName(builder);
+        builder.endObject();
+    }
+
+    @Override
+    protected QueryBuilder doRewrite(final QueryRewriteContext queryRewriteContext) throws IOException {
+        if (indexName != null) {
+            return this;
+        }
+        // Rewrite can run on a network thread, so metadata is loaded asynchronously instead of blocking on its first read
+        Ip2GeoCachedDao ip2GeoCachedDao = ip2GeoCachedDaoSupplier == null ? null : ip2GeoCachedDaoSupplier.get();
+        if (ip2GeoCachedDao != null && ip2GeoCachedDao.isMetadataLoaded() == false) {
+            queryRewriteContext.registerAsyncAction(
+                (client, listener) -> ip2GeoCachedDao.loadMetadata(ActionListener.wrap(r -> listener.onResponse(null), listener::onFailure))
+            );
+            return this;
+        }
+        Ip2GeoMatchQueryBuilder rewritten = new Ip2GeoMatchQueryBuilder(
+            fieldName,
+            datasource,
+            property,
+            value,
+            resolveIndexName(),
+            ip2GeoCachedDaoSupplier
+        );
+        rewritten.boost(boost()).queryName(queryName());
+        return rewritten;
+    }
+
+    @Override
+    protected Query doToQuery(final QueryShardContext context) throws IOException {
+        MappedFieldType fieldType = context.fieldMapper(fieldName);
+        if (fieldType == null) {
+            return new MatchNoDocsQuery(String.format(Locale.ROOT, "field [%s] does not exist", fieldName));
+        }
+        if (fieldType instanceof IpFieldMapper.IpFieldType == false) {
+            throw new QueryShardException(
+                context,
+                String.format(Locale.ROOT, "Field [%s] is of unsupported type [%s] for [%s] query", fieldName, fieldType.typeName(), NAME)
+            );
+        }
+        if (fieldType.isSearchable() == false) {
+            throw new QueryShardException(context, String.format(Locale.ROOT, "Field [%s] is not indexed for [%s] query", fieldName, NAME));
+        }
+
+        GeoIpAttributeIndex.Ranges ranges = getAttributeIndex().getRanges(value);
+        if (ranges.isEmpty()) {
+            return new MatchNoDocsQuery(String.format(Locale.ROOT, "no ip range has [%s] of [%s]", property, value));
+        }
+        return new ConstantScoreQuery(toMultiRangeQuery(fieldName, ranges));
+    }
+
+    private GeoIpAttributeIndex getAttributeIndex() {
+        String targetIndexName = indexName == null ? resolveIndexName() : indexName;
+        GeoIpAttributeIndex attributeIndex = ip2GeoCachedDaoSupplier.get().getAttributeIndex(targetIndexName, property);
+        if (attributeIndex == null) {
+            throw new OpenSearchStatusException(
+                "GeoIP data of the datasource [{}] is not loaded in memory yet. Retry later.",
+                RestStatus.SERVICE_UNAVAILABLE,
+                datasource
+            );
+        }
+        return attributeIndex;
+    }
+
+    /**
+     * Resolve the current GeoIP data index of the datasource
+     */
+    private String resolveIndexName() {
+        Ip2GeoCachedDao ip2GeoCachedDao = ip2GeoCachedDaoSupplier == null ? null : ip2GeoCachedDaoSupplier.get();
+        DatasourceMetadata metadata = ip2GeoCachedDao == null ? null : ip2GeoCachedDao.getDatasourceMetadata(datasource);
+        if (metadata == null) {
+            throw new ResourceNotFoundException("no such datasource exist");
+        }
+        if (DatasourceState.AVAILABLE.equals(metadata.getState()) == false) {
+            throw new IllegalStateException("datasource is not in an available state");
+        }
+        String currentIndexName = metadata.getIndexName();
+        if (metadata.isExpired() || currentIndexName == null) {
+            throw new IllegalStateException("GeoIP data of the datasource is expired");
+        }
+        if (metadata.getFields() == null || metadata.getFields().contains(property) == false) {
+            throw new IllegalArgumentException(
+                String.format(Locale.ROOT, "property [%s] does not exist in datasource [%s]", property, datasource)
+            );
+        }
+        return currentIndexName;
+    }
+
+    @VisibleForTesting
+    static Query toMultiRangeQuery(final String fieldName, final GeoIpAttributeIndex.Ranges ranges) {
+        MultiRangeQuery.Builder builder = new MultiRangeQuery.Builder(fieldName, InetAddressPoint.BYTES, 1) {
+            @Override
+            public MultiRangeQuery build() {
+                return new MultiRangeQuery(field, numDims, bytesPerDim, clauses) {
+                    @Override
+                    protected String toString(final int dimension, final byte[] value) {
+                        return InetAddresses.toAddrString(InetAddressPoint.decode(value));
+                    }
+                };
+            }
+        };
+        for (int i = 0; i < ranges.ipv4Count(); i++) {
+            builder.add(encodeIpv4(ranges.ipv4Start(i)), encodeIpv4(ranges.ipv4End(i)));
+        }
+        for (int i = 0; i < ranges.ipv6Count(); i++) {
+            builder.add(
+                encodeIpv6(ranges.ipv6StartHigh(i), ranges.ipv6StartLow(i)),
+                encodeIpv6(ranges.ipv6EndHigh(i), ranges.ipv6EndLow(i))
+            );
+        }
+        return builder.build();
+    }
+
+    /**
+     * Encode an IPv4 address as an IPv4-mapped IPv6 address in the same way as {@link InetAddressPoint#encode}
+     */
+    private static byte[] encodeIpv4(final long ip) {
+        byte[] bytes = new byte[InetAddressPoint.BYTES];
+        bytes[IPV4_MAPPED_PREFIX_LENGTH - 2] = (byte) 0xFF;
+        bytes[IPV4_MAPPED_PREFIX_LENGTH - 1] = (byte) 0xFF;
+        BitUtil.VH_BE_INT.set(bytes, IPV4_MAPPED_PREFIX_LENGTH, (int) ip);
+        return bytes;
+    }
+
+    private static byte[] encodeIpv6(final long high, final long low) {
+        byte[] bytes = new byte[InetAddressPoint.BYTES];
+        BitUtil.VH_BE_LONG.set(bytes, 0, high ^ Long.MIN_VALUE);
+        BitUtil.VH_BE_LONG.set(bytes, Long.BYTES, low ^ Long.MIN_VALUE);
+        return bytes;
+    }
+
+    @Override
+    protected boolean doEquals(final Ip2GeoMatchQueryBuilder other) {
+        return Objects.equals(fieldName, other.fieldName)
+            && Objects.equals(datasource, other.datasource)
+            && Objects.equals(property, other.property)
+            && Objects.equals(value, other.value)
+            && Objects.equals(indexName, other.indexName);
+    }
+
+    @Override
+    protected int doHashCode() {
+        return Objects.hash(fieldName, datasource, property, value, indexName);
+    }
+}
@@ -0,0 +1,26 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.ip2geo.action;
+
+import org.opensearch.action.ActionType;
+
+/**
+ * Action to look up GeoIP data from a local shard of a GeoIP data index
+ */
+public class LookupGeoIpDataAction extends ActionType<LookupGeoIpDataResponse> {
+    /**
+     * Lookup GeoIP data action instance
+     */
+    public static final LookupGeoIpDataAction INSTANCE = new LookupGeoIpDataAction();
+    /**
+     * Lookup GeoIP data action name
+     */
+    public static final String NAME = "cluster:admin/geospatial/ip2geo/local_lookup";
+
+    private LookupGeoIpDataAction() {
+        super(NAME, LookupGeoIpDataResponse::new);
+    }
+}
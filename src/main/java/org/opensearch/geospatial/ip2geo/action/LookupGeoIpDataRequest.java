@@ -0,0 +1,67 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.ip2geo.action;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.opensearch.action.ActionRequest;
+import org.opensearch.action.ActionRequestValidationException;
+import org.opensearch.core.common.io.stream.StreamInput;
+import org.opensearch.core.common.io.stream.StreamOutput;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Request to look up GeoIP data of ips from a local shard of a GeoIP data index
+ */
+@Getter
+@AllArgsConstructor
+public class LookupGeoIpDataRequest extends ActionRequest {
+    /**
+     * @param indexName the GeoIP data index name
+     * @return the GeoIP data index name
+     */
+    private final String indexName;
+    /**
+     * @param ips the ip addresses
+     * @return the ip addresses
+     */
+    private final List<String> ips;
+
+    /**
+     * Constructor with stream input
+     * @param in the stream input
+     * @throws IOException IOException
+     */
+    public LookupGeoIpDataRequest(final StreamInput in) throws IOException {
+        super(in);
+        this.indexName = in.readString();
+        this.ips = in.readStringList();
+    }
+
+    @Override
+    public ActionRequestValidationException validate() {
+        ActionRequestValidationException errors = null;
+        if (indexName == null || indexName.isBlank()) {
+            errors = new ActionRequestValidationException();
+            errors.addValidationError("index name should not be empty");
+        }
+        if (ips == null || ips.isEmpty()) {
+            errors = errors == null ? new ActionRequestValidationException() : errors;
+            errors.addValidationError("ips should not be empty");
+        }
+        return errors;
+    }
+
+    @Override
+    public void writeTo(final StreamOutput out) throws IOException {
+        super.writeTo(out);
+        out.writeString(indexName);
+        out.writeStringCollection(ips);
+    }
+}
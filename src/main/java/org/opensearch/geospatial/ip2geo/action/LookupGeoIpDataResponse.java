@@ -0,0 +1,55 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.ip2geo.action;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.opensearch.core.action.ActionResponse;
+import org.opensearch.core.common.io.stream.StreamInput;
+import org.opensearch.core.common.io.stream.StreamOutput;
+import org.opensearch.geospatial.ip2geo.dao.GeoIpRange;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+/**
+ * Response of GeoIP data lookup from a local shard
+ */
+@Getter
+@AllArgsConstructor
+@EqualsAndHashCode(callSuper = false)
+public class LookupGeoIpDataResponse extends ActionResponse {
+    /**
+     * @param geoIpRanges geo data and the range of each ip in the same order as requested ips
+     * @return geo data and the range of each ip in the same order as requested ips
+     */
+    private final List<GeoIpRange> geoIpRanges;
+
+    /**
+     * Constructor with stream input
+     * @param in the stream input
+     * @throws IOException IOException
+     */
+    public LookupGeoIpDataResponse(final StreamInput in) throws IOException {
+        super(in);
+        this.geoIpRanges = in.readList(input -> {
+            String cidr = input.readOptionalString();
+            return cidr == null ? GeoIpRange.NO_MATCH : new GeoIpRange(cidr, input.readMap());
+        });
+    }
+
+    @Override
+    public void writeTo(final StreamOutput out) throws IOException {
+        out.writeCollection(geoIpRanges, (output, range) -> {
+            output.writeOptionalString(range.getCidr());
+            if (range.getCidr() != null) {
+                output.writeMap(range.getData());
+            }
+        });
+    }
+}
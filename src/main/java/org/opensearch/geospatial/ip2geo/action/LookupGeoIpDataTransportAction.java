@@ -0,0 +1,95 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.ip2geo.action;
+
+import org.opensearch.action.ActionRunnable;
+import org.opensearch.action.support.ActionFilters;
+import org.opensearch.action.support.HandledTransportAction;
+import org.opensearch.cluster.metadata.IndexMetadata;
+import org.opensearch.cluster.service.ClusterService;
+import org.opensearch.common.inject.Inject;
+import org.opensearch.core.action.ActionListener;
+import org.opensearch.core.index.shard.ShardId;
+import org.opensearch.geospatial.ip2geo.dao.CompactGeoIpDataCodec;
+import org.opensearch.geospatial.ip2geo.dao.GeoIpDataDao;
+import org.opensearch.geospatial.ip2geo.dao.GeoIpShardReader;
+import org.opensearch.index.IndexNotFoundException;
+import org.opensearch.index.engine.Engine;
+import org.opensearch.index.shard.IllegalIndexShardStateException;
+import org.opensearch.index.shard.IndexShard;
+import org.opensearch.index.shard.IndexShardState;
+import org.opensearch.index.shard.ShardNotFoundException;
+import org.opensearch.indices.IndicesService;
+import org.opensearch.tasks.Task;
+import org.opensearch.threadpool.ThreadPool;
+import org.opensearch.transport.TransportService;
+
+/**
+ * Transport action to look up GeoIP data from a local shard of a GeoIP data index
+ *
+ * GeoIP data index has a single shard which is replicated to all nodes. The lookup reads the local copy of the shard
+ * without going through the search layer. It fails if the shard is not started in this node.
+ */
+public class LookupGeoIpDataTransportAction extends HandledTransportAction<LookupGeoIpDataRequest, LookupGeoIpDataResponse> {
+    private static final String SEARCHER_SOURCE = "ip2geo_lookup";
+    private final ClusterService clusterService;
+    private final IndicesService indicesService;
+    private final ThreadPool threadPool;
+    private final GeoIpDataDao geoIpDataDao;
+
+    /**
+     * Default constructor
+     * @param transportService the transport service
+     * @param actionFilters the action filters
+     * @param clusterService the cluster service
+     * @param indicesService the indices service
+     * @param threadPool the thread pool
+     * @param geoIpDataDao the geoip data dao
+     */
+    @Inject
+    public LookupGeoIpDataTransportAction(
+        final TransportService transportService,
+        final ActionFilters actionFilters,
+        final ClusterService clusterService,
+        final IndicesService indicesService,
+        final ThreadPool threadPool,
+        final GeoIpDataDao geoIpDataDao
+    ) {
+        super(LookupGeoIpDataAction.NAME, transportService, actionFilters, LookupGeoIpDataRequest::new);
+        this.clusterService = clusterService;
+        this.indicesService = indicesService;
+        this.threadPool = threadPool;
+        this.geoIpDataDao = geoIpDataDao;
+    }
+
+    @Override
+    protected void doExecute(
+        final Task task,
+        final LookupGeoIpDataRequest request,
+        final ActionListener<LookupGeoIpDataResponse> listener
+    ) {
+        threadPool.executor(ThreadPool.Names.SEARCH).execute(ActionRunnable.supply(listener, () -> lookup(request)));
+    }
+
+    private LookupGeoIpDataResponse lookup(final LookupGeoIpDataRequest request) throws Exception {
+        IndexMetadata indexMetadata = clusterService.state().metadata().index(request.getIndexName());
+        if (indexMetadata == null) {
+            throw new IndexNotFoundException(request.getIndexName());
+        }
+        CompactGeoIpDataCodec codec = geoIpDataDao.getCompactCodec(request.getIndexName());
+        IndexShard indexShard = indicesService.indexServiceSafe(indexMetadata.getIndex()).getShardOrNull(0);
+        if (indexShard == null) {
+            throw new ShardNotFoundException(new ShardId(indexMetadata.getIndex(), 0));
+        }
+        // Cluster state of the caller can be stale while the shard is relocating, closing or recovering
+        if (indexShard.state() != IndexShardState.STARTED) {
+            throw new IllegalIndexShardStateException(indexShard.shardId(), indexShard.state(), "GeoIP data shard is not started");
+        }
+        try (Engine.Searcher searcher = indexShard.acquireSearcher(SEARCHER_SOURCE)) {
+            return new LookupGeoIpDataResponse(GeoIpShardReader.read(searcher, codec, request.getIps()));
+        }
+    }
+}
@@ -0,0 +1,26 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.ip2geo.action;
+
+import org.opensearch.action.ActionType;
+
+/**
+ * Action to look up GeoIP data of ips from a datasource
+ */
+public class LookupIpAction extends ActionType<LookupIpResponse> {
+    /**
+     * Lookup ip action instance
+     */
+    public static final LookupIpAction INSTANCE = new LookupIpAction();
+    /**
+     * Lookup ip action name
+     */
+    public static final String NAME = "cluster:admin/geospatial/ip2geo/lookup";
+
+    private LookupIpAction() {
+        super(NAME, LookupIpResponse::new);
+    }
+}
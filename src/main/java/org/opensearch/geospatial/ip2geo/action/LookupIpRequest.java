@@ -0,0 +1,121 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.ip2geo.action;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+
+import org.opensearch.action.ActionRequest;
+import org.opensearch.action.ActionRequestValidationException;
+import org.opensearch.common.network.InetAddresses;
+import org.opensearch.core.ParseField;
+import org.opensearch.core.common.io.stream.StreamInput;
+import org.opensearch.core.common.io.stream.StreamOutput;
+import org.opensearch.core.xcontent.ObjectParser;
+import org.opensearch.geospatial.ip2geo.common.ParameterValidator;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Request to look up GeoIP data of ips from a datasource
+ */
+@Getter
+@Setter
+public class LookupIpRequest extends ActionRequest {
+    public static final ParseField IPS_FIELD = new ParseField("ips");
+    public static final ParseField PROPERTIES_FIELD = new ParseField("properties");
+    /**
+     * Maximum number of ips in a single request
+     */
+    public static final int MAX_IPS = 10_000;
+    private static final ParameterValidator VALIDATOR = new ParameterValidator();
+
+    /**
+     * @param name the datasource name
+     * @return the datasource name
+     */
+    private String name;
+    /**
+     * @param ips the ip addresses to look up
+     * @return the ip addresses to look up
+     */
+    private List<String> ips;
+    /**
+     * @param properties the properties of geo data to return, or null to return all properties
+     * @return the properties of geo data to return, or null to return all properties
+     */
+    private List<String> properties;
+
+    /**
+     * Parser of a lookup request
+     */
+    public static final ObjectParser<LookupIpRequest, Void> PARSER;
+    static {
+        PARSER = new ObjectParser<>("lookup_ip");
+        PARSER.declareStringArray((request, val) -> request.setIps(val), IPS_FIELD);
+        PARSER.declareStringArray((request, val) -> request.setProperties(val), PROPERTIES_FIELD);
+    }
+
+    /**
+     * Constructor
+     * @param name name of a datasource
+     */
+    public LookupIpRequest(final String name) {
+        this.name = name;
+    }
+
+    /**
+     * Constructor with stream input
+     * @param in the stream input
+     * @throws IOException IOException
+     */
+    public LookupIpRequest(final StreamInput in) throws IOException {
+        super(in);
+        this.name = in.readString();
+        this.ips = in.readStringList();
+        this.properties = in.readOptionalStringList();
+    }
+
+    @Override
+    public void writeTo(final StreamOutput out) throws IOException {
+        super.writeTo(out);
+        out.writeString(name);
+        out.writeStringCollection(ips);
+        out.writeOptionalStringCollection(properties);
+    }
+
+    @Override
+    public ActionRequestValidationException validate() {
+        ActionRequestValidationException errors = new ActionRequestValidationException();
+        if (VALIDATOR.validateDatasourceName(name).isEmpty() == false) {
+            errors.addValidationError("no such datasource exist");
+        }
+        validateIps(errors);
+        if (properties != null && properties.isEmpty()) {
+            errors.addValidationError("properties should not be empty");
+        }
+        return errors.validationErrors().isEmpty() ? null : errors;
+    }
+
+    private void validateIps(final ActionRequestValidationException errors) {
+        if (ips == null || ips.isEmpty()) {
+            errors.addValidationError("ips should not be empty");
+            return;
+        }
+        if (ips.size() > MAX_IPS) {
+            errors.addValidationError(String.format(Locale.ROOT, "number of ips should not exceed %d", MAX_IPS));
+            return;
+        }
+        for (String ip : ips) {
+            if (ip == null || InetAddresses.isInetAddress(ip) == false) {
+                errors.addValidationError(String.format(Locale.ROOT, "[%s] is not a valid ip address", ip));
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.ip2geo.action;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import org.opensearch.core.ParseField;
+import org.opensearch.core.action.ActionResponse;
+import org.opensearch.core.common.io.stream.StreamInput;
+import org.opensearch.core.common.io.stream.StreamOutput;
+import org.opensearch.core.xcontent.ToXContentObject;
+import org.opensearch.core.xcontent.XContentBuilder;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Response of a lookup of GeoIP data of ips
+ *
+ * Geo data is kept as it is read from the cache and only requested properties are written while the response is
+ * serialized. A property missing in geo data of an ip is skipped.
+ */
+@Getter
+@AllArgsConstructor
+public class LookupIpResponse extends ActionResponse implements ToXContentObject {
+    private static final ParseField FIELD_NAME_RESULTS = new ParseField("results");
+    private static final ParseField FIELD_NAME_IP = new ParseField("ip");
+    private static final ParseField FIELD_NAME_GEO_DATA = new ParseField("geo_data");
+    /**
+     * @return the ip addresses in the order of the request
+     */
+    private final List<String> ips;
+    /**
+     * @return geo data of each ip, or empty map for an ip having no matching data
+     */
+    private final List<Map<String, Object>> geoData;
+    /**
+     * @return the properties of geo data to return, or null to return all properties
+     */
+    private final List<String> properties;
+
+    /**
+     * Constructor with stream input
+     *
+     * @param in the stream input
+     * @throws IOException IOException
+     */
+    public LookupIpResponse(final StreamInput in) throws IOException {
+        super(in);
+        this.ips = in.readStringList();
+        this.geoData = in.readList(StreamInput::readMap);
+        this.properties = in.readOptionalStringList();
+    }
+
+    @Override
+    public void writeTo(final StreamOutput out) throws IOException {
+        out.writeStringCollection(ips);
+        out.writeCollection(geoData, StreamOutput::writeMap);
+        out.writeOptionalStringCollection(properties);
+    }
+
+    @Override
+    public XContentBuilder toXContent(final XContentBuilder builder, final Params params) throws IOException {
+        builder.startObject();
+        builder.startArray(FIELD_NAME_RESULTS.getPreferredName());
+        for (int i = 0; i < ips.size(); i++) {
+            builder.startObject();
+            builder.field(FIELD_NAME_IP.getPreferredName(), ips.get(i));
+            builder.startObject(FIELD_NAME_GEO_DATA.getPreferredName());
+            writeGeoData(builder, geoData.get(i));
+            builder.endObject();
+            builder.endObject();
+        }
+        builder.endArray();
+        builder.endObject();
+        return builder;
+    }
+
+    private void writeGeoData(final XContentBuilder builder, final Map<String, Object> data) throws IOException {
+        if (properties == null) {
+            for (Map.Entry<String, Object> entry : data.entrySet()) {
+                builder.field(entry.getKey(), entry.getValue());
+            }
+            return;
+        }
+        for (String property : properties) {
+            Object value = data.get(property);
+            if (value != null) {
+                builder.field(property, value);
+            }
+        }
+    }
+}
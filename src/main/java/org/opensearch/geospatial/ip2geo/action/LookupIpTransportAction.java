@@ -0,0 +1,131 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.ip2geo.action;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.opensearch.ResourceNotFoundException;
+import org.opensearch.action.ActionRunnable;
+import org.opensearch.action.support.ActionFilters;
+import org.opensearch.action.support.HandledTransportAction;
+import org.opensearch.common.inject.Inject;
+import org.opensearch.core.action.ActionListener;
+import org.opensearch.geospatial.annotation.VisibleForTesting;
+import org.opensearch.geospatial.ip2geo.common.DatasourceState;
+import org.opensearch.geospatial.ip2geo.dao.DatasourceMetadata;
+import org.opensearch.geospatial.ip2geo.dao.Ip2GeoCachedDao;
+import org.opensearch.geospatial.ip2geo.lookup.GeoIpCoverageFilter;
+import org.opensearch.tasks.Task;
+import org.opensearch.threadpool.ThreadPool;
+import org.opensearch.transport.TransportService;
+
+/**
+ * Transport action to look up GeoIP data of ips from a datasource
+ *
+ * Ips are looked up through the shared {@link Ip2GeoCachedDao} used by ip2geo processors. Each distinct ip is looked up once,
+ * and cache misses are retrieved from the GeoIP data index in batches.
+ */
+public class LookupIpTransportAction extends HandledTransportAction<LookupIpRequest, LookupIpResponse> {
+    /**
+     * Maximum number of distinct ips passed to the cache at once. It bounds the size of a single request for cache misses.
+     */
+    @VisibleForTesting
+    static final int BATCH_SIZE = 1_000;
+    private final ThreadPool threadPool;
+    private final Ip2GeoCachedDao ip2GeoCachedDao;
+
+    /**
+     * Default constructor
+     * @param transportService the transport service
+     * @param actionFilters the action filters
+     * @param threadPool the thread pool
+     * @param ip2GeoCachedDao the ip2geo cached dao
+     */
+    @Inject
+    public LookupIpTransportAction(
+        final TransportService transportService,
+        final ActionFilters actionFilters,
+        final ThreadPool threadPool,
+        final Ip2GeoCachedDao ip2GeoCachedDao
+    ) {
+        super(LookupIpAction.NAME, transportService, actionFilters, LookupIpRequest::new);
+        this.threadPool = threadPool;
+        this.ip2GeoCachedDao = ip2GeoCachedDao;
+    }
+
+    @Override
+    protected void doExecute(final Task task, final LookupIpRequest request, final ActionListener<LookupIpResponse> listener) {
+        threadPool.executor(ThreadPool.Names.SEARCH).execute(ActionRunnable.wrap(listener, l -> lookup(request, l)));
+    }
+
+    private void lookup(final LookupIpRequest request, final ActionListener<LookupIpResponse> listener) {
+        DatasourceMetadata metadata = ip2GeoCachedDao.getDatasourceMetadata(request.getName());
+        if (metadata == null) {
+            throw new ResourceNotFoundException("no such datasource exist");
+        }
+        if (DatasourceState.AVAILABLE.equals(metadata.getState()) == false) {
+            throw new IllegalStateException("datasource is not in an available state");
+        }
+        String indexName = metadata.getIndexName();
+        if (metadata.isExpired() || indexName == null) {
+            throw new IllegalStateException("GeoIP data of the datasource is expired");
+        }
+
+        List<String> distinctIps = getCoveredIps(indexName, new ArrayList<>(new LinkedHashSet<>(request.getIps())));
+        Map<String, Map<String, Object>> geoDataByIp = new HashMap<>();
+        lookupBatch(indexName, distinctIps, 0, geoDataByIp, ActionListener.map(listener, ignored -> {
+            List<Map<String, Object>> geoData = request.getIps()
+                .stream()
+                .map(ip -> geoDataByIp.getOrDefault(ip, Collections.emptyMap()))
+                .collect(Collectors.toList());
+            return new LookupIpResponse(request.getIps(), geoData, request.getProperties());
+        }));
+    }
+
+    /**
+     * Look up ips from a given position one batch at a time
+     *
+     * The next batch starts after the previous one completes, so that a request does not hold many searches at once.
+     */
+    private void lookupBatch(
+        final String indexName,
+        final List<String> ips,
+        final int from,
+        final Map<String, Map<String, Object>> geoDataByIp,
+        final ActionListener<Void> listener
+    ) {
+        if (from >= ips.size()) {
+            listener.onResponse(null);
+            return;
+        }
+        List<String> batch = ips.subList(from, Math.min(from + BATCH_SIZE, ips.size()));
+        ip2GeoCachedDao.getGeoData(indexName, batch, ActionListener.wrap(geoData -> {
+            for (int i = 0; i < batch.size(); i++) {
+                if (geoData.get(i) != null) {
+                    geoDataByIp.put(batch.get(i), geoData.get(i));
+                }
+            }
+            lookupBatch(indexName, ips, from + batch.size(), geoDataByIp, listener);
+        }, listener::onFailure));
+    }
+
+    /**
+     * Drop ips which the coverage filter of the index rules out
+     */
+    private List<String> getCoveredIps(final String indexName, final List<String> ips) {
+        GeoIpCoverageFilter filter = ip2GeoCachedDao.getCoverageFilter(indexName);
+        if (filter == null) {
+            return ips;
+        }
+        return ips.stream().filter(filter::mightContain).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.ip2geo.action;
+
+import static org.opensearch.geospatial.shared.URLBuilder.URL_DELIMITER;
+import static org.opensearch.geospatial.shared.URLBuilder.getPluginURLPrefix;
+import static org.opensearch.rest.RestRequest.Method.POST;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.opensearch.client.node.NodeClient;
+import org.opensearch.core.xcontent.XContentParser;
+import org.opensearch.rest.BaseRestHandler;
+import org.opensearch.rest.RestRequest;
+import org.opensearch.rest.action.RestToXContentListener;
+
+/**
+ * Rest handler for Ip2Geo lookup of ips
+ *
+ * This handler handles a request of
+ * POST /_plugins/geospatial/ip2geo/{name}/_lookup
+ * {
+ *     "ips": ["1.0.0.1", "10.0.0.1"],
+ *     "properties": ["country_name"]
+ * }
+ *
+ * The response has geo data of each ip in the order of the request. All properties are returned when properties is omitted.
+ */
+public class RestLookupIpHandler extends BaseRestHandler {
+    private static final String ACTION_NAME = "ip2geo_lookup";
+
+    @Override
+    public String getName() {
+        return ACTION_NAME;
+    }
+
+    @Override
+    protected RestChannelConsumer prepareRequest(final RestRequest request, final NodeClient client) throws IOException {
+        final LookupIpRequest lookupIpRequest = new LookupIpRequest(request.param("name"));
+        if (request.hasContentOrSourceParam()) {
+            try (XContentParser parser = request.contentOrSourceParamParser()) {
+                LookupIpRequest.PARSER.parse(parser, lookupIpRequest, null);
+            }
+        }
+        return channel -> client.executeLocally(LookupIpAction.INSTANCE, lookupIpRequest, new RestToXContentListener<>(channel));
+    }
+
+    @Override
+    public List<Route> routes() {
+        String path = String.join(URL_DELIMITER, getPluginURLPrefix(), "ip2geo/{name}/_lookup");
+        return List.of(new Route(POST, path));
+    }
+}
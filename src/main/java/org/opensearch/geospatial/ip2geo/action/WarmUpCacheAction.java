@@ -0,0 +1,26 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.ip2geo.action;
+
+import org.opensearch.action.ActionType;
+
+/**
+ * Ip2Geo cache warm up action
+ */
+public class WarmUpCacheAction extends ActionType<WarmUpCacheResponse> {
+    /**
+     * Warm up cache action instance
+     */
+    public static final WarmUpCacheAction INSTANCE = new WarmUpCacheAction();
+    /**
+     * Warm up cache action name
+     */
+    public static final String NAME = "cluster:admin/geospatial/datasource/cache/warm_up";
+
+    private WarmUpCacheAction() {
+        super(NAME, WarmUpCacheResponse::new);
+    }
+}
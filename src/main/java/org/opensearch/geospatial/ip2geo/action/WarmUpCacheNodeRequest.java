@@ -0,0 +1,37 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.ip2geo.action;
+
+import java.io.IOException;
+
+import org.opensearch.core.common.io.stream.StreamInput;
+import org.opensearch.core.common.io.stream.StreamOutput;
+import org.opensearch.transport.TransportRequest;
+
+import lombok.Getter;
+
+/**
+ * Ip2Geo cache warm up request for a node
+ */
+@Getter
+public class WarmUpCacheNodeRequest extends TransportRequest {
+    private final WarmUpCacheRequest request;
+
+    public WarmUpCacheNodeRequest(final StreamInput in) throws IOException {
+        super(in);
+        request = new WarmUpCacheRequest(in);
+    }
+
+    public WarmUpCacheNodeRequest(final WarmUpCacheRequest request) {
+        this.request = request;
+    }
+
+    @Override
+    public void writeTo(final StreamOutput out) throws IOException {
+        super.writeTo(out);
+        request.writeTo(out);
+    }
+}
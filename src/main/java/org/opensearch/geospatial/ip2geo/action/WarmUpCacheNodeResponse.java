@@ -0,0 +1,42 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.ip2geo.action;
+
+import java.io.IOException;
+
+import org.opensearch.action.support.nodes.BaseNodeResponse;
+import org.opensearch.cluster.node.DiscoveryNode;
+import org.opensearch.core.common.io.stream.StreamInput;
+import org.opensearch.core.common.io.stream.StreamOutput;
+
+import lombok.Getter;
+
+/**
+ * Ip2Geo cache warm up response of a node
+ */
+@Getter
+public class WarmUpCacheNodeResponse extends BaseNodeResponse {
+    /**
+     * @return the number of ranges of the new GeoIP data index put in the cache
+     */
+    private final int warmedUpCount;
+
+    public WarmUpCacheNodeResponse(final DiscoveryNode node, final int warmedUpCount) {
+        super(node);
+        this.warmedUpCount = warmedUpCount;
+    }
+
+    public WarmUpCacheNodeResponse(final StreamInput in) throws IOException {
+        super(in);
+        warmedUpCount = in.readVInt();
+    }
+
+    @Override
+    public void writeTo(final StreamOutput out) throws IOException {
+        super.writeTo(out);
+        out.writeVInt(warmedUpCount);
+    }
+}
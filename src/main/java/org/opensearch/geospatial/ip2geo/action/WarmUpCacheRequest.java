@@ -0,0 +1,72 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.ip2geo.action;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.opensearch.action.support.nodes.BaseNodesRequest;
+import org.opensearch.core.common.io.stream.StreamInput;
+import org.opensearch.core.common.io.stream.StreamOutput;
+
+import lombok.Getter;
+
+/**
+ * Ip2Geo cache warm up request
+ *
+ * Each node resolves the hottest cached ips of the current GeoIP data index of a datasource against a new index.
+ */
+@Getter
+public class WarmUpCacheRequest extends BaseNodesRequest<WarmUpCacheRequest> {
+    /**
+     * @param name the datasource name
+     * @return the datasource name
+     */
+    private final String name;
+    /**
+     * @param indexName the new GeoIP data index name
+     * @return the new GeoIP data index name
+     */
+    private final String indexName;
+    /**
+     * @param fields the fields of the new GeoIP data index
+     * @return the fields of the new GeoIP data index
+     */
+    private final List<String> fields;
+
+    /**
+     * Default constructor
+     * @param name the datasource name
+     * @param indexName the new GeoIP data index name
+     * @param fields the fields of the new GeoIP data index
+     */
+    public WarmUpCacheRequest(final String name, final String indexName, final List<String> fields) {
+        super((String[]) null);
+        this.name = name;
+        this.indexName = indexName;
+        this.fields = fields;
+    }
+
+    /**
+     * Constructor with stream input
+     * @param in the stream input
+     * @throws IOException IOException
+     */
+    public WarmUpCacheRequest(final StreamInput in) throws IOException {
+        super(in);
+        this.name = in.readString();
+        this.indexName = in.readString();
+        this.fields = in.readOptionalStringList();
+    }
+
+    @Override
+    public void writeTo(final StreamOutput out) throws IOException {
+        super.writeTo(out);
+        out.writeString(name);
+        out.writeString(indexName);
+        out.writeOptionalStringCollection(fields);
+    }
+}
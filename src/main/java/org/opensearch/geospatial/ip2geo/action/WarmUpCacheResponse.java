@@ -0,0 +1,50 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.ip2geo.action;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.opensearch.action.FailedNodeException;
+import org.opensearch.action.support.nodes.BaseNodesResponse;
+import org.opensearch.cluster.ClusterName;
+import org.opensearch.core.common.io.stream.StreamInput;
+import org.opensearch.core.common.io.stream.StreamOutput;
+
+/**
+ * Ip2Geo cache warm up response
+ */
+public class WarmUpCacheResponse extends BaseNodesResponse<WarmUpCacheNodeResponse> {
+
+    public WarmUpCacheResponse(final StreamInput in) throws IOException {
+        super(in);
+    }
+
+    public WarmUpCacheResponse(
+        final ClusterName clusterName,
+        final List<WarmUpCacheNodeResponse> nodes,
+        final List<FailedNodeException> failures
+    ) {
+        super(clusterName, nodes, failures);
+    }
+
+    /**
+     * @return the number of ranges put in the cache across all nodes
+     */
+    public long getWarmedUpCount() {
+        return getNodes().stream().mapToLong(WarmUpCacheNodeResponse::getWarmedUpCount).sum();
+    }
+
+    @Override
+    protected List<WarmUpCacheNodeResponse> readNodesFrom(final StreamInput in) throws IOException {
+        return in.readList(WarmUpCacheNodeResponse::new);
+    }
+
+    @Override
+    protected void writeNodesTo(final StreamOutput out, final List<WarmUpCacheNodeResponse> nodeResponses) throws IOException {
+        out.writeList(nodeResponses);
+    }
+}
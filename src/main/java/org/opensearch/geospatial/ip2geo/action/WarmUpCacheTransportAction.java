@@ -0,0 +1,92 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.ip2geo.action;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.opensearch.action.FailedNodeException;
+import org.opensearch.action.support.ActionFilters;
+import org.opensearch.action.support.PlainActionFuture;
+import org.opensearch.action.support.nodes.TransportNodesAction;
+import org.opensearch.cluster.service.ClusterService;
+import org.opensearch.common.inject.Inject;
+import org.opensearch.core.common.io.stream.StreamInput;
+import org.opensearch.geospatial.ip2geo.common.Ip2GeoSettings;
+import org.opensearch.geospatial.ip2geo.dao.Ip2GeoCachedDao;
+import org.opensearch.threadpool.ThreadPool;
+import org.opensearch.transport.TransportService;
+
+/**
+ * Transport action to warm up the ip2geo cache of each node with a new GeoIP data index
+ */
+public class WarmUpCacheTransportAction extends TransportNodesAction<
+    WarmUpCacheRequest,
+    WarmUpCacheResponse,
+    WarmUpCacheNodeRequest,
+    WarmUpCacheNodeResponse> {
+    private final TransportService transportService;
+    private final Ip2GeoCachedDao ip2GeoCachedDao;
+
+    /**
+     * Default constructor
+     * @param transportService the transport service
+     * @param clusterService the cluster service
+     * @param threadPool the thread pool
+     * @param actionFilters the action filters
+     * @param ip2GeoCachedDao the ip2geo cached dao
+     */
+    @Inject
+    public WarmUpCacheTransportAction(
+        final TransportService transportService,
+        final ClusterService clusterService,
+        final ThreadPool threadPool,
+        final ActionFilters actionFilters,
+        final Ip2GeoCachedDao ip2GeoCachedDao
+    ) {
+        super(
+            WarmUpCacheAction.NAME,
+            threadPool,
+            clusterService,
+            transportService,
+            actionFilters,
+            WarmUpCacheRequest::new,
+            WarmUpCacheNodeRequest::new,
+            ThreadPool.Names.GENERIC,
+            WarmUpCacheNodeResponse.class
+        );
+        this.transportService = transportService;
+        this.ip2GeoCachedDao = ip2GeoCachedDao;
+    }
+
+    @Override
+    protected WarmUpCacheResponse newResponse(
+        final WarmUpCacheRequest request,
+        final List<WarmUpCacheNodeResponse> nodeResponses,
+        final List<FailedNodeException> failures
+    ) {
+        return new WarmUpCacheResponse(clusterService.getClusterName(), nodeResponses, failures);
+    }
+
+    @Override
+    protected WarmUpCacheNodeRequest newNodeRequest(final WarmUpCacheRequest request) {
+        return new WarmUpCacheNodeRequest(request);
+    }
+
+    @Override
+    protected WarmUpCacheNodeResponse newNodeResponse(final StreamInput in) throws IOException {
+        return new WarmUpCacheNodeResponse(in);
+    }
+
+    @Override
+    protected WarmUpCacheNodeResponse nodeOperation(final WarmUpCacheNodeRequest nodeRequest) {
+        WarmUpCacheRequest request = nodeRequest.getRequest();
+        PlainActionFuture<Integer> future = new PlainActionFuture<>();
+        ip2GeoCachedDao.warmUp(request.getName(), request.getIndexName(), request.getFields(), future);
+        int warmedUpCount = future.actionGet(clusterService.getClusterSettings().get(Ip2GeoSettings.TIMEOUT));
+        return new WarmUpCacheNodeResponse(transportService.getLocalNode(), warmedUpCount);
+    }
+}
@@ -13,7 +13,9 @@ import java.util.List;
 import java.util.function.Function;
 
 import org.opensearch.common.settings.Setting;
+import org.opensearch.common.unit.MemorySizeValue;
 import org.opensearch.common.unit.TimeValue;
+import org.opensearch.core.common.unit.ByteSizeValue;
 
 /**
  * Settings for Ip2Geo datasource operations
@@ -53,6 +55,59 @@ public class Ip2GeoSettings {
         Setting.Property.Dynamic
     );
 
+    /**
+     * Max number of bulk requests in flight at once while indexing GeoIP data
+     *
+     * Parsing of the next batch continues while bulk requests are in flight, and stops until one of them completes
+     * once this many are in flight.
+     */
+    public static final Setting<Integer> MAX_CONCURRENT_BULK_REQUESTS = Setting.intSetting(
+        "plugins.geospatial.ip2geo.datasource.max_concurrent_bulk_requests",
+        2,
+        1,
+        Setting.Property.NodeScope,
+        Setting.Property.Dynamic
+    );
+
+    /**
+     * Min interval between checkpoints saved into a datasource while indexing GeoIP data
+     *
+     * Each checkpoint rewrites the datasource, which republishes the datasource metadata on every node.
+     */
+    public static final Setting<TimeValue> CHECKPOINT_INTERVAL = Setting.timeSetting(
+        "plugins.geospatial.ip2geo.datasource.checkpoint_interval",
+        TimeValue.timeValueMinutes(1),
+        TimeValue.ZERO,
+        Setting.Property.NodeScope,
+        Setting.Property.Dynamic
+    );
+
+    /**
+     * Store GeoIP data of a new GeoIP data index in the compact layout
+     *
+     * Ranges are indexed as first and last ip sorted by the first ip, and geo data is stored as a binary doc value without _source.
+     * An existing GeoIP data index keeps its layout.
+     */
+    public static final Setting<Boolean> COMPACT_INDEX_ENABLED = Setting.boolSetting(
+        "plugins.geospatial.ip2geo.datasource.compact_index_enabled",
+        false,
+        Setting.Property.NodeScope,
+        Setting.Property.Dynamic
+    );
+
+    /**
+     * Update a GeoIP data index by indexing changed blocks of rows on a copy of the current index
+     *
+     * Blocks of rows which did not change since the previous version are kept as they are. An index without block digests
+     * or with different fields is built from scratch. See {@link org.opensearch.geospatial.ip2geo.dao.GeoIpDataBlockDigests}
+     */
+    public static final Setting<Boolean> DELTA_UPDATE_ENABLED = Setting.boolSetting(
+        "plugins.geospatial.ip2geo.datasource.delta_update_enabled",
+        false,
+        Setting.Property.NodeScope,
+        Setting.Property.Dynamic
+    );
+
     /**
      * Timeout value for Ip2Geo processor
      */
@@ -75,6 +130,79 @@ public class Ip2GeoSettings {
         Setting.Property.Dynamic
     );
 
+    /**
+     * Max memory size for geo data cache
+     *
+     * When set to a non negative value, the cache is limited by estimated memory usage of entries instead of {@link #CACHE_SIZE}.
+     * The value can be a percentage of heap such as 1%.
+     */
+    public static final Setting<ByteSizeValue> CACHE_MEMORY_SIZE = new Setting<>(
+        "plugins.geospatial.ip2geo.processor.cache_memory_size",
+        "-1",
+        value -> MemorySizeValue.parseBytesSizeValueOrHeapRatio(value, "plugins.geospatial.ip2geo.processor.cache_memory_size"),
+        Setting.Property.NodeScope,
+        Setting.Property.Dynamic
+    );
+
+    /**
+     * Max size for cache of ip ranges not having geo data
+     */
+    public static final Setting<Long> NOT_FOUND_CACHE_SIZE = Setting.longSetting(
+        "plugins.geospatial.ip2geo.processor.not_found_cache_size",
+        1000,
+        0,
+        Setting.Property.NodeScope,
+        Setting.Property.Dynamic
+    );
+
+    /**
+     * Max number of the most recently used ranges of the current GeoIP data index to resolve against a new index
+     * before a datasource switches to the new index. Setting it to 0 disables the cache warm up.
+     */
+    public static final Setting<Integer> CACHE_WARM_UP_SIZE = Setting.intSetting(
+        "plugins.geospatial.ip2geo.processor.cache_warm_up_size",
+        1000,
+        0,
+        Setting.Property.NodeScope,
+        Setting.Property.Dynamic
+    );
+
+    /**
+     * Interval to write the most recently used ranges of each GeoIP data index in the cache to a file under node data path
+     * The ranges are loaded into the cache again after a node restart. The number of ranges follows {@link #CACHE_WARM_UP_SIZE}.
+     * Setting it to 0 disables writing the file.
+     */
+    public static final Setting<TimeValue> CACHE_PERSIST_INTERVAL = Setting.timeSetting(
+        "plugins.geospatial.ip2geo.processor.cache_persist_interval",
+        TimeValue.timeValueMinutes(5),
+        TimeValue.ZERO,
+        Setting.Property.NodeScope,
+        Setting.Property.Dynamic
+    );
+
+    /**
+     * Max number of ranges in a GeoIP data index to be loaded in memory for lookups
+     * GeoIP data index having more ranges than this value is looked up using search request
+     */
+    public static final Setting<Long> IN_MEMORY_MAX_RANGES = Setting.longSetting(
+        "plugins.geospatial.ip2geo.processor.in_memory_max_ranges",
+        100000,
+        0,
+        Setting.Property.NodeScope,
+        Setting.Property.Dynamic
+    );
+
+    /**
+     * Enable lookups through a memory mapped file under node data path
+     * for GeoIP data index having more ranges than {@link #IN_MEMORY_MAX_RANGES}
+     */
+    public static final Setting<Boolean> LOOKUP_FILE_ENABLED = Setting.boolSetting(
+        "plugins.geospatial.ip2geo.processor.lookup_file_enabled",
+        true,
+        Setting.Property.NodeScope,
+        Setting.Property.Dynamic
+    );
+
     /**
      * A list of CIDR which will be blocked to be used as datasource endpoint
      * Private network addresses will be blocked as default
@@ -115,7 +243,24 @@ public class Ip2GeoSettings {
      * @return a list of all settings for Ip2Geo feature
      */
     public static final List<Setting<?>> settings() {
-        return List.of(DATASOURCE_ENDPOINT, DATASOURCE_UPDATE_INTERVAL, BATCH_SIZE, TIMEOUT, CACHE_SIZE, DATASOURCE_ENDPOINT_DENYLIST);
+        return List.of(
+            DATASOURCE_ENDPOINT,
+            DATASOURCE_UPDATE_INTERVAL,
+            BATCH_SIZE,
+            MAX_CONCURRENT_BULK_REQUESTS,
+            CHECKPOINT_INTERVAL,
+            COMPACT_INDEX_ENABLED,
+            DELTA_UPDATE_ENABLED,
+            TIMEOUT,
+            CACHE_SIZE,
+            CACHE_MEMORY_SIZE,
+            NOT_FOUND_CACHE_SIZE,
+            CACHE_WARM_UP_SIZE,
+            CACHE_PERSIST_INTERVAL,
+            IN_MEMORY_MAX_RANGES,
+            LOOKUP_FILE_ENABLED,
+            DATASOURCE_ENDPOINT_DENYLIST
+        );
     }
 
     /**
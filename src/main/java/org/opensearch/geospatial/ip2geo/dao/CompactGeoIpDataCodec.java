@@ -0,0 +1,165 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.ip2geo.dao;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.util.Strings;
+import org.apache.lucene.store.ByteArrayDataInput;
+import org.apache.lucene.util.BytesRef;
+import org.opensearch.OpenSearchException;
+import org.opensearch.common.collect.Tuple;
+import org.opensearch.common.io.stream.BytesStreamOutput;
+import org.opensearch.common.network.InetAddresses;
+import org.opensearch.common.network.NetworkAddress;
+import org.opensearch.common.xcontent.XContentFactory;
+import org.opensearch.core.common.bytes.BytesArray;
+import org.opensearch.core.common.bytes.BytesReference;
+import org.opensearch.core.common.io.stream.StreamInput;
+import org.opensearch.core.xcontent.XContentBuilder;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Codec of GeoIP data in the compact layout of a GeoIP data index
+ *
+ * In the compact layout, a range is indexed with its first and last ip as ip fields, and the index is sorted by the first ip.
+ * The CIDR and geo data of the range are encoded into a single binary doc value and _source is disabled.
+ * Field names are kept once in _meta of the index mapping, and geo data of a range is encoded as values in the order of the fields.
+ */
+@Getter
+@AllArgsConstructor
+public final class CompactGeoIpDataCodec {
+    /**
+     * Value of the layout in _meta of the mapping of a GeoIP data index in the compact layout
+     */
+    public static final String LAYOUT = "compact";
+    static final String META_LAYOUT_FIELD_NAME = "layout";
+    static final String META_FIELDS_FIELD_NAME = "fields";
+    static final String START_FIELD_NAME = "_start";
+    static final String END_FIELD_NAME = "_end";
+    /**
+     * @return the fields of geo data in the order of encoded values
+     */
+    private final List<String> fields;
+
+    /**
+     * Create a document of a CSV record of GeoIP data
+     *
+     * @param values values of the record where the first value is the CIDR and the others are values of the fields
+     * @return the document
+     * @throws IOException the exception
+     */
+    public XContentBuilder createDocument(final String[] values) throws IOException {
+        return createDocument(values, null);
+    }
+
+    /**
+     * Create a document of a CSV record of GeoIP data in a given block
+     *
+     * @param values values of the record where the first value is the CIDR and the others are values of the fields
+     * @param blockId the id of the block having the record, or null to leave it out. See {@link GeoIpDataBlockDigests}
+     * @return the document
+     * @throws IOException the exception
+     */
+    public XContentBuilder createDocument(final String[] values, final String blockId) throws IOException {
+        if (values.length != fields.size() + 1) {
+            throw new OpenSearchException("fields[{}] and record[{}] length does not match", fields, values);
+        }
+        InetAddress[] range = toRange(values[0]);
+        XContentBuilder builder = XContentFactory.jsonBuilder();
+        builder.startObject();
+        builder.field(START_FIELD_NAME, NetworkAddress.format(range[0]));
+        builder.field(END_FIELD_NAME, NetworkAddress.format(range[1]));
+        if (blockId != null) {
+            builder.field(GeoIpDataDao.BLOCK_FIELD_NAME, blockId);
+        }
+        builder.field(GeoIpDataDao.DATA_FIELD_NAME, BytesReference.toBytes(encode(values)));
+        builder.endObject();
+        builder.close();
+        return builder;
+    }
+
+    private BytesReference encode(final String[] values) throws IOException {
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            out.writeString(values[0]);
+            for (int i = 1; i < values.length; i++) {
+                out.writeOptionalString(Strings.isBlank(values[i]) ? null : values[i]);
+            }
+            return out.bytes();
+        }
+    }
+
+    /**
+     * Decode an encoded value of the binary field
+     *
+     * @param bytes the encoded value
+     * @return the CIDR and geo data of the range
+     */
+    public GeoIpRange decode(final byte[] bytes) {
+        return decode(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Decode a binary doc value read from Lucene
+     *
+     * A binary doc value of a binary field holds the number of values followed by the length and bytes of each value.
+     * A range has a single value.
+     *
+     * @param docValue the binary doc value
+     * @return the CIDR and geo data of the range
+     */
+    public GeoIpRange decodeDocValue(final BytesRef docValue) {
+        ByteArrayDataInput in = new ByteArrayDataInput(docValue.bytes, docValue.offset, docValue.length);
+        in.readVInt();
+        int length = in.readVInt();
+        return decode(docValue.bytes, in.getPosition(), length);
+    }
+
+    private GeoIpRange decode(final byte[] bytes, final int offset, final int length) {
+        try (StreamInput in = new BytesArray(bytes, offset, length).streamInput()) {
+            String cidr = in.readString();
+            Map<String, Object> data = new HashMap<>();
+            for (String field : fields) {
+                String value = in.readOptionalString();
+                if (value != null) {
+                    data.put(field, value);
+                }
+            }
+            return new GeoIpRange(cidr, data);
+        } catch (IOException e) {
+            throw new OpenSearchException("failed to decode geoip data", e);
+        }
+    }
+
+    /**
+     * Return the first and the last ip of a CIDR block or a single ip address
+     */
+    private static InetAddress[] toRange(final String cidr) {
+        if (cidr.indexOf('/') == -1) {
+            InetAddress address = InetAddresses.forString(cidr);
+            return new InetAddress[] { address, address };
+        }
+        Tuple<InetAddress, Integer> tuple = InetAddresses.parseCidr(cidr);
+        byte[] first = tuple.v1().getAddress();
+        byte[] last = tuple.v1().getAddress();
+        for (int bit = tuple.v2(); bit < first.length * Byte.SIZE; bit++) {
+            first[bit / Byte.SIZE] &= (byte) ~(0x80 >>> (bit % Byte.SIZE));
+            last[bit / Byte.SIZE] |= (byte) (0x80 >>> (bit % Byte.SIZE));
+        }
+        try {
+            return new InetAddress[] { InetAddress.getByAddress(first), InetAddress.getByAddress(last) };
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+}
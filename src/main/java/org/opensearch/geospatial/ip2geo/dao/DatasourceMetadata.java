@@ -0,0 +1,65 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.ip2geo.dao;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+
+import org.opensearch.geospatial.ip2geo.common.DatasourceState;
+import org.opensearch.geospatial.ip2geo.jobscheduler.Datasource;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+/**
+ * Immutable snapshot of datasource metadata which an ip2geo processor needs to enrich a document
+ *
+ * Expiration is precomputed as an epoch millis deadline so that checking it costs a single comparison.
+ * Snapshots are compared by value so that a datasource change which does not affect processors, such as a
+ * checkpoint saved while indexing GeoIP data, is not republished.
+ */
+@Getter
+@EqualsAndHashCode
+@AllArgsConstructor
+public final class DatasourceMetadata {
+    private final String indexName;
+    private final long expirationTimeInMillis;
+    private final DatasourceState state;
+    private final List<String> fields;
+
+    public DatasourceMetadata(final Datasource datasource) {
+        this(
+            datasource.currentIndexName(),
+            toEpochMilli(datasource.expirationDay()),
+            datasource.getState(),
+            datasource.getDatabase() == null || datasource.getDatabase().getFields() == null
+                ? null
+                : Collections.unmodifiableList(datasource.getDatabase().getFields())
+        );
+    }
+
+    /**
+     * @return true if GeoIP data of the datasource is expired
+     */
+    public boolean isExpired() {
+        return expirationTimeInMillis < System.currentTimeMillis();
+    }
+
+    /**
+     * Instant.MAX and Instant.MIN do not fit in epoch millis. They are clamped to the range of long.
+     */
+    private static long toEpochMilli(final Instant instant) {
+        if (instant.isAfter(Instant.ofEpochMilli(Long.MAX_VALUE))) {
+            return Long.MAX_VALUE;
+        }
+        if (instant.isBefore(Instant.ofEpochMilli(Long.MIN_VALUE))) {
+            return Long.MIN_VALUE;
+        }
+        return instant.toEpochMilli();
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.ip2geo.dao;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.RamUsageEstimator;
+
+import lombok.Getter;
+
+/**
+ * Immutable geo data of a range
+ *
+ * Field names are kept in a {@link GeoDataSchema} shared by all records of an index and a record stores only values
+ * in the order of the schema. A field without value is stored as null and is not visible through the map interface.
+ */
+public final class GeoDataRecord extends AbstractMap<String, Object> implements Accountable {
+    private static final long SHALLOW_SIZE = RamUsageEstimator.shallowSizeOfInstance(GeoDataRecord.class);
+    @Getter
+    private final GeoDataSchema schema;
+    private final Object[] values;
+    private final int size;
+
+    GeoDataRecord(final GeoDataSchema schema, final Object[] values) {
+        this.schema = schema;
+        this.values = values;
+        int count = 0;
+        for (Object value : values) {
+            if (value != null) {
+                count++;
+            }
+        }
+        this.size = count;
+    }
+
+    @Override
+    public Object get(final Object key) {
+        if (key instanceof String == false) {
+            return null;
+        }
+        int index = schema.indexOf((String) key);
+        return index < 0 ? null : values[index];
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Values are interned in the schema and shared by records. Therefore, only the value array is counted.
+     */
+    @Override
+    public long ramBytesUsed() {
+        return SHALLOW_SIZE + RamUsageEstimator.shallowSizeOf(values);
+    }
+
+    /**
+     * Return a new mutable map having values of given fields
+     *
+     * @param fieldIndices indices of the fields in the schema
+     * @return the map
+     */
+    public Map<String, Object> project(final int[] fieldIndices) {
+        Map<String, Object> result = new HashMap<>();
+        for (int index : fieldIndices) {
+            if (values[index] != null) {
+                result.put(schema.getFieldName(index), values[index]);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, Object>> iterator() {
+                return new Iterator<>() {
+                    private int next = advance(0);
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < values.length;
+                    }
+
+                    @Override
+                    public Entry<String, Object> next() {
+                        if (hasNext() == false) {
+                            throw new NoSuchElementException();
+                        }
+                        Entry<String, Object> entry = new SimpleImmutableEntry<>(schema.getFieldName(next), values[next]);
+                        next = advance(next + 1);
+                        return entry;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private int advance(int index) {
+        while (index < values.length && values[index] == null) {
+            index++;
+        }
+        return index;
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.ip2geo.dao;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Field names shared by geo data records of a GeoIP data index
+ *
+ * A {@link GeoDataRecord} keeps only values and refers the field names here. String values are interned in a dictionary
+ * of the schema so that records having the same value, such as a country name, share a single instance.
+ */
+public final class GeoDataSchema {
+    private static final int MAX_DICTIONARY_SIZE = 100000;
+    private final String[] fieldNames;
+    private final Map<String, Integer> fieldIndices;
+    private final Map<String, String> dictionary = new ConcurrentHashMap<>();
+
+    public GeoDataSchema(final List<String> fieldNames) {
+        this.fieldNames = fieldNames.toArray(new String[0]);
+        this.fieldIndices = new HashMap<>();
+        for (int i = 0; i < this.fieldNames.length; i++) {
+            fieldIndices.put(this.fieldNames[i], i);
+        }
+    }
+
+    /**
+     * @return the number of fields
+     */
+    public int size() {
+        return fieldNames.length;
+    }
+
+    /**
+     * @param index the field index
+     * @return the field name of the index
+     */
+    public String getFieldName(final int index) {
+        return fieldNames[index];
+    }
+
+    /**
+     * @param fieldName the field name
+     * @return the index of the field, or -1 if the field is not in the schema
+     */
+    public int indexOf(final String fieldName) {
+        Integer index = fieldIndices.get(fieldName);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Return indices of given fields skipping fields not in the schema
+     *
+     * @param fieldNames the field names, or null for all fields
+     * @return the field indices
+     */
+    public int[] indicesOf(final Set<String> fieldNames) {
+        if (fieldNames == null) {
+            int[] indices = new int[this.fieldNames.length];
+            for (int i = 0; i < indices.length; i++) {
+                indices[i] = i;
+            }
+            return indices;
+        }
+        return fieldNames.stream().mapToInt(this::indexOf).filter(index -> index >= 0).toArray();
+    }
+
+    /**
+     * Convert geo data into a record of this schema
+     *
+     * @param geoData the geo data
+     * @return the record, or the given geo data as it is if it has a field not in the schema or a non string value
+     */
+    public Map<String, Object> toRecord(final Map<String, Object> geoData) {
+        Object[] values = new Object[fieldNames.length];
+        for (Map.Entry<String, Object> entry : geoData.entrySet()) {
+            int index = indexOf(entry.getKey());
+            if (index < 0 || entry.getValue() instanceof String == false) {
+                return geoData;
+            }
+            values[index] = intern((String) entry.getValue());
+        }
+        return new GeoDataRecord(this, values);
+    }
+
+    private String intern(final String value) {
+        if (dictionary.size() >= MAX_DICTIONARY_SIZE) {
+            String existing = dictionary.get(value);
+            return existing == null ? value : existing;
+        }
+        String existing = dictionary.putIfAbsent(value, value);
+        return existing == null ? value : existing;
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.ip2geo.dao;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.commons.csv.CSVRecord;
+import org.apache.lucene.util.ArrayUtil;
+import org.opensearch.common.io.stream.BytesStreamOutput;
+import org.opensearch.core.common.bytes.BytesReference;
+import org.opensearch.core.common.io.stream.StreamInput;
+
+/**
+ * Digests of blocks of consecutive rows of GeoIP data in a GeoIP data index
+ *
+ * Rows of a CSV file are split into blocks at rows whose hash ends with a given number of zero bits, or at a max block size.
+ * As a block boundary depends on the content of rows only, an added, removed or changed row changes the block having it
+ * and leaves the other blocks and their digests as they are. Comparing digests of a new CSV file with digests of the current
+ * index tells which blocks need to be indexed and which blocks need to be removed, without reading the current index.
+ *
+ * Each document of a GeoIP data index holds the id of its block so that rows of a removed block can be deleted.
+ * The digests are immutable once built and can be shared by multiple threads.
+ */
+public final class GeoIpDataBlockDigests {
+    /**
+     * A block ends at a row whose hash has zero in these bits, making the average block size 256 rows
+     */
+    private static final long BOUNDARY_MASK = 0xFF;
+    private static final int MAX_BLOCK_SIZE = 4096;
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private final long[] digests;
+
+    private GeoIpDataBlockDigests(final long[] digests) {
+        this.digests = digests;
+    }
+
+    /**
+     * @param digest the digest of a block
+     * @return true if the block exists
+     */
+    public boolean contains(final long digest) {
+        return Arrays.binarySearch(digests, digest) >= 0;
+    }
+
+    /**
+     * @return the number of blocks
+     */
+    public int size() {
+        return digests.length;
+    }
+
+    /**
+     * Return ids of blocks which do not exist in other digests
+     *
+     * @param other other digests
+     * @return the block ids
+     */
+    public List<String> idsNotIn(final GeoIpDataBlockDigests other) {
+        List<String> ids = new ArrayList<>();
+        for (long digest : digests) {
+            if (other.contains(digest) == false) {
+                ids.add(toId(digest));
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Return the id of a block to be stored in each document of the block
+     *
+     * @param digest the digest of the block
+     * @return the id
+     */
+    public static String toId(final long digest) {
+        return String.format(Locale.ROOT, "%016x", digest);
+    }
+
+    /**
+     * Serialize the digests into bytes
+     *
+     * @return the bytes
+     * @throws IOException if writing fails
+     */
+    public BytesReference toBytes() throws IOException {
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            out.writeLongArray(digests);
+            return out.bytes();
+        }
+    }
+
+    /**
+     * Deserialize digests from bytes written by {@link #toBytes()}
+     *
+     * @param bytes the bytes
+     * @return the digests
+     * @throws IOException if reading fails
+     */
+    public static GeoIpDataBlockDigests fromBytes(final BytesReference bytes) throws IOException {
+        try (StreamInput in = bytes.streamInput()) {
+            return new GeoIpDataBlockDigests(in.readLongArray());
+        }
+    }
+
+    /**
+     * Splits rows into blocks and computes the digest of each block
+     *
+     * The digest of a block covers the header and all values of its rows in order. The splitter is not thread safe.
+     */
+    static class Splitter {
+        private final long seed;
+        private long digest;
+        private int size;
+        private long[] finished = new long[16];
+        private int finishedCount;
+
+        Splitter(final String[] fields) {
+            long hash = FNV_OFFSET_BASIS;
+            for (String field : fields) {
+                hash = hash(hash, field);
+            }
+            this.seed = fmix64(hash);
+            this.digest = seed;
+        }
+
+        /**
+         * Add a row to the current block
+         *
+         * @param record the row
+         * @return true if the current block ends with the row
+         */
+        boolean add(final CSVRecord record) {
+            long hash = FNV_OFFSET_BASIS;
+            for (int i = 0; i < record.size(); i++) {
+                hash = hash(hash, record.get(i));
+            }
+            hash = fmix64(hash);
+            digest = fmix64(digest * FNV_PRIME + hash);
+            size++;
+            return (hash & BOUNDARY_MASK) == 0 || size == MAX_BLOCK_SIZE;
+        }
+
+        /**
+         * End the current block
+         *
+         * @return the digest of the block
+         */
+        long finishBlock() {
+            long result = digest;
+            if (finishedCount == finished.length) {
+                finished = ArrayUtil.grow(finished, finishedCount + 1);
+            }
+            finished[finishedCount++] = result;
+            digest = seed;
+            size = 0;
+            return result;
+        }
+
+        /**
+         * @return digests of all finished blocks
+         */
+        GeoIpDataBlockDigests digests() {
+            long[] sorted = ArrayUtil.copyOfSubArray(finished, 0, finishedCount);
+            Arrays.sort(sorted);
+            return new GeoIpDataBlockDigests(sorted);
+        }
+
+        /**
+         * FNV-1a over chars of a value followed by its length so that values are not concatenated ambiguously
+         */
+        private static long hash(long hash, final String value) {
+            for (int i = 0; i < value.length(); i++) {
+                hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+            }
+            return (hash ^ value.length()) * FNV_PRIME;
+        }
+
+        /**
+         * Finalizer of MurmurHash3 to spread bits of a hash
+         */
+        private static long fmix64(long hash) {
+            hash ^= hash >>> 33;
+            hash *= 0xff51afd7ed558ccdL;
+            hash ^= hash >>> 33;
+            hash *= 0xc4ceb93fe53a87e3L;
+            hash ^= hash >>> 33;
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.ip2geo.dao;
+
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.opensearch.OpenSearchException;
+import org.opensearch.action.bulk.BulkRequest;
+import org.opensearch.action.bulk.BulkResponse;
+import org.opensearch.client.Client;
+import org.opensearch.common.unit.TimeValue;
+import org.opensearch.core.action.ActionListener;
+import org.opensearch.geospatial.shared.StashedThreadContext;
+
+/**
+ * Sends bulk requests of GeoIP data to an index while the caller keeps parsing the next batch
+ *
+ * At most a given number of bulk requests are in flight at once. Submitting another one blocks until one of them completes,
+ * so that a fast parser cannot pile up batches in memory. Failures of all bulk requests are collected into the first one
+ * as suppressed exceptions, and no more bulk request is sent once a failure is seen.
+ *
+ * Bulk requests can be submitted with the number of rows they cover so that the caller can checkpoint the number of rows
+ * whose bulk requests have all succeeded. See {@link #committedRows()}
+ */
+class GeoIpDataBulkIngester {
+    private final Client client;
+    private final String indexName;
+    private final int maxConcurrentRequests;
+    private final TimeValue timeout;
+    private final Semaphore semaphore;
+    private final AtomicReference<OpenSearchException> failure = new AtomicReference<>();
+    /**
+     * First rows of bulk requests which have not succeeded yet. A failed bulk request is never removed.
+     */
+    private final NavigableSet<Long> pendingStartRows = new TreeSet<>();
+    private long submittedRows;
+
+    GeoIpDataBulkIngester(final Client client, final String indexName, final int maxConcurrentRequests, final TimeValue timeout) {
+        this.client = client;
+        this.indexName = indexName;
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        this.timeout = timeout;
+        this.semaphore = new Semaphore(maxConcurrentRequests);
+    }
+
+    /**
+     * Send a bulk request asynchronously
+     *
+     * Blocks while the max number of bulk requests are in flight.
+     *
+     * @param bulkRequest the bulk request which the caller must not modify afterward
+     * @throws OpenSearchException if any previous bulk request failed or no bulk request completed within the timeout
+     */
+    void submit(final BulkRequest bulkRequest) {
+        throwIfFailed();
+        acquire(1);
+        send(bulkRequest, () -> {});
+    }
+
+    /**
+     * Send a bulk request covering rows up to a given row asynchronously
+     *
+     * Blocks while the max number of bulk requests are in flight.
+     *
+     * @param bulkRequest the bulk request which the caller must not modify afterward
+     * @param endRow the number of rows covered by this and all previous bulk requests, which must grow on each call
+     * @throws OpenSearchException if any previous bulk request failed or no bulk request completed within the timeout
+     */
+    void submit(final BulkRequest bulkRequest, final long endRow) {
+        throwIfFailed();
+        acquire(1);
+        long startRow;
+        synchronized (pendingStartRows) {
+            startRow = submittedRows;
+            submittedRows = endRow;
+            pendingStartRows.add(startRow);
+        }
+        send(bulkRequest, () -> {
+            synchronized (pendingStartRows) {
+                pendingStartRows.remove(startRow);
+            }
+        });
+    }
+
+    /**
+     * Return the number of rows whose bulk requests have all succeeded
+     *
+     * @return the number of rows
+     */
+    long committedRows() {
+        synchronized (pendingStartRows) {
+            return pendingStartRows.isEmpty() ? submittedRows : pendingStartRows.first();
+        }
+    }
+
+    private void send(final BulkRequest bulkRequest, final Runnable onSuccess) {
+        ActionListener<BulkResponse> listener = ActionListener.runAfter(ActionListener.wrap(response -> {
+            if (response.hasFailures()) {
+                addFailure(
+                    new OpenSearchException(
+                        "error occurred while ingesting GeoIP data in {} with an error {}",
+                        indexName,
+                        response.buildFailureMessage()
+                    )
+                );
+            } else {
+                onSuccess.run();
+            }
+        }, e -> addFailure(new OpenSearchException("error occurred while ingesting GeoIP data in {}", e, indexName))), semaphore::release);
+        try {
+            StashedThreadContext.run(client, () -> client.bulk(bulkRequest, listener));
+        } catch (Exception e) {
+            listener.onFailure(e);
+        }
+    }
+
+    /**
+     * Wait for all bulk requests in flight to complete
+     *
+     * @throws OpenSearchException if any bulk request failed or the bulk requests did not complete within the timeout
+     */
+    void awaitCompletion() {
+        acquire(maxConcurrentRequests);
+        semaphore.release(maxConcurrentRequests);
+        throwIfFailed();
+    }
+
+    /**
+     * Wait for all bulk requests in flight to complete without throwing, to be used when ingestion is aborted
+     * so that no bulk request is left writing to the index
+     */
+    void awaitCompletionQuietly() {
+        try {
+            if (semaphore.tryAcquire(maxConcurrentRequests, timeout.millis(), TimeUnit.MILLISECONDS)) {
+                semaphore.release(maxConcurrentRequests);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void acquire(final int permits) {
+        boolean acquired;
+        try {
+            acquired = semaphore.tryAcquire(permits, timeout.millis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OpenSearchException("interrupted while ingesting GeoIP data in {}", e, indexName);
+        }
+        if (acquired == false) {
+            throw new OpenSearchException("timed out after {} waiting for bulk requests of GeoIP data in {}", timeout, indexName);
+        }
+    }
+
+    private void addFailure(final OpenSearchException e) {
+        if (failure.compareAndSet(null, e) == false) {
+            failure.get().addSuppressed(e);
+        }
+    }
+
+    private void throwIfFailed() {
+        OpenSearchException e = failure.get();
+        if (e != null) {
+            throw e;
+        }
+    }
+}
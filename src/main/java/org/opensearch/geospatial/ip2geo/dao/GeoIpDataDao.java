@@ -16,15 +16,20 @@ import java.net.URLConnection;
 import java.nio.charset.StandardCharsets;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Base64;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
-import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
 import java.util.stream.Collectors;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
@@ -35,33 +40,54 @@ import org.apache.commons.csv.CSVRecord;
 import org.apache.logging.log4j.util.Strings;
 import org.opensearch.OpenSearchException;
 import org.opensearch.SpecialPermission;
-import org.opensearch.action.DocWriteRequest;
 import org.opensearch.action.admin.indices.create.CreateIndexRequest;
+import org.opensearch.action.admin.indices.shrink.ResizeRequest;
+import org.opensearch.action.admin.indices.shrink.ResizeType;
 import org.opensearch.action.bulk.BulkRequest;
-import org.opensearch.action.bulk.BulkResponse;
+import org.opensearch.action.get.GetResponse;
 import org.opensearch.action.index.IndexRequest;
+import org.opensearch.action.search.MultiSearchRequestBuilder;
+import org.opensearch.action.search.MultiSearchResponse;
+import org.opensearch.action.search.SearchRequestBuilder;
 import org.opensearch.action.search.SearchResponse;
+import org.opensearch.action.support.ContextPreservingActionListener;
 import org.opensearch.action.support.IndicesOptions;
 import org.opensearch.action.support.master.AcknowledgedResponse;
 import org.opensearch.client.Client;
 import org.opensearch.client.Requests;
+import org.opensearch.cluster.ClusterState;
+import org.opensearch.cluster.metadata.IndexMetadata;
+import org.opensearch.cluster.routing.IndexRoutingTable;
 import org.opensearch.cluster.routing.Preference;
+import org.opensearch.cluster.routing.ShardRoutingState;
 import org.opensearch.cluster.service.ClusterService;
 import org.opensearch.common.SuppressForbidden;
+import org.opensearch.common.geo.ShapeRelation;
 import org.opensearch.common.settings.ClusterSettings;
 import org.opensearch.common.unit.TimeValue;
 import org.opensearch.common.xcontent.XContentFactory;
 import org.opensearch.common.xcontent.XContentHelper;
 import org.opensearch.common.xcontent.XContentType;
+import org.opensearch.core.action.ActionListener;
+import org.opensearch.core.common.bytes.BytesArray;
+import org.opensearch.core.common.bytes.BytesReference;
 import org.opensearch.core.xcontent.XContentBuilder;
 import org.opensearch.geospatial.annotation.VisibleForTesting;
 import org.opensearch.geospatial.constants.IndexSetting;
+import org.opensearch.geospatial.ip2geo.action.LookupGeoIpDataAction;
+import org.opensearch.geospatial.ip2geo.action.LookupGeoIpDataRequest;
+import org.opensearch.geospatial.ip2geo.action.LookupGeoIpDataResponse;
 import org.opensearch.geospatial.ip2geo.common.DatasourceManifest;
 import org.opensearch.geospatial.ip2geo.common.Ip2GeoSettings;
 import org.opensearch.geospatial.ip2geo.common.URLDenyListChecker;
+import org.opensearch.geospatial.ip2geo.lookup.GeoIpCoverageFilter;
 import org.opensearch.geospatial.shared.Constants;
 import org.opensearch.geospatial.shared.StashedThreadContext;
+import org.opensearch.index.query.QueryBuilder;
 import org.opensearch.index.query.QueryBuilders;
+import org.opensearch.search.SearchHit;
+import org.opensearch.search.sort.FieldSortBuilder;
+import org.opensearch.search.sort.SortBuilders;
 
 import lombok.NonNull;
 import lombok.extern.log4j.Log4j2;
@@ -71,8 +97,21 @@ import lombok.extern.log4j.Log4j2;
  */
 @Log4j2
 public class GeoIpDataDao {
-    private static final String IP_RANGE_FIELD_NAME = "_cidr";
-    private static final String DATA_FIELD_NAME = "_data";
+    static final String IP_RANGE_FIELD_NAME = "_cidr";
+    static final String DATA_FIELD_NAME = "_data";
+    private static final String MAPPING_META_FIELD_NAME = "_meta";
+    /**
+     * Id of the document holding the coverage filter in a GeoIP data index. It cannot be taken by a range as it is not an ip.
+     */
+    static final String COVERAGE_FILTER_ID = "coverage_filter";
+    static final String COVERAGE_FILTER_FIELD_NAME = "_coverage";
+    /**
+     * Field holding the id of the block of rows a range belongs to. See {@link GeoIpDataBlockDigests}
+     */
+    static final String BLOCK_FIELD_NAME = "_block";
+    static final String BLOCK_DIGESTS_ID = "block_digests";
+    static final String BLOCK_DIGESTS_FIELD_NAME = "_blocks";
+    private static final int MAX_BLOCK_IDS_PER_QUERY = 1024;
     private static final Map<String, Object> INDEX_SETTING_TO_CREATE = Map.of(
         IndexSetting.NUMBER_OF_SHARDS,
         1,
@@ -89,10 +128,25 @@ public class GeoIpDataDao {
         IndexSetting.BLOCKS_WRITE,
         true
     );
+    private static final Map<String, Object> INDEX_SETTING_TO_UNFREEZE = Map.of(
+        IndexSetting.NUMBER_OF_REPLICAS,
+        0,
+        IndexSetting.AUTO_EXPAND_REPLICAS,
+        "false",
+        IndexSetting.BLOCKS_WRITE,
+        false
+    );
+    private static final Map<String, Object> COMPACT_INDEX_SETTING_TO_CREATE = Map.of(
+        IndexSetting.SORT_FIELD,
+        CompactGeoIpDataCodec.START_FIELD_NAME,
+        IndexSetting.SORT_ORDER,
+        "asc"
+    );
     private final ClusterService clusterService;
     private final ClusterSettings clusterSettings;
     private final Client client;
     private final URLDenyListChecker urlDenyListChecker;
+    private final Map<String, Optional<CompactGeoIpDataCodec>> codecs = new ConcurrentHashMap<>();
 
     public GeoIpDataDao(final ClusterService clusterService, final Client client, final URLDenyListChecker urlDenyListChecker) {
         this.clusterService = clusterService;
@@ -109,20 +163,70 @@ public class GeoIpDataDao {
      * Then, change the index setting to expand replica to all nodes, and read only allow delete.
      * See {@link #freezeIndex}
      *
+     * When {@link Ip2GeoSettings#COMPACT_INDEX_ENABLED} is set, the index is created in the compact layout.
+     * See {@link CompactGeoIpDataCodec}
+     *
      * @param indexName index name
      */
     public void createIndexIfNotExists(final String indexName) {
         if (clusterService.state().metadata().hasIndex(indexName) == true) {
             return;
         }
-        final CreateIndexRequest createIndexRequest = new CreateIndexRequest(indexName).settings(INDEX_SETTING_TO_CREATE)
-            .mapping(getIndexMapping());
+        final CreateIndexRequest createIndexRequest;
+        if (clusterSettings.get(Ip2GeoSettings.COMPACT_INDEX_ENABLED)) {
+            Map<String, Object> settings = new HashMap<>(INDEX_SETTING_TO_CREATE);
+            settings.putAll(COMPACT_INDEX_SETTING_TO_CREATE);
+            createIndexRequest = new CreateIndexRequest(indexName).settings(settings)
+                .mapping(getIndexMapping("/mappings/ip2geo_geoip_compact.json"));
+        } else {
+            createIndexRequest = new CreateIndexRequest(indexName).settings(INDEX_SETTING_TO_CREATE)
+                .mapping(getIndexMapping("/mappings/ip2geo_geoip.json"));
+        }
         StashedThreadContext.run(
             client,
             () -> client.admin().indices().create(createIndexRequest).actionGet(clusterSettings.get(Ip2GeoSettings.TIMEOUT))
         );
     }
 
+    /**
+     * Create an index for GeoIP data as a copy of a given GeoIP data index
+     *
+     * The source index is write blocked once its GeoIP data is indexed, which a clone requires. The copy shares the settings,
+     * the mapping and the layout of the source, and starts with zero replica and no write block so that it can be updated.
+     * It is frozen again once updated. See {@link #putGeoIpDataDelta}
+     *
+     * @param sourceIndexName the GeoIP data index to copy
+     * @param indexName the index name of the copy
+     */
+    public void cloneIndex(final String sourceIndexName, final String indexName) {
+        ResizeRequest request = new ResizeRequest(indexName, sourceIndexName);
+        request.setResizeType(ResizeType.CLONE);
+        request.getTargetIndexRequest().settings(INDEX_SETTING_TO_UNFREEZE);
+        StashedThreadContext.run(
+            client,
+            () -> client.admin().indices().resizeIndex(request).actionGet(clusterSettings.get(Ip2GeoSettings.TIMEOUT))
+        );
+    }
+
+    /**
+     * Make a GeoIP data index writable with zero replica again
+     *
+     * An update which failed after its index was frozen is resumed on the same index. See {@link #freezeIndex}
+     *
+     * @param indexName index name
+     */
+    public void unfreezeIndex(final String indexName) {
+        StashedThreadContext.run(
+            client,
+            () -> client.admin()
+                .indices()
+                .prepareUpdateSettings(indexName)
+                .setSettings(INDEX_SETTING_TO_UNFREEZE)
+                .execute()
+                .actionGet(clusterSettings.get(Ip2GeoSettings.TIMEOUT))
+        );
+    }
+
     private void freezeIndex(final String indexName) {
         TimeValue timeout = clusterSettings.get(Ip2GeoSettings.TIMEOUT);
         StashedThreadContext.run(client, () -> {
@@ -146,15 +250,27 @@ public class GeoIpDataDao {
      *         "_cidr": {
      *             "type": "ip_range",
      *             "doc_values": false
+     *         },
+     *         "_coverage": {
+     *             "type": "binary",
+     *             "store": true
+     *         },
+     *         "_block": {
+     *             "type": "keyword",
+     *             "doc_values": false
+     *         },
+     *         "_blocks": {
+     *             "type": "binary",
+     *             "store": true
      *         }
      *     }
      * }
      *
      * @return String representing datasource database index mapping
      */
-    private String getIndexMapping() {
+    private String getIndexMapping(final String path) {
         try {
-            try (InputStream is = DatasourceDao.class.getResourceAsStream("/mappings/ip2geo_geoip.json")) {
+            try (InputStream is = DatasourceDao.class.getResourceAsStream(path)) {
                 try (BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
                     return reader.lines().map(String::trim).collect(Collectors.joining());
                 }
@@ -244,33 +360,437 @@ public class GeoIpDataDao {
     /**
      * Query a given index using a given ip address to get geoip data
      *
+     * The search is executed asynchronously and the listener is called with the thread context of the caller.
+     *
      * @param indexName index
      * @param ip ip address
-     * @return geoIP data
+     * @param listener listener to be called with geoIP data and the range it belongs to
      */
-    public Map<String, Object> getGeoIpData(final String indexName, final String ip) {
+    public void getGeoIpData(final String indexName, final String ip, final ActionListener<GeoIpRange> listener) {
+        if (hasStartedLocalShard(indexName)) {
+            lookupLocalShard(
+                indexName,
+                List.of(ip),
+                ActionListener.map(listener, ranges -> ranges.get(0)),
+                () -> searchGeoIpData(indexName, ip, listener)
+            );
+            return;
+        }
+        searchGeoIpData(indexName, ip, listener);
+    }
+
+    private void searchGeoIpData(final String indexName, final String ip, final ActionListener<GeoIpRange> listener) {
+        CompactGeoIpDataCodec codec = getCompactCodec(indexName);
+        ActionListener<SearchResponse> searchListener = ActionListener.map(
+            preserveContext(listener),
+            response -> toGeoIpData(response, codec)
+        );
+        StashedThreadContext.run(client, () -> prepareGeoIpDataSearch(indexName, ip, codec).execute(searchListener));
+    }
+
+    /**
+     * Query a given index using given ip addresses to get geoip data in a single multi search request
+     *
+     * When the index has a started shard in this node, the shard is read directly instead of the search,
+     * falling back to the search if the shard cannot be read.
+     * The search is executed asynchronously and the listener is called with the thread context of the caller.
+     *
+     * @param indexName index
+     * @param ips ip addresses
+     * @param listener listener to be called with geoIP data and the range of each ip address in the same order as given ip addresses
+     */
+    public void getGeoIpData(final String indexName, final List<String> ips, final ActionListener<List<GeoIpRange>> listener) {
+        getGeoIpData(indexName, ips, (ip, e) -> { throw e; }, listener);
+    }
+
+    /**
+     * Query a given index using given ip addresses to get geoip data in a single multi search request,
+     * reporting a failed search of an ip address without failing the other ip addresses
+     *
+     * See {@link #getGeoIpData(String, List, ActionListener)}
+     *
+     * @param indexName index
+     * @param ips ip addresses
+     * @param failureHandler handler to be called with an ip address and the failure of its search before the listener is called
+     * @param listener listener to be called with geoIP data and the range of each ip address in the same order as given ip addresses,
+     *                 or null for an ip address whose search failed
+     */
+    public void getGeoIpData(
+        final String indexName,
+        final List<String> ips,
+        final BiConsumer<String, OpenSearchException> failureHandler,
+        final ActionListener<List<GeoIpRange>> listener
+    ) {
+        if (ips.isEmpty()) {
+            listener.onResponse(Collections.emptyList());
+            return;
+        }
+        if (hasStartedLocalShard(indexName)) {
+            lookupLocalShard(indexName, ips, listener, () -> searchGeoIpData(indexName, ips, failureHandler, listener));
+            return;
+        }
+        searchGeoIpData(indexName, ips, failureHandler, listener);
+    }
+
+    private void searchGeoIpData(
+        final String indexName,
+        final List<String> ips,
+        final BiConsumer<String, OpenSearchException> failureHandler,
+        final ActionListener<List<GeoIpRange>> listener
+    ) {
+        CompactGeoIpDataCodec codec = getCompactCodec(indexName);
+        ActionListener<MultiSearchResponse> searchListener = ActionListener.map(preserveContext(listener), response -> {
+            List<GeoIpRange> geoIpData = new ArrayList<>(ips.size());
+            MultiSearchResponse.Item[] items = response.getResponses();
+            for (int i = 0; i < items.length; i++) {
+                if (items[i].isFailure()) {
+                    failureHandler.accept(
+                        ips.get(i),
+                        new OpenSearchException("failed to get geoip data from {}", items[i].getFailure(), indexName)
+                    );
+                    geoIpData.add(null);
+                } else {
+                    geoIpData.add(toGeoIpData(items[i].getResponse(), codec));
+                }
+            }
+            return geoIpData;
+        });
+        StashedThreadContext.run(client, () -> {
+            MultiSearchRequestBuilder builder = client.prepareMultiSearch();
+            ips.forEach(ip -> builder.add(prepareGeoIpDataSearch(indexName, ip, codec)));
+            builder.execute(searchListener);
+        });
+    }
+
+    /**
+     * Check if GeoIP data of a given index can be read from a local shard
+     *
+     * GeoIP data index is expected to have a single shard. An index having more shards is searched through the search layer.
+     */
+    private boolean hasStartedLocalShard(final String indexName) {
+        ClusterState state = clusterService.state();
+        IndexRoutingTable indexRoutingTable = state.routingTable().index(indexName);
+        if (indexRoutingTable == null || indexRoutingTable.shards().size() != 1) {
+            return false;
+        }
+        String localNodeId = clusterService.localNode().getId();
+        return indexRoutingTable.shardsWithState(ShardRoutingState.STARTED)
+            .stream()
+            .anyMatch(shardRouting -> localNodeId.equals(shardRouting.currentNodeId()));
+    }
+
+    /**
+     * Read GeoIP data from the local shard, falling back to the search when the local shard cannot be read
+     *
+     * The local shard can be relocating, closing or recovering even if the cluster state says it is started.
+     * The search reports a failure per ip address, so a shard level failure does not fail the whole lookup.
+     */
+    private void lookupLocalShard(
+        final String indexName,
+        final List<String> ips,
+        final ActionListener<List<GeoIpRange>> listener,
+        final Runnable fallback
+    ) {
+        ActionListener<LookupGeoIpDataResponse> lookupListener = preserveContext(new ActionListener<>() {
+            @Override
+            public void onResponse(final LookupGeoIpDataResponse response) {
+                listener.onResponse(response.getGeoIpRanges());
+            }
+
+            @Override
+            public void onFailure(final Exception e) {
+                log.debug("Fall back to search as local shard of [{}] cannot be read", indexName, e);
+                fallback.run();
+            }
+        });
+        StashedThreadContext.run(
+            client,
+            () -> client.execute(LookupGeoIpDataAction.INSTANCE, new LookupGeoIpDataRequest(indexName, ips), lookupListener)
+        );
+    }
+
+    /**
+     * Query CIDRs of ranges intersecting a given ip range asynchronously
+     *
+     * @param indexName index
+     * @param from the first ip address of the range
+     * @param to the last ip address of the range
+     * @param maxRanges max number of ranges to return
+     * @param listener listener to be called with CIDRs of intersecting ranges, or null if there are more than maxRanges ranges
+     */
+    public void getGeoIpRanges(
+        final String indexName,
+        final String from,
+        final String to,
+        final int maxRanges,
+        final ActionListener<List<String>> listener
+    ) {
+        CompactGeoIpDataCodec codec = getCompactCodec(indexName);
+        ActionListener<SearchResponse> searchListener = ActionListener.map(preserveContext(listener), response -> {
+            if (response.isTimedOut()) {
+                throw new OpenSearchException("search for geoip ranges timed out");
+            }
+            SearchHit[] hits = response.getHits().getHits();
+            if (response.getHits().getTotalHits() == null || response.getHits().getTotalHits().value > hits.length) {
+                return null;
+            }
+            List<String> cidrs = new ArrayList<>(hits.length);
+            for (SearchHit hit : hits) {
+                cidrs.add(codec == null ? (String) toSourceMap(hit).get(IP_RANGE_FIELD_NAME) : toGeoIpRange(hit, codec).getCidr());
+            }
+            return cidrs;
+        });
+        StashedThreadContext.run(client, () -> {
+            SearchRequestBuilder builder = client.prepareSearch(indexName)
+                .setSize(maxRanges)
+                .setPreference(Preference.LOCAL.type())
+                .setTimeout(clusterSettings.get(Ip2GeoSettings.TIMEOUT));
+            if (codec == null) {
+                builder.setQuery(
+                    QueryBuilders.rangeQuery(IP_RANGE_FIELD_NAME).from(from).to(to).relation(ShapeRelation.INTERSECTS.getRelationName())
+                ).setFetchSource(IP_RANGE_FIELD_NAME, null);
+            } else {
+                builder.setQuery(
+                    QueryBuilders.boolQuery()
+                        .filter(QueryBuilders.rangeQuery(CompactGeoIpDataCodec.START_FIELD_NAME).lte(to))
+                        .filter(QueryBuilders.rangeQuery(CompactGeoIpDataCodec.END_FIELD_NAME).gte(from))
+                ).setFetchSource(false).addDocValueField(DATA_FIELD_NAME);
+            }
+            builder.execute(searchListener);
+        });
+    }
+
+    /**
+     * Wrap a listener so that it is called with the thread context of the caller rather than the stashed one
+     */
+    private <T> ActionListener<T> preserveContext(final ActionListener<T> listener) {
+        return new ContextPreservingActionListener<>(client.threadPool().getThreadContext().newRestorableContext(false), listener);
+    }
+
+    private SearchRequestBuilder prepareGeoIpDataSearch(final String indexName, final String ip, final CompactGeoIpDataCodec codec) {
+        SearchRequestBuilder builder = client.prepareSearch(indexName)
+            .setSize(1)
+            .setPreference(Preference.LOCAL.type())
+            .setRequestCache(true)
+            .setTimeout(clusterSettings.get(Ip2GeoSettings.TIMEOUT));
+        if (codec == null) {
+            return builder.setQuery(QueryBuilders.termQuery(IP_RANGE_FIELD_NAME, ip));
+        }
+        return builder.setQuery(
+            QueryBuilders.boolQuery()
+                .filter(QueryBuilders.rangeQuery(CompactGeoIpDataCodec.START_FIELD_NAME).lte(ip))
+                .filter(QueryBuilders.rangeQuery(CompactGeoIpDataCodec.END_FIELD_NAME).gte(ip))
+        ).setFetchSource(false).addDocValueField(DATA_FIELD_NAME);
+    }
+
+    private GeoIpRange toGeoIpData(final SearchResponse response, final CompactGeoIpDataCodec codec) {
+        // Partial result of a timed out search should not be taken as no data
+        if (response.isTimedOut()) {
+            throw new OpenSearchException("search for geoip data timed out");
+        }
+        if (response.getHits().getHits().length == 0) {
+            return GeoIpRange.NO_MATCH;
+        }
+        return toGeoIpRange(response.getHits().getAt(0), codec);
+    }
+
+    private GeoIpRange toGeoIpRange(final SearchHit hit, final CompactGeoIpDataCodec codec) {
+        if (codec != null) {
+            return codec.decode(Base64.getDecoder().decode((String) hit.field(DATA_FIELD_NAME).getValue()));
+        }
+        Map<String, Object> source = toSourceMap(hit);
+        return new GeoIpRange((String) source.get(IP_RANGE_FIELD_NAME), (Map<String, Object>) source.get(DATA_FIELD_NAME));
+    }
+
+    /**
+     * Return the codec of a given GeoIP data index in the compact layout
+     *
+     * The layout is read from _meta of the index mapping once and cached as GeoIP data index is immutable.
+     *
+     * @param indexName the GeoIP data index name
+     * @return the codec, or null if the index is not in the compact layout
+     */
+    public CompactGeoIpDataCodec getCompactCodec(final String indexName) {
+        Optional<CompactGeoIpDataCodec> codec = codecs.get(indexName);
+        if (codec != null) {
+            return codec.orElse(null);
+        }
+        IndexMetadata indexMetadata = clusterService.state().metadata().index(indexName);
+        if (indexMetadata == null) {
+            return null;
+        }
+        if (isCompactLayout(indexMetadata) == false) {
+            codecs.put(indexName, Optional.empty());
+            return null;
+        }
+        Map<String, Object> meta = getMappingMeta(indexMetadata);
+        List<String> fields = (List<String>) meta.get(CompactGeoIpDataCodec.META_FIELDS_FIELD_NAME);
+        if (fields == null) {
+            // Fields are added when GeoIP data is put into the index
+            return null;
+        }
+        CompactGeoIpDataCodec compactCodec = new CompactGeoIpDataCodec(fields);
+        codecs.put(indexName, Optional.of(compactCodec));
+        return compactCodec;
+    }
+
+    /**
+     * Return the number of ranges in a given GeoIP data index
+     *
+     * @param indexName index
+     * @return the number of ranges
+     */
+    public long getGeoIpDataCount(final String indexName) {
         SearchResponse response = StashedThreadContext.run(
             client,
             () -> client.prepareSearch(indexName)
-                .setSize(1)
-                .setQuery(QueryBuilders.termQuery(IP_RANGE_FIELD_NAME, ip))
+                .setSize(0)
+                .setQuery(rangesQuery())
+                .setTrackTotalHits(true)
                 .setPreference(Preference.LOCAL.type())
-                .setRequestCache(true)
                 .get(clusterSettings.get(Ip2GeoSettings.TIMEOUT))
         );
+        return response.getHits().getTotalHits().value;
+    }
 
-        if (response.getHits().getHits().length == 0) {
-            return Collections.emptyMap();
-        } else {
-            return (Map<String, Object>) XContentHelper.convertToMap(response.getHits().getAt(0).getSourceRef(), false, XContentType.JSON)
-                .v2()
-                .get(DATA_FIELD_NAME);
+    /**
+     * Iterate all ranges in a given GeoIP data index using scroll
+     *
+     * @param indexName index
+     * @param consumer consumer of an ip range and its geo data
+     */
+    public void forEachGeoIpData(final String indexName, final BiConsumer<String, Map<String, Object>> consumer) {
+        TimeValue timeout = clusterSettings.get(Ip2GeoSettings.TIMEOUT);
+        Integer batchSize = clusterSettings.get(Ip2GeoSettings.BATCH_SIZE);
+        CompactGeoIpDataCodec codec = getCompactCodec(indexName);
+        SearchResponse response = StashedThreadContext.run(client, () -> {
+            SearchRequestBuilder builder = client.prepareSearch(indexName)
+                .setSize(batchSize)
+                .setQuery(rangesQuery())
+                .setScroll(timeout)
+                .addSort(SortBuilders.fieldSort(FieldSortBuilder.DOC_FIELD_NAME))
+                .setPreference(Preference.LOCAL.type());
+            if (codec != null) {
+                builder.setFetchSource(false).addDocValueField(DATA_FIELD_NAME);
+            }
+            return builder.get(timeout);
+        });
+        String scrollId = response.getScrollId();
+        try {
+            while (response.getHits().getHits().length != 0) {
+                for (SearchHit hit : response.getHits().getHits()) {
+                    GeoIpRange range = toGeoIpRange(hit, codec);
+                    consumer.accept(range.getCidr(), range.getData());
+                }
+                final String currentScrollId = scrollId;
+                response = StashedThreadContext.run(
+                    client,
+                    () -> client.prepareSearchScroll(currentScrollId).setScroll(timeout).get(timeout)
+                );
+                scrollId = response.getScrollId();
+            }
+        } finally {
+            final String lastScrollId = scrollId;
+            StashedThreadContext.run(client, () -> client.prepareClearScroll().addScrollId(lastScrollId).get(timeout));
         }
     }
 
+    /**
+     * Query to match all ranges excluding the coverage filter and the block digests documents
+     */
+    private QueryBuilder rangesQuery() {
+        return QueryBuilders.boolQuery().mustNot(QueryBuilders.idsQuery().addIds(COVERAGE_FILTER_ID, BLOCK_DIGESTS_ID));
+    }
+
+    /**
+     * Return the coverage filter of a given GeoIP data index
+     *
+     * @param indexName the GeoIP data index name
+     * @return the coverage filter, or null if the index does not have one
+     * @throws IOException if the filter cannot be read
+     */
+    public GeoIpCoverageFilter getCoverageFilter(final String indexName) throws IOException {
+        BytesReference bytes = getStoredBytes(indexName, COVERAGE_FILTER_ID, COVERAGE_FILTER_FIELD_NAME);
+        return bytes == null ? null : GeoIpCoverageFilter.fromBytes(bytes);
+    }
+
+    private void putCoverageFilter(final String indexName, final GeoIpCoverageFilter filter) throws IOException {
+        putStoredBytes(indexName, COVERAGE_FILTER_ID, COVERAGE_FILTER_FIELD_NAME, filter.toBytes());
+    }
+
+    /**
+     * Return the block digests of a given GeoIP data index
+     *
+     * Digests are returned only when the index is in the layout a new GeoIP data index would take
+     * as a copy of the index keeps its layout. See {@link Ip2GeoSettings#COMPACT_INDEX_ENABLED}
+     *
+     * @param indexName the GeoIP data index name
+     * @return the block digests, or null if the index does not exist, is in the other layout, or does not have them
+     * @throws IOException if the digests cannot be read
+     */
+    public GeoIpDataBlockDigests getBlockDigests(final String indexName) throws IOException {
+        IndexMetadata indexMetadata = clusterService.state().metadata().index(indexName);
+        if (indexMetadata == null || isCompactLayout(indexMetadata) != clusterSettings.get(Ip2GeoSettings.COMPACT_INDEX_ENABLED)) {
+            return null;
+        }
+        BytesReference bytes = getStoredBytes(indexName, BLOCK_DIGESTS_ID, BLOCK_DIGESTS_FIELD_NAME);
+        return bytes == null ? null : GeoIpDataBlockDigests.fromBytes(bytes);
+    }
+
+    private void putBlockDigests(final String indexName, final GeoIpDataBlockDigests digests) throws IOException {
+        putStoredBytes(indexName, BLOCK_DIGESTS_ID, BLOCK_DIGESTS_FIELD_NAME, digests.toBytes());
+    }
+
+    private BytesReference getStoredBytes(final String indexName, final String id, final String fieldName) {
+        GetResponse response = StashedThreadContext.run(
+            client,
+            () -> client.prepareGet(indexName, id)
+                .setStoredFields(fieldName)
+                .setPreference(Preference.LOCAL.type())
+                .setRealtime(false)
+                .get(clusterSettings.get(Ip2GeoSettings.TIMEOUT))
+        );
+        if (response.isExists() == false || response.getField(fieldName) == null) {
+            return null;
+        }
+        Object value = response.getField(fieldName).getValue();
+        if (value instanceof BytesReference) {
+            return (BytesReference) value;
+        }
+        if (value instanceof byte[]) {
+            return new BytesArray((byte[]) value);
+        }
+        return new BytesArray(Base64.getDecoder().decode(value.toString()));
+    }
+
+    private void putStoredBytes(final String indexName, final String id, final String fieldName, final BytesReference bytes)
+        throws IOException {
+        XContentBuilder document = XContentFactory.jsonBuilder().startObject().field(fieldName, BytesReference.toBytes(bytes)).endObject();
+        StashedThreadContext.run(
+            client,
+            () -> client.prepareIndex(indexName)
+                .setId(id)
+                .setSource(document)
+                .execute()
+                .actionGet(clusterSettings.get(Ip2GeoSettings.TIMEOUT))
+        );
+    }
+
+    private Map<String, Object> toSourceMap(final SearchHit hit) {
+        return XContentHelper.convertToMap(hit.getSourceRef(), false, XContentType.JSON).v2();
+    }
+
     /**
      * Puts GeoIP data from CSVRecord iterator into a given index in bulk
      *
+     * A coverage filter of the ranges is built along the way and stored in the index. See {@link GeoIpCoverageFilter}
+     * Rows are split into blocks, and each range is tagged with its block so that the next version of the GeoIP data
+     * can be put by {@link #putGeoIpDataDelta}. The block digests are stored in the index. See {@link GeoIpDataBlockDigests}
+     *
+     * Bulk requests are sent asynchronously while the next batch is parsed, with at most
+     * {@link Ip2GeoSettings#MAX_CONCURRENT_BULK_REQUESTS} of them in flight. See {@link GeoIpDataBulkIngester}
+     * Documents are encoded by {@link GeoIpDataDocumentEncoder} unless the index is in the compact layout.
+     *
      * @param indexName Index name to puts the GeoIP data
      * @param fields Field name matching with data in CSVRecord in order
      * @param iterator GeoIP data to insert
@@ -281,37 +801,310 @@ public class GeoIpDataDao {
         @NonNull final String[] fields,
         @NonNull final Iterator<CSVRecord> iterator,
         @NonNull final Runnable renewLock
+    ) throws IOException {
+        putGeoIpData(indexName, fields, iterator, renewLock, 0, rows -> {});
+    }
+
+    /**
+     * Puts GeoIP data from CSVRecord iterator into a given index in bulk, starting from a given row
+     *
+     * Rows before the start row are expected to be in the index already. They are read to build the coverage filter
+     * and the block digests, but are not indexed again. The number of rows whose bulk requests have all succeeded
+     * is reported to the checkpoint consumer as it grows so that a failed update can be resumed from there.
+     *
+     * @param indexName Index name to puts the GeoIP data
+     * @param fields Field name matching with data in CSVRecord in order
+     * @param iterator GeoIP data to insert
+     * @param renewLock Runnable to renew lock
+     * @param startRow the number of rows to skip indexing
+     * @param checkpoint consumer of the number of rows in the index, called in the caller thread
+     */
+    public void putGeoIpData(
+        @NonNull final String indexName,
+        @NonNull final String[] fields,
+        @NonNull final Iterator<CSVRecord> iterator,
+        @NonNull final Runnable renewLock,
+        final long startRow,
+        @NonNull final LongConsumer checkpoint
+    ) throws IOException {
+        CompactGeoIpDataCodec codec = isCompactLayout(clusterService.state().metadata().index(indexName))
+            ? putCompactLayoutFields(indexName, fields)
+            : null;
+        putGeoIpData(indexName, fields, iterator, renewLock, codec, null, startRow, checkpoint);
+    }
+
+    /**
+     * Puts the next version of GeoIP data into a copy of the index having the previous version. See {@link #cloneIndex}
+     *
+     * Only blocks of rows whose digest is not in the previous digests are indexed. Ranges of previous blocks which are not
+     * in the new version are deleted afterward. A changed row changes the digest of its block only, so the work is
+     * proportional to the number of changed blocks rather than the number of rows, except for parsing the CSV file.
+     * The fields must be the same as the fields of the previous version.
+     *
+     * @param indexName the copy of the index having the previous version
+     * @param fields Field name matching with data in CSVRecord in order
+     * @param iterator GeoIP data of the next version
+     * @param renewLock Runnable to renew lock
+     * @param previousDigests the block digests of the previous version. See {@link #getBlockDigests}
+     */
+    public void putGeoIpDataDelta(
+        @NonNull final String indexName,
+        @NonNull final String[] fields,
+        @NonNull final Iterator<CSVRecord> iterator,
+        @NonNull final Runnable renewLock,
+        @NonNull final GeoIpDataBlockDigests previousDigests
+    ) throws IOException {
+        putGeoIpDataDelta(indexName, fields, iterator, renewLock, previousDigests, 0, rows -> {});
+    }
+
+    /**
+     * Puts the next version of GeoIP data into a copy of the index having the previous version, starting from a given row
+     *
+     * See {@link #putGeoIpData(String, String[], Iterator, Runnable, long, LongConsumer)} for the start row and the checkpoint.
+     *
+     * @param indexName the copy of the index having the previous version
+     * @param fields Field name matching with data in CSVRecord in order
+     * @param iterator GeoIP data of the next version
+     * @param renewLock Runnable to renew lock
+     * @param previousDigests the block digests of the previous version. See {@link #getBlockDigests}
+     * @param startRow the number of rows to skip indexing
+     * @param checkpoint consumer of the number of rows in the index, called in the caller thread
+     */
+    public void putGeoIpDataDelta(
+        @NonNull final String indexName,
+        @NonNull final String[] fields,
+        @NonNull final Iterator<CSVRecord> iterator,
+        @NonNull final Runnable renewLock,
+        @NonNull final GeoIpDataBlockDigests previousDigests,
+        final long startRow,
+        @NonNull final LongConsumer checkpoint
+    ) throws IOException {
+        putGeoIpData(indexName, fields, iterator, renewLock, getCompactCodec(indexName), previousDigests, startRow, checkpoint);
+    }
+
+    private void putGeoIpData(
+        final String indexName,
+        final String[] fields,
+        final Iterator<CSVRecord> iterator,
+        final Runnable renewLock,
+        final CompactGeoIpDataCodec codec,
+        final GeoIpDataBlockDigests previousDigests,
+        final long startRow,
+        final LongConsumer checkpoint
     ) throws IOException {
         TimeValue timeout = clusterSettings.get(Ip2GeoSettings.TIMEOUT);
         Integer batchSize = clusterSettings.get(Ip2GeoSettings.BATCH_SIZE);
-        final BulkRequest bulkRequest = new BulkRequest();
-        Queue<DocWriteRequest> requests = new LinkedList<>();
-        for (int i = 0; i < batchSize; i++) {
-            requests.add(Requests.indexRequest(indexName));
-        }
-        while (iterator.hasNext()) {
-            CSVRecord record = iterator.next();
-            XContentBuilder document = createDocument(fields, record.values());
-            IndexRequest indexRequest = (IndexRequest) requests.poll();
-            indexRequest.source(document);
-            indexRequest.id(record.get(0));
-            bulkRequest.add(indexRequest);
-            if (iterator.hasNext() == false || bulkRequest.requests().size() == batchSize) {
-                BulkResponse response = StashedThreadContext.run(client, () -> client.bulk(bulkRequest).actionGet(timeout));
-                if (response.hasFailures()) {
-                    throw new OpenSearchException(
-                        "error occurred while ingesting GeoIP data in {} with an error {}",
-                        indexName,
-                        response.buildFailureMessage()
-                    );
+        GeoIpDataBulkIngester ingester = new GeoIpDataBulkIngester(
+            client,
+            indexName,
+            clusterSettings.get(Ip2GeoSettings.MAX_CONCURRENT_BULK_REQUESTS),
+            timeout
+        );
+        GeoIpDataDocumentEncoder encoder = codec == null ? new GeoIpDataDocumentEncoder(fields) : null;
+        GeoIpDataBlockDigests.Splitter splitter = new GeoIpDataBlockDigests.Splitter(fields);
+        List<CSVRecord> block = new ArrayList<>();
+        BulkRequest bulkRequest = new BulkRequest();
+        GeoIpCoverageFilter.Builder coverage = new GeoIpCoverageFilter.Builder();
+        int skippedBlocks = 0;
+        long rows = 0;
+        long blockStartRow = 0;
+        long checkpointedRows = startRow;
+        try {
+            while (iterator.hasNext()) {
+                CSVRecord record = iterator.next();
+                rows++;
+                coverage = addCoverage(coverage, record.get(0));
+                block.add(record);
+                if (splitter.add(record) || iterator.hasNext() == false) {
+                    long digest = splitter.finishBlock();
+                    if (previousDigests != null && previousDigests.contains(digest)) {
+                        skippedBlocks++;
+                    } else {
+                        String blockId = GeoIpDataBlockDigests.toId(digest);
+                        for (int i = (int) Math.max(0, startRow - blockStartRow); i < block.size(); i++) {
+                            CSVRecord row = block.get(i);
+                            IndexRequest indexRequest = Requests.indexRequest(indexName).id(row.get(0));
+                            if (encoder == null) {
+                                indexRequest.source(codec.createDocument(row.values(), blockId));
+                            } else {
+                                indexRequest.source(encoder.encode(row, blockId), XContentType.JSON);
+                            }
+                            bulkRequest.add(indexRequest);
+                            if (bulkRequest.numberOfActions() == batchSize) {
+                                bulkRequest = submit(ingester, bulkRequest, blockStartRow + i + 1, encoder);
+                                long committedRows = ingester.committedRows();
+                                if (committedRows > checkpointedRows) {
+                                    checkpointedRows = committedRows;
+                                    checkpoint.accept(committedRows);
+                                }
+                            }
+                        }
+                    }
+                    blockStartRow = rows;
+                    block.clear();
                 }
-                requests.addAll(bulkRequest.requests());
-                bulkRequest.requests().clear();
+                renewLock.run();
+            }
+            if (bulkRequest.numberOfActions() != 0) {
+                submit(ingester, bulkRequest, rows, encoder);
             }
-            renewLock.run();
+        } catch (Exception e) {
+            ingester.awaitCompletionQuietly();
+            throw e;
         }
+        ingester.awaitCompletion();
+        GeoIpDataBlockDigests digests = splitter.digests();
+        if (previousDigests != null) {
+            List<String> removedBlockIds = previousDigests.idsNotIn(digests);
+            log.info(
+                "kept {} of {} blocks, and removing {} blocks of GeoIP data in {}",
+                skippedBlocks,
+                digests.size(),
+                removedBlockIds.size(),
+                indexName
+            );
+            deleteBlocks(indexName, removedBlockIds, renewLock);
+        }
+        if (coverage != null) {
+            putCoverageFilter(indexName, coverage.build());
+        }
+        putBlockDigests(indexName, digests);
         freezeIndex(indexName);
+    }
+
+    /**
+     * Submit a bulk request and return a new one for the next batch
+     */
+    private BulkRequest submit(
+        final GeoIpDataBulkIngester ingester,
+        final BulkRequest bulkRequest,
+        final long endRow,
+        final GeoIpDataDocumentEncoder encoder
+    ) {
+        ingester.submit(bulkRequest, endRow);
+        if (encoder != null) {
+            encoder.newBatch();
+        }
+        return new BulkRequest();
+    }
+
+    /**
+     * Delete ranges of given blocks
+     *
+     * The index is refreshed first so that a range indexed again in a new block is not found by the id of its previous block.
+     */
+    private void deleteBlocks(final String indexName, final List<String> blockIds, final Runnable renewLock) {
+        if (blockIds.isEmpty()) {
+            return;
+        }
+        TimeValue timeout = clusterSettings.get(Ip2GeoSettings.TIMEOUT);
+        StashedThreadContext.run(client, () -> client.admin().indices().prepareRefresh(indexName).execute().actionGet(timeout));
+        GeoIpDataBulkIngester ingester = new GeoIpDataBulkIngester(
+            client,
+            indexName,
+            clusterSettings.get(Ip2GeoSettings.MAX_CONCURRENT_BULK_REQUESTS),
+            timeout
+        );
+        try {
+            for (int i = 0; i < blockIds.size(); i += MAX_BLOCK_IDS_PER_QUERY) {
+                List<String> ids = blockIds.subList(i, Math.min(i + MAX_BLOCK_IDS_PER_QUERY, blockIds.size()));
+                forEachId(indexName, QueryBuilders.termsQuery(BLOCK_FIELD_NAME, ids), hitIds -> {
+                    BulkRequest bulkRequest = new BulkRequest();
+                    hitIds.forEach(id -> bulkRequest.add(Requests.deleteRequest(indexName).id(id)));
+                    ingester.submit(bulkRequest);
+                    renewLock.run();
+                });
+            }
+        } catch (Exception e) {
+            ingester.awaitCompletionQuietly();
+            throw e;
+        }
+        ingester.awaitCompletion();
+    }
 
+    /**
+     * Iterate ids of documents matching a given query using scroll, a page at a time
+     */
+    private void forEachId(final String indexName, final QueryBuilder query, final Consumer<List<String>> consumer) {
+        TimeValue timeout = clusterSettings.get(Ip2GeoSettings.TIMEOUT);
+        Integer batchSize = clusterSettings.get(Ip2GeoSettings.BATCH_SIZE);
+        SearchResponse response = StashedThreadContext.run(
+            client,
+            () -> client.prepareSearch(indexName)
+                .setSize(batchSize)
+                .setQuery(query)
+                .setFetchSource(false)
+                .setScroll(timeout)
+                .addSort(SortBuilders.fieldSort(FieldSortBuilder.DOC_FIELD_NAME))
+                .setPreference(Preference.LOCAL.type())
+                .get(timeout)
+        );
+        String scrollId = response.getScrollId();
+        try {
+            while (response.getHits().getHits().length != 0) {
+                consumer.accept(Arrays.stream(response.getHits().getHits()).map(SearchHit::getId).collect(Collectors.toList()));
+                final String currentScrollId = scrollId;
+                response = StashedThreadContext.run(
+                    client,
+                    () -> client.prepareSearchScroll(currentScrollId).setScroll(timeout).get(timeout)
+                );
+                scrollId = response.getScrollId();
+            }
+        } finally {
+            final String lastScrollId = scrollId;
+            StashedThreadContext.run(client, () -> client.prepareClearScroll().addScrollId(lastScrollId).get(timeout));
+        }
+    }
+
+    /**
+     * A range which the filter cannot take would make the filter give false negatives. No filter is built in that case.
+     */
+    private GeoIpCoverageFilter.Builder addCoverage(final GeoIpCoverageFilter.Builder coverage, final String cidr) {
+        if (coverage == null) {
+            return null;
+        }
+        try {
+            coverage.add(cidr);
+            return coverage;
+        } catch (IllegalArgumentException e) {
+            log.warn("Skip building coverage filter as [{}] is not a valid CIDR", cidr, e);
+            return null;
+        }
+    }
+
+    private boolean isCompactLayout(final IndexMetadata indexMetadata) {
+        Map<String, Object> meta = getMappingMeta(indexMetadata);
+        return meta != null && CompactGeoIpDataCodec.LAYOUT.equals(meta.get(CompactGeoIpDataCodec.META_LAYOUT_FIELD_NAME));
+    }
+
+    private Map<String, Object> getMappingMeta(final IndexMetadata indexMetadata) {
+        if (indexMetadata == null || indexMetadata.mapping() == null) {
+            return null;
+        }
+        return (Map<String, Object>) indexMetadata.mapping().sourceAsMap().get(MAPPING_META_FIELD_NAME);
+    }
+
+    /**
+     * Keep the fields in _meta of the mapping so that encoded geo data can be decoded in any node
+     */
+    private CompactGeoIpDataCodec putCompactLayoutFields(final String indexName, final String[] fields) {
+        List<String> dataFields = Arrays.asList(fields).subList(1, fields.length);
+        Map<String, Object> meta = Map.of(
+            CompactGeoIpDataCodec.META_LAYOUT_FIELD_NAME,
+            CompactGeoIpDataCodec.LAYOUT,
+            CompactGeoIpDataCodec.META_FIELDS_FIELD_NAME,
+            dataFields
+        );
+        StashedThreadContext.run(
+            client,
+            () -> client.admin()
+                .indices()
+                .preparePutMapping(indexName)
+                .setSource(Map.of(MAPPING_META_FIELD_NAME, meta))
+                .execute()
+                .actionGet(clusterSettings.get(Ip2GeoSettings.TIMEOUT))
+        );
+        return new CompactGeoIpDataCodec(dataFields);
     }
 
     public void deleteIp2GeoDataIndex(final String index) {
@@ -347,5 +1140,6 @@ public class GeoIpDataDao {
         if (response.isAcknowledged() == false) {
             throw new OpenSearchException("failed to delete data[{}] in datasource", String.join(",", indices));
         }
+        indices.forEach(codecs::remove);
     }
 }
@@ -0,0 +1,208 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.ip2geo.dao;
+
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.csv.CSVRecord;
+import org.apache.logging.log4j.util.Strings;
+import org.apache.lucene.util.ArrayUtil;
+import org.opensearch.OpenSearchException;
+import org.opensearch.core.common.bytes.BytesArray;
+import org.opensearch.core.common.bytes.BytesReference;
+
+/**
+ * Encodes CSV records of GeoIP data into JSON documents of a GeoIP data index without a generic JSON generator
+ *
+ * Without a block id, the output is the same document, byte for byte, as {@link GeoIpDataDao#createDocument(String[], String[])}.
+ * Keys of the header are escaped once up front, and values are written as UTF-8 directly from the record into a byte buffer
+ * shared by all documents of a batch. Each document is a slice of the buffer, so there is no per record allocation
+ * other than the slice itself.
+ *
+ * A buffer is never written again once a slice of it is handed out, as a bulk request holding the slices may still be in flight.
+ * {@link #newBatch()} starts a new buffer sized after the previous one so that it does not need to grow again.
+ * The encoder is not thread safe.
+ */
+class GeoIpDataDocumentEncoder {
+    private static final int INITIAL_CAPACITY = 1024;
+    /**
+     * Max number of bytes a char can take once escaped as a unicode escape of six chars
+     */
+    private static final int MAX_BYTES_PER_CHAR = 6;
+    private static final byte[] HEX_DIGITS = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] DOCUMENT_START = toJsonBytes("{\"" + GeoIpDataDao.IP_RANGE_FIELD_NAME + "\":\"");
+    private static final byte[] BLOCK_START = toJsonBytes("\",\"" + GeoIpDataDao.BLOCK_FIELD_NAME + "\":\"");
+    private static final byte[] DATA_START = toJsonBytes("\",\"" + GeoIpDataDao.DATA_FIELD_NAME + "\":{");
+    private static final byte[] KEY_END = toJsonBytes("\":\"");
+    private static final byte[] DOCUMENT_END = toJsonBytes("}}");
+
+    private final String[] fields;
+    /**
+     * Escaped "key":" of each field, starting from the second field as the first one is always the CIDR
+     */
+    private final byte[][] keyPrefixes;
+    private byte[] buffer = new byte[INITIAL_CAPACITY];
+    private int length;
+
+    GeoIpDataDocumentEncoder(final String[] fields) {
+        this.fields = fields;
+        this.keyPrefixes = new byte[fields.length][];
+        for (int i = 1; i < fields.length; i++) {
+            writeByte('"');
+            writeString(fields[i]);
+            writeBytes(KEY_END);
+            keyPrefixes[i] = ArrayUtil.copyOfSubArray(buffer, 0, length);
+            length = 0;
+        }
+    }
+
+    /**
+     * Encode a record into a JSON document, skipping blank values
+     *
+     * @param record the record having values in the order of the fields
+     * @return the document
+     */
+    BytesReference encode(final CSVRecord record) {
+        return encode(record, null);
+    }
+
+    /**
+     * Encode a record into a JSON document of a given block, skipping blank values
+     *
+     * @param record the record having values in the order of the fields
+     * @param blockId the id of the block having the record, or null to leave it out. See {@link GeoIpDataBlockDigests}
+     * @return the document
+     */
+    BytesReference encode(final CSVRecord record, final String blockId) {
+        if (record.size() != fields.length) {
+            throw new OpenSearchException("header[{}] and record[{}] length does not match", fields, record.values());
+        }
+        int start = length;
+        writeBytes(DOCUMENT_START);
+        writeString(record.get(0));
+        if (blockId != null) {
+            writeBytes(BLOCK_START);
+            writeString(blockId);
+        }
+        writeBytes(DATA_START);
+        boolean first = true;
+        for (int i = 1; i < fields.length; i++) {
+            String value = record.get(i);
+            if (Strings.isBlank(value)) {
+                continue;
+            }
+            if (first == false) {
+                writeByte(',');
+            }
+            first = false;
+            writeBytes(keyPrefixes[i]);
+            writeString(value);
+            writeByte('"');
+        }
+        writeBytes(DOCUMENT_END);
+        return new BytesArray(buffer, start, length - start);
+    }
+
+    /**
+     * Start a new buffer for documents of the next batch
+     */
+    void newBatch() {
+        buffer = new byte[Math.max(INITIAL_CAPACITY, length)];
+        length = 0;
+    }
+
+    private void writeBytes(final byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, length, bytes.length);
+        length += bytes.length;
+    }
+
+    private void writeByte(final int b) {
+        ensureCapacity(1);
+        buffer[length++] = (byte) b;
+    }
+
+    /**
+     * Write a string as the content of a JSON string in UTF-8
+     */
+    private void writeString(final String value) {
+        ensureCapacity(value.length() * MAX_BYTES_PER_CHAR);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                writeAscii(c);
+            } else if (c < 0x800) {
+                buffer[length++] = (byte) (0xC0 | (c >> 6));
+                buffer[length++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // Chars out of the basic multilingual plane are escaped as surrogate pairs in the same way as the JSON generator
+                writeUnicodeEscape(c);
+            } else {
+                buffer[length++] = (byte) (0xE0 | (c >> 12));
+                buffer[length++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[length++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    private void writeAscii(final char c) {
+        switch (c) {
+            case '"':
+            case '\\':
+                buffer[length++] = '\\';
+                buffer[length++] = (byte) c;
+                return;
+            case '\n':
+                buffer[length++] = '\\';
+                buffer[length++] = 'n';
+                return;
+            case '\r':
+                buffer[length++] = '\\';
+                buffer[length++] = 'r';
+                return;
+            case '\t':
+                buffer[length++] = '\\';
+                buffer[length++] = 't';
+                return;
+            case '\b':
+                buffer[length++] = '\\';
+                buffer[length++] = 'b';
+                return;
+            case '\f':
+                buffer[length++] = '\\';
+                buffer[length++] = 'f';
+                return;
+            default:
+                if (c < 0x20) {
+                    writeUnicodeEscape(c);
+                } else {
+                    buffer[length++] = (byte) c;
+                }
+        }
+    }
+
+    private void writeUnicodeEscape(final char c) {
+        buffer[length++] = '\\';
+        buffer[length++] = 'u';
+        buffer[length++] = HEX_DIGITS[c >> 12];
+        buffer[length++] = HEX_DIGITS[(c >> 8) & 0xF];
+        buffer[length++] = HEX_DIGITS[(c >> 4) & 0xF];
+        buffer[length++] = HEX_DIGITS[c & 0xF];
+    }
+
+    /**
+     * Grow the buffer by copying it so that slices handed out earlier keep pointing at the old buffer unchanged
+     */
+    private void ensureCapacity(final int extra) {
+        if (length + extra > buffer.length) {
+            buffer = ArrayUtil.grow(buffer, length + extra);
+        }
+    }
+
+    private static byte[] toJsonBytes(final String json) {
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+}
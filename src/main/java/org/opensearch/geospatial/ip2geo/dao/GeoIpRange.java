@@ -0,0 +1,37 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.ip2geo.dao;
+
+import java.util.Collections;
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * GeoIP data of a matched ip range
+ */
+@Getter
+@AllArgsConstructor
+@EqualsAndHashCode
+@ToString
+public class GeoIpRange {
+    /**
+     * Result of an ip which does not belong to any range
+     */
+    public static final GeoIpRange NO_MATCH = new GeoIpRange(null, Collections.emptyMap());
+
+    /**
+     * @return the CIDR block of the matched range, or null if there is no matching range
+     */
+    private final String cidr;
+    /**
+     * @return geo data of the matched range, or empty map if there is no matching range
+     */
+    private final Map<String, Object> data;
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.ip2geo.dao;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.InetAddressPoint;
+import org.apache.lucene.document.InetAddressRange;
+import org.apache.lucene.index.BinaryDocValues;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import org.opensearch.common.network.InetAddresses;
+import org.opensearch.common.xcontent.XContentHelper;
+import org.opensearch.common.xcontent.XContentType;
+import org.opensearch.core.common.bytes.BytesArray;
+import org.opensearch.index.mapper.SourceFieldMapper;
+
+/**
+ * Reader of GeoIP data from a local shard of a GeoIP data index
+ *
+ * It runs a range query directly against a Lucene searcher of the shard and reads the matched range from the stored
+ * _source field. Query parsing, search context creation and the fetch phase of the search layer are skipped.
+ * Ranges in a GeoIP data index do not overlap. Therefore, the first match of an ip is the only match.
+ *
+ * For an index in the compact layout, the range of an ip is found by a floor search on the sorted terms of the first ip
+ * followed by doc values reads of the last ip and the encoded geo data. See {@link CompactGeoIpDataCodec}
+ */
+public final class GeoIpShardReader {
+    private static final Set<String> FIELDS_TO_LOAD = Set.of(SourceFieldMapper.NAME);
+
+    private GeoIpShardReader() {}
+
+    /**
+     * Return geo data and the range of given ips from a shard of a GeoIP data index storing ranges in _source
+     *
+     * @param searcher the searcher of a shard of a GeoIP data index
+     * @param ips the ip addresses
+     * @return geo data and the range of each ip in the same order as given ips
+     * @throws IOException if reading the shard fails
+     */
+    public static List<GeoIpRange> read(final IndexSearcher searcher, final List<String> ips) throws IOException {
+        return read(searcher, null, ips);
+    }
+
+    /**
+     * Return geo data and the range of given ips
+     *
+     * @param searcher the searcher of a shard of a GeoIP data index
+     * @param codec the codec of the index in the compact layout, or null for an index storing ranges in _source
+     * @param ips the ip addresses
+     * @return geo data and the range of each ip in the same order as given ips
+     * @throws IOException if reading the shard fails
+     */
+    public static List<GeoIpRange> read(final IndexSearcher searcher, final CompactGeoIpDataCodec codec, final List<String> ips)
+        throws IOException {
+        List<GeoIpRange> ranges = new ArrayList<>(ips.size());
+        for (String ip : ips) {
+            ranges.add(codec == null ? read(searcher, ip) : readCompact(searcher, codec, ip));
+        }
+        return ranges;
+    }
+
+    private static GeoIpRange readCompact(final IndexSearcher searcher, final CompactGeoIpDataCodec codec, final String ip)
+        throws IOException {
+        BytesRef key = new BytesRef(InetAddressPoint.encode(InetAddresses.forString(ip)));
+        LeafReaderContext floorLeaf = null;
+        BytesRef floorStart = null;
+        for (LeafReaderContext leaf : searcher.getIndexReader().leaves()) {
+            SortedSetDocValues starts = DocValues.getSortedSet(leaf.reader(), CompactGeoIpDataCodec.START_FIELD_NAME);
+            long ord = starts.lookupTerm(key);
+            if (ord < 0) {
+                // Insertion point minus one is the greatest first ip less than the ip
+                ord = -ord - 2;
+            }
+            if (ord < 0) {
+                continue;
+            }
+            BytesRef start = starts.lookupOrd(ord);
+            if (floorStart == null || start.compareTo(floorStart) > 0) {
+                floorStart = BytesRef.deepCopyOf(start);
+                floorLeaf = leaf;
+            }
+        }
+        if (floorLeaf == null) {
+            return GeoIpRange.NO_MATCH;
+        }
+
+        int doc = findDoc(searcher, floorLeaf, floorStart);
+        if (doc == DocIdSetIterator.NO_MORE_DOCS) {
+            return GeoIpRange.NO_MATCH;
+        }
+        SortedSetDocValues ends = DocValues.getSortedSet(floorLeaf.reader(), CompactGeoIpDataCodec.END_FIELD_NAME);
+        if (ends.advanceExact(doc) == false || ends.lookupOrd(ends.nextOrd()).compareTo(key) < 0) {
+            return GeoIpRange.NO_MATCH;
+        }
+        BinaryDocValues data = DocValues.getBinary(floorLeaf.reader(), GeoIpDataDao.DATA_FIELD_NAME);
+        if (data.advanceExact(doc) == false) {
+            return GeoIpRange.NO_MATCH;
+        }
+        return codec.decodeDocValue(data.binaryValue());
+    }
+
+    /**
+     * Return the live document having a given first ip in a segment
+     */
+    private static int findDoc(final IndexSearcher searcher, final LeafReaderContext leaf, final BytesRef start) throws IOException {
+        Query query = InetAddressPoint.newExactQuery(CompactGeoIpDataCodec.START_FIELD_NAME, InetAddressPoint.decode(start.bytes));
+        Weight weight = searcher.createWeight(searcher.rewrite(query), ScoreMode.COMPLETE_NO_SCORES, 1f);
+        Scorer scorer = weight.scorer(leaf);
+        if (scorer == null) {
+            return DocIdSetIterator.NO_MORE_DOCS;
+        }
+        Bits liveDocs = leaf.reader().getLiveDocs();
+        DocIdSetIterator iterator = scorer.iterator();
+        for (int doc = iterator.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = iterator.nextDoc()) {
+            if (liveDocs == null || liveDocs.get(doc)) {
+                return doc;
+            }
+        }
+        return DocIdSetIterator.NO_MORE_DOCS;
+    }
+
+    private static GeoIpRange read(final IndexSearcher searcher, final String ip) throws IOException {
+        InetAddress address = InetAddresses.forString(ip);
+        Query query = InetAddressRange.newIntersectsQuery(GeoIpDataDao.IP_RANGE_FIELD_NAME, address, address);
+        Weight weight = searcher.createWeight(searcher.rewrite(query), ScoreMode.COMPLETE_NO_SCORES, 1f);
+        for (LeafReaderContext leaf : searcher.getIndexReader().leaves()) {
+            Scorer scorer = weight.scorer(leaf);
+            if (scorer == null) {
+                continue;
+            }
+            Bits liveDocs = leaf.reader().getLiveDocs();
+            DocIdSetIterator iterator = scorer.iterator();
+            for (int doc = iterator.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = iterator.nextDoc()) {
+                if (liveDocs == null || liveDocs.get(doc)) {
+                    return toGeoIpRange(leaf.reader().storedFields().document(doc, FIELDS_TO_LOAD));
+                }
+            }
+        }
+        return GeoIpRange.NO_MATCH;
+    }
+
+    private static GeoIpRange toGeoIpRange(final Document document) {
+        BytesRef source = document.getBinaryValue(SourceFieldMapper.NAME);
+        Map<String, Object> sourceMap = XContentHelper.convertToMap(new BytesArray(source), false, XContentType.JSON).v2();
+        return new GeoIpRange(
+            (String) sourceMap.get(GeoIpDataDao.IP_RANGE_FIELD_NAME),
+            (Map<String, Object>) sourceMap.get(GeoIpDataDao.DATA_FIELD_NAME)
+        );
+    }
+}
@@ -6,28 +6,75 @@
 package org.opensearch.geospatial.ip2geo.dao;
 
 import java.io.IOException;
-import java.time.Instant;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutionException;
-import java.util.function.Function;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.opensearch.ExceptionsHelper;
 import org.opensearch.cluster.service.ClusterService;
 import org.opensearch.common.cache.Cache;
 import org.opensearch.common.cache.CacheBuilder;
+import org.opensearch.common.cache.RemovalReason;
+import org.opensearch.common.metrics.CounterMetric;
+import org.opensearch.core.common.breaker.CircuitBreaker;
+import org.opensearch.core.common.breaker.CircuitBreakingException;
+import org.opensearch.core.common.breaker.NoopCircuitBreaker;
+import org.opensearch.common.network.InetAddresses;
+import org.opensearch.common.network.NetworkAddress;
+import org.opensearch.common.unit.TimeValue;
+import org.opensearch.common.util.concurrent.CountDown;
 import org.opensearch.common.xcontent.LoggingDeprecationHandler;
+import org.opensearch.common.xcontent.XContentFactory;
 import org.opensearch.common.xcontent.XContentType;
+import org.opensearch.core.action.ActionListener;
+import org.opensearch.core.common.bytes.BytesReference;
 import org.opensearch.core.index.shard.ShardId;
 import org.opensearch.core.xcontent.NamedXContentRegistry;
+import org.opensearch.core.xcontent.XContentBuilder;
 import org.opensearch.core.xcontent.XContentParser;
 import org.opensearch.geospatial.annotation.VisibleForTesting;
 import org.opensearch.geospatial.ip2geo.common.DatasourceState;
 import org.opensearch.geospatial.ip2geo.common.Ip2GeoSettings;
 import org.opensearch.geospatial.ip2geo.jobscheduler.Datasource;
+import org.opensearch.geospatial.ip2geo.lookup.GeoIpAttributeIndex;
+import org.opensearch.geospatial.ip2geo.lookup.GeoIpCoverageFilter;
+import org.opensearch.geospatial.ip2geo.lookup.GeoIpLookup;
+import org.opensearch.geospatial.ip2geo.lookup.GeoIpLookupService;
+import org.opensearch.geospatial.ip2geo.lookup.IpAddressCodec;
+import org.opensearch.geospatial.stats.ip2geo.Ip2GeoCacheStats;
+import org.opensearch.geospatial.stats.ip2geo.Ip2GeoDatasourceStats;
+import org.opensearch.geospatial.stats.ip2geo.LatencyHistogram;
 import org.opensearch.index.IndexNotFoundException;
 import org.opensearch.index.engine.Engine;
 import org.opensearch.index.shard.IndexingOperationListener;
+import org.opensearch.threadpool.Scheduler;
+import org.opensearch.threadpool.ThreadPool;
 
 import lombok.AllArgsConstructor;
 import lombok.EqualsAndHashCode;
@@ -37,7 +84,8 @@ import lombok.extern.log4j.Log4j2;
 /**
  * Data access object for Datasource and GeoIP data with added caching layer
  *
- * Ip2GeoCachedDao has a memory cache to store Datasource and GeoIP data. To fully utilize the cache,
+ * Ip2GeoCachedDao has a memory cache to store Datasource and GeoIP data, and another memory cache to store
+ * ip ranges not having GeoIP data. To fully utilize the cache,
  * do not create multiple Ip2GeoCachedDao. Ip2GeoCachedDao instance is bound to guice so that you can use
  * it through injection.
  *
@@ -45,25 +93,211 @@ import lombok.extern.log4j.Log4j2;
  */
 @Log4j2
 public class Ip2GeoCachedDao implements IndexingOperationListener {
+    private static final int NOT_FOUND_IPV4_PREFIX_LENGTH = 24;
+    private static final int NOT_FOUND_IPV6_PREFIX_LENGTH = 48;
+    private static final int NOT_FOUND_MAX_RANGES = 256;
+    private static final String HOT_KEY_FILE_NAME = "cache_hot_keys.json";
+    private static final String TEMP_FILE_EXTENSION = ".tmp";
+    private static final DatasourceMetadata EMPTY_METADATA = new DatasourceMetadata(null, Long.MIN_VALUE, null, null);
     private final DatasourceDao datasourceDao;
     private final GeoIpDataDao geoIpDataDao;
+    private final GeoIpLookupService geoIpLookupService;
     private final GeoDataCache geoDataCache;
-    private Map<String, DatasourceMetadata> metadata;
+    private final GeoDataCache notFoundCache;
+    private final Consumer<Runnable> executor;
+    private volatile int warmUpSize;
+    private final Map<String, GeoDataSchema> schemas = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> loadLatencies = new ConcurrentHashMap<>();
+    private final Map<String, ProcessorMetrics> processorMetrics = new ConcurrentHashMap<>();
+    private final Queue<DatasourceEvent> datasourceEvents = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private volatile Map<String, DatasourceMetadata> metadata;
+    private final AtomicReference<Map<String, List<String>>> restoredHotKeys = new AtomicReference<>();
+    private volatile Path hotKeyFile;
+    private volatile TimeValue persistInterval;
+    private ThreadPool threadPool;
+    private Scheduler.Cancellable persistTask;
 
-    public Ip2GeoCachedDao(final ClusterService clusterService, final DatasourceDao datasourceDao, final GeoIpDataDao geoIpDataDao) {
+    public Ip2GeoCachedDao(
+        final ClusterService clusterService,
+        final DatasourceDao datasourceDao,
+        final GeoIpDataDao geoIpDataDao,
+        final GeoIpLookupService geoIpLookupService,
+        final CircuitBreaker circuitBreaker,
+        final Consumer<Runnable> executor
+    ) {
         this.datasourceDao = datasourceDao;
         this.geoIpDataDao = geoIpDataDao;
-        this.geoDataCache = new GeoDataCache(clusterService.getClusterSettings().get(Ip2GeoSettings.CACHE_SIZE));
+        this.geoIpLookupService = geoIpLookupService;
+        this.executor = executor;
+        this.geoDataCache = new GeoDataCache(
+            clusterService.getClusterSettings().get(Ip2GeoSettings.CACHE_SIZE),
+            clusterService.getClusterSettings().get(Ip2GeoSettings.CACHE_MEMORY_SIZE).getBytes(),
+            circuitBreaker
+        );
         clusterService.getClusterSettings()
             .addSettingsUpdateConsumer(Ip2GeoSettings.CACHE_SIZE, setting -> this.geoDataCache.updateMaxSize(setting.longValue()));
+        clusterService.getClusterSettings()
+            .addSettingsUpdateConsumer(
+                Ip2GeoSettings.CACHE_MEMORY_SIZE,
+                setting -> this.geoDataCache.updateMaxMemorySize(setting.getBytes())
+            );
+        this.notFoundCache = new GeoDataCache(
+            clusterService.getClusterSettings().get(Ip2GeoSettings.NOT_FOUND_CACHE_SIZE),
+            -1,
+            circuitBreaker
+        );
+        clusterService.getClusterSettings()
+            .addSettingsUpdateConsumer(
+                Ip2GeoSettings.NOT_FOUND_CACHE_SIZE,
+                setting -> this.notFoundCache.updateMaxSize(setting.longValue())
+            );
+        this.warmUpSize = clusterService.getClusterSettings().get(Ip2GeoSettings.CACHE_WARM_UP_SIZE);
+        clusterService.getClusterSettings()
+            .addSettingsUpdateConsumer(Ip2GeoSettings.CACHE_WARM_UP_SIZE, setting -> this.warmUpSize = setting);
+        this.persistInterval = clusterService.getClusterSettings().get(Ip2GeoSettings.CACHE_PERSIST_INTERVAL);
+        clusterService.getClusterSettings().addSettingsUpdateConsumer(Ip2GeoSettings.CACHE_PERSIST_INTERVAL, this::updatePersistInterval);
+    }
+
+    /**
+     * Set a directory to store the most recently used ranges of the cache and start writing them periodically
+     *
+     * Ranges written by a previous run are read here and loaded into the cache in background once datasources are loaded.
+     * Ranges of an index which is no longer the current index of a datasource are dropped.
+     *
+     * @param directory the directory to store the file
+     * @param threadPool the thread pool to schedule writing the file
+     * @throws IOException if the directory cannot be created
+     */
+    public void initialize(final Path directory, final ThreadPool threadPool) throws IOException {
+        Files.createDirectories(directory);
+        Path file = directory.resolve(HOT_KEY_FILE_NAME);
+        restoredHotKeys.set(readHotKeys(file));
+        this.hotKeyFile = file;
+        synchronized (this) {
+            this.threadPool = threadPool;
+            schedulePersist();
+        }
+    }
+
+    private synchronized void updatePersistInterval(final TimeValue persistInterval) {
+        this.persistInterval = persistInterval;
+        schedulePersist();
+    }
+
+    private synchronized void schedulePersist() {
+        if (persistTask != null) {
+            persistTask.cancel();
+            persistTask = null;
+        }
+        if (threadPool == null || persistInterval.millis() == 0) {
+            return;
+        }
+        persistTask = threadPool.scheduleWithFixedDelay(() -> {
+            try {
+                persistHotKeys();
+            } catch (Exception e) {
+                log.warn("Failed to write ip2geo cache hot keys to {}", hotKeyFile, e);
+            }
+        }, persistInterval, ThreadPool.Names.GENERIC);
+    }
+
+    /**
+     * Write the start ip of the most recently used ranges of the current index of each datasource into a file
+     *
+     * Nothing is written until datasources are loaded and the ranges from a previous run are loaded into the cache,
+     * so that a node which has not processed any document yet keeps the file of the previous run.
+     */
+    @VisibleForTesting
+    void persistHotKeys() throws IOException {
+        Path file = hotKeyFile;
+        Map<String, DatasourceMetadata> current = metadata;
+        if (file == null || current == null || restoredHotKeys.get() != null) {
+            return;
+        }
+        XContentBuilder builder = XContentFactory.jsonBuilder().startObject();
+        Set<String> indexNames = new HashSet<>();
+        for (DatasourceMetadata datasourceMetadata : current.values()) {
+            String indexName = datasourceMetadata.getIndexName();
+            if (indexName == null || indexNames.add(indexName) == false) {
+                continue;
+            }
+            List<String> ips = geoDataCache.getRecentlyUsedIps(indexName, warmUpSize);
+            if (ips.isEmpty() == false) {
+                builder.field(indexName, ips);
+            }
+        }
+        builder.endObject();
+        Path temp = file.resolveSibling(file.getFileName() + TEMP_FILE_EXTENSION);
+        Files.write(temp, BytesReference.toBytes(BytesReference.bytes(builder)));
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static Map<String, List<String>> readHotKeys(final Path file) {
+        if (Files.exists(file) == false) {
+            return null;
+        }
+        try (
+            XContentParser parser = XContentType.JSON.xContent()
+                .createParser(NamedXContentRegistry.EMPTY, LoggingDeprecationHandler.INSTANCE, Files.newInputStream(file))
+        ) {
+            Map<String, List<String>> hotKeys = new HashMap<>();
+            for (Map.Entry<String, Object> entry : parser.map().entrySet()) {
+                hotKeys.put(entry.getKey(), (List<String>) entry.getValue());
+            }
+            return hotKeys;
+        } catch (Exception e) {
+            log.warn("Failed to read ip2geo cache hot keys from {}", file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Load ranges written by a previous run into the cache if their index is still the current index of a datasource
+     */
+    private void restoreHotKeys(final Map<String, DatasourceMetadata> current) {
+        Map<String, List<String>> hotKeys = restoredHotKeys.getAndSet(null);
+        if (hotKeys == null) {
+            return;
+        }
+        for (DatasourceMetadata datasourceMetadata : current.values()) {
+            String indexName = datasourceMetadata.getIndexName();
+            List<String> ips = indexName == null ? null : hotKeys.remove(indexName);
+            if (ips == null || ips.isEmpty() || DatasourceState.AVAILABLE.equals(datasourceMetadata.getState()) == false) {
+                continue;
+            }
+            executor.accept(
+                () -> putInCache(
+                    indexName,
+                    ips,
+                    ActionListener.wrap(
+                        count -> log.info("Loaded {} ranges of {} into ip2geo cache", count, indexName),
+                        e -> log.warn("Failed to load ranges of {} into ip2geo cache", indexName, e)
+                    )
+                )
+            );
+        }
+    }
+
+    /**
+     * Return the metadata snapshot of a datasource
+     *
+     * The snapshot is immutable. Read it once and use it for all checks of a document
+     * so that the checks see a consistent view of the datasource.
+     *
+     * @param datasourceName the datasource name
+     * @return the metadata, or null if the datasource does not exist
+     */
+    public DatasourceMetadata getDatasourceMetadata(final String datasourceName) {
+        return getMetadata().get(datasourceName);
     }
 
     public String getIndexName(final String datasourceName) {
-        return getMetadata().getOrDefault(datasourceName, DatasourceMetadata.EMPTY_METADATA).getIndexName();
+        return getMetadata().getOrDefault(datasourceName, EMPTY_METADATA).getIndexName();
     }
 
     public boolean isExpired(final String datasourceName) {
-        return getMetadata().getOrDefault(datasourceName, DatasourceMetadata.EMPTY_METADATA).getExpirationDate().isBefore(Instant.now());
+        return getMetadata().getOrDefault(datasourceName, EMPTY_METADATA).isExpired();
     }
 
     public boolean has(final String datasourceName) {
@@ -71,62 +305,538 @@ public class Ip2GeoCachedDao implements IndexingOperationListener {
     }
 
     public DatasourceState getState(final String datasourceName) {
-        return getMetadata().getOrDefault(datasourceName, DatasourceMetadata.EMPTY_METADATA).getState();
+        return getMetadata().getOrDefault(datasourceName, EMPTY_METADATA).getState();
+    }
+
+    /**
+     * Return geo data of a given ip
+     *
+     * When GeoIP data of the index is loaded in a node local lookup, the lookup is used.
+     * Otherwise, the geo data is retrieved from the cache or from the index asynchronously.
+     * Concurrent requests for the same ip share a single search request.
+     *
+     * @param indexName the GeoIP data index name
+     * @param ip the ip address
+     * @param listener listener to be called with geo data of the ip, or empty map if there is no matching data
+     */
+    public void getGeoData(final String indexName, final String ip, final ActionListener<Map<String, Object>> listener) {
+        GeoIpLookup lookup = geoIpLookupService.getLookup(indexName);
+        if (lookup != null) {
+            ActionListener.completeWith(listener, () -> lookup.lookup(ip));
+            return;
+        }
+
+        Map<String, Object> geoData;
+        try {
+            geoData = getCachedGeoData(indexName, ip);
+        } catch (Exception e) {
+            listener.onFailure(e);
+            return;
+        }
+        if (geoData != null) {
+            listener.onResponse(geoData);
+            return;
+        }
+
+        if (geoDataCache.addLoadListener(indexName, ip, listener)) {
+            long startTime = System.nanoTime();
+            geoIpDataDao.getGeoIpData(indexName, ip, ActionListener.wrap(range -> {
+                recordLoadLatency(indexName, startTime);
+                onLoaded(indexName, ip, range);
+            }, e -> geoDataCache.onLoadFailed(indexName, ip, e)));
+        }
+    }
+
+    /**
+     * Return geo data of given ips
+     *
+     * Cache misses are deduplicated and retrieved from the index in a single multi search request.
+     * Misses which are already being retrieved by another request are not retrieved again.
+     *
+     * @param indexName the GeoIP data index name
+     * @param ips the ip addresses
+     * @param listener listener to be called with geo data of each ip in the same order as given ips,
+     *                 or empty map for an ip having no matching data. It fails if any of the ips fails.
+     */
+    public void getGeoData(final String indexName, final List<String> ips, final ActionListener<List<Map<String, Object>>> listener) {
+        Map<String, Exception> failures = new ConcurrentHashMap<>();
+        getGeoData(indexName, ips, failures::put, ActionListener.wrap(geoData -> {
+            if (failures.isEmpty()) {
+                listener.onResponse(geoData);
+            } else {
+                listener.onFailure(failures.values().iterator().next());
+            }
+        }, listener::onFailure));
+    }
+
+    /**
+     * Return geo data of given ips, reporting a failed ip without failing the other ips
+     *
+     * See {@link #getGeoData(String, List, ActionListener)}
+     *
+     * @param indexName the GeoIP data index name
+     * @param ips the ip addresses
+     * @param failureHandler handler to be called with an ip and its failure before the listener is called. It can be called
+     *                       from multiple threads.
+     * @param listener listener to be called with geo data of each ip in the same order as given ips,
+     *                 empty map for an ip having no matching data, or null for a failed ip
+     */
+    public void getGeoData(
+        final String indexName,
+        final List<String> ips,
+        final BiConsumer<String, Exception> failureHandler,
+        final ActionListener<List<Map<String, Object>>> listener
+    ) {
+        GeoIpLookup lookup = geoIpLookupService.getLookup(indexName);
+        if (lookup != null) {
+            List<Map<String, Object>> geoDataList = new ArrayList<>(ips.size());
+            for (String ip : ips) {
+                try {
+                    geoDataList.add(lookup.lookup(ip));
+                } catch (Exception e) {
+                    failureHandler.accept(ip, e);
+                    geoDataList.add(null);
+                }
+            }
+            listener.onResponse(geoDataList);
+            return;
+        }
+
+        Map<String, Map<String, Object>> geoDataByIp = new ConcurrentHashMap<>();
+        Set<String> misses = new LinkedHashSet<>();
+        Set<String> failedIps = new HashSet<>();
+        for (String ip : ips) {
+            if (geoDataByIp.containsKey(ip) || misses.contains(ip) || failedIps.contains(ip)) {
+                continue;
+            }
+            Map<String, Object> geoData;
+            try {
+                geoData = getCachedGeoData(indexName, ip);
+            } catch (Exception e) {
+                failureHandler.accept(ip, e);
+                failedIps.add(ip);
+                continue;
+            }
+            if (geoData == null) {
+                misses.add(ip);
+            } else {
+                geoDataByIp.put(ip, geoData);
+            }
+        }
+
+        if (misses.isEmpty()) {
+            listener.onResponse(ips.stream().map(geoDataByIp::get).collect(Collectors.toList()));
+            return;
+        }
+
+        CountDown countDown = new CountDown(misses.size());
+        Runnable onIpDone = () -> {
+            if (countDown.countDown()) {
+                listener.onResponse(ips.stream().map(geoDataByIp::get).collect(Collectors.toList()));
+            }
+        };
+        List<String> ipsToLoad = new ArrayList<>();
+        for (String ip : misses) {
+            ActionListener<Map<String, Object>> ipListener = ActionListener.wrap(geoData -> {
+                geoDataByIp.put(ip, geoData);
+                onIpDone.run();
+            }, e -> {
+                failureHandler.accept(ip, e);
+                onIpDone.run();
+            });
+            if (geoDataCache.addLoadListener(indexName, ip, ipListener)) {
+                ipsToLoad.add(ip);
+            }
+        }
+
+        if (ipsToLoad.isEmpty() == false) {
+            long startTime = System.nanoTime();
+            geoIpDataDao.getGeoIpData(
+                indexName,
+                ipsToLoad,
+                (ip, e) -> geoDataCache.onLoadFailed(indexName, ip, e),
+                ActionListener.wrap(ranges -> {
+                    recordLoadLatency(indexName, startTime);
+                    for (int i = 0; i < ipsToLoad.size(); i++) {
+                        if (ranges.get(i) != null) {
+                            onLoaded(indexName, ipsToLoad.get(i), ranges.get(i));
+                        }
+                    }
+                }, e -> ipsToLoad.forEach(ip -> geoDataCache.onLoadFailed(indexName, ip, e)))
+            );
+        }
+    }
+
+    /**
+     * Put geo data of the most recently used ranges of the current index of a datasource from a new index into the cache
+     *
+     * It is called before the datasource switches to the new index so that lookups do not miss the cache all at once
+     * after the switch. A lookup of the new index is prepared as well if the new index is small enough.
+     *
+     * @param datasourceName the datasource name
+     * @param newIndexName the new GeoIP data index name
+     * @param fields the fields of the new GeoIP data index
+     * @param listener listener to be called with the number of ranges put in the cache
+     */
+    public void warmUp(
+        final String datasourceName,
+        final String newIndexName,
+        final List<String> fields,
+        final ActionListener<Integer> listener
+    ) {
+        String indexName = getIndexName(datasourceName);
+        if (indexName == null || indexName.equals(newIndexName)) {
+            listener.onResponse(0);
+            return;
+        }
+
+        geoIpLookupService.prepare(newIndexName);
+        if (fields != null) {
+            schemas.computeIfAbsent(newIndexName, key -> new GeoDataSchema(fields));
+        }
+        List<String> ips = geoDataCache.getRecentlyUsedIps(indexName, warmUpSize);
+        if (ips.isEmpty()) {
+            listener.onResponse(0);
+            return;
+        }
+        putInCache(newIndexName, ips, listener);
+    }
+
+    /**
+     * Put geo data of ranges containing given ips in a given index into the cache
+     */
+    private void putInCache(final String indexName, final List<String> ips, final ActionListener<Integer> listener) {
+        geoIpDataDao.getGeoIpData(indexName, ips, ActionListener.map(listener, ranges -> {
+            int count = 0;
+            for (GeoIpRange range : ranges) {
+                if (range.getCidr() != null) {
+                    geoDataCache.put(indexName, range.getCidr(), toRecord(indexName, range.getData()));
+                    count++;
+                }
+            }
+            return count;
+        }));
+    }
+
+    /**
+     * Return a filter to tell ips which are definitely not in any range of a given index
+     *
+     * @param indexName the GeoIP data index name
+     * @return the filter, or null if it is not available
+     */
+    public GeoIpCoverageFilter getCoverageFilter(final String indexName) {
+        return geoIpLookupService.getCoverageFilter(indexName);
+    }
+
+    /**
+     * Return a node local lookup of a given index
+     *
+     * If the lookup is not loaded yet, loading is triggered in background and null is returned.
+     *
+     * @param indexName the GeoIP data index name
+     * @return the lookup, or null if it is not available
+     */
+    public GeoIpLookup getLookup(final String indexName) {
+        return geoIpLookupService.getLookup(indexName);
+    }
+
+    /**
+     * Return an inverted index from values of a given property to ip ranges of a given index
+     *
+     * If the lookup of the index is not loaded yet, loading is triggered in background and null is returned.
+     *
+     * @param indexName the GeoIP data index name
+     * @param property the property name
+     * @return the attribute index, or null if it is not available
+     */
+    public GeoIpAttributeIndex getAttributeIndex(final String indexName, final String property) {
+        return geoIpLookupService.getAttributeIndex(indexName, property);
+    }
+
+    /**
+     * Return statistics of the cache for ip ranges not having geo data
+     *
+     * @return the cache statistics
+     */
+    public Cache.CacheStats getNotFoundCacheStats() {
+        return notFoundCache.getStats();
+    }
+
+    /**
+     * Record the number of documents processed with geo data of a datasource
+     *
+     * @param datasourceName the datasource name
+     * @param count the number of documents
+     */
+    public void recordProcessed(final String datasourceName, final long count) {
+        processorMetrics.computeIfAbsent(datasourceName, key -> new ProcessorMetrics()).processed.inc(count);
     }
 
-    public Map<String, Object> getGeoData(final String indexName, final String ip) {
+    /**
+     * Record the number of documents given expired data of a datasource
+     *
+     * @param datasourceName the datasource name
+     * @param count the number of documents
+     */
+    public void recordExpired(final String datasourceName, final long count) {
+        processorMetrics.computeIfAbsent(datasourceName, key -> new ProcessorMetrics()).expired.inc(count);
+    }
+
+    /**
+     * Return cache and lookup statistics of each datasource in this node
+     *
+     * @return the statistics
+     */
+    public List<Ip2GeoDatasourceStats> getStats() {
+        List<Ip2GeoDatasourceStats> stats = new ArrayList<>();
+        for (Map.Entry<String, DatasourceMetadata> entry : getMetadata().entrySet()) {
+            String indexName = entry.getValue().getIndexName();
+            LatencyHistogram loadLatency = indexName == null ? null : loadLatencies.get(indexName);
+            ProcessorMetrics processor = processorMetrics.getOrDefault(entry.getKey(), ProcessorMetrics.EMPTY);
+            stats.add(
+                new Ip2GeoDatasourceStats(
+                    entry.getKey(),
+                    indexName,
+                    indexName == null ? Ip2GeoCacheStats.EMPTY : geoDataCache.getStats(indexName),
+                    indexName == null ? Ip2GeoCacheStats.EMPTY : notFoundCache.getStats(indexName),
+                    loadLatency == null ? 0 : loadLatency.getTotalTimeInMillis(),
+                    loadLatency == null ? new LatencyHistogram().getCounts() : loadLatency.getCounts(),
+                    processor.processed.count(),
+                    processor.expired.count()
+                )
+            );
+        }
+        return stats;
+    }
+
+    private void recordLoadLatency(final String indexName, final long startTime) {
+        loadLatencies.computeIfAbsent(indexName, key -> new LatencyHistogram())
+            .record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+    }
+
+    private Map<String, Object> getCachedGeoData(final String indexName, final String ip) {
+        Map<String, Object> geoData = geoDataCache.get(indexName, ip);
+        return geoData != null ? geoData : notFoundCache.get(indexName, ip);
+    }
+
+    private void onLoaded(final String indexName, final String ip, final GeoIpRange range) {
+        if (range.getCidr() == null) {
+            notFoundCache.put(indexName, ip, range.getData());
+            cacheNotFoundRange(indexName, ip);
+            geoDataCache.onLoaded(indexName, ip, range.getData());
+        } else {
+            Map<String, Object> geoData = toRecord(indexName, range.getData());
+            geoDataCache.put(indexName, range.getCidr(), geoData);
+            geoDataCache.onLoaded(indexName, ip, geoData);
+        }
+    }
+
+    /**
+     * Convert geo data into a record sharing field names and values with other records of the same index
+     */
+    private Map<String, Object> toRecord(final String indexName, final Map<String, Object> geoData) {
+        GeoDataSchema schema = schemas.get(indexName);
+        if (schema == null) {
+            List<String> fields = getMetadata().values()
+                .stream()
+                .filter(datasourceMetadata -> indexName.equals(datasourceMetadata.getIndexName()))
+                .map(DatasourceMetadata::getFields)
+                .filter(Objects::nonNull)
+                .findFirst()
+                .orElse(null);
+            if (fields == null) {
+                return geoData;
+            }
+            schema = schemas.computeIfAbsent(indexName, key -> new GeoDataSchema(fields));
+        }
+        return schema.toRecord(geoData);
+    }
+
+    /**
+     * Widen the cached range of an ip not having geo data to the gap between known ranges
+     *
+     * The gap is searched within a /24 block for IPv4 and a /48 block for IPv6 around the ip.
+     * If the block has too many ranges, only the ip itself stays in the cache.
+     */
+    private void cacheNotFoundRange(final String indexName, final String ip) {
+        InetAddress address;
+        InetAddress[] block;
         try {
-            return geoDataCache.putIfAbsent(indexName, ip, addr -> geoIpDataDao.getGeoIpData(indexName, ip));
-        } catch (ExecutionException e) {
-            throw new RuntimeException(e);
+            address = InetAddresses.forString(ip);
+            block = getNotFoundBlock(address);
+        } catch (Exception e) {
+            log.debug("Failed to get the block of ip {}", ip, e);
+            return;
+        }
+        geoIpDataDao.getGeoIpRanges(
+            indexName,
+            NetworkAddress.format(block[0]),
+            NetworkAddress.format(block[1]),
+            NOT_FOUND_MAX_RANGES,
+            ActionListener.wrap(cidrs -> {
+                if (cidrs == null) {
+                    return;
+                }
+                IpKey[] gap = getGap(IpKey.of(address), IpKey.of(block[0]), IpKey.of(block[1]), cidrs);
+                if (gap != null) {
+                    notFoundCache.put(indexName, gap[0], gap[1], Collections.emptyMap());
+                }
+            }, e -> log.debug("Failed to get ranges around ip {} from {}", ip, indexName, e))
+        );
+    }
+
+    private static InetAddress[] getNotFoundBlock(final InetAddress address) throws UnknownHostException {
+        byte[] first = address.getAddress();
+        byte[] last = address.getAddress();
+        int prefixLength = address instanceof Inet4Address ? NOT_FOUND_IPV4_PREFIX_LENGTH : NOT_FOUND_IPV6_PREFIX_LENGTH;
+        for (int i = prefixLength / Byte.SIZE; i < first.length; i++) {
+            first[i] = 0;
+            last[i] = (byte) 0xFF;
+        }
+        return new InetAddress[] { InetAddress.getByAddress(first), InetAddress.getByAddress(last) };
+    }
+
+    private static IpKey[] getGap(final IpKey ip, final IpKey blockStart, final IpKey blockEnd, final List<String> cidrs) {
+        IpKey start = blockStart;
+        IpKey end = blockEnd;
+        for (String cidr : cidrs) {
+            IpKey[] range = IpKey.ofCidr(cidr);
+            if (range[1].compareTo(ip) < 0) {
+                start = start.max(range[1].next());
+            } else if (range[0].compareTo(ip) > 0) {
+                end = end.min(range[0].previous());
+            } else {
+                // The ip is in a range. It should not happen as GeoIP data index is immutable.
+                return null;
+            }
         }
+        return new IpKey[] { start, end };
     }
 
     private Map<String, DatasourceMetadata> getMetadata() {
-        if (metadata != null) {
-            return metadata;
+        Map<String, DatasourceMetadata> current = metadata;
+        if (current != null) {
+            return current;
         }
         synchronized (this) {
             if (metadata != null) {
                 return metadata;
             }
-            Map<String, DatasourceMetadata> tempData = new ConcurrentHashMap<>();
+            List<Datasource> datasources;
             try {
-                datasourceDao.getAllDatasources()
-                    .stream()
-                    .forEach(datasource -> tempData.put(datasource.getName(), new DatasourceMetadata(datasource)));
+                datasources = datasourceDao.getAllDatasources();
             } catch (IndexNotFoundException e) {
                 log.debug("Datasource has never been created");
+                datasources = Collections.emptyList();
+            }
+            return initMetadata(datasources);
+        }
+    }
+
+    /**
+     * @return true if metadata of datasources is loaded and can be read without blocking
+     */
+    public boolean isMetadataLoaded() {
+        return metadata != null;
+    }
+
+    /**
+     * Load metadata of datasources asynchronously if it is not loaded yet
+     *
+     * A thread which must not block, such as a network thread rewriting a search request, loads metadata through this
+     * instead of waiting for the datasource search on the first read of metadata.
+     *
+     * @param listener listener to be called once metadata is loaded
+     */
+    public void loadMetadata(final ActionListener<Void> listener) {
+        if (metadata != null) {
+            listener.onResponse(null);
+            return;
+        }
+        datasourceDao.getAllDatasources(ActionListener.wrap(datasources -> {
+            initMetadata(datasources);
+            listener.onResponse(null);
+        }, e -> {
+            if (ExceptionsHelper.unwrapCause(e) instanceof IndexNotFoundException == false) {
+                listener.onFailure(e);
+                return;
             }
-            metadata = tempData;
+            log.debug("Datasource has never been created");
+            initMetadata(Collections.emptyList());
+            listener.onResponse(null);
+        }));
+    }
+
+    private synchronized Map<String, DatasourceMetadata> initMetadata(final List<Datasource> datasources) {
+        if (metadata != null) {
             return metadata;
         }
+        Map<String, DatasourceMetadata> tempData = new HashMap<>();
+        datasources.forEach(datasource -> tempData.put(datasource.getName(), new DatasourceMetadata(datasource)));
+        geoIpLookupService.retainLookupFiles(
+            tempData.values().stream().map(DatasourceMetadata::getIndexName).filter(Objects::nonNull).collect(Collectors.toSet())
+        );
+        metadata = Collections.unmodifiableMap(tempData);
+        restoreHotKeys(metadata);
+        return metadata;
+    }
+
+    /**
+     * Publish a new snapshot of metadata with a given change
+     *
+     * Snapshots are copied on write as datasources are changed rarely while they are read for every document.
+     *
+     * @return the previous metadata of the datasource
+     */
+    private synchronized DatasourceMetadata publish(final String datasourceName, final DatasourceMetadata datasourceMetadata) {
+        Map<String, DatasourceMetadata> next = new HashMap<>(getMetadata());
+        DatasourceMetadata previous = datasourceMetadata == null
+            ? next.remove(datasourceName)
+            : next.put(datasourceName, datasourceMetadata);
+        metadata = Collections.unmodifiableMap(next);
+        return previous;
     }
 
     private void put(final Datasource datasource) {
         DatasourceMetadata metadata = new DatasourceMetadata(datasource);
-        getMetadata().put(datasource.getName(), metadata);
+        if (metadata.equals(getMetadata().get(datasource.getName()))) {
+            return;
+        }
+        DatasourceMetadata previous = publish(datasource.getName(), metadata);
+        releaseLookupIfIndexChanged(previous, metadata.getIndexName());
+        if (metadata.getIndexName() != null && DatasourceState.AVAILABLE.equals(metadata.getState())) {
+            geoIpLookupService.prepare(metadata.getIndexName());
+        }
     }
 
     private void remove(final String datasourceName) {
-        getMetadata().remove(datasourceName);
+        DatasourceMetadata previous = publish(datasourceName, null);
+        processorMetrics.remove(datasourceName);
+        releaseLookupIfIndexChanged(previous, null);
+    }
+
+    private void releaseLookupIfIndexChanged(final DatasourceMetadata previous, final String newIndexName) {
+        if (previous == null || previous.getIndexName() == null || previous.getIndexName().equals(newIndexName)) {
+            return;
+        }
+        String indexName = previous.getIndexName();
+        geoIpLookupService.remove(indexName);
+        schemas.remove(indexName);
+        loadLatencies.remove(indexName);
+        geoDataCache.invalidate(indexName);
+        notFoundCache.invalidate(indexName);
     }
 
+    /**
+     * Datasource documents are parsed and published off the indexing thread.
+     * Only the id and the source are captured here.
+     */
     @Override
     public void postIndex(ShardId shardId, Engine.Index index, Engine.IndexResult result) {
         if (Engine.Result.Type.FAILURE.equals(result.getResultType())) {
             return;
         }
-
-        try {
-            XContentParser parser = XContentType.JSON.xContent()
-                .createParser(NamedXContentRegistry.EMPTY, LoggingDeprecationHandler.INSTANCE, index.source().utf8ToString());
-            parser.nextToken();
-            Datasource datasource = Datasource.PARSER.parse(parser, null);
-            put(datasource);
-        } catch (IOException e) {
-            log.error("IOException occurred updating datasource metadata for datasource {} ", index.id(), e);
-        }
+        enqueue(new DatasourceEvent(index.id(), index.source()));
     }
 
     @Override
@@ -134,58 +844,274 @@ public class Ip2GeoCachedDao implements IndexingOperationListener {
         if (result.getResultType().equals(Engine.Result.Type.FAILURE)) {
             return;
         }
-        remove(delete.id());
+        enqueue(new DatasourceEvent(delete.id(), null));
     }
 
-    @Getter
-    private static class DatasourceMetadata {
-        private static DatasourceMetadata EMPTY_METADATA = new DatasourceMetadata();
-        private String indexName;
-        private Instant expirationDate;
-        private DatasourceState state;
-
-        private DatasourceMetadata() {
-            expirationDate = Instant.MIN;
+    private void enqueue(final DatasourceEvent event) {
+        datasourceEvents.add(event);
+        if (draining.compareAndSet(false, true)) {
+            executor.accept(this::drainDatasourceEvents);
         }
+    }
 
-        public DatasourceMetadata(final Datasource datasource) {
-            this.indexName = datasource.currentIndexName();
-            this.expirationDate = datasource.expirationDay();
-            this.state = datasource.getState();
+    /**
+     * Apply datasource events one at a time in the order they happened
+     */
+    private void drainDatasourceEvents() {
+        do {
+            DatasourceEvent event;
+            while ((event = datasourceEvents.poll()) != null) {
+                apply(event);
+            }
+            draining.set(false);
+        } while (datasourceEvents.isEmpty() == false && draining.compareAndSet(false, true));
+    }
+
+    private void apply(final DatasourceEvent event) {
+        if (event.source == null) {
+            remove(event.id);
+            return;
         }
+        try {
+            XContentParser parser = XContentType.JSON.xContent()
+                .createParser(NamedXContentRegistry.EMPTY, LoggingDeprecationHandler.INSTANCE, event.source.streamInput());
+            parser.nextToken();
+            put(Datasource.PARSER.parse(parser, null));
+        } catch (Exception e) {
+            log.error("Exception occurred updating datasource metadata for datasource {} ", event.id, e);
+        }
+    }
+
+    /**
+     * Index or delete of a datasource document. Source is null for delete.
+     */
+    @AllArgsConstructor
+    private static class DatasourceEvent {
+        private final String id;
+        private final BytesReference source;
+    }
+
+    private static class ProcessorMetrics {
+        private static final ProcessorMetrics EMPTY = new ProcessorMetrics();
+        private final CounterMetric processed = new CounterMetric();
+        private final CounterMetric expired = new CounterMetric();
     }
 
     /**
      * Cache to hold geo data
      *
-     * GeoData in an index in immutable. Therefore, invalidation is not needed.
+     * Entries are keyed by the matched IP range rather than by ip so that any ip in a cached range is a hit.
+     * Cached ranges are partitioned by index so that a datasource with high cardinality traffic does not evict
+     * hot entries of another datasource. Each partition has its own {@link Cache} to control its size and eviction,
+     * and a sorted map to find the range containing an ip. The same structure holds ranges not having geo data
+     * in a separate instance so that they do not compete with ranges having geo data for the cache size.
+     *
+     * The cache is limited by the number of entries, or by estimated memory usage of entries when a max memory size is set.
+     * The limit is a global budget shared by partitions. Half of the budget is split evenly and the other half is split
+     * in proportion to the hits of each partition since the last rebalance. The budget is rebalanced periodically and
+     * whenever a partition is added or removed.
+     * Estimated memory usage of entries is charged to a circuit breaker. An entry is not cached when the breaker trips.
+     *
+     * GeoData in an index in immutable. Therefore, invalidation is not needed unless the index is replaced.
+     * Listeners waiting for geo data which is being loaded are kept separately so that a single load serves all of them.
      */
     @VisibleForTesting
     protected static class GeoDataCache {
-        private Cache<CacheKey, Map<String, Object>> cache;
+        private static final String BREAKER_LABEL = "ip2geo_cache";
+        private static final long REBALANCE_INTERVAL_IN_NANOS = TimeUnit.MINUTES.toNanos(1);
+        private static final double REBALANCE_THRESHOLD = 0.1;
+        private final CircuitBreaker circuitBreaker;
+        private volatile long maxSize;
+        private volatile long maxMemorySize;
+        private final Map<String, Partition> partitions = new ConcurrentHashMap<>();
+        private final Map<LoadKey, List<ActionListener<Map<String, Object>>>> loadListeners = new ConcurrentHashMap<>();
+        private final AtomicLong nextRebalanceTime = new AtomicLong(System.nanoTime() + REBALANCE_INTERVAL_IN_NANOS);
 
         public GeoDataCache(final long maxSize) {
+            this(maxSize, -1, new NoopCircuitBreaker(BREAKER_LABEL));
+        }
+
+        /**
+         * @param maxSize max number of entries
+         * @param maxMemorySize max estimated memory usage of entries in bytes, or negative value to limit by the number of entries
+         * @param circuitBreaker circuit breaker to charge estimated memory usage of entries to
+         */
+        public GeoDataCache(final long maxSize, final long maxMemorySize, final CircuitBreaker circuitBreaker) {
             if (maxSize < 0) {
                 throw new IllegalArgumentException("ip2geo max cache size must be 0 or greater");
             }
-            this.cache = CacheBuilder.<CacheKey, Map<String, Object>>builder().setMaximumWeight(maxSize).build();
+            this.circuitBreaker = circuitBreaker;
+            this.maxSize = maxSize;
+            this.maxMemorySize = maxMemorySize;
         }
 
-        public Map<String, Object> putIfAbsent(
-            final String indexName,
-            final String ip,
-            final Function<String, Map<String, Object>> retrieveFunction
-        ) throws ExecutionException {
-            CacheKey cacheKey = new CacheKey(indexName, ip);
-            return cache.computeIfAbsent(cacheKey, key -> retrieveFunction.apply(key.ip));
+        /**
+         * Return geo data of a cached range containing a given ip
+         *
+         * @param indexName the GeoIP data index name
+         * @param ip the ip address
+         * @return the geo data, or null if no cached range contains the ip
+         */
+        public Map<String, Object> get(final String indexName, final String ip) {
+            maybeRebalance();
+            Partition partition = getPartition(indexName);
+            Map<String, Object> geoData = partition.find(ip);
+            if (geoData == null) {
+                partition.misses.inc();
+            } else {
+                partition.hits.inc();
+            }
+            return geoData;
         }
 
-        public Map<String, Object> get(final String indexName, final String ip) {
-            return cache.get(new CacheKey(indexName, ip));
+        /**
+         * Put geo data of a given range
+         *
+         * @param indexName the GeoIP data index name
+         * @param cidr the CIDR block or the ip address which the geo data belongs to
+         * @param geoData the geo data
+         */
+        public void put(final String indexName, final String cidr, final Map<String, Object> geoData) {
+            IpKey[] bounds = IpKey.ofCidr(cidr);
+            put(indexName, bounds[0], bounds[1], geoData);
+        }
+
+        private void put(final String indexName, final IpKey start, final IpKey end, final Map<String, Object> geoData) {
+            CachedRange range = new CachedRange(end, geoData);
+            try {
+                circuitBreaker.addEstimateBytesAndMaybeBreak(range.getRamBytesUsed(), BREAKER_LABEL);
+            } catch (CircuitBreakingException e) {
+                log.debug("Skip caching geo data of {} as the circuit breaker tripped", indexName, e);
+                return;
+            }
+            getPartition(indexName).put(start, range);
+        }
+
+        private Partition getPartition(final String indexName) {
+            Partition partition = partitions.get(indexName);
+            if (partition != null) {
+                return partition;
+            }
+            partition = partitions.computeIfAbsent(indexName, key -> new Partition());
+            rebalance(true);
+            return partition;
+        }
+
+        /**
+         * Return hits and misses of lookups, and evictions of cached ranges
+         *
+         * @return the cache statistics
+         */
+        public Cache.CacheStats getStats() {
+            long hits = 0;
+            long misses = 0;
+            long evictions = 0;
+            for (Partition partition : partitions.values()) {
+                hits += partition.hits.count();
+                misses += partition.misses.count();
+                evictions += partition.evictions.count();
+            }
+            return new Cache.CacheStats(hits, misses, evictions);
+        }
+
+        /**
+         * Return statistics of the partition of a given index
+         *
+         * @param indexName the GeoIP data index name
+         * @return the cache statistics of the index
+         */
+        public Ip2GeoCacheStats getStats(final String indexName) {
+            Partition partition = partitions.get(indexName);
+            if (partition == null) {
+                return Ip2GeoCacheStats.EMPTY;
+            }
+            return new Ip2GeoCacheStats(
+                partition.hits.count(),
+                partition.misses.count(),
+                partition.evictions.count(),
+                partition.entries.count(),
+                partition.memorySize.count(),
+                partition.capacity
+            );
+        }
+
+        /**
+         * Return the start ip of cached ranges of a given index in the most recently used order
+         *
+         * @param indexName the GeoIP data index name
+         * @param limit max number of ips to return
+         * @return the ips
+         */
+        public List<String> getRecentlyUsedIps(final String indexName, final int limit) {
+            List<String> ips = new ArrayList<>();
+            Partition partition = partitions.get(indexName);
+            if (partition == null) {
+                return ips;
+            }
+            Iterator<IpKey> it = partition.cache.keys().iterator();
+            while (ips.size() < limit && it.hasNext()) {
+                ips.add(it.next().toIp());
+            }
+            return ips;
+        }
+
+        /**
+         * Remove all cached ranges of a given index
+         *
+         * @param indexName the GeoIP data index name
+         */
+        public void invalidate(final String indexName) {
+            Partition partition = partitions.remove(indexName);
+            if (partition == null) {
+                return;
+            }
+            partition.clear();
+            rebalance(true);
+        }
+
+        /**
+         * Register a listener to be called when geo data of a given ip is loaded
+         *
+         * @param indexName the GeoIP data index name
+         * @param ip the ip address
+         * @param listener the listener
+         * @return true if the caller is the first one waiting for the ip and should load the geo data
+         */
+        public boolean addLoadListener(final String indexName, final String ip, final ActionListener<Map<String, Object>> listener) {
+            boolean[] first = { false };
+            loadListeners.compute(new LoadKey(indexName, ip), (key, listeners) -> {
+                if (listeners == null) {
+                    first[0] = true;
+                    listeners = new ArrayList<>();
+                }
+                listeners.add(listener);
+                return listeners;
+            });
+            return first[0];
+        }
+
+        /**
+         * Notify listeners waiting for geo data of a given ip
+         */
+        public void onLoaded(final String indexName, final String ip, final Map<String, Object> geoData) {
+            List<ActionListener<Map<String, Object>>> listeners = loadListeners.remove(new LoadKey(indexName, ip));
+            if (listeners != null) {
+                ActionListener.onResponse(listeners, geoData);
+            }
+        }
+
+        /**
+         * Notify listeners waiting for geo data of a given ip with a failure
+         */
+        public void onLoadFailed(final String indexName, final String ip, final Exception e) {
+            List<ActionListener<Map<String, Object>>> listeners = loadListeners.remove(new LoadKey(indexName, ip));
+            if (listeners != null) {
+                ActionListener.onFailure(listeners, e);
+            }
         }
 
         /**
-         * Create a new cache with give size and replace existing cache
+         * Update the global budget with give size and resize partitions
          *
          * Try to populate the existing value from previous cache to the new cache in best effort
          *
@@ -195,24 +1121,315 @@ public class Ip2GeoCachedDao implements IndexingOperationListener {
             if (maxSize < 0) {
                 throw new IllegalArgumentException("ip2geo max cache size must be 0 or greater");
             }
-            Cache<CacheKey, Map<String, Object>> temp = CacheBuilder.<CacheKey, Map<String, Object>>builder()
-                .setMaximumWeight(maxSize)
-                .build();
-            int count = 0;
-            Iterator<CacheKey> it = cache.keys().iterator();
-            while (it.hasNext() && count < maxSize) {
-                CacheKey key = it.next();
-                temp.put(key, cache.get(key));
-                count++;
+            this.maxSize = maxSize;
+            rebalance(true);
+        }
+
+        /**
+         * Update the global budget with give memory size and resize partitions
+         *
+         * @param maxMemorySize max estimated memory usage of entries in bytes, or negative value to limit by the number of entries
+         */
+        public void updateMaxMemorySize(final long maxMemorySize) {
+            this.maxMemorySize = maxMemorySize;
+            rebalance(true);
+        }
+
+        private void maybeRebalance() {
+            long now = System.nanoTime();
+            long next = nextRebalanceTime.get();
+            if (now - next >= 0 && nextRebalanceTime.compareAndSet(next, now + REBALANCE_INTERVAL_IN_NANOS)) {
+                rebalance(false);
+            }
+        }
+
+        /**
+         * Split the global budget into partitions
+         *
+         * A partition is resized only when its share changes by more than {@link #REBALANCE_THRESHOLD}
+         * unless it is forced, because resizing copies the entries into a new cache.
+         *
+         * @param force true to resize every partition whose share has changed
+         */
+        @VisibleForTesting
+        synchronized void rebalance(final boolean force) {
+            List<Partition> current = new ArrayList<>(partitions.values());
+            if (current.isEmpty()) {
+                return;
+            }
+            long budget = getMaxWeight();
+            long[] hits = new long[current.size()];
+            long totalHits = 0;
+            for (int i = 0; i < current.size(); i++) {
+                long count = current.get(i).hits.count();
+                hits[i] = count - current.get(i).lastHits;
+                current.get(i).lastHits = count;
+                totalHits += hits[i];
+            }
+            for (int i = 0; i < current.size(); i++) {
+                long share = totalHits == 0
+                    ? budget / current.size()
+                    : (long) (budget / 2.0 / current.size() + budget / 2.0 * hits[i] / totalHits);
+                Partition partition = current.get(i);
+                long difference = Math.abs(share - partition.capacity);
+                if (difference > 0 && (force || difference > partition.capacity * REBALANCE_THRESHOLD)) {
+                    partition.resize(share);
+                }
+            }
+        }
+
+        private long getMaxWeight() {
+            return maxMemorySize < 0 ? maxSize : maxMemorySize;
+        }
+
+        private long weigh(final CachedRange range) {
+            return maxMemorySize < 0 ? 1 : range.getRamBytesUsed();
+        }
+
+        /**
+         * @return estimated memory usage of entries in bytes
+         */
+        public long getMemorySize() {
+            long memorySize = 0;
+            for (Partition partition : partitions.values()) {
+                for (CachedRange range : partition.cache.values()) {
+                    memorySize += range.getRamBytesUsed();
+                }
+            }
+            return memorySize;
+        }
+
+        /**
+         * Cached ranges of an index
+         *
+         * A range is accounted in the circuit breaker and the stats while it is in the sorted map.
+         * Put, resize and clear are synchronized so that a range is never put into a cache which is being replaced.
+         */
+        private class Partition {
+            private final ConcurrentSkipListMap<IpKey, CachedRange> ranges = new ConcurrentSkipListMap<>();
+            private final CounterMetric hits = new CounterMetric();
+            private final CounterMetric misses = new CounterMetric();
+            private final CounterMetric evictions = new CounterMetric();
+            private final CounterMetric entries = new CounterMetric();
+            private final CounterMetric memorySize = new CounterMetric();
+            private volatile long capacity;
+            private volatile Cache<IpKey, CachedRange> cache = createCache(0);
+            private long lastHits;
+            private boolean cleared;
+
+            private Map<String, Object> find(final String ip) {
+                if (ranges.isEmpty()) {
+                    return null;
+                }
+                IpKey ipKey = IpKey.of(ip);
+                Map.Entry<IpKey, CachedRange> entry = ranges.floorEntry(ipKey);
+                if (entry == null || entry.getValue().getEnd().compareTo(ipKey) < 0) {
+                    return null;
+                }
+                // Access through the cache to keep the range from being evicted
+                CachedRange range = cache.get(entry.getKey());
+                if (range == null) {
+                    remove(entry.getKey(), entry.getValue(), false);
+                    return null;
+                }
+                return range.getGeoData();
+            }
+
+            private synchronized void put(final IpKey start, final CachedRange range) {
+                if (cleared) {
+                    circuitBreaker.addWithoutBreaking(-range.getRamBytesUsed());
+                    return;
+                }
+                entries.inc();
+                memorySize.inc(range.getRamBytesUsed());
+                CachedRange previous = ranges.put(start, range);
+                if (previous != null) {
+                    release(previous, false);
+                }
+                cache.put(start, range);
+            }
+
+            /**
+             * Create a new cache with a given capacity and populate the most recently used entries of the existing cache
+             */
+            private synchronized void resize(final long capacity) {
+                this.capacity = capacity;
+                Cache<IpKey, CachedRange> temp = createCache(capacity);
+                long weight = 0;
+                Iterator<IpKey> it = cache.keys().iterator();
+                while (it.hasNext()) {
+                    IpKey key = it.next();
+                    CachedRange range = ranges.get(key);
+                    if (range != null && weight + weigh(range) <= capacity) {
+                        temp.put(key, range);
+                        weight += weigh(range);
+                    } else {
+                        remove(key, range, true);
+                    }
+                }
+                cache = temp;
+            }
+
+            /**
+             * Remove all cached ranges and release their memory
+             */
+            private synchronized void clear() {
+                cleared = true;
+                cache.invalidateAll();
+                for (Map.Entry<IpKey, CachedRange> entry : ranges.entrySet()) {
+                    remove(entry.getKey(), entry.getValue(), false);
+                }
+            }
+
+            private Cache<IpKey, CachedRange> createCache(final long capacity) {
+                return CacheBuilder.<IpKey, CachedRange>builder()
+                    .setMaximumWeight(capacity)
+                    .weigher((key, range) -> weigh(range))
+                    .removalListener(
+                        notification -> remove(
+                            notification.getKey(),
+                            notification.getValue(),
+                            RemovalReason.EVICTED.equals(notification.getRemovalReason())
+                        )
+                    )
+                    .build();
+            }
+
+            private void remove(final IpKey start, final CachedRange range, final boolean evicted) {
+                if (range == null) {
+                    ranges.remove(start);
+                    return;
+                }
+                // A range which is not in the sorted map any more is already released
+                if (ranges.remove(start, range)) {
+                    release(range, evicted);
+                }
+            }
+
+            private void release(final CachedRange range, final boolean evicted) {
+                circuitBreaker.addWithoutBreaking(-range.getRamBytesUsed());
+                entries.dec();
+                memorySize.dec(range.getRamBytesUsed());
+                if (evicted) {
+                    evictions.inc();
+                }
+            }
+        }
+
+        @Getter
+        private static class CachedRange {
+            private static final long SHALLOW_SIZE = shallowSize();
+            private final IpKey end;
+            private final Map<String, Object> geoData;
+            private final long ramBytesUsed;
+
+            private CachedRange(final IpKey end, final Map<String, Object> geoData) {
+                this.end = end;
+                this.geoData = geoData;
+                long geoDataSize = geoData instanceof Accountable
+                    ? ((Accountable) geoData).ramBytesUsed()
+                    : RamUsageEstimator.sizeOfMap(geoData);
+                this.ramBytesUsed = SHALLOW_SIZE + geoDataSize;
+            }
+
+            /**
+             * Approximate memory usage of a cached range excluding geo data
+             * It includes the key and nodes of the cache and the sorted map.
+             */
+            private static long shallowSize() {
+                long size = RamUsageEstimator.shallowSizeOfInstance(CachedRange.class);
+                size += 2 * RamUsageEstimator.shallowSizeOfInstance(IpKey.class);
+                size += 2 * RamUsageEstimator.NUM_BYTES_OBJECT_HEADER + 8 * RamUsageEstimator.NUM_BYTES_OBJECT_REF;
+                return size;
             }
-            cache = temp;
         }
 
         @AllArgsConstructor
         @EqualsAndHashCode
-        private static class CacheKey {
+        private static class LoadKey {
             private final String indexName;
             private final String ip;
         }
     }
+
+    /**
+     * Ip address in a comparable form
+     *
+     * An IPv4 address is stored as an IPv4-mapped IPv6 address in the same way as ip_range field.
+     * Both parts are in sign flipped form so that signed comparison gives the address order.
+     */
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    private static class IpKey implements Comparable<IpKey> {
+        private static final long IPV4_MAPPED_HIGH = Long.MIN_VALUE;
+        private static final long IPV4_MAPPED_PREFIX = 0xFFFFL << 32;
+        private final long high;
+        private final long low;
+
+        private static IpKey of(final String ip) {
+            long ipv4 = IpAddressCodec.parseIpv4(ip);
+            if (ipv4 != IpAddressCodec.NOT_IPV4) {
+                return ofIpv4(ipv4);
+            }
+            return of(InetAddresses.forString(ip));
+        }
+
+        private static IpKey of(final InetAddress address) {
+            byte[] bytes = address.getAddress();
+            if (address instanceof Inet4Address) {
+                return ofIpv4(IpAddressCodec.ipv4ToLong(bytes));
+            }
+            return new IpKey(IpAddressCodec.ipv6High(bytes), IpAddressCodec.ipv6Low(bytes));
+        }
+
+        private static IpKey[] ofCidr(final String cidr) {
+            long[] range = IpAddressCodec.parseCidr(cidr);
+            if (range.length == 2) {
+                return new IpKey[] { ofIpv4(range[0]), ofIpv4(range[1]) };
+            }
+            return new IpKey[] { new IpKey(range[0], range[1]), new IpKey(range[2], range[3]) };
+        }
+
+        private static IpKey ofIpv4(final long ipv4) {
+            return new IpKey(IPV4_MAPPED_HIGH, (IPV4_MAPPED_PREFIX | ipv4) ^ Long.MIN_VALUE);
+        }
+
+        private IpKey next() {
+            return low == Long.MAX_VALUE ? new IpKey(high + 1, Long.MIN_VALUE) : new IpKey(high, low + 1);
+        }
+
+        private IpKey previous() {
+            return low == Long.MIN_VALUE ? new IpKey(high - 1, Long.MAX_VALUE) : new IpKey(high, low - 1);
+        }
+
+        private String toIp() {
+            byte[] bytes = new byte[16];
+            long highBits = high ^ Long.MIN_VALUE;
+            long lowBits = low ^ Long.MIN_VALUE;
+            for (int i = 0; i < Long.BYTES; i++) {
+                bytes[i] = (byte) (highBits >>> (Long.SIZE - Byte.SIZE * (i + 1)));
+                bytes[Long.BYTES + i] = (byte) (lowBits >>> (Long.SIZE - Byte.SIZE * (i + 1)));
+            }
+            try {
+                // An IPv4-mapped address is returned as an IPv4 address
+                return NetworkAddress.format(InetAddress.getByAddress(bytes));
+            } catch (UnknownHostException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private IpKey max(final IpKey other) {
+            return compareTo(other) >= 0 ? this : other;
+        }
+
+        private IpKey min(final IpKey other) {
+            return compareTo(other) <= 0 ? this : other;
+        }
+
+        @Override
+        public int compareTo(final IpKey other) {
+            int result = Long.compare(high, other.high);
+            return result != 0 ? result : Long.compare(low, other.low);
+        }
+    }
 }
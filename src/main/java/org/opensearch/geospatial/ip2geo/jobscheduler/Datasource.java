@@ -14,6 +14,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Set;
 
+import org.opensearch.Version;
 import org.opensearch.core.ParseField;
 import org.opensearch.core.common.io.stream.StreamInput;
 import org.opensearch.core.common.io.stream.StreamOutput;
@@ -51,6 +52,12 @@ public class Datasource implements Writeable, ScheduledJobParameter {
      * Prefix of indices having Ip2Geo data
      */
     public static final String IP2GEO_DATA_INDEX_NAME_PREFIX = ".geospatial-ip2geo-data";
+    /**
+     * Version from which a datasource is serialized with its checkpoint and replication progress
+     *
+     * A node of a previous version neither writes nor reads them during a rolling upgrade.
+     */
+    private static final Version UPDATE_PROGRESS_VERSION = Version.V_3_0_0;
 
     /**
      * Default fields for job scheduling
@@ -93,6 +100,7 @@ public class Datasource implements Writeable, ScheduledJobParameter {
     private static final ParseField INDICES_FIELD = new ParseField("indices");
     private static final ParseField DATABASE_FIELD = new ParseField("database");
     private static final ParseField UPDATE_STATS_FIELD = new ParseField("update_stats");
+    private static final ParseField CHECKPOINT_FIELD = new ParseField("checkpoint");
 
     /**
      * Default variables for job scheduling
@@ -171,6 +179,11 @@ public class Datasource implements Writeable, ScheduledJobParameter {
      * @return GeoIP database update statistics
      */
     private UpdateStats updateStats;
+    /**
+     * @param checkpoint Progress of a GeoIP data update which has not completed yet
+     * @return Progress of a GeoIP data update which has not completed yet, or null if there is none
+     */
+    private Checkpoint checkpoint;
 
     /**
      * Datasource parser
@@ -192,6 +205,7 @@ public class Datasource implements Writeable, ScheduledJobParameter {
             List<String> indices = (List<String>) args[10];
             Database database = (Database) args[11];
             UpdateStats updateStats = (UpdateStats) args[12];
+            Checkpoint checkpoint = (Checkpoint) args[13];
             Datasource parameter = new Datasource(
                 name,
                 lastUpdateTime,
@@ -205,7 +219,8 @@ public class Datasource implements Writeable, ScheduledJobParameter {
                 currentIndex,
                 indices,
                 database,
-                updateStats
+                updateStats,
+                checkpoint
             );
 
             return parameter;
@@ -225,6 +240,7 @@ public class Datasource implements Writeable, ScheduledJobParameter {
         PARSER.declareStringArray(ConstructingObjectParser.constructorArg(), INDICES_FIELD);
         PARSER.declareObject(ConstructingObjectParser.constructorArg(), Database.PARSER, DATABASE_FIELD);
         PARSER.declareObject(ConstructingObjectParser.constructorArg(), UpdateStats.PARSER, UPDATE_STATS_FIELD);
+        PARSER.declareObject(ConstructingObjectParser.optionalConstructorArg(), Checkpoint.PARSER, CHECKPOINT_FIELD);
     }
 
     @VisibleForTesting
@@ -246,7 +262,8 @@ public class Datasource implements Writeable, ScheduledJobParameter {
             null,
             new ArrayList<>(),
             new Database(),
-            new UpdateStats()
+            new UpdateStats(),
+            null
         );
     }
 
@@ -264,6 +281,9 @@ public class Datasource implements Writeable, ScheduledJobParameter {
         indices = in.readStringList();
         database = new Database(in);
         updateStats = new UpdateStats(in);
+        if (in.getVersion().onOrAfter(UPDATE_PROGRESS_VERSION)) {
+            checkpoint = in.readOptionalWriteable(Checkpoint::new);
+        }
     }
 
     @Override
@@ -281,6 +301,9 @@ public class Datasource implements Writeable, ScheduledJobParameter {
         out.writeStringCollection(indices);
         database.writeTo(out);
         updateStats.writeTo(out);
+        if (out.getVersion().onOrAfter(UPDATE_PROGRESS_VERSION)) {
+            out.writeOptionalWriteable(checkpoint);
+        }
     }
 
     @Override
@@ -311,6 +334,9 @@ public class Datasource implements Writeable, ScheduledJobParameter {
         builder.field(INDICES_FIELD.getPreferredName(), indices);
         builder.field(DATABASE_FIELD.getPreferredName(), database);
         builder.field(UPDATE_STATS_FIELD.getPreferredName(), updateStats);
+        if (checkpoint != null) {
+            builder.field(CHECKPOINT_FIELD.getPreferredName(), checkpoint);
+        }
         builder.endObject();
         return builder;
     }
@@ -614,6 +640,8 @@ public class Datasource implements Writeable, ScheduledJobParameter {
         private static final ParseField LAST_FAILED_AT_FIELD_READABLE = new ParseField("last_failed_at");
         private static final ParseField LAST_SKIPPED_AT = new ParseField("last_skipped_at_in_epoch_millis");
         private static final ParseField LAST_SKIPPED_AT_READABLE = new ParseField("last_skipped_at");
+        private static final ParseField REPLICATION_STARTED_SHARDS_FIELD = new ParseField("replication_started_shards");
+        private static final ParseField REPLICATION_TOTAL_SHARDS_FIELD = new ParseField("replication_total_shards");
 
         /**
          * @param lastSucceededAt The last time when GeoIP data update was succeeded
@@ -635,6 +663,16 @@ public class Datasource implements Writeable, ScheduledJobParameter {
          * @return The last time when GeoIP data update was skipped as there was no new update from an endpoint
          */
         private Instant lastSkippedAt;
+        /**
+         * @param replicationStartedShards The number of started shards of the last GeoIP data index being replicated
+         * @return The number of started shards of the last GeoIP data index being replicated
+         */
+        private Integer replicationStartedShards;
+        /**
+         * @param replicationTotalShards The number of shards of the last GeoIP data index being replicated
+         * @return The number of shards of the last GeoIP data index being replicated
+         */
+        private Integer replicationTotalShards;
 
         private static final ConstructingObjectParser<UpdateStats, Void> PARSER = new ConstructingObjectParser<>(
             "datasource_metadata_update_stats",
@@ -644,7 +682,16 @@ public class Datasource implements Writeable, ScheduledJobParameter {
                 Long lastProcessingTimeInMillis = (Long) args[1];
                 Instant lastFailedAt = args[2] == null ? null : Instant.ofEpochMilli((long) args[2]);
                 Instant lastSkippedAt = args[3] == null ? null : Instant.ofEpochMilli((long) args[3]);
-                return new UpdateStats(lastSucceededAt, lastProcessingTimeInMillis, lastFailedAt, lastSkippedAt);
+                Integer replicationStartedShards = (Integer) args[4];
+                Integer replicationTotalShards = (Integer) args[5];
+                return new UpdateStats(
+                    lastSucceededAt,
+                    lastProcessingTimeInMillis,
+                    lastFailedAt,
+                    lastSkippedAt,
+                    replicationStartedShards,
+                    replicationTotalShards
+                );
             }
         );
 
@@ -653,6 +700,8 @@ public class Datasource implements Writeable, ScheduledJobParameter {
             PARSER.declareLong(ConstructingObjectParser.optionalConstructorArg(), LAST_PROCESSING_TIME_IN_MILLIS_FIELD);
             PARSER.declareLong(ConstructingObjectParser.optionalConstructorArg(), LAST_FAILED_AT_FIELD);
             PARSER.declareLong(ConstructingObjectParser.optionalConstructorArg(), LAST_SKIPPED_AT);
+            PARSER.declareInt(ConstructingObjectParser.optionalConstructorArg(), REPLICATION_STARTED_SHARDS_FIELD);
+            PARSER.declareInt(ConstructingObjectParser.optionalConstructorArg(), REPLICATION_TOTAL_SHARDS_FIELD);
         }
 
         public UpdateStats(final StreamInput in) throws IOException {
@@ -660,6 +709,10 @@ public class Datasource implements Writeable, ScheduledJobParameter {
             lastProcessingTimeInMillis = in.readOptionalVLong();
             lastFailedAt = toInstant(in.readOptionalVLong());
             lastSkippedAt = toInstant(in.readOptionalVLong());
+            if (in.getVersion().onOrAfter(UPDATE_PROGRESS_VERSION)) {
+                replicationStartedShards = in.readOptionalVInt();
+                replicationTotalShards = in.readOptionalVInt();
+            }
         }
 
         @Override
@@ -668,6 +721,10 @@ public class Datasource implements Writeable, ScheduledJobParameter {
             out.writeOptionalVLong(lastProcessingTimeInMillis);
             out.writeOptionalVLong(lastFailedAt == null ? null : lastFailedAt.toEpochMilli());
             out.writeOptionalVLong(lastSkippedAt == null ? null : lastSkippedAt.toEpochMilli());
+            if (out.getVersion().onOrAfter(UPDATE_PROGRESS_VERSION)) {
+                out.writeOptionalVInt(replicationStartedShards);
+                out.writeOptionalVInt(replicationTotalShards);
+            }
         }
 
         @Override
@@ -697,6 +754,97 @@ public class Datasource implements Writeable, ScheduledJobParameter {
                     lastSkippedAt.toEpochMilli()
                 );
             }
+            if (replicationStartedShards != null) {
+                builder.field(REPLICATION_STARTED_SHARDS_FIELD.getPreferredName(), replicationStartedShards);
+            }
+            if (replicationTotalShards != null) {
+                builder.field(REPLICATION_TOTAL_SHARDS_FIELD.getPreferredName(), replicationTotalShards);
+            }
+            builder.endObject();
+            return builder;
+        }
+    }
+
+    /**
+     * Progress of a GeoIP data update so that an update which failed halfway can be resumed by the next run
+     *
+     * Rows before the row offset of the database file with the hash are in the index.
+     * The index is kept while the checkpoint refers to it. See {@link DatasourceUpdateService#deleteUnusedIndices}
+     */
+    @Getter
+    @Setter
+    @ToString
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    public static class Checkpoint implements Writeable, ToXContent {
+        private static final ParseField SHA256_HASH_FIELD = new ParseField("sha256_hash");
+        private static final ParseField INDEX_FIELD = new ParseField("index");
+        private static final ParseField SOURCE_INDEX_FIELD = new ParseField("source_index");
+        private static final ParseField ROW_OFFSET_FIELD = new ParseField("row_offset");
+
+        /**
+         * @param sha256Hash SHA256 hash value of the database file being ingested
+         * @return SHA256 hash value of the database file being ingested
+         */
+        private String sha256Hash;
+        /**
+         * @param index The index which the database file is ingested into
+         * @return The index which the database file is ingested into
+         */
+        private String index;
+        /**
+         * @param sourceIndex The index which the index is copied from for a delta update, or null for a full update
+         * @return The index which the index is copied from for a delta update, or null for a full update
+         */
+        private String sourceIndex;
+        /**
+         * @param rowOffset The number of rows of the database file which are in the index
+         * @return The number of rows of the database file which are in the index
+         */
+        private long rowOffset;
+
+        private static final ConstructingObjectParser<Checkpoint, Void> PARSER = new ConstructingObjectParser<>(
+            "datasource_metadata_checkpoint",
+            true,
+            args -> {
+                String sha256Hash = (String) args[0];
+                String index = (String) args[1];
+                String sourceIndex = (String) args[2];
+                long rowOffset = (long) args[3];
+                return new Checkpoint(sha256Hash, index, sourceIndex, rowOffset);
+            }
+        );
+        static {
+            PARSER.declareString(ConstructingObjectParser.constructorArg(), SHA256_HASH_FIELD);
+            PARSER.declareString(ConstructingObjectParser.constructorArg(), INDEX_FIELD);
+            PARSER.declareString(ConstructingObjectParser.optionalConstructorArg(), SOURCE_INDEX_FIELD);
+            PARSER.declareLong(ConstructingObjectParser.constructorArg(), ROW_OFFSET_FIELD);
+        }
+
+        public Checkpoint(final StreamInput in) throws IOException {
+            sha256Hash = in.readString();
+            index = in.readString();
+            sourceIndex = in.readOptionalString();
+            rowOffset = in.readVLong();
+        }
+
+        @Override
+        public void writeTo(final StreamOutput out) throws IOException {
+            out.writeString(sha256Hash);
+            out.writeString(index);
+            out.writeOptionalString(sourceIndex);
+            out.writeVLong(rowOffset);
+        }
+
+        @Override
+        public XContentBuilder toXContent(final XContentBuilder builder, final Params params) throws IOException {
+            builder.startObject();
+            builder.field(SHA256_HASH_FIELD.getPreferredName(), sha256Hash);
+            builder.field(INDEX_FIELD.getPreferredName(), index);
+            if (sourceIndex != null) {
+                builder.field(SOURCE_INDEX_FIELD.getPreferredName(), sourceIndex);
+            }
+            builder.field(ROW_OFFSET_FIELD.getPreferredName(), rowOffset);
             builder.endObject();
             return builder;
         }
@@ -13,18 +13,32 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
 import java.util.stream.Collectors;
 
 import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVRecord;
 import org.opensearch.OpenSearchException;
+import org.opensearch.action.support.PlainActionFuture;
+import org.opensearch.client.Client;
+import org.opensearch.cluster.ClusterState;
+import org.opensearch.cluster.ClusterStateObserver;
+import org.opensearch.cluster.routing.ShardRouting;
 import org.opensearch.cluster.service.ClusterService;
+import org.opensearch.common.collect.Tuple;
 import org.opensearch.common.settings.ClusterSettings;
+import org.opensearch.common.unit.TimeValue;
 import org.opensearch.geospatial.annotation.VisibleForTesting;
+import org.opensearch.geospatial.ip2geo.action.WarmUpCacheAction;
+import org.opensearch.geospatial.ip2geo.action.WarmUpCacheRequest;
+import org.opensearch.geospatial.ip2geo.action.WarmUpCacheResponse;
 import org.opensearch.geospatial.ip2geo.common.DatasourceManifest;
 import org.opensearch.geospatial.ip2geo.common.DatasourceState;
+import org.opensearch.geospatial.ip2geo.common.Ip2GeoSettings;
 import org.opensearch.geospatial.ip2geo.common.URLDenyListChecker;
 import org.opensearch.geospatial.ip2geo.dao.DatasourceDao;
+import org.opensearch.geospatial.ip2geo.dao.GeoIpDataBlockDigests;
 import org.opensearch.geospatial.ip2geo.dao.GeoIpDataDao;
 import org.opensearch.jobscheduler.spi.schedule.IntervalSchedule;
 
@@ -32,22 +46,24 @@ import lombok.extern.log4j.Log4j2;
 
 @Log4j2
 public class DatasourceUpdateService {
-    private static final int SLEEP_TIME_IN_MILLIS = 5000; // 5 seconds
     private static final int MAX_WAIT_TIME_FOR_REPLICATION_TO_COMPLETE_IN_MILLIS = 10 * 60 * 60 * 1000; // 10 hours
     private final ClusterService clusterService;
     private final ClusterSettings clusterSettings;
+    private final Client client;
     private final DatasourceDao datasourceDao;
     private final GeoIpDataDao geoIpDataDao;
     private final URLDenyListChecker urlDenyListChecker;
 
     public DatasourceUpdateService(
         final ClusterService clusterService,
+        final Client client,
         final DatasourceDao datasourceDao,
         final GeoIpDataDao geoIpDataDao,
         final URLDenyListChecker urlDenyListChecker
     ) {
         this.clusterService = clusterService;
         this.clusterSettings = clusterService.getClusterSettings();
+        this.client = client;
         this.datasourceDao = datasourceDao;
         this.geoIpDataDao = geoIpDataDao;
         this.urlDenyListChecker = urlDenyListChecker;
@@ -59,6 +75,12 @@ public class DatasourceUpdateService {
      * The first column is ip range field regardless its header name.
      * Therefore, we don't store the first column's header name.
      *
+     * When {@link Ip2GeoSettings#DELTA_UPDATE_ENABLED} is set, a new index is created as a copy of the current index
+     * and only changed blocks of rows are indexed into it if possible. See {@link GeoIpDataDao#putGeoIpDataDelta}
+     *
+     * The progress is kept in the datasource as a checkpoint. When the previous run failed halfway with the same database file,
+     * its index is reused and ingestion continues from the checkpoint. See {@link Datasource.Checkpoint}
+     *
      * @param datasource the datasource
      * @param renewLock runnable to renew lock
      *
@@ -71,12 +93,13 @@ public class DatasourceUpdateService {
         if (shouldUpdate(datasource, manifest) == false) {
             log.info("Skipping GeoIP database update. Update is not required for {}", datasource.getName());
             datasource.getUpdateStats().setLastSkippedAt(Instant.now());
+            datasource.setCheckpoint(null);
             datasourceDao.updateDatasource(datasource);
             return;
         }
 
         Instant startTime = Instant.now();
-        String indexName = setupIndex(datasource);
+        String indexName;
         String[] header;
         List<String> fieldsToStore;
         try (CSVParser reader = geoIpDataDao.getDatabaseReader(manifest)) {
@@ -90,10 +113,39 @@ public class DatasourceUpdateService {
                     datasource.getDatabase().getFields().toString()
                 );
             }
-            geoIpDataDao.putGeoIpData(indexName, header, reader.iterator(), renewLock);
+            Datasource.Checkpoint checkpoint = getCheckpointToResume(datasource, manifest);
+            GeoIpDataBlockDigests previousDigests = null;
+            if (checkpoint != null && checkpoint.getSourceIndex() != null) {
+                previousDigests = getBlockDigests(checkpoint.getSourceIndex());
+                if (previousDigests == null) {
+                    datasource.setCheckpoint(null);
+                    checkpoint = null;
+                }
+            }
+            if (checkpoint == null) {
+                previousDigests = getPreviousBlockDigests(datasource, fieldsToStore);
+                checkpoint = setupIndex(datasource, manifest, previousDigests == null ? null : datasource.currentIndexName());
+            } else {
+                log.info(
+                    "Resuming GeoIP database update of {} into {} from row {}",
+                    datasource.getName(),
+                    checkpoint.getIndex(),
+                    checkpoint.getRowOffset()
+                );
+                geoIpDataDao.unfreezeIndex(checkpoint.getIndex());
+            }
+            indexName = checkpoint.getIndex();
+            long startRow = checkpoint.getRowOffset();
+            LongConsumer onCheckpoint = throttleCheckpoint(datasource);
+            if (previousDigests == null) {
+                geoIpDataDao.putGeoIpData(indexName, header, reader.iterator(), renewLock, startRow, onCheckpoint);
+            } else {
+                geoIpDataDao.putGeoIpDataDelta(indexName, header, reader.iterator(), renewLock, previousDigests, startRow, onCheckpoint);
+            }
         }
 
-        waitUntilAllShardsStarted(indexName, MAX_WAIT_TIME_FOR_REPLICATION_TO_COMPLETE_IN_MILLIS);
+        waitUntilAllShardsStarted(datasource, indexName, MAX_WAIT_TIME_FOR_REPLICATION_TO_COMPLETE_IN_MILLIS);
+        warmUpCache(datasource, indexName, fieldsToStore);
         Instant endTime = Instant.now();
         updateDatasourceAsSucceeded(indexName, datasource, manifest, fieldsToStore, startTime, endTime);
     }
@@ -102,24 +154,97 @@ public class DatasourceUpdateService {
      * We wait until all shards are ready to serve search requests before updating datasource metadata to
      * point to a new index so that there won't be latency degradation during GeoIP data update
      *
+     * Instead of polling, the wait is woken up by a cluster state observer only when the number of started shards
+     * or the number of shards of the index changes. The progress is reported in the update stats of the datasource.
+     *
+     * @param datasource the datasource
      * @param indexName the indexName
+     * @param timeout the max time to wait in millis
      */
     @VisibleForTesting
-    protected void waitUntilAllShardsStarted(final String indexName, final int timeout) {
-        Instant start = Instant.now();
-        try {
-            while (Instant.now().toEpochMilli() - start.toEpochMilli() < timeout) {
-                if (clusterService.state().routingTable().allShards(indexName).stream().allMatch(shard -> shard.started())) {
-                    return;
+    protected void waitUntilAllShardsStarted(final Datasource datasource, final String indexName, final int timeout) {
+        ClusterState state = clusterService.state();
+        Tuple<Integer, Integer> progress = getReplicationProgress(state, indexName);
+        setReplicationProgress(datasource, progress);
+        if (progress.v1().equals(progress.v2())) {
+            return;
+        }
+        datasourceDao.updateDatasource(datasource);
+        ClusterStateObserver observer = new ClusterStateObserver(
+            state,
+            clusterService,
+            TimeValue.timeValueMillis(timeout),
+            log,
+            client.threadPool().getThreadContext()
+        );
+        while (progress.v1().equals(progress.v2()) == false) {
+            Tuple<Integer, Integer> lastProgress = progress;
+            PlainActionFuture<ClusterState> future = new PlainActionFuture<>();
+            observer.waitForNextChange(new ClusterStateObserver.Listener() {
+                @Override
+                public void onNewClusterState(final ClusterState newState) {
+                    future.onResponse(newState);
+                }
+
+                @Override
+                public void onClusterServiceClose() {
+                    future.onFailure(new OpenSearchException("cluster service closed while waiting for index[{}] replication", indexName));
+                }
+
+                @Override
+                public void onTimeout(final TimeValue timeValue) {
+                    future.onFailure(
+                        new OpenSearchException("index[{}] replication did not complete after {} millis", indexName, timeValue.millis())
+                    );
                 }
-                Thread.sleep(SLEEP_TIME_IN_MILLIS);
+            }, newState -> getReplicationProgress(newState, indexName).equals(lastProgress) == false);
+            progress = getReplicationProgress(future.actionGet(), indexName);
+            setReplicationProgress(datasource, progress);
+            datasourceDao.updateDatasource(datasource);
+        }
+    }
+
+    /**
+     * @return the number of started shards and the number of all shards of the index
+     */
+    private Tuple<Integer, Integer> getReplicationProgress(final ClusterState state, final String indexName) {
+        List<ShardRouting> shards = state.routingTable().allShards(indexName);
+        return new Tuple<>((int) shards.stream().filter(ShardRouting::started).count(), shards.size());
+    }
+
+    private void setReplicationProgress(final Datasource datasource, final Tuple<Integer, Integer> progress) {
+        log.info("{} of {} shards of GeoIP data for {} are started", progress.v1(), progress.v2(), datasource.getName());
+        datasource.getUpdateStats().setReplicationStartedShards(progress.v1());
+        datasource.getUpdateStats().setReplicationTotalShards(progress.v2());
+    }
+
+    /**
+     * Put geo data of frequently looked up ips from a new index into the cache of every node
+     * before updating datasource metadata to point to the new index
+     *
+     * Failure to warm up the cache does not fail the update as it only affects latency.
+     *
+     * @param datasource the datasource
+     * @param indexName the new index name
+     * @param fields the fields of the new index
+     */
+    @VisibleForTesting
+    protected void warmUpCache(final Datasource datasource, final String indexName, final List<String> fields) {
+        if (datasource.currentIndexName() == null || clusterSettings.get(Ip2GeoSettings.CACHE_WARM_UP_SIZE) == 0) {
+            return;
+        }
+
+        try {
+            WarmUpCacheResponse response = client.execute(
+                WarmUpCacheAction.INSTANCE,
+                new WarmUpCacheRequest(datasource.getName(), indexName, fields)
+            ).actionGet(clusterSettings.get(Ip2GeoSettings.TIMEOUT));
+            if (response.hasFailures()) {
+                log.warn("Failed to warm up cache with index {} in some nodes", indexName, response.failures().get(0));
             }
-            throw new OpenSearchException(
-                "index[{}] replication did not complete after {} millis",
-                MAX_WAIT_TIME_FOR_REPLICATION_TO_COMPLETE_IN_MILLIS
-            );
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
+            log.info("Warmed up {} cached ranges with index {} for {}", response.getWarmedUpCount(), indexName, datasource.getName());
+        } catch (Exception e) {
+            log.warn("Failed to warm up cache with index {} for {}", indexName, datasource.getName(), e);
         }
     }
 
@@ -152,6 +277,7 @@ public class DatasourceUpdateService {
             List<String> indicesToDelete = datasource.getIndices()
                 .stream()
                 .filter(index -> index.equals(datasource.currentIndexName()) == false)
+                .filter(index -> datasource.getCheckpoint() == null || index.equals(datasource.getCheckpoint().getIndex()) == false)
                 .collect(Collectors.toList());
 
             List<String> deletedIndices = deleteIndices(indicesToDelete);
@@ -240,6 +366,7 @@ public class DatasourceUpdateService {
         final Instant endTime
     ) {
         datasource.setCurrentIndex(newIndexName);
+        datasource.setCheckpoint(null);
         datasource.setDatabase(manifest, fields);
         datasource.getUpdateStats().setLastSucceededAt(endTime);
         datasource.getUpdateStats().setLastProcessingTimeInMillis(endTime.toEpochMilli() - startTime.toEpochMilli());
@@ -256,15 +383,100 @@ public class DatasourceUpdateService {
     /***
      * Setup index to add a new geoip data
      *
+     * The index is recorded in the datasource with a checkpoint before it is created so that it can be resumed or deleted later.
+     *
      * @param datasource the datasource
-     * @return new index name
+     * @param manifest the manifest of the new geoip data
+     * @param sourceIndex the index to copy for a delta update, or null to create an empty index
+     * @return the checkpoint of the new index
      */
-    private String setupIndex(final Datasource datasource) {
+    private Datasource.Checkpoint setupIndex(final Datasource datasource, final DatasourceManifest manifest, final String sourceIndex) {
         String indexName = datasource.newIndexName(UUID.randomUUID().toString());
+        Datasource.Checkpoint checkpoint = new Datasource.Checkpoint(manifest.getSha256Hash(), indexName, sourceIndex, 0);
         datasource.getIndices().add(indexName);
+        datasource.setCheckpoint(checkpoint);
+        datasourceDao.updateDatasource(datasource);
+        if (sourceIndex == null) {
+            geoIpDataDao.createIndexIfNotExists(indexName);
+        } else {
+            geoIpDataDao.cloneIndex(sourceIndex, indexName);
+        }
+        return checkpoint;
+    }
+
+    /**
+     * Return the checkpoint of the datasource if the update can be resumed from it
+     *
+     * An update is resumed only for the same database file into the same index. Otherwise, the checkpoint is discarded
+     * and its index is deleted as an unused index.
+     *
+     * @param datasource the datasource
+     * @param manifest the manifest of the new geoip data
+     * @return the checkpoint to resume from, or null if there is none
+     */
+    private Datasource.Checkpoint getCheckpointToResume(final Datasource datasource, final DatasourceManifest manifest) {
+        Datasource.Checkpoint checkpoint = datasource.getCheckpoint();
+        if (checkpoint == null) {
+            return null;
+        }
+        if (manifest.getSha256Hash().equals(checkpoint.getSha256Hash()) == false
+            || datasource.getIndices().contains(checkpoint.getIndex()) == false
+            || clusterService.state().metadata().hasIndex(checkpoint.getIndex()) == false) {
+            log.info("Discarding checkpoint of GeoIP database update of {} into {}", datasource.getName(), checkpoint.getIndex());
+            datasource.setCheckpoint(null);
+            return null;
+        }
+        return checkpoint;
+    }
+
+    /**
+     * Return a consumer saving a checkpoint of committed rows at most once per {@link Ip2GeoSettings#CHECKPOINT_INTERVAL}
+     *
+     * Rows committed after the last saved checkpoint are indexed again on resume, which is harmless as they are
+     * indexed with the same ids.
+     */
+    private LongConsumer throttleCheckpoint(final Datasource datasource) {
+        long interval = clusterSettings.get(Ip2GeoSettings.CHECKPOINT_INTERVAL).nanos();
+        AtomicLong lastSavedAt = new AtomicLong(System.nanoTime());
+        return rows -> {
+            long now = System.nanoTime();
+            long last = lastSavedAt.get();
+            if (now - last >= interval && lastSavedAt.compareAndSet(last, now)) {
+                saveCheckpoint(datasource, rows);
+            }
+        };
+    }
+
+    private void saveCheckpoint(final Datasource datasource, final long rowOffset) {
+        datasource.getCheckpoint().setRowOffset(rowOffset);
         datasourceDao.updateDatasource(datasource);
-        geoIpDataDao.createIndexIfNotExists(indexName);
-        return indexName;
+    }
+
+    /**
+     * Return block digests of the current index if a new geoip data can be put as a delta of the current index
+     *
+     * A delta needs the same fields as the current index has. Failure to read the digests falls back to a full update.
+     *
+     * @param datasource the datasource
+     * @param fields the fields of the new geoip data
+     * @return block digests of the current index, or null if a full update is needed
+     */
+    private GeoIpDataBlockDigests getPreviousBlockDigests(final Datasource datasource, final List<String> fields) {
+        if (clusterSettings.get(Ip2GeoSettings.DELTA_UPDATE_ENABLED) == false
+            || datasource.currentIndexName() == null
+            || fields.equals(datasource.getDatabase().getFields()) == false) {
+            return null;
+        }
+        return getBlockDigests(datasource.currentIndexName());
+    }
+
+    private GeoIpDataBlockDigests getBlockDigests(final String indexName) {
+        try {
+            return geoIpDataDao.getBlockDigests(indexName);
+        } catch (Exception e) {
+            log.warn("Failed to read block digests of {}. Falling back to a full update", indexName, e);
+            return null;
+        }
     }
 
     /**
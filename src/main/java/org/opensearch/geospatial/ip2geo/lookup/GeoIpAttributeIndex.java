@@ -0,0 +1,223 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.ip2geo.lookup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import lombok.Getter;
+
+/**
+ * Inverted index from values of a property of GeoIP data to ip ranges having the value
+ *
+ * Ranges of a value are sorted and adjacent or overlapping ranges are merged, so that a value such as a country
+ * maps to far fewer ranges than the GeoIP data has.
+ *
+ * The index is immutable once built and can be shared by multiple threads.
+ */
+public final class GeoIpAttributeIndex {
+    private static final int UNRESOLVED = -2;
+    private static final int NO_VALUE = -1;
+
+    @Getter
+    private final String property;
+    private final Map<String, Ranges> rangesByValue;
+
+    private GeoIpAttributeIndex(final String property, final Map<String, Ranges> rangesByValue) {
+        this.property = property;
+        this.rangesByValue = rangesByValue;
+    }
+
+    /**
+     * Build an index of a given property from all ranges of a lookup
+     *
+     * Each record of the lookup is read once, and each range is visited once.
+     *
+     * @param lookup the lookup
+     * @param property the property to index
+     * @return the index
+     */
+    public static GeoIpAttributeIndex build(final GeoIpLookup lookup, final String property) {
+        int[] valueOrds = new int[lookup.recordCount()];
+        Arrays.fill(valueOrds, UNRESOLVED);
+        Map<String, Integer> ordsByValue = new HashMap<>();
+        List<RangesBuilder> builders = new ArrayList<>();
+
+        lookup.forEachRange(new GeoIpLookup.RangeVisitor() {
+            @Override
+            public void visitIpv4(final long start, final long end, final int ordinal) {
+                int valueOrd = valueOrd(ordinal);
+                if (valueOrd != NO_VALUE) {
+                    builders.get(valueOrd).addIpv4(start, end);
+                }
+            }
+
+            @Override
+            public void visitIpv6(final long startHigh, final long startLow, final long endHigh, final long endLow, final int ordinal) {
+                int valueOrd = valueOrd(ordinal);
+                if (valueOrd != NO_VALUE) {
+                    builders.get(valueOrd).addIpv6(startHigh, startLow, endHigh, endLow);
+                }
+            }
+
+            private int valueOrd(final int recordOrd) {
+                if (valueOrds[recordOrd] == UNRESOLVED) {
+                    Object value = lookup.record(recordOrd).get(property);
+                    valueOrds[recordOrd] = value == null ? NO_VALUE : ordsByValue.computeIfAbsent(value.toString(), key -> {
+                        builders.add(new RangesBuilder());
+                        return builders.size() - 1;
+                    });
+                }
+                return valueOrds[recordOrd];
+            }
+        });
+
+        Map<String, Ranges> rangesByValue = new HashMap<>(ordsByValue.size() * 4 / 3 + 1);
+        ordsByValue.forEach((value, ord) -> rangesByValue.put(value, builders.get(ord).build()));
+        return new GeoIpAttributeIndex(property, rangesByValue);
+    }
+
+    /**
+     * Return ranges having a given value
+     *
+     * @param value the property value
+     * @return the ranges, or {@link Ranges#EMPTY} if no range has the value
+     */
+    public Ranges getRanges(final String value) {
+        return rangesByValue.getOrDefault(value, Ranges.EMPTY);
+    }
+
+    /**
+     * @return the number of distinct values of the property
+     */
+    public int size() {
+        return rangesByValue.size();
+    }
+
+    /**
+     * Merged ranges of a property value
+     *
+     * IPv4 ranges are stored as {start, end} pairs and IPv6 ranges as {startHigh, startLow, endHigh, endLow} in sign flipped form.
+     * Ends are inclusive.
+     */
+    public static final class Ranges {
+        /**
+         * Ranges of a value which does not exist
+         */
+        public static final Ranges EMPTY = new Ranges(new long[0], new long[0]);
+
+        private final long[] ipv4Ranges;
+        private final long[] ipv6Ranges;
+
+        private Ranges(final long[] ipv4Ranges, final long[] ipv6Ranges) {
+            this.ipv4Ranges = ipv4Ranges;
+            this.ipv6Ranges = ipv6Ranges;
+        }
+
+        public int ipv4Count() {
+            return ipv4Ranges.length >> 1;
+        }
+
+        public long ipv4Start(final int index) {
+            return ipv4Ranges[index << 1];
+        }
+
+        public long ipv4End(final int index) {
+            return ipv4Ranges[(index << 1) + 1];
+        }
+
+        public int ipv6Count() {
+            return ipv6Ranges.length >> 2;
+        }
+
+        public long ipv6StartHigh(final int index) {
+            return ipv6Ranges[index << 2];
+        }
+
+        public long ipv6StartLow(final int index) {
+            return ipv6Ranges[(index << 2) + 1];
+        }
+
+        public long ipv6EndHigh(final int index) {
+            return ipv6Ranges[(index << 2) + 2];
+        }
+
+        public long ipv6EndLow(final int index) {
+            return ipv6Ranges[(index << 2) + 3];
+        }
+
+        /**
+         * @return true if there is no range
+         */
+        public boolean isEmpty() {
+            return ipv4Ranges.length == 0 && ipv6Ranges.length == 0;
+        }
+    }
+
+    /**
+     * Collects ranges visited in ascending order of their start and merges each with the previous one when they touch
+     */
+    private static class RangesBuilder {
+        private long[] ipv4Ranges = new long[2];
+        private int ipv4Length;
+        private long[] ipv6Ranges = new long[4];
+        private int ipv6Length;
+
+        void addIpv4(final long start, final long end) {
+            if (ipv4Length > 0 && start <= ipv4Ranges[ipv4Length - 1] + 1) {
+                ipv4Ranges[ipv4Length - 1] = Math.max(ipv4Ranges[ipv4Length - 1], end);
+                return;
+            }
+            if (ipv4Length == ipv4Ranges.length) {
+                ipv4Ranges = Arrays.copyOf(ipv4Ranges, ipv4Length << 1);
+            }
+            ipv4Ranges[ipv4Length++] = start;
+            ipv4Ranges[ipv4Length++] = end;
+        }
+
+        void addIpv6(final long startHigh, final long startLow, final long endHigh, final long endLow) {
+            if (ipv6Length > 0 && touches(startHigh, startLow, ipv6Ranges[ipv6Length - 2], ipv6Ranges[ipv6Length - 1])) {
+                if (compare(endHigh, endLow, ipv6Ranges[ipv6Length - 2], ipv6Ranges[ipv6Length - 1]) > 0) {
+                    ipv6Ranges[ipv6Length - 2] = endHigh;
+                    ipv6Ranges[ipv6Length - 1] = endLow;
+                }
+                return;
+            }
+            if (ipv6Length == ipv6Ranges.length) {
+                ipv6Ranges = Arrays.copyOf(ipv6Ranges, ipv6Length << 1);
+            }
+            ipv6Ranges[ipv6Length++] = startHigh;
+            ipv6Ranges[ipv6Length++] = startLow;
+            ipv6Ranges[ipv6Length++] = endHigh;
+            ipv6Ranges[ipv6Length++] = endLow;
+        }
+
+        Ranges build() {
+            return new Ranges(Arrays.copyOf(ipv4Ranges, ipv4Length), Arrays.copyOf(ipv6Ranges, ipv6Length));
+        }
+
+        /**
+         * Return true if a range starting at a given address overlaps or directly follows a range ending at a given address
+         */
+        private static boolean touches(final long startHigh, final long startLow, final long endHigh, final long endLow) {
+            if (compare(startHigh, startLow, endHigh, endLow) <= 0) {
+                return true;
+            }
+            // In sign flipped form, Long.MAX_VALUE is the largest unsigned value and incrementing it wraps around to the smallest
+            long nextLow = endLow + 1;
+            long nextHigh = endLow == Long.MAX_VALUE ? endHigh + 1 : endHigh;
+            return startHigh == nextHigh && startLow == nextLow;
+        }
+
+        private static int compare(final long high1, final long low1, final long high2, final long low2) {
+            int result = Long.compare(high1, high2);
+            return result != 0 ? result : Long.compare(low1, low2);
+        }
+    }
+}
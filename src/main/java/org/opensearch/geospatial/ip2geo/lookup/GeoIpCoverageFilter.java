@@ -0,0 +1,211 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.ip2geo.lookup;
+
+import java.io.IOException;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.FixedBitSet;
+import org.opensearch.common.io.stream.BytesStreamOutput;
+import org.opensearch.common.network.InetAddresses;
+import org.opensearch.core.common.bytes.BytesReference;
+import org.opensearch.core.common.io.stream.InputStreamStreamInput;
+import org.opensearch.core.common.io.stream.OutputStreamStreamOutput;
+import org.opensearch.core.common.io.stream.StreamInput;
+import org.opensearch.core.common.io.stream.StreamOutput;
+
+/**
+ * Filter to tell that an ip is definitely not in any range of GeoIP data
+ *
+ * For IPv4, a bitmap of 2^24 bits has a bit for every /24 prefix covered by a range. A range narrower than /24 sets
+ * the bit of its prefix, so the bitmap can give a false positive but never a false negative.
+ * For IPv6, covered prefixes are added to a Bloom filter at a fixed set of prefix lengths. A range is added at the longest
+ * of the prefix lengths not longer than its own prefix length, and an ip is checked at every prefix length.
+ *
+ * The filter is immutable once built and can be shared by multiple threads.
+ */
+public final class GeoIpCoverageFilter {
+    private static final int IPV4_PREFIX_LENGTH = 24;
+    private static final int[] IPV6_PREFIX_LENGTHS = { 16, 24, 32, 40, 48, 56, 64 };
+    private static final int BLOOM_BITS_PER_ENTRY = 10;
+    private static final long BLOOM_MIN_BITS = 1024;
+    private static final int BLOOM_HASH_COUNT = 7;
+    private final FixedBitSet ipv4Prefixes;
+    private final long[] ipv6Bloom;
+    private final int ipv6HashCount;
+
+    private GeoIpCoverageFilter(final FixedBitSet ipv4Prefixes, final long[] ipv6Bloom, final int ipv6HashCount) {
+        this.ipv4Prefixes = ipv4Prefixes;
+        this.ipv6Bloom = ipv6Bloom;
+        this.ipv6HashCount = ipv6HashCount;
+    }
+
+    /**
+     * Check if a given ip might be in a range of GeoIP data
+     *
+     * An invalid ip returns true so that the caller reports the error in the same way as without the filter.
+     *
+     * @param ip the ip address
+     * @return false if the ip is definitely not in any range
+     */
+    public boolean mightContain(final String ip) {
+        long ipv4 = IpAddressCodec.parseIpv4(ip);
+        if (ipv4 != IpAddressCodec.NOT_IPV4) {
+            return ipv4Prefixes.get((int) (ipv4 >>> (32 - IPV4_PREFIX_LENGTH)));
+        }
+        InetAddress address;
+        try {
+            address = InetAddresses.forString(ip);
+        } catch (IllegalArgumentException e) {
+            return true;
+        }
+        byte[] bytes = address.getAddress();
+        if (address instanceof Inet4Address) {
+            return ipv4Prefixes.get((int) (IpAddressCodec.ipv4ToLong(bytes) >>> (32 - IPV4_PREFIX_LENGTH)));
+        }
+        long high = IpAddressCodec.ipv6High(bytes) ^ Long.MIN_VALUE;
+        for (int prefixLength : IPV6_PREFIX_LENGTHS) {
+            if (bloomContains(key(prefixLength, high >>> (64 - prefixLength)))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean bloomContains(final long key) {
+        if (ipv6Bloom.length == 0) {
+            return false;
+        }
+        long numBits = (long) ipv6Bloom.length * Long.SIZE;
+        long hash1 = mix(key);
+        long hash2 = mix(hash1) | 1;
+        for (int i = 0; i < ipv6HashCount; i++) {
+            long bit = Long.remainderUnsigned(hash1 + i * hash2, numBits);
+            if ((ipv6Bloom[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Serialize the filter into compressed bytes
+     *
+     * @return the bytes
+     * @throws IOException if writing fails
+     */
+    public BytesReference toBytes() throws IOException {
+        BytesStreamOutput bytes = new BytesStreamOutput();
+        try (StreamOutput out = new OutputStreamStreamOutput(new DeflaterOutputStream(bytes))) {
+            out.writeLongArray(ipv4Prefixes.getBits());
+            out.writeVInt(ipv6HashCount);
+            out.writeLongArray(ipv6Bloom);
+        }
+        return bytes.bytes();
+    }
+
+    /**
+     * Deserialize a filter from bytes written by {@link #toBytes()}
+     *
+     * @param bytes the bytes
+     * @return the filter
+     * @throws IOException if reading fails
+     */
+    public static GeoIpCoverageFilter fromBytes(final BytesReference bytes) throws IOException {
+        try (StreamInput in = new InputStreamStreamInput(new InflaterInputStream(bytes.streamInput()))) {
+            long[] ipv4Bits = in.readLongArray();
+            int ipv6HashCount = in.readVInt();
+            long[] ipv6Bloom = in.readLongArray();
+            return new GeoIpCoverageFilter(new FixedBitSet(ipv4Bits, 1 << IPV4_PREFIX_LENGTH), ipv6Bloom, ipv6HashCount);
+        }
+    }
+
+    private static long key(final int prefixLength, final long prefix) {
+        return prefix * 31 + prefixLength;
+    }
+
+    /**
+     * Finalizer of MurmurHash3
+     */
+    private static long mix(final long value) {
+        long h = value;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Builder of a coverage filter from ranges of GeoIP data
+     */
+    public static class Builder {
+        private final FixedBitSet ipv4Prefixes = new FixedBitSet(1 << IPV4_PREFIX_LENGTH);
+        private long[] ipv6Keys = new long[16];
+        private int ipv6KeyCount;
+
+        /**
+         * Add a range
+         *
+         * @param cidr the CIDR block or the ip address of the range
+         * @throws IllegalArgumentException if the cidr is invalid
+         */
+        public void add(final String cidr) {
+            long[] range = IpAddressCodec.parseCidr(cidr);
+            if (range.length == 2) {
+                int shift = 32 - IPV4_PREFIX_LENGTH;
+                ipv4Prefixes.set((int) (range[0] >>> shift), (int) (range[1] >>> shift) + 1);
+                return;
+            }
+            long start = range[0] ^ Long.MIN_VALUE;
+            long end = range[2] ^ Long.MIN_VALUE;
+            // Prefix length within the high part. It is 64 for a range narrower than /64.
+            int prefixLength = Long.numberOfLeadingZeros(start ^ end);
+            int level = IPV6_PREFIX_LENGTHS[0];
+            for (int length : IPV6_PREFIX_LENGTHS) {
+                if (length <= prefixLength) {
+                    level = length;
+                }
+            }
+            long first = start >>> (64 - level);
+            long last = end >>> (64 - level);
+            for (long prefix = first; prefix <= last && prefix >= first; prefix++) {
+                addIpv6Key(key(level, prefix));
+            }
+        }
+
+        private void addIpv6Key(final long key) {
+            ipv6Keys = ArrayUtil.grow(ipv6Keys, ipv6KeyCount + 1);
+            ipv6Keys[ipv6KeyCount++] = key;
+        }
+
+        /**
+         * @return the filter
+         */
+        public GeoIpCoverageFilter build() {
+            if (ipv6KeyCount == 0) {
+                return new GeoIpCoverageFilter(ipv4Prefixes, new long[0], BLOOM_HASH_COUNT);
+            }
+            long numBits = Math.max(BLOOM_MIN_BITS, (long) ipv6KeyCount * BLOOM_BITS_PER_ENTRY);
+            long[] bloom = new long[(int) ((numBits + Long.SIZE - 1) / Long.SIZE)];
+            long bloomBits = (long) bloom.length * Long.SIZE;
+            for (int k = 0; k < ipv6KeyCount; k++) {
+                long hash1 = mix(ipv6Keys[k]);
+                long hash2 = mix(hash1) | 1;
+                for (int i = 0; i < BLOOM_HASH_COUNT; i++) {
+                    long bit = Long.remainderUnsigned(hash1 + i * hash2, bloomBits);
+                    bloom[(int) (bit >>> 6)] |= 1L << bit;
+                }
+            }
+            return new GeoIpCoverageFilter(ipv4Prefixes, bloom, BLOOM_HASH_COUNT);
+        }
+    }
+}
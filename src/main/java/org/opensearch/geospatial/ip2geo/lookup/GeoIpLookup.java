@@ -0,0 +1,86 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.ip2geo.lookup;
+
+import java.util.Map;
+
+/**
+ * Node local lookup of GeoIP data which does not need a search request
+ */
+public interface GeoIpLookup {
+    /**
+     * Return geo data of a given ip
+     *
+     * @param ip the ip address
+     * @return geo data of the ip, or empty map if no range contains the ip
+     */
+    Map<String, Object> lookup(String ip);
+
+    /**
+     * @return the number of ranges in the lookup
+     */
+    int size();
+
+    /**
+     * Return the record ordinal of a range containing a given IPv4 address
+     *
+     * @param ip the IPv4 address as a long
+     * @return the record ordinal, or {@link IpRangeTable#NO_MATCH} if no range contains the ip
+     */
+    int ordinalOfIpv4(long ip);
+
+    /**
+     * Return the record ordinal of a range containing a given IPv6 address
+     *
+     * @param ipHigh the high part of the IPv6 address in sign flipped form
+     * @param ipLow the low part of the IPv6 address in sign flipped form
+     * @return the record ordinal, or {@link IpRangeTable#NO_MATCH} if no range contains the ip
+     */
+    int ordinalOfIpv6(long ipHigh, long ipLow);
+
+    /**
+     * Return a record of a given ordinal
+     *
+     * @param ordinal the record ordinal
+     * @return the record, or empty map if the ordinal is {@link IpRangeTable#NO_MATCH}
+     */
+    Map<String, Object> record(int ordinal);
+
+    /**
+     * @return the number of distinct records in the lookup
+     */
+    int recordCount();
+
+    /**
+     * Visit all ranges in ascending order of their start, IPv4 ranges first
+     *
+     * @param visitor the visitor
+     */
+    void forEachRange(RangeVisitor visitor);
+
+    /**
+     * Visitor of ranges in a lookup
+     */
+    interface RangeVisitor {
+        /**
+         * @param start the start of the range
+         * @param end the end of the range, inclusive
+         * @param ordinal the record ordinal of the range
+         */
+        void visitIpv4(long start, long end, int ordinal);
+
+        /**
+         * Parts of addresses are in sign flipped form as in {@link IpAddressCodec}
+         *
+         * @param startHigh the high part of the start of the range
+         * @param startLow the low part of the start of the range
+         * @param endHigh the high part of the end of the range
+         * @param endLow the low part of the end of the range, inclusive
+         * @param ordinal the record ordinal of the range
+         */
+        void visitIpv6(long startHigh, long startLow, long endHigh, long endLow, int ordinal);
+    }
+}
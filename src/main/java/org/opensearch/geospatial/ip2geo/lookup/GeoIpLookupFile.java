@@ -0,0 +1,548 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.ip2geo.lookup;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.IntroSorter;
+import org.opensearch.common.hash.MurmurHash3;
+import org.opensearch.common.io.stream.BytesStreamOutput;
+import org.opensearch.common.network.InetAddresses;
+import org.opensearch.geospatial.annotation.VisibleForTesting;
+
+/**
+ * Memory mapped lookup file of GeoIP data
+ *
+ * The file holds sorted ip ranges and a dictionary of distinct records so that GeoIP data stays off the Java heap.
+ * A lookup is a binary search on the mapped ranges followed by decoding of the matched record.
+ *
+ * File layout, all numbers in big endian:
+ * <pre>
+ * header      : magic(int) version(int) ipv4Count(int) ipv6Count(int) recordCount(int) keyCount(int)
+ *               keysOffset(long) recordsOffset(long)
+ * ipv4 ranges : ipv4Count * (start(long) end(long))
+ * ipv4 ords   : ipv4Count * ordinal(int)
+ * ipv6 ranges : ipv6Count * (startHigh(long) startLow(long) endHigh(long) endLow(long))
+ * ipv6 ords   : ipv6Count * ordinal(int)
+ * record ptrs : (recordCount + 1) * offset(long), relative to recordsOffset
+ * keys        : keyCount * (length(vint) utf8 bytes)
+ * records     : recordCount * (entryCount(vint) entryCount * (keyOrdinal(vint) length(vint) utf8 bytes))
+ * </pre>
+ *
+ * A single mapping cannot exceed 2GB. The file is mapped in segments and read with long offsets so that its size is
+ * not limited. A value can span two segments.
+ *
+ * The file is immutable once written and can be shared by multiple threads.
+ */
+public final class GeoIpLookupFile implements GeoIpLookup {
+    private static final int MAGIC = 0x49503247; // "IP2G"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 6 * Integer.BYTES + 2 * Long.BYTES;
+    private static final int IPV4_RANGE_SIZE = 2 * Long.BYTES;
+    private static final int IPV6_RANGE_SIZE = 4 * Long.BYTES;
+    private static final int SEGMENT_SHIFT = 30;
+
+    private final Path path;
+    private final ByteBuffer[] segments;
+    private final int segmentShift;
+    private final long segmentMask;
+    private final int ipv4Count;
+    private final int ipv6Count;
+    private final int recordCount;
+    private final long ipv4OrdinalsOffset;
+    private final long ipv6RangesOffset;
+    private final long ipv6OrdinalsOffset;
+    private final long recordPointersOffset;
+    private final long recordsOffset;
+    private final String[] keys;
+
+    private GeoIpLookupFile(final Path path, final ByteBuffer[] segments, final int segmentShift, final long size) {
+        this.path = path;
+        this.segments = segments;
+        this.segmentShift = segmentShift;
+        this.segmentMask = (1L << segmentShift) - 1;
+        if (size < HEADER_SIZE || getInt(0) != MAGIC || getInt(4) != VERSION) {
+            throw new IllegalStateException(String.format(Locale.ROOT, "[%s] is not a valid GeoIP lookup file", path));
+        }
+        this.ipv4Count = getInt(8);
+        this.ipv6Count = getInt(12);
+        this.recordCount = getInt(16);
+        int keyCount = getInt(20);
+        long keysOffset = getLong(24);
+        this.recordsOffset = getLong(32);
+        this.ipv4OrdinalsOffset = HEADER_SIZE + (long) ipv4Count * IPV4_RANGE_SIZE;
+        this.ipv6RangesOffset = ipv4OrdinalsOffset + (long) ipv4Count * Integer.BYTES;
+        this.ipv6OrdinalsOffset = ipv6RangesOffset + (long) ipv6Count * IPV6_RANGE_SIZE;
+        this.recordPointersOffset = ipv6OrdinalsOffset + (long) ipv6Count * Integer.BYTES;
+
+        this.keys = new String[keyCount];
+        long[] position = { keysOffset };
+        for (int i = 0; i < keyCount; i++) {
+            keys[i] = readString(position);
+        }
+    }
+
+    /**
+     * Map a lookup file into memory
+     *
+     * @param path the lookup file
+     * @return the lookup file
+     * @throws IOException if the file cannot be read
+     */
+    public static GeoIpLookupFile open(final Path path) throws IOException {
+        return open(path, SEGMENT_SHIFT);
+    }
+
+    /**
+     * Map a lookup file into memory in segments of 2^segmentShift bytes
+     */
+    @VisibleForTesting
+    static GeoIpLookupFile open(final Path path, final int segmentShift) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long segmentSize = 1L << segmentShift;
+            ByteBuffer[] segments = new ByteBuffer[Math.toIntExact((size + segmentSize - 1) >>> segmentShift)];
+            for (int i = 0; i < segments.length; i++) {
+                long offset = (long) i << segmentShift;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(segmentSize, size - offset));
+            }
+            return new GeoIpLookupFile(path, segments, segmentShift, size);
+        }
+    }
+
+    @Override
+    public Map<String, Object> lookup(final String ip) {
+        long ipv4 = IpAddressCodec.parseIpv4(ip);
+        if (ipv4 != IpAddressCodec.NOT_IPV4) {
+            return record(ordinalOfIpv4(ipv4));
+        }
+        InetAddress address = InetAddresses.forString(ip);
+        byte[] bytes = address.getAddress();
+        if (address instanceof Inet4Address) {
+            return record(ordinalOfIpv4(IpAddressCodec.ipv4ToLong(bytes)));
+        }
+        return record(ordinalOfIpv6(IpAddressCodec.ipv6High(bytes), IpAddressCodec.ipv6Low(bytes)));
+    }
+
+    @Override
+    public int size() {
+        return ipv4Count + ipv6Count;
+    }
+
+    /**
+     * @return the number of distinct records in the file
+     */
+    @Override
+    public int recordCount() {
+        return recordCount;
+    }
+
+    @Override
+    public void forEachRange(final RangeVisitor visitor) {
+        for (int i = 0; i < ipv4Count; i++) {
+            long offset = HEADER_SIZE + (long) i * IPV4_RANGE_SIZE;
+            int ordinal = getInt(ipv4OrdinalsOffset + (long) i * Integer.BYTES);
+            visitor.visitIpv4(getLong(offset), getLong(offset + Long.BYTES), ordinal);
+        }
+        for (int i = 0; i < ipv6Count; i++) {
+            long offset = ipv6RangesOffset + (long) i * IPV6_RANGE_SIZE;
+            visitor.visitIpv6(
+                getLong(offset),
+                getLong(offset + Long.BYTES),
+                getLong(offset + 2 * Long.BYTES),
+                getLong(offset + 3 * Long.BYTES),
+                getInt(ipv6OrdinalsOffset + (long) i * Integer.BYTES)
+            );
+        }
+    }
+
+    /**
+     * @return the path of the file
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    @Override
+    public int ordinalOfIpv4(final long ip) {
+        int low = 0;
+        int high = ipv4Count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (getLong(HEADER_SIZE + (long) mid * IPV4_RANGE_SIZE) <= ip) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        if (high < 0 || getLong(HEADER_SIZE + (long) high * IPV4_RANGE_SIZE + Long.BYTES) < ip) {
+            return IpRangeTable.NO_MATCH;
+        }
+        return getInt(ipv4OrdinalsOffset + (long) high * Integer.BYTES);
+    }
+
+    @Override
+    public int ordinalOfIpv6(final long ipHigh, final long ipLow) {
+        int low = 0;
+        int high = ipv6Count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long offset = ipv6RangesOffset + (long) mid * IPV6_RANGE_SIZE;
+            if (compare(getLong(offset), getLong(offset + Long.BYTES), ipHigh, ipLow) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        if (high < 0) {
+            return IpRangeTable.NO_MATCH;
+        }
+        long offset = ipv6RangesOffset + (long) high * IPV6_RANGE_SIZE + 2 * Long.BYTES;
+        if (compare(getLong(offset), getLong(offset + Long.BYTES), ipHigh, ipLow) < 0) {
+            return IpRangeTable.NO_MATCH;
+        }
+        return getInt(ipv6OrdinalsOffset + (long) high * Integer.BYTES);
+    }
+
+    @Override
+    public Map<String, Object> record(final int ordinal) {
+        if (ordinal == IpRangeTable.NO_MATCH) {
+            return Collections.emptyMap();
+        }
+        long[] position = { recordsOffset + getLong(recordPointersOffset + (long) ordinal * Long.BYTES) };
+        int entryCount = readVInt(position);
+        Map<String, Object> record = new HashMap<>(entryCount * 4 / 3 + 1);
+        for (int i = 0; i < entryCount; i++) {
+            String key = keys[readVInt(position)];
+            record.put(key, readString(position));
+        }
+        return record;
+    }
+
+    private byte getByte(final long position) {
+        return segments[(int) (position >>> segmentShift)].get((int) (position & segmentMask));
+    }
+
+    private int getInt(final long position) {
+        ByteBuffer segment = segments[(int) (position >>> segmentShift)];
+        int offset = (int) (position & segmentMask);
+        if (offset + Integer.BYTES <= segment.capacity()) {
+            return segment.getInt(offset);
+        }
+        int value = 0;
+        for (int i = 0; i < Integer.BYTES; i++) {
+            value = (value << 8) | (getByte(position + i) & 0xFF);
+        }
+        return value;
+    }
+
+    private long getLong(final long position) {
+        ByteBuffer segment = segments[(int) (position >>> segmentShift)];
+        int offset = (int) (position & segmentMask);
+        if (offset + Long.BYTES <= segment.capacity()) {
+            return segment.getLong(offset);
+        }
+        long value = 0;
+        for (int i = 0; i < Long.BYTES; i++) {
+            value = (value << 8) | (getByte(position + i) & 0xFF);
+        }
+        return value;
+    }
+
+    private String readString(final long[] position) {
+        int length = readVInt(position);
+        byte[] bytes = new byte[length];
+        int read = 0;
+        while (read < length) {
+            ByteBuffer source = segments[(int) (position[0] >>> segmentShift)].duplicate();
+            source.position((int) (position[0] & segmentMask));
+            int chunk = Math.min(length - read, source.remaining());
+            source.get(bytes, read, chunk);
+            read += chunk;
+            position[0] += chunk;
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int readVInt(final long[] position) {
+        int value = 0;
+        for (int shift = 0;; shift += 7) {
+            byte b = getByte(position[0]++);
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+
+    private static int compare(final long high1, final long low1, final long high2, final long low2) {
+        int result = Long.compare(high1, high2);
+        return result != 0 ? result : Long.compare(low1, low2);
+    }
+
+    /**
+     * Writer of {@link GeoIpLookupFile}
+     *
+     * Ranges can be added in any order. Ranges are kept in primitive arrays until the file is written. Distinct records
+     * are appended to a temporary file as they are added, and only a 128 bit hash of each is kept on heap to find
+     * duplicates. Writer is not thread safe.
+     */
+    public static class Writer implements Closeable {
+        private static final String RECORDS_FILE_PREFIX = "geoip-records";
+        private static final String TEMP_FILE_EXTENSION = ".tmp";
+        private final Path directory;
+        private long[] ipv4Ranges = new long[0];
+        private int[] ipv4Ordinals = new int[0];
+        private int ipv4Count;
+        private long[] ipv6Ranges = new long[0];
+        private int[] ipv6Ordinals = new int[0];
+        private int ipv6Count;
+        private final Map<String, Integer> keyOrdinals = new HashMap<>();
+        private final List<String> keys = new ArrayList<>();
+        private final Map<MurmurHash3.Hash128, Integer> recordOrdinals = new HashMap<>();
+        private long[] recordPointers = new long[0];
+        private int recordCount;
+        private long recordsSize;
+        private Path recordsFile;
+        private OutputStream records;
+        private final BytesStreamOutput scratch = new BytesStreamOutput();
+
+        /**
+         * Create a writer keeping its temporary file in the default temporary directory
+         */
+        public Writer() {
+            this(null);
+        }
+
+        /**
+         * @param directory the directory of the temporary file, or null for the default temporary directory
+         */
+        public Writer(final Path directory) {
+            this.directory = directory;
+        }
+
+        /**
+         * Add a range with its geo data
+         *
+         * @param cidr the CIDR block or a single ip address
+         * @param data the geo data of the range
+         * @return this writer
+         */
+        public Writer add(final String cidr, final Map<String, Object> data) {
+            long[] range = IpAddressCodec.parseCidr(cidr);
+            int ordinal = recordOrdinal(data);
+            if (range.length == 2) {
+                ipv4Ranges = ArrayUtil.grow(ipv4Ranges, (ipv4Count + 1) * 2);
+                ipv4Ordinals = ArrayUtil.grow(ipv4Ordinals, ipv4Count + 1);
+                System.arraycopy(range, 0, ipv4Ranges, ipv4Count * 2, 2);
+                ipv4Ordinals[ipv4Count++] = ordinal;
+            } else {
+                ipv6Ranges = ArrayUtil.grow(ipv6Ranges, (ipv6Count + 1) * 4);
+                ipv6Ordinals = ArrayUtil.grow(ipv6Ordinals, ipv6Count + 1);
+                System.arraycopy(range, 0, ipv6Ranges, ipv6Count * 4, 4);
+                ipv6Ordinals[ipv6Count++] = ordinal;
+            }
+            return this;
+        }
+
+        /**
+         * @return the number of ranges added so far
+         */
+        public int size() {
+            return ipv4Count + ipv6Count;
+        }
+
+        /**
+         * Write the lookup file
+         *
+         * The file is written to a temporary file first and then moved to the target path atomically
+         * so that a reader never sees a partially written file. The writer is closed once the file is written.
+         *
+         * @param target the path of the lookup file
+         * @throws IOException if the file cannot be written
+         */
+        public void write(final Path target) throws IOException {
+            try {
+                if (records != null) {
+                    records.close();
+                }
+                sort(ipv4Ranges, ipv4Ordinals, ipv4Count, 2);
+                sort(ipv6Ranges, ipv6Ordinals, ipv6Count, 4);
+
+                long recordPointersOffset = HEADER_SIZE + (long) ipv4Count * (IPV4_RANGE_SIZE + Integer.BYTES) + (long) ipv6Count
+                    * (IPV6_RANGE_SIZE + Integer.BYTES);
+                BytesStreamOutput keyBytes = new BytesStreamOutput();
+                for (String key : keys) {
+                    writeString(keyBytes, key);
+                }
+                long keysOffset = recordPointersOffset + (long) (recordCount + 1) * Long.BYTES;
+                long recordsOffset = keysOffset + keyBytes.size();
+
+                Path temp = target.resolveSibling(target.getFileName() + TEMP_FILE_EXTENSION);
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                    out.writeInt(MAGIC);
+                    out.writeInt(VERSION);
+                    out.writeInt(ipv4Count);
+                    out.writeInt(ipv6Count);
+                    out.writeInt(recordCount);
+                    out.writeInt(keys.size());
+                    out.writeLong(keysOffset);
+                    out.writeLong(recordsOffset);
+                    for (int i = 0; i < ipv4Count * 2; i++) {
+                        out.writeLong(ipv4Ranges[i]);
+                    }
+                    for (int i = 0; i < ipv4Count; i++) {
+                        out.writeInt(ipv4Ordinals[i]);
+                    }
+                    for (int i = 0; i < ipv6Count * 4; i++) {
+                        out.writeLong(ipv6Ranges[i]);
+                    }
+                    for (int i = 0; i < ipv6Count; i++) {
+                        out.writeInt(ipv6Ordinals[i]);
+                    }
+                    for (int i = 0; i < recordCount; i++) {
+                        out.writeLong(recordPointers[i]);
+                    }
+                    out.writeLong(recordsSize);
+                    keyBytes.bytes().writeTo(out);
+                    if (recordsFile != null) {
+                        Files.copy(recordsFile, out);
+                    }
+                }
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                close();
+            }
+        }
+
+        /**
+         * Delete the temporary file of records
+         */
+        @Override
+        public void close() throws IOException {
+            try {
+                if (records != null) {
+                    records.close();
+                }
+            } finally {
+                if (recordsFile != null) {
+                    Files.deleteIfExists(recordsFile);
+                }
+            }
+        }
+
+        private int recordOrdinal(final Map<String, Object> data) {
+            try {
+                scratch.reset();
+                scratch.writeVInt(data.size());
+                for (Map.Entry<String, Object> entry : data.entrySet()) {
+                    Integer keyOrdinal = keyOrdinals.get(entry.getKey());
+                    if (keyOrdinal == null) {
+                        keyOrdinal = keys.size();
+                        keyOrdinals.put(entry.getKey(), keyOrdinal);
+                        keys.add(entry.getKey());
+                    }
+                    scratch.writeVInt(keyOrdinal);
+                    writeString(scratch, String.valueOf(entry.getValue()));
+                }
+            } catch (IOException e) {
+                // BytesStreamOutput does not throw IOException
+                throw new IllegalStateException(e);
+            }
+
+            BytesRef encoded = scratch.bytes().toBytesRef();
+            MurmurHash3.Hash128 hash = MurmurHash3.hash128(encoded.bytes, encoded.offset, encoded.length, 0, new MurmurHash3.Hash128());
+            Integer ordinal = recordOrdinals.get(hash);
+            if (ordinal != null) {
+                return ordinal;
+            }
+            ordinal = recordCount;
+            recordOrdinals.put(hash, ordinal);
+            recordPointers = ArrayUtil.grow(recordPointers, recordCount + 1);
+            recordPointers[recordCount++] = recordsSize;
+            try {
+                if (records == null) {
+                    recordsFile = directory == null
+                        ? Files.createTempFile(RECORDS_FILE_PREFIX, TEMP_FILE_EXTENSION)
+                        : Files.createTempFile(directory, RECORDS_FILE_PREFIX, TEMP_FILE_EXTENSION);
+                    records = new BufferedOutputStream(Files.newOutputStream(recordsFile));
+                }
+                records.write(encoded.bytes, encoded.offset, encoded.length);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            recordsSize += encoded.length;
+            return ordinal;
+        }
+
+        private static void writeString(final BytesStreamOutput out, final String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeVInt(bytes.length);
+            out.writeBytes(bytes);
+        }
+
+        private static void sort(final long[] ranges, final int[] ordinals, final int count, final int width) {
+            new IntroSorter() {
+                private final long[] pivot = new long[2];
+
+                @Override
+                protected void setPivot(int i) {
+                    pivot[0] = ranges[i * width];
+                    pivot[1] = width == 4 ? ranges[i * width + 1] : 0;
+                }
+
+                @Override
+                protected int comparePivot(int j) {
+                    return GeoIpLookupFile.compare(pivot[0], pivot[1], ranges[j * width], width == 4 ? ranges[j * width + 1] : 0);
+                }
+
+                @Override
+                protected int compare(int i, int j) {
+                    return GeoIpLookupFile.compare(
+                        ranges[i * width],
+                        width == 4 ? ranges[i * width + 1] : 0,
+                        ranges[j * width],
+                        width == 4 ? ranges[j * width + 1] : 0
+                    );
+                }
+
+                @Override
+                protected void swap(int i, int j) {
+                    for (int k = 0; k < width; k++) {
+                        long range = ranges[i * width + k];
+                        ranges[i * width + k] = ranges[j * width + k];
+                        ranges[j * width + k] = range;
+                    }
+                    int ordinal = ordinals[i];
+                    ordinals[i] = ordinals[j];
+                    ordinals[j] = ordinal;
+                }
+            }.sort(0, count);
+        }
+    }
+}
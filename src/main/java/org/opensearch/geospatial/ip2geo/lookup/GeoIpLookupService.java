@@ -0,0 +1,325 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.ip2geo.lookup;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import org.opensearch.cluster.service.ClusterService;
+import org.opensearch.geospatial.ip2geo.common.Ip2GeoSettings;
+import org.opensearch.geospatial.ip2geo.dao.GeoIpDataDao;
+
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Node local lookup engine for GeoIP data
+ *
+ * For a GeoIP data index having ranges less than or equal to {@link Ip2GeoSettings#IN_MEMORY_MAX_RANGES},
+ * all ranges in the index are loaded into an {@link IpRangeTable} so that lookups do not need a search request.
+ * For a bigger index, ranges are written into a {@link GeoIpLookupFile} under the node data path
+ * and the file is memory mapped, unless {@link Ip2GeoSettings#LOOKUP_FILE_ENABLED} is false.
+ * The file is named after the index and reused after a node restart.
+ *
+ * Loading happens in background on the first request for an index. Until the loading completes, or when the index cannot
+ * be loaded, no lookup is returned and callers should fall back to the search path.
+ *
+ * A {@link GeoIpCoverageFilter} stored in an index is loaded in the same way regardless of the size of the index.
+ *
+ * A {@link GeoIpAttributeIndex} of a property is built from a loaded lookup on the first request for the property.
+ * Once a property is requested, its index is built for every lookup loaded afterwards, such as the one of a new
+ * GeoIP data index created by a datasource update, as part of the loading.
+ */
+@Log4j2
+public class GeoIpLookupService {
+    private static final long RETRY_INTERVAL_IN_MILLIS = 60 * 1000; // 1 minute
+    private static final String LOOKUP_FILE_EXTENSION = ".lookup";
+    private static final String TEMP_FILE_EXTENSION = ".tmp";
+    private final GeoIpDataDao geoIpDataDao;
+    private final Consumer<Runnable> executor;
+    private final Map<String, GeoIpLookup> lookups = new ConcurrentHashMap<>();
+    private final Map<String, LoadState> loadStates = new ConcurrentHashMap<>();
+    private final Map<String, Long> failedAt = new ConcurrentHashMap<>();
+    private final Map<String, Optional<GeoIpCoverageFilter>> coverageFilters = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, GeoIpAttributeIndex>> attributeIndices = new ConcurrentHashMap<>();
+    private final Set<String> indexedProperties = ConcurrentHashMap.newKeySet();
+    private volatile long maxRanges;
+    private volatile boolean lookupFileEnabled;
+    private volatile Path lookupFileDirectory;
+
+    public GeoIpLookupService(final ClusterService clusterService, final GeoIpDataDao geoIpDataDao, final Consumer<Runnable> executor) {
+        this.geoIpDataDao = geoIpDataDao;
+        this.executor = executor;
+        this.maxRanges = clusterService.getClusterSettings().get(Ip2GeoSettings.IN_MEMORY_MAX_RANGES);
+        this.lookupFileEnabled = clusterService.getClusterSettings().get(Ip2GeoSettings.LOOKUP_FILE_ENABLED);
+        clusterService.getClusterSettings().addSettingsUpdateConsumer(Ip2GeoSettings.IN_MEMORY_MAX_RANGES, this::updateMaxRanges);
+        clusterService.getClusterSettings()
+            .addSettingsUpdateConsumer(Ip2GeoSettings.LOOKUP_FILE_ENABLED, this::updateLookupFileEnabled);
+    }
+
+    /**
+     * Set a directory to store lookup files
+     *
+     * Lookup files are not used until the directory is set. Temporary files left by a previous run are deleted.
+     *
+     * @param directory the directory to store lookup files
+     * @throws IOException if the directory cannot be created
+     */
+    public void initialize(final Path directory) throws IOException {
+        Files.createDirectories(directory);
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + TEMP_FILE_EXTENSION)) {
+            for (Path file : stream) {
+                Files.deleteIfExists(file);
+            }
+        }
+        this.lookupFileDirectory = directory;
+    }
+
+    /**
+     * Return a lookup of a given GeoIP data index
+     *
+     * If the lookup is not loaded yet, loading is triggered in background and null is returned.
+     *
+     * @param indexName the GeoIP data index name
+     * @return the lookup, or null if it is not available
+     */
+    public GeoIpLookup getLookup(final String indexName) {
+        GeoIpLookup lookup = lookups.get(indexName);
+        if (lookup != null) {
+            return lookup;
+        }
+        prepare(indexName);
+        return null;
+    }
+
+    /**
+     * Return a coverage filter of a given GeoIP data index
+     *
+     * If the filter is not loaded yet, loading is triggered in background and null is returned.
+     *
+     * @param indexName the GeoIP data index name
+     * @return the coverage filter, or null if it is not available
+     */
+    public GeoIpCoverageFilter getCoverageFilter(final String indexName) {
+        Optional<GeoIpCoverageFilter> filter = coverageFilters.get(indexName);
+        if (filter != null) {
+            return filter.orElse(null);
+        }
+        if (coverageFilters.putIfAbsent(indexName, Optional.empty()) == null) {
+            executor.accept(() -> loadCoverageFilter(indexName));
+        }
+        return null;
+    }
+
+    /**
+     * Return an inverted index from values of a given property to ip ranges of a given GeoIP data index
+     *
+     * If the lookup of the index is not loaded yet, loading is triggered in background and null is returned.
+     *
+     * @param indexName the GeoIP data index name
+     * @param property the property name
+     * @return the attribute index, or null if it is not available
+     */
+    public GeoIpAttributeIndex getAttributeIndex(final String indexName, final String property) {
+        indexedProperties.add(property);
+        Map<String, GeoIpAttributeIndex> indices = attributeIndices.get(indexName);
+        if (indices != null && indices.containsKey(property)) {
+            return indices.get(property);
+        }
+        GeoIpLookup lookup = getLookup(indexName);
+        if (lookup == null) {
+            return null;
+        }
+        return attributeIndices.computeIfAbsent(indexName, key -> new ConcurrentHashMap<>())
+            .computeIfAbsent(property, key -> GeoIpAttributeIndex.build(lookup, key));
+    }
+
+    private void loadCoverageFilter(final String indexName) {
+        try {
+            GeoIpCoverageFilter filter = geoIpDataDao.getCoverageFilter(indexName);
+            if (filter == null) {
+                log.debug("GeoIP data index {} does not have a coverage filter", indexName);
+                return;
+            }
+            // The index might have been released while loading
+            coverageFilters.replace(indexName, Optional.empty(), Optional.of(filter));
+        } catch (Exception e) {
+            log.error("Failed to load coverage filter of {}", indexName, e);
+        }
+    }
+
+    /**
+     * Trigger loading of a lookup of a given GeoIP data index in background if it is not loaded yet
+     *
+     * @param indexName the GeoIP data index name
+     */
+    public void prepare(final String indexName) {
+        if (isEnabled() && (loadStates.putIfAbsent(indexName, LoadState.LOADING) == null || shouldRetry(indexName))) {
+            executor.accept(() -> load(indexName));
+        }
+    }
+
+    /**
+     * Release a lookup and a coverage filter of a given GeoIP data index and delete its lookup file
+     *
+     * @param indexName the GeoIP data index name
+     */
+    public void remove(final String indexName) {
+        loadStates.remove(indexName);
+        failedAt.remove(indexName);
+        lookups.remove(indexName);
+        coverageFilters.remove(indexName);
+        attributeIndices.remove(indexName);
+        deleteLookupFile(indexName);
+    }
+
+    /**
+     * Delete lookup files of indices other than given indices
+     *
+     * @param indexNames GeoIP data index names in use
+     */
+    public void retainLookupFiles(final Set<String> indexNames) {
+        Path directory = lookupFileDirectory;
+        if (directory == null) {
+            return;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + LOOKUP_FILE_EXTENSION)) {
+            for (Path file : stream) {
+                String fileName = file.getFileName().toString();
+                String indexName = fileName.substring(0, fileName.length() - LOOKUP_FILE_EXTENSION.length());
+                if (indexNames.contains(indexName) == false) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Failed to delete unused GeoIP lookup files in {}", directory, e);
+        }
+    }
+
+    private boolean isEnabled() {
+        return maxRanges > 0 || (lookupFileEnabled && lookupFileDirectory != null);
+    }
+
+    private boolean shouldRetry(final String indexName) {
+        Long failedTime = failedAt.get(indexName);
+        if (failedTime == null || System.currentTimeMillis() - failedTime < RETRY_INTERVAL_IN_MILLIS) {
+            return false;
+        }
+        return loadStates.replace(indexName, LoadState.FAILED, LoadState.LOADING);
+    }
+
+    private void load(final String indexName) {
+        try {
+            long count = geoIpDataDao.getGeoIpDataCount(indexName);
+            GeoIpLookup lookup;
+            if (count <= maxRanges) {
+                IpRangeTable.Builder builder = new IpRangeTable.Builder();
+                geoIpDataDao.forEachGeoIpData(indexName, builder::add);
+                lookup = builder.build();
+            } else if (lookupFileEnabled && lookupFileDirectory != null) {
+                lookup = loadLookupFile(indexName, count);
+            } else {
+                log.debug("Skip loading GeoIP data of {} as it has {} ranges", indexName, count);
+                loadStates.replace(indexName, LoadState.LOADING, LoadState.SKIPPED);
+                return;
+            }
+
+            lookups.put(indexName, lookup);
+            if (loadStates.replace(indexName, LoadState.LOADING, LoadState.LOADED) == false) {
+                // The index was released while loading
+                lookups.remove(indexName);
+                if (lookup instanceof GeoIpLookupFile) {
+                    deleteLookupFile(indexName);
+                }
+                return;
+            }
+            log.info("Loaded {} ranges of GeoIP data from {} into {}", lookup.size(), indexName, lookup.getClass().getSimpleName());
+            buildAttributeIndices(indexName, lookup);
+        } catch (Exception e) {
+            log.error("Failed to load GeoIP data of {}", indexName, e);
+            failedAt.put(indexName, System.currentTimeMillis());
+            loadStates.replace(indexName, LoadState.LOADING, LoadState.FAILED);
+        }
+    }
+
+    private void buildAttributeIndices(final String indexName, final GeoIpLookup lookup) {
+        if (indexedProperties.isEmpty()) {
+            return;
+        }
+        Map<String, GeoIpAttributeIndex> indices = new ConcurrentHashMap<>();
+        for (String property : indexedProperties) {
+            indices.put(property, GeoIpAttributeIndex.build(lookup, property));
+        }
+        attributeIndices.merge(indexName, indices, (existing, built) -> {
+            built.forEach(existing::putIfAbsent);
+            return existing;
+        });
+        log.debug("Built attribute indices of {} for {}", indexName, indices.keySet());
+    }
+
+    private GeoIpLookupFile loadLookupFile(final String indexName, final long count) throws IOException {
+        Path file = lookupFileDirectory.resolve(indexName + LOOKUP_FILE_EXTENSION);
+        if (Files.exists(file)) {
+            try {
+                GeoIpLookupFile lookupFile = GeoIpLookupFile.open(file);
+                if (lookupFile.size() == count) {
+                    return lookupFile;
+                }
+                log.warn("GeoIP lookup file {} has {} ranges while index has {} ranges", file, lookupFile.size(), count);
+            } catch (IllegalStateException e) {
+                log.warn("Failed to open GeoIP lookup file {}", file, e);
+            }
+        }
+
+        try (GeoIpLookupFile.Writer writer = new GeoIpLookupFile.Writer(lookupFileDirectory)) {
+            geoIpDataDao.forEachGeoIpData(indexName, writer::add);
+            writer.write(file);
+        }
+        return GeoIpLookupFile.open(file);
+    }
+
+    private void deleteLookupFile(final String indexName) {
+        Path directory = lookupFileDirectory;
+        if (directory == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(directory.resolve(indexName + LOOKUP_FILE_EXTENSION));
+        } catch (IOException e) {
+            log.warn("Failed to delete GeoIP lookup file of {}", indexName, e);
+        }
+    }
+
+    private void updateMaxRanges(final long maxRanges) {
+        this.maxRanges = maxRanges;
+        reset();
+    }
+
+    private void updateLookupFileEnabled(final boolean lookupFileEnabled) {
+        this.lookupFileEnabled = lookupFileEnabled;
+        reset();
+    }
+
+    private void reset() {
+        loadStates.clear();
+        failedAt.clear();
+        lookups.clear();
+        attributeIndices.clear();
+    }
+
+    private enum LoadState {
+        LOADING,
+        LOADED,
+        SKIPPED,
+        FAILED
+    }
+}
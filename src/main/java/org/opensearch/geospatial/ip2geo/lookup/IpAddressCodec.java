@@ -0,0 +1,167 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.ip2geo.lookup;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.util.Locale;
+
+import org.opensearch.common.collect.Tuple;
+import org.opensearch.common.network.InetAddresses;
+
+/**
+ * Helper methods to convert ip addresses and CIDR blocks into primitive values
+ *
+ * IPv4 addresses are represented as a non-negative long. IPv6 addresses are represented as two longs, high and low,
+ * each having its sign bit flipped so that signed comparison of the values gives the same order as unsigned comparison
+ * of the address bytes.
+ */
+public final class IpAddressCodec {
+    /**
+     * Value returned by {@link #parseIpv4(CharSequence)} when the input is not an IPv4 address
+     */
+    public static final long NOT_IPV4 = -1;
+    private static final long IPV4_MASK = 0xFFFFFFFFL;
+
+    private IpAddressCodec() {}
+
+    /**
+     * Parse a dotted-quad IPv4 address without allocating any object
+     *
+     * @param ip the ip address
+     * @return the address as a long, or {@link #NOT_IPV4} if the input is not a dotted-quad IPv4 address
+     */
+    public static long parseIpv4(final CharSequence ip) {
+        int length = ip.length();
+        if (length < 7 || length > 15) {
+            return NOT_IPV4;
+        }
+        long result = 0;
+        int octet = 0;
+        int digits = 0;
+        int dots = 0;
+        for (int i = 0; i < length; i++) {
+            char c = ip.charAt(i);
+            if (c >= '0' && c <= '9') {
+                // Leading zero is not allowed to be consistent with InetAddresses#forString
+                if (digits == 1 && octet == 0) {
+                    return NOT_IPV4;
+                }
+                octet = octet * 10 + (c - '0');
+                digits++;
+                if (octet > 255) {
+                    return NOT_IPV4;
+                }
+            } else if (c == '.') {
+                if (digits == 0 || ++dots > 3) {
+                    return NOT_IPV4;
+                }
+                result = (result << 8) | octet;
+                octet = 0;
+                digits = 0;
+            } else {
+                return NOT_IPV4;
+            }
+        }
+        if (digits == 0 || dots != 3) {
+            return NOT_IPV4;
+        }
+        return (result << 8) | octet;
+    }
+
+    /**
+     * Convert IPv4 address bytes into a long
+     *
+     * @param bytes four bytes of an IPv4 address
+     * @return the address as a long
+     */
+    public static long ipv4ToLong(final byte[] bytes) {
+        return ((bytes[0] & 0xFFL) << 24) | ((bytes[1] & 0xFFL) << 16) | ((bytes[2] & 0xFFL) << 8) | (bytes[3] & 0xFFL);
+    }
+
+    /**
+     * Return the high part of an IPv6 address with its sign bit flipped
+     *
+     * @param bytes sixteen bytes of an IPv6 address
+     * @return the high part of the address
+     */
+    public static long ipv6High(final byte[] bytes) {
+        return toLong(bytes, 0) ^ Long.MIN_VALUE;
+    }
+
+    /**
+     * Return the low part of an IPv6 address with its sign bit flipped
+     *
+     * @param bytes sixteen bytes of an IPv6 address
+     * @return the low part of the address
+     */
+    public static long ipv6Low(final byte[] bytes) {
+        return toLong(bytes, 8) ^ Long.MIN_VALUE;
+    }
+
+    /**
+     * Parse a CIDR block or a single ip address into an inclusive range
+     *
+     * For IPv4, the returned array is {start, end}.
+     * For IPv6, the returned array is {startHigh, startLow, endHigh, endLow} in sign flipped form.
+     *
+     * @param cidr the CIDR block or the ip address
+     * @return the range
+     */
+    public static long[] parseCidr(final String cidr) {
+        InetAddress address;
+        int prefixLength;
+        if (cidr.indexOf('/') == -1) {
+            address = InetAddresses.forString(cidr);
+            prefixLength = address instanceof Inet4Address ? 32 : 128;
+        } else {
+            Tuple<InetAddress, Integer> tuple = InetAddresses.parseCidr(cidr);
+            address = tuple.v1();
+            prefixLength = tuple.v2();
+        }
+
+        byte[] bytes = address.getAddress();
+        if (address instanceof Inet4Address) {
+            if (prefixLength < 0 || prefixLength > 32) {
+                throw new IllegalArgumentException(String.format(Locale.ROOT, "invalid CIDR [%s]", cidr));
+            }
+            long hostMask = prefixLength == 0 ? IPV4_MASK : (1L << (32 - prefixLength)) - 1;
+            long start = ipv4ToLong(bytes) & ~hostMask & IPV4_MASK;
+            return new long[] { start, start | hostMask };
+        }
+
+        if (prefixLength < 0 || prefixLength > 128) {
+            throw new IllegalArgumentException(String.format(Locale.ROOT, "invalid CIDR [%s]", cidr));
+        }
+        long high = toLong(bytes, 0);
+        long low = toLong(bytes, 8);
+        long highHostMask = hostMask(prefixLength);
+        long lowHostMask = hostMask(Math.max(prefixLength - 64, 0));
+        return new long[] {
+            (high & ~highHostMask) ^ Long.MIN_VALUE,
+            (low & ~lowHostMask) ^ Long.MIN_VALUE,
+            (high | highHostMask) ^ Long.MIN_VALUE,
+            (low | lowHostMask) ^ Long.MIN_VALUE };
+    }
+
+    private static long hostMask(final int prefixLength) {
+        if (prefixLength >= 64) {
+            return 0L;
+        }
+        if (prefixLength == 0) {
+            return -1L;
+        }
+        return (1L << (64 - prefixLength)) - 1;
+    }
+
+    private static long toLong(final byte[] bytes, final int offset) {
+        long value = 0;
+        for (int i = offset; i < offset + 8; i++) {
+            value = (value << 8) | (bytes[i] & 0xFFL);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.ip2geo.lookup;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.opensearch.common.network.InetAddresses;
+
+/**
+ * In-memory ip range table of GeoIP data
+ *
+ * Ranges are kept in sorted primitive arrays, a pair of longs per IPv4 range and two pairs of longs per IPv6 range.
+ * Each range points to an ordinal of a record. Identical records are stored only once.
+ * Ranges in GeoIP data do not overlap with each other, therefore a lookup is a binary search on the start of ranges
+ * followed by a check on the end of the matched range.
+ *
+ * The table is immutable once built and can be shared by multiple threads.
+ */
+public final class IpRangeTable implements GeoIpLookup {
+    /**
+     * Ordinal returned when no range contains a given ip
+     */
+    public static final int NO_MATCH = -1;
+
+    private final long[] ipv4Ranges;
+    private final int[] ipv4Ordinals;
+    private final long[] ipv6Ranges;
+    private final int[] ipv6Ordinals;
+    private final Map<String, Object>[] records;
+
+    private IpRangeTable(
+        final long[] ipv4Ranges,
+        final int[] ipv4Ordinals,
+        final long[] ipv6Ranges,
+        final int[] ipv6Ordinals,
+        final Map<String, Object>[] records
+    ) {
+        this.ipv4Ranges = ipv4Ranges;
+        this.ipv4Ordinals = ipv4Ordinals;
+        this.ipv6Ranges = ipv6Ranges;
+        this.ipv6Ordinals = ipv6Ordinals;
+        this.records = records;
+    }
+
+    @Override
+    public Map<String, Object> lookup(final String ip) {
+        return record(ordinalOf(ip));
+    }
+
+    /**
+     * Return the record ordinal of a range containing a given ip
+     *
+     * @param ip the ip address
+     * @return the record ordinal, or {@link #NO_MATCH} if no range contains the ip
+     */
+    public int ordinalOf(final String ip) {
+        long ipv4 = IpAddressCodec.parseIpv4(ip);
+        if (ipv4 != IpAddressCodec.NOT_IPV4) {
+            return ordinalOfIpv4(ipv4);
+        }
+        return ordinalOf(InetAddresses.forString(ip));
+    }
+
+    /**
+     * Return the record ordinal of a range containing a given ip
+     *
+     * @param address the ip address
+     * @return the record ordinal, or {@link #NO_MATCH} if no range contains the ip
+     */
+    public int ordinalOf(final InetAddress address) {
+        byte[] bytes = address.getAddress();
+        if (address instanceof Inet4Address) {
+            return ordinalOfIpv4(IpAddressCodec.ipv4ToLong(bytes));
+        }
+        return ordinalOfIpv6(IpAddressCodec.ipv6High(bytes), IpAddressCodec.ipv6Low(bytes));
+    }
+
+    /**
+     * Return the record ordinal of a range containing a given IPv4 address
+     *
+     * @param ip the IPv4 address as a long
+     * @return the record ordinal, or {@link #NO_MATCH} if no range contains the ip
+     */
+    @Override
+    public int ordinalOfIpv4(final long ip) {
+        int low = 0;
+        int high = ipv4Ordinals.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long start = ipv4Ranges[mid << 1];
+            if (start <= ip) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        // high is the last range whose start is less than or equal to the ip
+        if (high < 0 || ipv4Ranges[(high << 1) + 1] < ip) {
+            return NO_MATCH;
+        }
+        return ipv4Ordinals[high];
+    }
+
+    /**
+     * Return the record ordinal of a range containing a given IPv6 address
+     *
+     * @param ipHigh the high part of the IPv6 address in sign flipped form
+     * @param ipLow the low part of the IPv6 address in sign flipped form
+     * @return the record ordinal, or {@link #NO_MATCH} if no range contains the ip
+     */
+    @Override
+    public int ordinalOfIpv6(final long ipHigh, final long ipLow) {
+        int low = 0;
+        int high = ipv6Ordinals.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (compare(ipv6Ranges[mid << 2], ipv6Ranges[(mid << 2) + 1], ipHigh, ipLow) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        if (high < 0 || compare(ipv6Ranges[(high << 2) + 2], ipv6Ranges[(high << 2) + 3], ipHigh, ipLow) < 0) {
+            return NO_MATCH;
+        }
+        return ipv6Ordinals[high];
+    }
+
+    /**
+     * Return a record of a given ordinal
+     *
+     * @param ordinal the record ordinal
+     * @return the record, or empty map if the ordinal is {@link #NO_MATCH}
+     */
+    @Override
+    public Map<String, Object> record(final int ordinal) {
+        if (ordinal == NO_MATCH) {
+            return Collections.emptyMap();
+        }
+        return records[ordinal];
+    }
+
+    @Override
+    public int size() {
+        return ipv4Ordinals.length + ipv6Ordinals.length;
+    }
+
+    /**
+     * @return the number of distinct records in the table
+     */
+    @Override
+    public int recordCount() {
+        return records.length;
+    }
+
+    @Override
+    public void forEachRange(final RangeVisitor visitor) {
+        for (int i = 0; i < ipv4Ordinals.length; i++) {
+            visitor.visitIpv4(ipv4Ranges[i << 1], ipv4Ranges[(i << 1) + 1], ipv4Ordinals[i]);
+        }
+        for (int i = 0; i < ipv6Ordinals.length; i++) {
+            int offset = i << 2;
+            visitor.visitIpv6(ipv6Ranges[offset], ipv6Ranges[offset + 1], ipv6Ranges[offset + 2], ipv6Ranges[offset + 3], ipv6Ordinals[i]);
+        }
+    }
+
+    private static int compare(final long high1, final long low1, final long high2, final long low2) {
+        int result = Long.compare(high1, high2);
+        return result != 0 ? result : Long.compare(low1, low2);
+    }
+
+    /**
+     * Builder of {@link IpRangeTable}
+     *
+     * Ranges can be added in any order. Builder is not thread safe.
+     */
+    public static class Builder {
+        private final List<long[]> ipv4Ranges = new ArrayList<>();
+        private final List<long[]> ipv6Ranges = new ArrayList<>();
+        private final Map<Map<String, Object>, Integer> ordinals = new HashMap<>();
+        private final List<Map<String, Object>> records = new ArrayList<>();
+
+        /**
+         * Add a range with its geo data
+         *
+         * @param cidr the CIDR block or a single ip address
+         * @param data the geo data of the range
+         * @return this builder
+         */
+        public Builder add(final String cidr, final Map<String, Object> data) {
+            long[] range = IpAddressCodec.parseCidr(cidr);
+            Integer ordinal = ordinals.get(data);
+            if (ordinal == null) {
+                ordinal = records.size();
+                ordinals.put(data, ordinal);
+                records.add(data);
+            }
+            long[] rangeWithOrdinal = Arrays.copyOf(range, range.length + 1);
+            rangeWithOrdinal[range.length] = ordinal;
+            if (range.length == 2) {
+                ipv4Ranges.add(rangeWithOrdinal);
+            } else {
+                ipv6Ranges.add(rangeWithOrdinal);
+            }
+            return this;
+        }
+
+        /**
+         * @return the number of ranges added so far
+         */
+        public int size() {
+            return ipv4Ranges.size() + ipv6Ranges.size();
+        }
+
+        /**
+         * Build an immutable range table
+         *
+         * @return the range table
+         */
+        @SuppressWarnings("unchecked")
+        public IpRangeTable build() {
+            ipv4Ranges.sort((r1, r2) -> Long.compare(r1[0], r2[0]));
+            ipv6Ranges.sort((r1, r2) -> compare(r1[0], r1[1], r2[0], r2[1]));
+
+            long[] ipv4Array = new long[ipv4Ranges.size() * 2];
+            int[] ipv4OrdinalArray = new int[ipv4Ranges.size()];
+            for (int i = 0; i < ipv4Ranges.size(); i++) {
+                long[] range = ipv4Ranges.get(i);
+                ipv4Array[i * 2] = range[0];
+                ipv4Array[i * 2 + 1] = range[1];
+                ipv4OrdinalArray[i] = (int) range[2];
+            }
+
+            long[] ipv6Array = new long[ipv6Ranges.size() * 4];
+            int[] ipv6OrdinalArray = new int[ipv6Ranges.size()];
+            for (int i = 0; i < ipv6Ranges.size(); i++) {
+                long[] range = ipv6Ranges.get(i);
+                System.arraycopy(range, 0, ipv6Array, i * 4, 4);
+                ipv6OrdinalArray[i] = (int) range[4];
+            }
+
+            return new IpRangeTable(
+                ipv4Array,
+                ipv4OrdinalArray,
+                ipv6Array,
+                ipv6OrdinalArray,
+                records.toArray(new Map[0])
+            );
+        }
+    }
+}
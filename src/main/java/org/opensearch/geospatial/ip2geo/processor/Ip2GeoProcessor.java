@@ -10,25 +10,41 @@ import static org.opensearch.ingest.ConfigurationUtils.readOptionalList;
 import static org.opensearch.ingest.ConfigurationUtils.readStringProperty;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
+import org.opensearch.common.network.InetAddresses;
 import org.opensearch.common.settings.ClusterSettings;
+import org.opensearch.core.action.ActionListener;
 import org.opensearch.geospatial.ip2geo.common.DatasourceState;
 import org.opensearch.geospatial.ip2geo.common.ParameterValidator;
 import org.opensearch.geospatial.ip2geo.dao.DatasourceDao;
+import org.opensearch.geospatial.ip2geo.dao.DatasourceMetadata;
+import org.opensearch.geospatial.ip2geo.dao.GeoDataRecord;
+import org.opensearch.geospatial.ip2geo.dao.GeoDataSchema;
 import org.opensearch.geospatial.ip2geo.dao.GeoIpDataDao;
 import org.opensearch.geospatial.ip2geo.dao.Ip2GeoCachedDao;
+import org.opensearch.geospatial.ip2geo.lookup.GeoIpCoverageFilter;
+import org.opensearch.geospatial.ip2geo.lookup.IpAddressCodec;
 import org.opensearch.ingest.AbstractProcessor;
 import org.opensearch.ingest.IngestDocument;
+import org.opensearch.ingest.IngestDocumentWrapper;
 import org.opensearch.ingest.IngestService;
 import org.opensearch.ingest.Processor;
 
+import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.extern.log4j.Log4j2;
 
@@ -57,6 +73,7 @@ public final class Ip2GeoProcessor extends AbstractProcessor {
     private final DatasourceDao datasourceDao;
     private final GeoIpDataDao geoIpDataDao;
     private final Ip2GeoCachedDao ip2GeoCachedDao;
+    private volatile FieldIndices fieldIndices;
 
     /**
      * Ip2Geo processor type
@@ -111,7 +128,7 @@ public final class Ip2GeoProcessor extends AbstractProcessor {
     @Override
     public void execute(IngestDocument ingestDocument, BiConsumer<IngestDocument, Exception> handler) {
         try {
-            Object ip = ingestDocument.getFieldValue(field, Object.class, ignoreMissing);
+            Object ip = readIp(ingestDocument);
 
             if (ip == null) {
                 handler.accept(ingestDocument, null);
@@ -120,21 +137,211 @@ public final class Ip2GeoProcessor extends AbstractProcessor {
 
             if (ip instanceof String) {
                 executeInternal(ingestDocument, handler, (String) ip);
-            } else if (ip instanceof List) {
-                executeInternal(ingestDocument, handler, ((List<?>) ip));
             } else {
-                handler.accept(
-                    null,
-                    new IllegalArgumentException(
-                        String.format(Locale.ROOT, "field [%s] should contain only string or array of strings", field)
-                    )
-                );
+                executeInternal(ingestDocument, handler, ((List<?>) ip));
             }
         } catch (Exception e) {
             handler.accept(null, e);
         }
     }
 
+    /**
+     * Add geo data of ip addresses to a batch of documents
+     *
+     * Ip addresses are deduplicated across all documents in the batch and cache misses are retrieved in a single request.
+     *
+     * @param ingestDocumentWrappers the documents
+     * @param handler the handler
+     */
+    @Override
+    public void batchExecute(
+        final List<IngestDocumentWrapper> ingestDocumentWrappers,
+        final Consumer<List<IngestDocumentWrapper>> handler
+    ) {
+        int size = ingestDocumentWrappers.size();
+        Object[] ips = new Object[size];
+        Exception[] exceptions = new Exception[size];
+        Set<String> distinctIps = new LinkedHashSet<>();
+        for (int i = 0; i < size; i++) {
+            try {
+                ips[i] = readIp(ingestDocumentWrappers.get(i).getIngestDocument());
+            } catch (Exception e) {
+                exceptions[i] = e;
+                continue;
+            }
+            if (ips[i] instanceof String) {
+                distinctIps.add((String) ips[i]);
+            } else if (ips[i] != null) {
+                distinctIps.addAll((List<String>) ips[i]);
+            }
+        }
+
+        if (distinctIps.isEmpty()) {
+            completeBatch(ingestDocumentWrappers, exceptions, handler);
+            return;
+        }
+
+        try {
+            DatasourceMetadata metadata = getAvailableDatasourceMetadata();
+            String indexName = metadata.getIndexName();
+            if (metadata.isExpired() || indexName == null) {
+                int count = forEachDocumentWithIp(
+                    ingestDocumentWrappers,
+                    ips,
+                    exceptions,
+                    (ingestDocument, ip) -> ingestDocument.setFieldValue(targetField, DATA_EXPIRED)
+                );
+                ip2GeoCachedDao.recordExpired(datasourceName, count);
+                completeBatch(ingestDocumentWrappers, exceptions, handler);
+                return;
+            }
+
+            List<String> distinctIpList = getCoveredIps(indexName, distinctIps);
+            Map<String, Exception> failures = new ConcurrentHashMap<>();
+            ip2GeoCachedDao.getGeoData(indexName, distinctIpList, failures::put, ActionListener.wrap(geoDataList -> {
+                Map<String, Map<String, Object>> geoDataByIp = new HashMap<>();
+                for (int i = 0; i < distinctIpList.size(); i++) {
+                    if (geoDataList.get(i) != null) {
+                        geoDataByIp.put(distinctIpList.get(i), geoDataList.get(i));
+                    }
+                }
+                failDocumentsWithFailedIp(ips, exceptions, failures);
+                int count = forEachDocumentWithIp(ingestDocumentWrappers, ips, exceptions, (ingestDocument, ip) -> {
+                    if (ip instanceof String) {
+                        setGeoData(ingestDocument, geoDataByIp.getOrDefault(ip, Collections.emptyMap()));
+                    } else {
+                        setGeoData(
+                            ingestDocument,
+                            ((List<String>) ip).stream()
+                                .map(value -> geoDataByIp.getOrDefault(value, Collections.emptyMap()))
+                                .collect(Collectors.toList())
+                        );
+                    }
+                });
+                ip2GeoCachedDao.recordProcessed(datasourceName, count);
+                completeBatch(ingestDocumentWrappers, exceptions, handler);
+            }, e -> {
+                failDocumentsWithIp(ips, exceptions, e);
+                completeBatch(ingestDocumentWrappers, exceptions, handler);
+            }));
+        } catch (Exception e) {
+            failDocumentsWithIp(ips, exceptions, e);
+            completeBatch(ingestDocumentWrappers, exceptions, handler);
+        }
+    }
+
+    /**
+     * Give each document having an ip to a consumer
+     *
+     * A failure of the consumer fails its own document only so that a single bad document does not fail the whole batch.
+     *
+     * @return the number of documents the consumer succeeded with
+     */
+    private int forEachDocumentWithIp(
+        final List<IngestDocumentWrapper> ingestDocumentWrappers,
+        final Object[] ips,
+        final Exception[] exceptions,
+        final BiConsumer<IngestDocument, Object> consumer
+    ) {
+        int count = 0;
+        for (int i = 0; i < ips.length; i++) {
+            if (ips[i] == null || exceptions[i] != null) {
+                continue;
+            }
+            try {
+                consumer.accept(ingestDocumentWrappers.get(i).getIngestDocument(), ips[i]);
+                count++;
+            } catch (Exception e) {
+                exceptions[i] = e;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Fail only documents having an ip whose lookup failed so that the other documents in the batch still get geo data
+     */
+    private void failDocumentsWithFailedIp(final Object[] ips, final Exception[] exceptions, final Map<String, Exception> failures) {
+        if (failures.isEmpty()) {
+            return;
+        }
+        for (int i = 0; i < ips.length; i++) {
+            if (ips[i] == null || exceptions[i] != null) {
+                continue;
+            }
+            List<String> documentIps = ips[i] instanceof String ? List.of((String) ips[i]) : (List<String>) ips[i];
+            for (String ip : documentIps) {
+                Exception failure = failures.get(ip);
+                if (failure != null) {
+                    exceptions[i] = failure;
+                    break;
+                }
+            }
+        }
+    }
+
+    private void failDocumentsWithIp(final Object[] ips, final Exception[] exceptions, final Exception e) {
+        for (int i = 0; i < ips.length; i++) {
+            if (ips[i] != null && exceptions[i] == null) {
+                exceptions[i] = e;
+            }
+        }
+    }
+
+    private void completeBatch(
+        final List<IngestDocumentWrapper> ingestDocumentWrappers,
+        final Exception[] exceptions,
+        final Consumer<List<IngestDocumentWrapper>> handler
+    ) {
+        List<IngestDocumentWrapper> results = new ArrayList<>(ingestDocumentWrappers.size());
+        for (int i = 0; i < ingestDocumentWrappers.size(); i++) {
+            IngestDocumentWrapper wrapper = ingestDocumentWrappers.get(i);
+            results.add(
+                new IngestDocumentWrapper(wrapper.getSlot(), exceptions[i] == null ? wrapper.getIngestDocument() : null, exceptions[i])
+            );
+        }
+        handler.accept(results);
+    }
+
+    /**
+     * Read ip addresses from a given document
+     *
+     * Ip addresses are validated here so that an invalid ip address fails its own document only, even in a batch.
+     *
+     * @param ingestDocument the document
+     * @return a single ip, a list of ips, or null if the field is missing and ignoreMissing is true
+     */
+    private Object readIp(final IngestDocument ingestDocument) {
+        Object ip = ingestDocument.getFieldValue(field, Object.class, ignoreMissing);
+        if (ip == null) {
+            return null;
+        }
+        if (ip instanceof String) {
+            validateIp((String) ip);
+            return ip;
+        }
+
+        if (ip instanceof List == false) {
+            throw new IllegalArgumentException(
+                String.format(Locale.ROOT, "field [%s] should contain only string or array of strings", field)
+            );
+        }
+
+        for (Object value : (List<?>) ip) {
+            if (value instanceof String == false) {
+                throw new IllegalArgumentException("array in field [" + field + "] should only contain strings");
+            }
+            validateIp((String) value);
+        }
+        return ip;
+    }
+
+    private void validateIp(final String ip) {
+        if (IpAddressCodec.parseIpv4(ip) == IpAddressCodec.NOT_IPV4 && InetAddresses.isInetAddress(ip) == false) {
+            throw new IllegalArgumentException(String.format(Locale.ROOT, "'%s' is not an IP string literal.", ip));
+        }
+    }
+
     /**
      * Use {@code execute(IngestDocument, BiConsumer<IngestDocument, Exception>)} instead
      *
@@ -151,21 +358,49 @@ public final class Ip2GeoProcessor extends AbstractProcessor {
         final BiConsumer<IngestDocument, Exception> handler,
         final String ip
     ) {
-        validateDatasourceIsInAvailableState(datasourceName);
-        String indexName = ip2GeoCachedDao.getIndexName(datasourceName);
-        if (ip2GeoCachedDao.isExpired(datasourceName) || indexName == null) {
+        DatasourceMetadata metadata = getAvailableDatasourceMetadata();
+        String indexName = metadata.getIndexName();
+        if (metadata.isExpired() || indexName == null) {
             handleExpiredData(ingestDocument, handler);
             return;
         }
 
-        Map<String, Object> geoData = ip2GeoCachedDao.getGeoData(indexName, ip);
+        if (getCoveredIps(indexName, List.of(ip)).isEmpty()) {
+            ip2GeoCachedDao.recordProcessed(datasourceName, 1);
+            handler.accept(ingestDocument, null);
+            return;
+        }
+
+        ip2GeoCachedDao.getGeoData(indexName, ip, ActionListener.wrap(geoData -> {
+            setGeoData(ingestDocument, geoData);
+            ip2GeoCachedDao.recordProcessed(datasourceName, 1);
+            handler.accept(ingestDocument, null);
+        }, e -> handler.accept(null, e)));
+    }
+
+    private void setGeoData(final IngestDocument ingestDocument, final Map<String, Object> geoData) {
         if (geoData.isEmpty() == false) {
             ingestDocument.setFieldValue(targetField, filteredGeoData(geoData));
         }
-        handler.accept(ingestDocument, null);
+    }
+
+    private void setGeoData(final IngestDocument ingestDocument, final List<Map<String, Object>> geoData) {
+        List<Map<String, Object>> geoDataList = geoData.stream()
+            .filter(data -> data.isEmpty() == false)
+            .map(this::filteredGeoData)
+            .collect(Collectors.toList());
+
+        if (geoDataList.isEmpty() == false) {
+            ingestDocument.setFieldValue(targetField, geoDataList);
+        }
     }
 
     private Map<String, Object> filteredGeoData(final Map<String, Object> geoData) {
+        if (geoData instanceof GeoDataRecord) {
+            GeoDataRecord record = (GeoDataRecord) geoData;
+            return record.project(getFieldIndices(record.getSchema()));
+        }
+
         if (properties == null) {
             return geoData;
         }
@@ -173,18 +408,53 @@ public final class Ip2GeoProcessor extends AbstractProcessor {
         return properties.stream().filter(p -> geoData.containsKey(p)).collect(Collectors.toMap(p -> p, p -> geoData.get(p)));
     }
 
-    private void validateDatasourceIsInAvailableState(final String datasourceName) {
-        if (ip2GeoCachedDao.has(datasourceName) == false) {
+    private int[] getFieldIndices(final GeoDataSchema schema) {
+        FieldIndices current = fieldIndices;
+        if (current == null || current.schema != schema) {
+            current = new FieldIndices(schema, schema.indicesOf(properties));
+            fieldIndices = current;
+        }
+        return current.indices;
+    }
+
+    /**
+     * Return ips which might be in a range of a given index
+     *
+     * Ips which the coverage filter of the index rules out are dropped without looking up the cache or the index.
+     * All ips are returned when the filter is not available.
+     *
+     * @param indexName the GeoIP data index name
+     * @param ips the ip addresses
+     * @return the ips which might have geo data
+     */
+    private List<String> getCoveredIps(final String indexName, final Collection<String> ips) {
+        GeoIpCoverageFilter filter = ip2GeoCachedDao.getCoverageFilter(indexName);
+        if (filter == null) {
+            return new ArrayList<>(ips);
+        }
+        return ips.stream().filter(filter::mightContain).collect(Collectors.toList());
+    }
+
+    /**
+     * Read the metadata snapshot of the datasource once and validate that the datasource is in an available state
+     *
+     * @return the metadata snapshot
+     */
+    private DatasourceMetadata getAvailableDatasourceMetadata() {
+        DatasourceMetadata metadata = ip2GeoCachedDao.getDatasourceMetadata(datasourceName);
+        if (metadata == null) {
             throw new IllegalStateException("datasource does not exist");
         }
 
-        if (DatasourceState.AVAILABLE.equals(ip2GeoCachedDao.getState(datasourceName)) == false) {
+        if (DatasourceState.AVAILABLE.equals(metadata.getState()) == false) {
             throw new IllegalStateException("datasource is not in an available state");
         }
+        return metadata;
     }
 
     private void handleExpiredData(final IngestDocument ingestDocument, final BiConsumer<IngestDocument, Exception> handler) {
         ingestDocument.setFieldValue(targetField, DATA_EXPIRED);
+        ip2GeoCachedDao.recordExpired(datasourceName, 1);
         handler.accept(ingestDocument, null);
     }
 
@@ -200,29 +470,19 @@ public final class Ip2GeoProcessor extends AbstractProcessor {
         final BiConsumer<IngestDocument, Exception> handler,
         final List<?> ips
     ) {
-        for (Object ip : ips) {
-            if (ip instanceof String == false) {
-                throw new IllegalArgumentException("array in field [" + field + "] should only contain strings");
-            }
-        }
-
-        validateDatasourceIsInAvailableState(datasourceName);
-        String indexName = ip2GeoCachedDao.getIndexName(datasourceName);
-        if (ip2GeoCachedDao.isExpired(datasourceName) || indexName == null) {
+        DatasourceMetadata metadata = getAvailableDatasourceMetadata();
+        String indexName = metadata.getIndexName();
+        if (metadata.isExpired() || indexName == null) {
             handleExpiredData(ingestDocument, handler);
             return;
         }
 
-        List<Map<String, Object>> geoDataList = ips.stream()
-            .map(ip -> ip2GeoCachedDao.getGeoData(indexName, (String) ip))
-            .filter(geoData -> geoData.isEmpty() == false)
-            .map(this::filteredGeoData)
-            .collect(Collectors.toList());
-
-        if (geoDataList.isEmpty() == false) {
-            ingestDocument.setFieldValue(targetField, geoDataList);
-        }
-        handler.accept(ingestDocument, null);
+        // Ips not covered by any range are dropped as they would not add anything to the target field
+        ip2GeoCachedDao.getGeoData(indexName, getCoveredIps(indexName, (List<String>) ips), ActionListener.wrap(geoData -> {
+            setGeoData(ingestDocument, geoData);
+            ip2GeoCachedDao.recordProcessed(datasourceName, 1);
+            handler.accept(ingestDocument, null);
+        }, e -> handler.accept(null, e)));
     }
 
     @Override
@@ -230,6 +490,15 @@ public final class Ip2GeoProcessor extends AbstractProcessor {
         return TYPE;
     }
 
+    /**
+     * Indices of properties in the schema of geo data records
+     */
+    @AllArgsConstructor
+    private static class FieldIndices {
+        private final GeoDataSchema schema;
+        private final int[] indices;
+    }
+
     /**
      * Ip2Geo processor factory
      */
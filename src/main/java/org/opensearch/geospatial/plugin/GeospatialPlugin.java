@@ -7,6 +7,8 @@ package org.opensearch.geospatial.plugin;
 
 import static org.opensearch.geospatial.ip2geo.jobscheduler.Datasource.IP2GEO_DATA_INDEX_NAME_PREFIX;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -25,7 +27,10 @@ import org.opensearch.common.settings.IndexScopedSettings;
 import org.opensearch.common.settings.Setting;
 import org.opensearch.common.settings.Settings;
 import org.opensearch.common.settings.SettingsFilter;
+import org.opensearch.common.unit.MemorySizeValue;
 import org.opensearch.core.action.ActionResponse;
+import org.opensearch.core.common.breaker.CircuitBreaker;
+import org.opensearch.core.common.breaker.NoopCircuitBreaker;
 import org.opensearch.core.common.io.stream.NamedWriteableRegistry;
 import org.opensearch.core.xcontent.NamedXContentRegistry;
 import org.opensearch.env.Environment;
@@ -36,19 +41,27 @@ import org.opensearch.geospatial.index.mapper.xypoint.XYPointFieldMapper;
 import org.opensearch.geospatial.index.mapper.xypoint.XYPointFieldTypeParser;
 import org.opensearch.geospatial.index.mapper.xyshape.XYShapeFieldMapper;
 import org.opensearch.geospatial.index.mapper.xyshape.XYShapeFieldTypeParser;
+import org.opensearch.geospatial.index.query.ip2geo.Ip2GeoMatchQueryBuilder;
 import org.opensearch.geospatial.index.query.xyshape.XYShapeQueryBuilder;
 import org.opensearch.geospatial.ip2geo.action.DeleteDatasourceAction;
 import org.opensearch.geospatial.ip2geo.action.DeleteDatasourceTransportAction;
 import org.opensearch.geospatial.ip2geo.action.GetDatasourceAction;
 import org.opensearch.geospatial.ip2geo.action.GetDatasourceTransportAction;
+import org.opensearch.geospatial.ip2geo.action.LookupGeoIpDataAction;
+import org.opensearch.geospatial.ip2geo.action.LookupGeoIpDataTransportAction;
+import org.opensearch.geospatial.ip2geo.action.LookupIpAction;
+import org.opensearch.geospatial.ip2geo.action.LookupIpTransportAction;
 import org.opensearch.geospatial.ip2geo.action.PutDatasourceAction;
 import org.opensearch.geospatial.ip2geo.action.PutDatasourceTransportAction;
 import org.opensearch.geospatial.ip2geo.action.RestDeleteDatasourceHandler;
 import org.opensearch.geospatial.ip2geo.action.RestGetDatasourceHandler;
+import org.opensearch.geospatial.ip2geo.action.RestLookupIpHandler;
 import org.opensearch.geospatial.ip2geo.action.RestPutDatasourceHandler;
 import org.opensearch.geospatial.ip2geo.action.RestUpdateDatasourceHandler;
 import org.opensearch.geospatial.ip2geo.action.UpdateDatasourceAction;
 import org.opensearch.geospatial.ip2geo.action.UpdateDatasourceTransportAction;
+import org.opensearch.geospatial.ip2geo.action.WarmUpCacheAction;
+import org.opensearch.geospatial.ip2geo.action.WarmUpCacheTransportAction;
 import org.opensearch.geospatial.ip2geo.common.Ip2GeoExecutor;
 import org.opensearch.geospatial.ip2geo.common.Ip2GeoLockService;
 import org.opensearch.geospatial.ip2geo.common.Ip2GeoSettings;
@@ -60,20 +73,27 @@ import org.opensearch.geospatial.ip2geo.jobscheduler.DatasourceExtension;
 import org.opensearch.geospatial.ip2geo.jobscheduler.DatasourceRunner;
 import org.opensearch.geospatial.ip2geo.jobscheduler.DatasourceUpdateService;
 import org.opensearch.geospatial.ip2geo.listener.Ip2GeoListener;
+import org.opensearch.geospatial.ip2geo.lookup.GeoIpLookupService;
 import org.opensearch.geospatial.ip2geo.processor.Ip2GeoProcessor;
 import org.opensearch.geospatial.processor.FeatureProcessor;
 import org.opensearch.geospatial.rest.action.upload.geojson.RestUploadGeoJSONAction;
 import org.opensearch.geospatial.search.aggregations.bucket.geogrid.GeoHexGrid;
 import org.opensearch.geospatial.search.aggregations.bucket.geogrid.GeoHexGridAggregationBuilder;
+import org.opensearch.geospatial.search.aggregations.bucket.ip2geo.Ip2GeoTermsAggregationBuilder;
+import org.opensearch.geospatial.stats.ip2geo.Ip2GeoStatsAction;
+import org.opensearch.geospatial.stats.ip2geo.Ip2GeoStatsTransportAction;
+import org.opensearch.geospatial.stats.ip2geo.RestIp2GeoStatsAction;
 import org.opensearch.geospatial.stats.upload.RestUploadStatsAction;
 import org.opensearch.geospatial.stats.upload.UploadStats;
 import org.opensearch.geospatial.stats.upload.UploadStatsAction;
 import org.opensearch.geospatial.stats.upload.UploadStatsTransportAction;
 import org.opensearch.index.IndexModule;
 import org.opensearch.index.mapper.Mapper;
+import org.opensearch.indices.breaker.BreakerSettings;
 import org.opensearch.indices.SystemIndexDescriptor;
 import org.opensearch.ingest.Processor;
 import org.opensearch.plugins.ActionPlugin;
+import org.opensearch.plugins.CircuitBreakerPlugin;
 import org.opensearch.plugins.IngestPlugin;
 import org.opensearch.plugins.MapperPlugin;
 import org.opensearch.plugins.Plugin;
@@ -94,10 +114,26 @@ import lombok.extern.log4j.Log4j2;
  * to interact with Cluster.
  */
 @Log4j2
-public class GeospatialPlugin extends Plugin implements IngestPlugin, ActionPlugin, MapperPlugin, SearchPlugin, SystemIndexPlugin {
+public class GeospatialPlugin extends Plugin
+    implements
+        IngestPlugin,
+        ActionPlugin,
+        MapperPlugin,
+        SearchPlugin,
+        SystemIndexPlugin,
+        CircuitBreakerPlugin {
+    private static final String LOOKUP_FILE_DIRECTORY = "ip2geo";
+    /**
+     * Name of the circuit breaker to which memory usage of ip2geo cache is charged
+     * The limit can be changed by breaker.ip2geo_cache.limit setting.
+     */
+    public static final String IP2GEO_CACHE_BREAKER = "ip2geo_cache";
+    private static final String IP2GEO_CACHE_BREAKER_DEFAULT_LIMIT = "5%";
+    private CircuitBreaker ip2GeoCacheBreaker = new NoopCircuitBreaker(IP2GEO_CACHE_BREAKER);
     private Ip2GeoCachedDao ip2GeoCachedDao;
     private DatasourceDao datasourceDao;
     private GeoIpDataDao geoIpDataDao;
+    private GeoIpLookupService geoIpLookupService;
     private URLDenyListChecker urlDenyListChecker;
 
     @Override
@@ -110,7 +146,19 @@ public class GeospatialPlugin extends Plugin implements IngestPlugin, ActionPlug
         this.urlDenyListChecker = new URLDenyListChecker(parameters.ingestService.getClusterService().getClusterSettings());
         this.datasourceDao = new DatasourceDao(parameters.client, parameters.ingestService.getClusterService());
         this.geoIpDataDao = new GeoIpDataDao(parameters.ingestService.getClusterService(), parameters.client, urlDenyListChecker);
-        this.ip2GeoCachedDao = new Ip2GeoCachedDao(parameters.ingestService.getClusterService(), datasourceDao, geoIpDataDao);
+        this.geoIpLookupService = new GeoIpLookupService(
+            parameters.ingestService.getClusterService(),
+            geoIpDataDao,
+            parameters.genericExecutor
+        );
+        this.ip2GeoCachedDao = new Ip2GeoCachedDao(
+            parameters.ingestService.getClusterService(),
+            datasourceDao,
+            geoIpDataDao,
+            geoIpLookupService,
+            ip2GeoCacheBreaker,
+            parameters.genericExecutor
+        );
         return MapBuilder.<String, Processor.Factory>newMapBuilder()
             .put(FeatureProcessor.TYPE, new FeatureProcessor.Factory())
             .put(Ip2GeoProcessor.TYPE, new Ip2GeoProcessor.Factory(parameters.ingestService, datasourceDao, geoIpDataDao, ip2GeoCachedDao))
@@ -137,6 +185,22 @@ public class GeospatialPlugin extends Plugin implements IngestPlugin, ActionPlug
         return executorBuilders;
     }
 
+    @Override
+    public BreakerSettings getCircuitBreaker(final Settings settings) {
+        return new BreakerSettings(
+            IP2GEO_CACHE_BREAKER,
+            MemorySizeValue.parseBytesSizeValueOrHeapRatio(IP2GEO_CACHE_BREAKER_DEFAULT_LIMIT, IP2GEO_CACHE_BREAKER).getBytes(),
+            1.0,
+            CircuitBreaker.Type.MEMORY,
+            CircuitBreaker.Durability.TRANSIENT
+        );
+    }
+
+    @Override
+    public void setCircuitBreaker(final CircuitBreaker circuitBreaker) {
+        this.ip2GeoCacheBreaker = circuitBreaker;
+    }
+
     @Override
     public List<Setting<?>> getSettings() {
         return Ip2GeoSettings.settings();
@@ -158,6 +222,7 @@ public class GeospatialPlugin extends Plugin implements IngestPlugin, ActionPlug
     ) {
         DatasourceUpdateService datasourceUpdateService = new DatasourceUpdateService(
             clusterService,
+            client,
             datasourceDao,
             geoIpDataDao,
             urlDenyListChecker
@@ -170,6 +235,19 @@ public class GeospatialPlugin extends Plugin implements IngestPlugin, ActionPlug
          */
         DatasourceRunner.getJobRunnerInstance()
             .initialize(clusterService, datasourceUpdateService, ip2GeoExecutor, datasourceDao, ip2GeoLockService);
+        if (nodeEnvironment != null && nodeEnvironment.hasNodeFile()) {
+            Path lookupFileDirectory = nodeEnvironment.nodeDataPaths()[0].resolve(LOOKUP_FILE_DIRECTORY);
+            try {
+                geoIpLookupService.initialize(lookupFileDirectory);
+            } catch (IOException e) {
+                log.warn("Failed to initialize GeoIP lookup file directory {}", lookupFileDirectory, e);
+            }
+            try {
+                ip2GeoCachedDao.initialize(lookupFileDirectory, threadPool);
+            } catch (IOException e) {
+                log.warn("Failed to initialize ip2geo cache directory {}", lookupFileDirectory, e);
+            }
+        }
 
         return List.of(
             UploadStats.getInstance(),
@@ -198,7 +276,9 @@ public class GeospatialPlugin extends Plugin implements IngestPlugin, ActionPlug
             new RestPutDatasourceHandler(clusterSettings, urlDenyListChecker),
             new RestGetDatasourceHandler(),
             new RestUpdateDatasourceHandler(urlDenyListChecker),
-            new RestDeleteDatasourceHandler()
+            new RestDeleteDatasourceHandler(),
+            new RestLookupIpHandler(),
+            new RestIp2GeoStatsAction()
         );
 
         List<RestHandler> allHandlers = new ArrayList<>();
@@ -218,7 +298,11 @@ public class GeospatialPlugin extends Plugin implements IngestPlugin, ActionPlug
             new ActionHandler<>(PutDatasourceAction.INSTANCE, PutDatasourceTransportAction.class),
             new ActionHandler<>(GetDatasourceAction.INSTANCE, GetDatasourceTransportAction.class),
             new ActionHandler<>(UpdateDatasourceAction.INSTANCE, UpdateDatasourceTransportAction.class),
-            new ActionHandler<>(DeleteDatasourceAction.INSTANCE, DeleteDatasourceTransportAction.class)
+            new ActionHandler<>(DeleteDatasourceAction.INSTANCE, DeleteDatasourceTransportAction.class),
+            new ActionHandler<>(WarmUpCacheAction.INSTANCE, WarmUpCacheTransportAction.class),
+            new ActionHandler<>(LookupGeoIpDataAction.INSTANCE, LookupGeoIpDataTransportAction.class),
+            new ActionHandler<>(LookupIpAction.INSTANCE, LookupIpTransportAction.class),
+            new ActionHandler<>(Ip2GeoStatsAction.INSTANCE, Ip2GeoStatsTransportAction.class)
         );
 
         List<ActionHandler<? extends ActionRequest, ? extends ActionResponse>> allHandlers = new ArrayList<>();
@@ -240,7 +324,14 @@ public class GeospatialPlugin extends Plugin implements IngestPlugin, ActionPlug
     @Override
     public List<QuerySpec<?>> getQueries() {
         // Register XYShapeQuery Builder to be delegated for query type: xy_shape
-        return List.of(new QuerySpec<>(XYShapeQueryBuilder.NAME, XYShapeQueryBuilder::new, XYShapeQueryBuilder::fromXContent));
+        return List.of(
+            new QuerySpec<>(XYShapeQueryBuilder.NAME, XYShapeQueryBuilder::new, XYShapeQueryBuilder::fromXContent),
+            new QuerySpec<>(
+                Ip2GeoMatchQueryBuilder.NAME,
+                in -> new Ip2GeoMatchQueryBuilder(in, () -> ip2GeoCachedDao),
+                parser -> Ip2GeoMatchQueryBuilder.fromXContent(parser, () -> ip2GeoCachedDao)
+            )
+        );
     }
 
     /**
@@ -255,6 +346,12 @@ public class GeospatialPlugin extends Plugin implements IngestPlugin, ActionPlug
             GeoHexGridAggregationBuilder.PARSER
         ).addResultReader(GeoHexGrid::new).setAggregatorRegistrar(GeoHexGridAggregationBuilder::registerAggregators);
 
-        return List.of(geoHexGridSpec);
+        final var ip2GeoTermsSpec = new AggregationSpec(
+            Ip2GeoTermsAggregationBuilder.NAME,
+            in -> new Ip2GeoTermsAggregationBuilder(in, () -> ip2GeoCachedDao),
+            (parser, name) -> Ip2GeoTermsAggregationBuilder.parse(parser, name, () -> ip2GeoCachedDao)
+        ).setAggregatorRegistrar(builder -> Ip2GeoTermsAggregationBuilder.registerAggregators(builder, () -> ip2GeoCachedDao));
+
+        return List.of(geoHexGridSpec, ip2GeoTermsSpec);
     }
 }
@@ -0,0 +1,338 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.search.aggregations.bucket.ip2geo;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+import org.opensearch.core.ParseField;
+import org.opensearch.core.action.ActionListener;
+import org.opensearch.core.common.io.stream.StreamInput;
+import org.opensearch.core.common.io.stream.StreamOutput;
+import org.opensearch.core.xcontent.ObjectParser;
+import org.opensearch.core.xcontent.ToXContent;
+import org.opensearch.core.xcontent.XContentBuilder;
+import org.opensearch.core.xcontent.XContentParser;
+import org.opensearch.geospatial.ip2geo.dao.Ip2GeoCachedDao;
+import org.opensearch.index.query.QueryRewriteContext;
+import org.opensearch.index.query.QueryShardContext;
+import org.opensearch.search.aggregations.AggregationBuilder;
+import org.opensearch.search.aggregations.AggregatorFactories;
+import org.opensearch.search.aggregations.AggregatorFactory;
+import org.opensearch.search.aggregations.bucket.BucketUtils;
+import org.opensearch.search.aggregations.support.CoreValuesSourceType;
+import org.opensearch.search.aggregations.support.ValuesSourceAggregationBuilder;
+import org.opensearch.search.aggregations.support.ValuesSourceAggregatorFactory;
+import org.opensearch.search.aggregations.support.ValuesSourceConfig;
+import org.opensearch.search.aggregations.support.ValuesSourceRegistry;
+import org.opensearch.search.aggregations.support.ValuesSourceType;
+
+/**
+ * Aggregation Builder for ip2geo terms
+ *
+ * The aggregation buckets documents by a property of GeoIP data, such as country_iso_code, of the ip in a given field.
+ * {
+ *     "ip2geo_terms": {
+ *         "field": "client_ip",
+ *         "datasource": "my-datasource",
+ *         "property": "country_iso_code",
+ *         "size": 10
+ *     }
+ * }
+ *
+ * The GeoIP data index of the datasource is resolved during rewrite and is part of the serialized aggregation so that
+ * a cached shard result of the aggregation is never served after the datasource moves to a new GeoIP data index.
+ */
+public class Ip2GeoTermsAggregationBuilder extends ValuesSourceAggregationBuilder<Ip2GeoTermsAggregationBuilder> {
+    /**
+     * Aggregation context name
+     */
+    public static final String NAME = "ip2geo_terms";
+    public static final ValuesSourceRegistry.RegistryKey<Ip2GeoTermsAggregatorSupplier> REGISTRY_KEY =
+        new ValuesSourceRegistry.RegistryKey<>(NAME, Ip2GeoTermsAggregatorSupplier.class);
+    public static final ParseField DATASOURCE_FIELD = new ParseField("datasource");
+    public static final ParseField PROPERTY_FIELD = new ParseField("property");
+    public static final ParseField SIZE_FIELD = new ParseField("size");
+    public static final ParseField SHARD_SIZE_FIELD = new ParseField("shard_size");
+    public static final ObjectParser<Ip2GeoTermsAggregationBuilder, String> PARSER = ObjectParser.fromBuilder(
+        NAME,
+        Ip2GeoTermsAggregationBuilder::new
+    );
+    private static final int DEFAULT_SIZE = 10;
+    private static final int DEFAULT_SHARD_SIZE = -1;
+
+    static {
+        ValuesSourceAggregationBuilder.declareFields(PARSER, false, false, false);
+        PARSER.declareString(Ip2GeoTermsAggregationBuilder::datasource, DATASOURCE_FIELD);
+        PARSER.declareString(Ip2GeoTermsAggregationBuilder::property, PROPERTY_FIELD);
+        PARSER.declareInt(Ip2GeoTermsAggregationBuilder::size, SIZE_FIELD);
+        PARSER.declareInt(Ip2GeoTermsAggregationBuilder::shardSize, SHARD_SIZE_FIELD);
+    }
+
+    private String datasource;
+    private String property;
+    private int size = DEFAULT_SIZE;
+    private int shardSize = DEFAULT_SHARD_SIZE;
+    private String indexName;
+    private Supplier<Ip2GeoCachedDao> ip2GeoCachedDaoSupplier;
+
+    public Ip2GeoTermsAggregationBuilder(final String name) {
+        super(name);
+    }
+
+    public Ip2GeoTermsAggregationBuilder(final StreamInput in) throws IOException {
+        this(in, null);
+    }
+
+    public Ip2GeoTermsAggregationBuilder(final StreamInput in, final Supplier<Ip2GeoCachedDao> ip2GeoCachedDaoSupplier)
+        throws IOException {
+        super(in);
+        datasource = in.readOptionalString();
+        property = in.readOptionalString();
+        size = in.readVInt();
+        shardSize = in.readInt();
+        indexName = in.readOptionalString();
+        this.ip2GeoCachedDaoSupplier = ip2GeoCachedDaoSupplier;
+    }
+
+    protected Ip2GeoTermsAggregationBuilder(
+        final Ip2GeoTermsAggregationBuilder clone,
+        final AggregatorFactories.Builder factoriesBuilder,
+        final Map<String, Object> metadata
+    ) {
+        super(clone, factoriesBuilder, metadata);
+        this.datasource = clone.datasource;
+        this.property = clone.property;
+        this.size = clone.size;
+        this.shardSize = clone.shardSize;
+        this.indexName = clone.indexName;
+        this.ip2GeoCachedDaoSupplier = clone.ip2GeoCachedDaoSupplier;
+    }
+
+    /**
+     * Parse an aggregation
+     * @param parser the parser
+     * @param name the aggregation name
+     * @param ip2GeoCachedDaoSupplier supplier of the ip2geo cached dao
+     * @return the aggregation builder
+     */
+    public static Ip2GeoTermsAggregationBuilder parse(
+        final XContentParser parser,
+        final String name,
+        final Supplier<Ip2GeoCachedDao> ip2GeoCachedDaoSupplier
+    ) throws IOException {
+        Ip2GeoTermsAggregationBuilder builder = PARSER.parse(parser, name);
+        builder.ip2GeoCachedDaoSupplier = ip2GeoCachedDaoSupplier;
+        return builder;
+    }
+
+    /**
+     * Register's ip2geo terms aggregation
+     * @param builder Builder to register new Aggregation
+     * @param ip2GeoCachedDaoSupplier supplier of the ip2geo cached dao which is created after aggregations are registered
+     */
+    public static void registerAggregators(
+        final ValuesSourceRegistry.Builder builder,
+        final Supplier<Ip2GeoCachedDao> ip2GeoCachedDaoSupplier
+    ) {
+        Ip2GeoTermsAggregatorFactory.registerAggregators(builder, ip2GeoCachedDaoSupplier);
+    }
+
+    @Override
+    protected void innerWriteTo(final StreamOutput out) throws IOException {
+        out.writeOptionalString(datasource);
+        out.writeOptionalString(property);
+        out.writeVInt(size);
+        out.writeInt(shardSize);
+        out.writeOptionalString(indexName);
+    }
+
+    @Override
+    public String getType() {
+        return NAME;
+    }
+
+    /**
+     * Set the datasource name to look up GeoIP data from
+     * @param datasource the datasource name
+     * @return this builder
+     */
+    public Ip2GeoTermsAggregationBuilder datasource(final String datasource) {
+        if (datasource == null) {
+            throw new IllegalArgumentException(String.format(Locale.ROOT, "[%s] must not be null: [%s]", DATASOURCE_FIELD, name));
+        }
+        this.datasource = datasource;
+        return this;
+    }
+
+    public String datasource() {
+        return datasource;
+    }
+
+    /**
+     * Set the property of GeoIP data to bucket on
+     * @param property the property name
+     * @return this builder
+     */
+    public Ip2GeoTermsAggregationBuilder property(final String property) {
+        if (property == null) {
+            throw new IllegalArgumentException(String.format(Locale.ROOT, "[%s] must not be null: [%s]", PROPERTY_FIELD, name));
+        }
+        this.property = property;
+        return this;
+    }
+
+    public String property() {
+        return property;
+    }
+
+    /**
+     * Set the number of buckets to return
+     * @param size the number of buckets
+     * @return this builder
+     */
+    public Ip2GeoTermsAggregationBuilder size(final int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException(
+                String.format(Locale.ROOT, "[%s] must be greater than 0. Found [%d] in [%s]", SIZE_FIELD, size, name)
+            );
+        }
+        this.size = size;
+        return this;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Set the number of buckets to return from each shard
+     * @param shardSize the number of buckets from each shard
+     * @return this builder
+     */
+    public Ip2GeoTermsAggregationBuilder shardSize(final int shardSize) {
+        if (shardSize <= 0) {
+            throw new IllegalArgumentException(
+                String.format(Locale.ROOT, "[%s] must be greater than 0. Found [%d] in [%s]", SHARD_SIZE_FIELD, shardSize, name)
+            );
+        }
+        this.shardSize = shardSize;
+        return this;
+    }
+
+    public int shardSize() {
+        return shardSize;
+    }
+
+    /**
+     * @return the GeoIP data index resolved during rewrite, or null if the aggregation is not rewritten yet
+     */
+    public String indexName() {
+        return indexName;
+    }
+
+    @Override
+    protected AggregationBuilder doRewrite(final QueryRewriteContext queryRewriteContext) throws IOException {
+        if (indexName != null || datasource == null || ip2GeoCachedDaoSupplier == null) {
+            return this;
+        }
+        // Rewrite can run on a network thread, so metadata is loaded asynchronously instead of blocking on its first read
+        Ip2GeoCachedDao ip2GeoCachedDao = ip2GeoCachedDaoSupplier.get();
+        if (ip2GeoCachedDao != null && ip2GeoCachedDao.isMetadataLoaded() == false) {
+            queryRewriteContext.registerAsyncAction(
+                (client, listener) -> ip2GeoCachedDao.loadMetadata(ActionListener.wrap(r -> listener.onResponse(null), listener::onFailure))
+            );
+            return this;
+        }
+        Ip2GeoTermsAggregationBuilder rewritten = new Ip2GeoTermsAggregationBuilder(this, factoriesBuilder, metadata);
+        rewritten.indexName = Ip2GeoTermsAggregatorFactory.resolveIndexName(ip2GeoCachedDao, datasource);
+        return rewritten;
+    }
+
+    @Override
+    protected ValuesSourceRegistry.RegistryKey<?> getRegistryKey() {
+        return REGISTRY_KEY;
+    }
+
+    @Override
+    protected ValuesSourceType defaultValueSourceType() {
+        return CoreValuesSourceType.IP;
+    }
+
+    @Override
+    protected ValuesSourceAggregatorFactory innerBuild(
+        final QueryShardContext queryShardContext,
+        final ValuesSourceConfig config,
+        final AggregatorFactory parent,
+        final AggregatorFactories.Builder subFactoriesBuilder
+    ) throws IOException {
+        if (datasource == null) {
+            throw new IllegalArgumentException(String.format(Locale.ROOT, "[%s] is required: [%s]", DATASOURCE_FIELD, name));
+        }
+        if (property == null) {
+            throw new IllegalArgumentException(String.format(Locale.ROOT, "[%s] is required: [%s]", PROPERTY_FIELD, name));
+        }
+        int requiredShardSize = shardSize == DEFAULT_SHARD_SIZE ? BucketUtils.suggestShardSideQueueSize(size) : Math.max(shardSize, size);
+        return new Ip2GeoTermsAggregatorFactory(
+            name,
+            config,
+            datasource,
+            indexName,
+            property,
+            size,
+            requiredShardSize,
+            queryShardContext,
+            parent,
+            subFactoriesBuilder,
+            metadata
+        );
+    }
+
+    @Override
+    protected XContentBuilder doXContentBody(final XContentBuilder builder, final ToXContent.Params params) throws IOException {
+        builder.field(DATASOURCE_FIELD.getPreferredName(), datasource);
+        builder.field(PROPERTY_FIELD.getPreferredName(), property);
+        builder.field(SIZE_FIELD.getPreferredName(), size);
+        if (shardSize != DEFAULT_SHARD_SIZE) {
+            builder.field(SHARD_SIZE_FIELD.getPreferredName(), shardSize);
+        }
+        return builder;
+    }
+
+    @Override
+    protected AggregationBuilder shallowCopy(final AggregatorFactories.Builder factoriesBuilder, final Map<String, Object> metadata) {
+        return new Ip2GeoTermsAggregationBuilder(this, factoriesBuilder, metadata);
+    }
+
+    @Override
+    public BucketCardinality bucketCardinality() {
+        return BucketCardinality.MANY;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(super.hashCode(), datasource, property, size, shardSize, indexName);
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass() || super.equals(obj) == false) {
+            return false;
+        }
+        Ip2GeoTermsAggregationBuilder other = (Ip2GeoTermsAggregationBuilder) obj;
+        return Objects.equals(datasource, other.datasource)
+            && Objects.equals(property, other.property)
+            && size == other.size
+            && shardSize == other.shardSize
+            && Objects.equals(indexName, other.indexName);
+    }
+}
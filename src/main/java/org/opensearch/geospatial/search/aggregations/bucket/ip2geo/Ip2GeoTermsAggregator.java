@@ -0,0 +1,277 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.search.aggregations.bucket.ip2geo;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BitUtil;
+import org.apache.lucene.util.BytesRef;
+import org.opensearch.common.lease.Releasables;
+import org.opensearch.common.util.IntArray;
+import org.opensearch.geospatial.ip2geo.lookup.GeoIpLookup;
+import org.opensearch.geospatial.ip2geo.lookup.IpRangeTable;
+import org.opensearch.search.DocValueFormat;
+import org.opensearch.search.aggregations.Aggregator;
+import org.opensearch.search.aggregations.AggregatorFactories;
+import org.opensearch.search.aggregations.BucketOrder;
+import org.opensearch.search.aggregations.CardinalityUpperBound;
+import org.opensearch.search.aggregations.InternalAggregation;
+import org.opensearch.search.aggregations.InternalAggregations;
+import org.opensearch.search.aggregations.LeafBucketCollector;
+import org.opensearch.search.aggregations.LeafBucketCollectorBase;
+import org.opensearch.search.aggregations.bucket.BucketsAggregator;
+import org.opensearch.search.aggregations.bucket.terms.LongKeyedBucketOrds;
+import org.opensearch.search.aggregations.bucket.terms.StringTerms;
+import org.opensearch.search.aggregations.bucket.terms.TermsAggregator;
+import org.opensearch.search.aggregations.support.ValuesSource;
+import org.opensearch.search.internal.SearchContext;
+
+/**
+ * Aggregates documents by a property of GeoIP data of the ip in a field
+ *
+ * Each ip value is mapped to a record ordinal of the node local {@link GeoIpLookup} straight from the encoded doc value bytes,
+ * and each record ordinal is mapped to an ordinal of the distinct property value once. Buckets are keyed by the property value
+ * ordinal, so that collecting a document only deals with primitives. Results are returned as {@link StringTerms}.
+ */
+public class Ip2GeoTermsAggregator extends BucketsAggregator {
+    private static final BucketOrder ORDER = BucketOrder.compound(BucketOrder.count(false), BucketOrder.key(true));
+    private static final int UNRESOLVED = -2;
+    private static final int NO_VALUE = -1;
+    private static final int IPV4_PREFIX_LENGTH = 12;
+
+    private final ValuesSource.Bytes.WithOrdinals valuesSource;
+    private final GeoIpLookup lookup;
+    private final String property;
+    private final int requiredSize;
+    private final int shardSize;
+    private final LongKeyedBucketOrds bucketOrds;
+    /**
+     * Property value ordinal of each record ordinal of the lookup
+     */
+    private final IntArray valueOrdsByRecord;
+    private final Map<String, Integer> valueOrds = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+    private int[] docValueOrds = new int[1];
+
+    Ip2GeoTermsAggregator(
+        final String name,
+        final AggregatorFactories factories,
+        final ValuesSource.Bytes.WithOrdinals valuesSource,
+        final GeoIpLookup lookup,
+        final String property,
+        final int requiredSize,
+        final int shardSize,
+        final SearchContext context,
+        final Aggregator parent,
+        final CardinalityUpperBound cardinality,
+        final Map<String, Object> metadata
+    ) throws IOException {
+        super(name, factories, context, parent, CardinalityUpperBound.MANY, metadata);
+        this.valuesSource = valuesSource;
+        this.lookup = lookup;
+        this.property = property;
+        this.requiredSize = requiredSize;
+        this.shardSize = shardSize;
+        this.bucketOrds = LongKeyedBucketOrds.build(context.bigArrays(), cardinality);
+        this.valueOrdsByRecord = context.bigArrays().newIntArray(lookup.recordCount(), false);
+        this.valueOrdsByRecord.fill(0, valueOrdsByRecord.size(), UNRESOLVED);
+    }
+
+    @Override
+    public ScoreMode scoreMode() {
+        if (valuesSource.needsScores()) {
+            return ScoreMode.COMPLETE;
+        }
+        return super.scoreMode();
+    }
+
+    @Override
+    public LeafBucketCollector getLeafCollector(final LeafReaderContext ctx, final LeafBucketCollector sub) throws IOException {
+        final SortedSetDocValues ips = valuesSource.ordinalsValues(ctx);
+        return new LeafBucketCollectorBase(sub, null) {
+            @Override
+            public void collect(final int doc, final long owningBucketOrd) throws IOException {
+                if (ips.advanceExact(doc) == false) {
+                    return;
+                }
+                int valueCount = ips.docValueCount();
+                docValueOrds = ArrayUtil.grow(docValueOrds, valueCount);
+                int distinctCount = 0;
+                for (int i = 0; i < valueCount; i++) {
+                    int valueOrd = valueOrdOf(ips.lookupOrd(ips.nextOrd()));
+                    if (valueOrd == NO_VALUE || contains(docValueOrds, distinctCount, valueOrd)) {
+                        continue;
+                    }
+                    docValueOrds[distinctCount++] = valueOrd;
+                    long bucketOrd = bucketOrds.add(owningBucketOrd, valueOrd);
+                    if (bucketOrd < 0) {
+                        collectExistingBucket(sub, doc, -1 - bucketOrd);
+                    } else {
+                        collectBucket(sub, doc, bucketOrd);
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Return the property value ordinal of an ip encoded as sixteen bytes in doc values
+     */
+    private int valueOrdOf(final BytesRef ip) {
+        int recordOrd = isIpv4(ip)
+            ? lookup.ordinalOfIpv4((int) BitUtil.VH_BE_INT.get(ip.bytes, ip.offset + IPV4_PREFIX_LENGTH) & 0xFFFFFFFFL)
+            : lookup.ordinalOfIpv6(
+                (long) BitUtil.VH_BE_LONG.get(ip.bytes, ip.offset) ^ Long.MIN_VALUE,
+                (long) BitUtil.VH_BE_LONG.get(ip.bytes, ip.offset + Long.BYTES) ^ Long.MIN_VALUE
+            );
+        if (recordOrd == IpRangeTable.NO_MATCH) {
+            return NO_VALUE;
+        }
+        int valueOrd = valueOrdsByRecord.get(recordOrd);
+        if (valueOrd == UNRESOLVED) {
+            valueOrd = resolveValueOrd(recordOrd);
+            valueOrdsByRecord.set(recordOrd, valueOrd);
+        }
+        return valueOrd;
+    }
+
+    /**
+     * Look up the property value of a record. This happens once per distinct record.
+     */
+    private int resolveValueOrd(final int recordOrd) {
+        Object value = lookup.record(recordOrd).get(property);
+        if (value == null) {
+            return NO_VALUE;
+        }
+        return valueOrds.computeIfAbsent(value.toString(), key -> {
+            values.add(key);
+            return values.size() - 1;
+        });
+    }
+
+    /**
+     * IPv4 addresses are indexed as IPv4-mapped IPv6 addresses, ::ffff:a.b.c.d
+     */
+    private static boolean isIpv4(final BytesRef ip) {
+        for (int i = 0; i < IPV4_PREFIX_LENGTH - 2; i++) {
+            if (ip.bytes[ip.offset + i] != 0) {
+                return false;
+            }
+        }
+        return ip.bytes[ip.offset + IPV4_PREFIX_LENGTH - 2] == (byte) 0xFF && ip.bytes[ip.offset + IPV4_PREFIX_LENGTH - 1] == (byte) 0xFF;
+    }
+
+    private static boolean contains(final int[] array, final int length, final int value) {
+        for (int i = 0; i < length; i++) {
+            if (array[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public InternalAggregation[] buildAggregations(final long[] owningBucketOrds) throws IOException {
+        List<List<long[]>> topBuckets = new ArrayList<>(owningBucketOrds.length);
+        long[] otherDocCounts = new long[owningBucketOrds.length];
+        int bucketCount = 0;
+        for (int ordIdx = 0; ordIdx < owningBucketOrds.length; ordIdx++) {
+            // Each candidate is {bucket ordinal, property value ordinal, doc count}
+            List<long[]> candidates = new ArrayList<>();
+            LongKeyedBucketOrds.BucketOrdsEnum ordsEnum = bucketOrds.ordsEnum(owningBucketOrds[ordIdx]);
+            while (ordsEnum.next()) {
+                long docCount = bucketDocCount(ordsEnum.ord());
+                otherDocCounts[ordIdx] += docCount;
+                candidates.add(new long[] { ordsEnum.ord(), ordsEnum.value(), docCount });
+            }
+            candidates.sort(
+                Comparator.<long[]>comparingLong(candidate -> -candidate[2]).thenComparing(candidate -> values.get((int) candidate[1]))
+            );
+            List<long[]> top = candidates.subList(0, Math.min(candidates.size(), shardSize));
+            for (long[] bucket : top) {
+                otherDocCounts[ordIdx] -= bucket[2];
+            }
+            topBuckets.add(top);
+            bucketCount += top.size();
+        }
+
+        long[] bucketOrdsToCollect = new long[bucketCount];
+        int b = 0;
+        for (List<long[]> top : topBuckets) {
+            for (long[] bucket : top) {
+                bucketOrdsToCollect[b++] = bucket[0];
+            }
+        }
+        InternalAggregations[] subAggregationResults = buildSubAggsForBuckets(bucketOrdsToCollect);
+
+        InternalAggregation[] results = new InternalAggregation[owningBucketOrds.length];
+        b = 0;
+        for (int ordIdx = 0; ordIdx < owningBucketOrds.length; ordIdx++) {
+            List<StringTerms.Bucket> buckets = new ArrayList<>(topBuckets.get(ordIdx).size());
+            for (long[] bucket : topBuckets.get(ordIdx)) {
+                buckets.add(
+                    new StringTerms.Bucket(
+                        new BytesRef(values.get((int) bucket[1])),
+                        bucket[2],
+                        subAggregationResults[b++],
+                        false,
+                        0,
+                        DocValueFormat.RAW
+                    )
+                );
+            }
+            results[ordIdx] = buildTerms(name, requiredSize, shardSize, otherDocCounts[ordIdx], buckets, metadata());
+        }
+        return results;
+    }
+
+    @Override
+    public InternalAggregation buildEmptyAggregation() {
+        return buildEmptyTerms(name, requiredSize, shardSize, metadata());
+    }
+
+    static StringTerms buildEmptyTerms(final String name, final int requiredSize, final int shardSize, final Map<String, Object> metadata) {
+        return buildTerms(name, requiredSize, shardSize, 0, Collections.emptyList(), metadata);
+    }
+
+    private static StringTerms buildTerms(
+        final String name,
+        final int requiredSize,
+        final int shardSize,
+        final long otherDocCount,
+        final List<StringTerms.Bucket> buckets,
+        final Map<String, Object> metadata
+    ) {
+        return new StringTerms(
+            name,
+            ORDER,
+            ORDER,
+            metadata,
+            DocValueFormat.RAW,
+            shardSize,
+            false,
+            otherDocCount,
+            buckets,
+            0,
+            new TermsAggregator.BucketCountThresholds(1, 0, requiredSize, shardSize)
+        );
+    }
+
+    @Override
+    protected void doClose() {
+        Releasables.close(bucketOrds, valueOrdsByRecord);
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.search.aggregations.bucket.ip2geo;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.opensearch.OpenSearchStatusException;
+import org.opensearch.ResourceNotFoundException;
+import org.opensearch.core.rest.RestStatus;
+import org.opensearch.geospatial.ip2geo.common.DatasourceState;
+import org.opensearch.geospatial.ip2geo.dao.DatasourceMetadata;
+import org.opensearch.geospatial.ip2geo.dao.Ip2GeoCachedDao;
+import org.opensearch.geospatial.ip2geo.lookup.GeoIpLookup;
+import org.opensearch.index.query.QueryShardContext;
+import org.opensearch.search.aggregations.Aggregator;
+import org.opensearch.search.aggregations.AggregatorFactories;
+import org.opensearch.search.aggregations.AggregatorFactory;
+import org.opensearch.search.aggregations.CardinalityUpperBound;
+import org.opensearch.search.aggregations.InternalAggregation;
+import org.opensearch.search.aggregations.NonCollectingAggregator;
+import org.opensearch.search.aggregations.support.CoreValuesSourceType;
+import org.opensearch.search.aggregations.support.ValuesSource;
+import org.opensearch.search.aggregations.support.ValuesSourceAggregatorFactory;
+import org.opensearch.search.aggregations.support.ValuesSourceConfig;
+import org.opensearch.search.aggregations.support.ValuesSourceRegistry;
+import org.opensearch.search.internal.SearchContext;
+
+/**
+ * Aggregation Factory for ip2geo_terms agg
+ */
+public class Ip2GeoTermsAggregatorFactory extends ValuesSourceAggregatorFactory {
+    private final String datasource;
+    private final String indexName;
+    private final String property;
+    private final int requiredSize;
+    private final int shardSize;
+
+    Ip2GeoTermsAggregatorFactory(
+        final String name,
+        final ValuesSourceConfig config,
+        final String datasource,
+        final String indexName,
+        final String property,
+        final int requiredSize,
+        final int shardSize,
+        final QueryShardContext queryShardContext,
+        final AggregatorFactory parent,
+        final AggregatorFactories.Builder subFactoriesBuilder,
+        final Map<String, Object> metadata
+    ) throws IOException {
+        super(name, config, queryShardContext, parent, subFactoriesBuilder, metadata);
+        this.datasource = datasource;
+        this.indexName = indexName;
+        this.property = property;
+        this.requiredSize = requiredSize;
+        this.shardSize = shardSize;
+    }
+
+    @Override
+    protected Aggregator createUnmapped(final SearchContext searchContext, final Aggregator parent, final Map<String, Object> metadata)
+        throws IOException {
+        final InternalAggregation aggregation = Ip2GeoTermsAggregator.buildEmptyTerms(name, requiredSize, shardSize, metadata);
+
+        return new NonCollectingAggregator(name, searchContext, parent, factories, metadata) {
+            @Override
+            public InternalAggregation buildEmptyAggregation() {
+                return aggregation;
+            }
+        };
+    }
+
+    @Override
+    protected Aggregator doCreateInternal(
+        final SearchContext searchContext,
+        final Aggregator parent,
+        final CardinalityUpperBound cardinality,
+        final Map<String, Object> metadata
+    ) throws IOException {
+        return queryShardContext.getValuesSourceRegistry()
+            .getAggregator(Ip2GeoTermsAggregationBuilder.REGISTRY_KEY, config)
+            .build(
+                name,
+                factories,
+                config.getValuesSource(),
+                datasource,
+                indexName,
+                property,
+                requiredSize,
+                shardSize,
+                searchContext,
+                parent,
+                cardinality,
+                metadata
+            );
+    }
+
+    static void registerAggregators(final ValuesSourceRegistry.Builder builder, final Supplier<Ip2GeoCachedDao> ip2GeoCachedDaoSupplier) {
+        builder.register(
+            Ip2GeoTermsAggregationBuilder.REGISTRY_KEY,
+            CoreValuesSourceType.IP,
+            (
+                name,
+                factories,
+                valuesSource,
+                datasource,
+                indexName,
+                property,
+                requiredSize,
+                shardSize,
+                searchContext,
+                parent,
+                cardinality,
+                metadata) -> {
+                if (valuesSource instanceof ValuesSource.Bytes.WithOrdinals == false) {
+                    throw new IllegalArgumentException(
+                        String.format(
+                            Locale.ROOT,
+                            "[%s] aggregation [%s] requires a field with doc values",
+                            Ip2GeoTermsAggregationBuilder.NAME,
+                            name
+                        )
+                    );
+                }
+                return new Ip2GeoTermsAggregator(
+                    name,
+                    factories,
+                    (ValuesSource.Bytes.WithOrdinals) valuesSource,
+                    getLookup(ip2GeoCachedDaoSupplier.get(), datasource, indexName),
+                    property,
+                    requiredSize,
+                    shardSize,
+                    searchContext,
+                    parent,
+                    cardinality,
+                    metadata
+                );
+            },
+            true
+        );
+    }
+
+    /**
+     * Return a node local lookup of the GeoIP data index resolved during rewrite, or of the current one of a given datasource
+     *
+     * The aggregation does not fall back to searching the GeoIP data index, so a shard fails when the lookup is not loaded on its node yet.
+     */
+    private static GeoIpLookup getLookup(final Ip2GeoCachedDao ip2GeoCachedDao, final String datasource, final String indexName) {
+        String targetIndexName = indexName == null ? resolveIndexName(ip2GeoCachedDao, datasource) : indexName;
+        GeoIpLookup lookup = ip2GeoCachedDao.getLookup(targetIndexName);
+        if (lookup == null) {
+            throw new OpenSearchStatusException(
+                "GeoIP data of the datasource [{}] is not loaded in memory yet. Retry later.",
+                RestStatus.SERVICE_UNAVAILABLE,
+                datasource
+            );
+        }
+        return lookup;
+    }
+
+    /**
+     * Resolve the current GeoIP data index of a given datasource
+     */
+    static String resolveIndexName(final Ip2GeoCachedDao ip2GeoCachedDao, final String datasource) {
+        DatasourceMetadata metadata = ip2GeoCachedDao == null ? null : ip2GeoCachedDao.getDatasourceMetadata(datasource);
+        if (metadata == null) {
+            throw new ResourceNotFoundException("no such datasource exist");
+        }
+        if (DatasourceState.AVAILABLE.equals(metadata.getState()) == false) {
+            throw new IllegalStateException("datasource is not in an available state");
+        }
+        String indexName = metadata.getIndexName();
+        if (metadata.isExpired() || indexName == null) {
+            throw new IllegalStateException("GeoIP data of the datasource is expired");
+        }
+        return indexName;
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.search.aggregations.bucket.ip2geo;
+
+import java.io.IOException;
+import java.util.Map;
+
+import org.opensearch.search.aggregations.Aggregator;
+import org.opensearch.search.aggregations.AggregatorFactories;
+import org.opensearch.search.aggregations.CardinalityUpperBound;
+import org.opensearch.search.aggregations.support.ValuesSource;
+import org.opensearch.search.internal.SearchContext;
+
+/**
+ * Aggregator supplier interface for ip2geo_terms agg
+ */
+@FunctionalInterface
+public interface Ip2GeoTermsAggregatorSupplier {
+    Aggregator build(
+        String name,
+        AggregatorFactories factories,
+        ValuesSource valuesSource,
+        String datasource,
+        String indexName,
+        String property,
+        int requiredSize,
+        int shardSize,
+        SearchContext searchContext,
+        Aggregator parent,
+        CardinalityUpperBound cardinality,
+        Map<String, Object> metadata
+    ) throws IOException;
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.stats.ip2geo;
+
+import java.io.IOException;
+
+import org.opensearch.core.common.io.stream.StreamInput;
+import org.opensearch.core.common.io.stream.StreamOutput;
+import org.opensearch.core.common.io.stream.Writeable;
+import org.opensearch.core.xcontent.ToXContentFragment;
+import org.opensearch.core.xcontent.XContentBuilder;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+/**
+ * Statistics of the cache partition of a GeoIP data index in a node
+ */
+@Getter
+@AllArgsConstructor
+@EqualsAndHashCode
+public final class Ip2GeoCacheStats implements ToXContentFragment, Writeable {
+    public static final Ip2GeoCacheStats EMPTY = new Ip2GeoCacheStats(0, 0, 0, 0, 0, 0);
+    private static final String HITS = "hits";
+    private static final String MISSES = "misses";
+    private static final String EVICTIONS = "evictions";
+    private static final String ENTRIES = "entries";
+    private static final String MEMORY_SIZE_IN_BYTES = "memory_size_in_bytes";
+    private static final String CAPACITY = "capacity";
+
+    /**
+     * Number of lookups served from the cache
+     */
+    private final long hits;
+    /**
+     * Number of lookups not found in the cache
+     */
+    private final long misses;
+    /**
+     * Number of entries evicted to keep the cache within its limit
+     */
+    private final long evictions;
+    /**
+     * Number of cached ranges
+     */
+    private final long entries;
+    /**
+     * Estimated memory usage of cached ranges
+     */
+    private final long memorySizeInBytes;
+    /**
+     * Share of the global budget given to the partition, in number of entries or in bytes when the cache is limited by memory
+     */
+    private final long capacity;
+
+    public Ip2GeoCacheStats(final StreamInput in) throws IOException {
+        this(in.readVLong(), in.readVLong(), in.readVLong(), in.readVLong(), in.readVLong(), in.readVLong());
+    }
+
+    @Override
+    public void writeTo(final StreamOutput out) throws IOException {
+        out.writeVLong(hits);
+        out.writeVLong(misses);
+        out.writeVLong(evictions);
+        out.writeVLong(entries);
+        out.writeVLong(memorySizeInBytes);
+        out.writeVLong(capacity);
+    }
+
+    @Override
+    public XContentBuilder toXContent(final XContentBuilder builder, final Params params) throws IOException {
+        builder.field(HITS, hits);
+        builder.field(MISSES, misses);
+        builder.field(EVICTIONS, evictions);
+        builder.field(ENTRIES, entries);
+        builder.field(MEMORY_SIZE_IN_BYTES, memorySizeInBytes);
+        builder.field(CAPACITY, capacity);
+        return builder;
+    }
+}
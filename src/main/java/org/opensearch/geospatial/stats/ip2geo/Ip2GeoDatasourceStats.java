@@ -0,0 +1,141 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.stats.ip2geo;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.opensearch.core.common.io.stream.StreamInput;
+import org.opensearch.core.common.io.stream.StreamOutput;
+import org.opensearch.core.common.io.stream.Writeable;
+import org.opensearch.core.xcontent.ToXContentObject;
+import org.opensearch.core.xcontent.XContentBuilder;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+/**
+ * Statistics of ip2geo lookups for a datasource in a node
+ */
+@Getter
+@AllArgsConstructor
+@EqualsAndHashCode
+public final class Ip2GeoDatasourceStats implements ToXContentObject, Writeable {
+    private static final String INDEX = "index";
+    private static final String CACHE = "cache";
+    private static final String NOT_FOUND_CACHE = "not_found_cache";
+    private static final String LOAD = "load";
+    private static final String COUNT = "count";
+    private static final String TOTAL_TIME_IN_MILLIS = "total_time_in_millis";
+    private static final String LATENCY_HISTOGRAM_IN_MILLIS = "latency_histogram_in_millis";
+    private static final String LESS_THAN = "lt";
+    private static final String GREATER_THAN_OR_EQUAL_TO = "gte";
+    private static final String PROCESSOR = "processor";
+    private static final String DOCUMENTS = "documents";
+    private static final String EXPIRED_DATA_RETURNS = "expired_data_returns";
+
+    /**
+     * Datasource name
+     */
+    private final String datasource;
+    /**
+     * GeoIP data index name of the datasource, or null if the datasource has no data yet
+     */
+    private final String indexName;
+    /**
+     * Statistics of the cache for ip ranges having geo data
+     */
+    private final Ip2GeoCacheStats cacheStats;
+    /**
+     * Statistics of the cache for ip ranges not having geo data
+     */
+    private final Ip2GeoCacheStats notFoundCacheStats;
+    /**
+     * Total time spent in milliseconds to load geo data from the index on cache misses
+     */
+    private final long loadTimeInMillis;
+    /**
+     * Number of loads in each bucket of {@link LatencyHistogram#BUCKET_UPPER_BOUNDS_IN_MILLIS}
+     */
+    private final long[] loadLatencyCounts;
+    /**
+     * Number of documents processed by ip2geo processors using the datasource
+     */
+    private final long processedCount;
+    /**
+     * Number of documents given expired data by ip2geo processors using the datasource
+     */
+    private final long expiredCount;
+
+    public Ip2GeoDatasourceStats(final StreamInput in) throws IOException {
+        this(
+            in.readString(),
+            in.readOptionalString(),
+            new Ip2GeoCacheStats(in),
+            new Ip2GeoCacheStats(in),
+            in.readVLong(),
+            in.readVLongArray(),
+            in.readVLong(),
+            in.readVLong()
+        );
+    }
+
+    /**
+     * @return the number of loads from the index
+     */
+    public long getLoadCount() {
+        return Arrays.stream(loadLatencyCounts).sum();
+    }
+
+    @Override
+    public void writeTo(final StreamOutput out) throws IOException {
+        out.writeString(datasource);
+        out.writeOptionalString(indexName);
+        cacheStats.writeTo(out);
+        notFoundCacheStats.writeTo(out);
+        out.writeVLong(loadTimeInMillis);
+        out.writeVLongArray(loadLatencyCounts);
+        out.writeVLong(processedCount);
+        out.writeVLong(expiredCount);
+    }
+
+    @Override
+    public XContentBuilder toXContent(final XContentBuilder builder, final Params params) throws IOException {
+        builder.startObject();
+        if (indexName != null) {
+            builder.field(INDEX, indexName);
+        }
+        builder.startObject(CACHE);
+        cacheStats.toXContent(builder, params);
+        builder.endObject();
+        builder.startObject(NOT_FOUND_CACHE);
+        notFoundCacheStats.toXContent(builder, params);
+        builder.endObject();
+        builder.startObject(LOAD);
+        builder.field(COUNT, getLoadCount());
+        builder.field(TOTAL_TIME_IN_MILLIS, loadTimeInMillis);
+        builder.startArray(LATENCY_HISTOGRAM_IN_MILLIS);
+        long[] bounds = LatencyHistogram.BUCKET_UPPER_BOUNDS_IN_MILLIS;
+        for (int i = 0; i < loadLatencyCounts.length; i++) {
+            builder.startObject();
+            if (i < bounds.length) {
+                builder.field(LESS_THAN, bounds[i]);
+            } else {
+                builder.field(GREATER_THAN_OR_EQUAL_TO, bounds[bounds.length - 1]);
+            }
+            builder.field(COUNT, loadLatencyCounts[i]);
+            builder.endObject();
+        }
+        builder.endArray();
+        builder.endObject();
+        builder.startObject(PROCESSOR);
+        builder.field(DOCUMENTS, processedCount);
+        builder.field(EXPIRED_DATA_RETURNS, expiredCount);
+        builder.endObject();
+        return builder.endObject();
+    }
+}
@@ -0,0 +1,18 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.stats.ip2geo;
+
+import org.opensearch.action.ActionType;
+
+public class Ip2GeoStatsAction extends ActionType<Ip2GeoStatsResponse> {
+
+    public static final Ip2GeoStatsAction INSTANCE = new Ip2GeoStatsAction();
+    public static final String NAME = "cluster:admin/geospatial/ip2geo/stats";
+
+    public Ip2GeoStatsAction() {
+        super(NAME, Ip2GeoStatsResponse::new);
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.stats.ip2geo;
+
+import java.io.IOException;
+
+import org.opensearch.core.common.io.stream.StreamInput;
+import org.opensearch.core.common.io.stream.StreamOutput;
+import org.opensearch.transport.TransportRequest;
+
+public class Ip2GeoStatsNodeRequest extends TransportRequest {
+
+    private final Ip2GeoStatsRequest request;
+
+    public Ip2GeoStatsNodeRequest(StreamInput in) throws IOException {
+        super(in);
+        request = new Ip2GeoStatsRequest(in);
+    }
+
+    public Ip2GeoStatsNodeRequest(Ip2GeoStatsRequest request) {
+        this.request = request;
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        super.writeTo(out);
+        request.writeTo(out);
+    }
+
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.stats.ip2geo;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Objects;
+
+import org.opensearch.action.support.nodes.BaseNodeResponse;
+import org.opensearch.cluster.node.DiscoveryNode;
+import org.opensearch.core.common.io.stream.StreamInput;
+import org.opensearch.core.common.io.stream.StreamOutput;
+import org.opensearch.core.xcontent.ToXContentObject;
+import org.opensearch.core.xcontent.XContentBuilder;
+
+public class Ip2GeoStatsNodeResponse extends BaseNodeResponse implements ToXContentObject {
+
+    private static final String DATASOURCES = "datasources";
+    private final List<Ip2GeoDatasourceStats> datasourceStats;
+
+    public Ip2GeoStatsNodeResponse(DiscoveryNode node, List<Ip2GeoDatasourceStats> datasourceStats) {
+        super(node);
+        this.datasourceStats = Objects.requireNonNull(datasourceStats, "datasource stats cannot be null");
+    }
+
+    public Ip2GeoStatsNodeResponse(StreamInput in) throws IOException {
+        super(in);
+        datasourceStats = in.readList(Ip2GeoDatasourceStats::new);
+    }
+
+    public List<Ip2GeoDatasourceStats> getDatasourceStats() {
+        return datasourceStats;
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        super.writeTo(out);
+        out.writeList(datasourceStats);
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject(DATASOURCES);
+        for (Ip2GeoDatasourceStats stats : datasourceStats) {
+            builder.field(stats.getDatasource());
+            stats.toXContent(builder, params);
+        }
+        return builder.endObject();
+    }
+}
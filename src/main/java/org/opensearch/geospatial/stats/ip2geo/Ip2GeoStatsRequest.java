@@ -0,0 +1,25 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.stats.ip2geo;
+
+import java.io.IOException;
+
+import org.opensearch.action.support.nodes.BaseNodesRequest;
+import org.opensearch.core.common.io.stream.StreamInput;
+
+public class Ip2GeoStatsRequest extends BaseNodesRequest<Ip2GeoStatsRequest> {
+
+    /**
+     * Empty constructor needed for Ip2GeoStatsTransportAction
+     */
+    public Ip2GeoStatsRequest() {
+        super((String[]) null);
+    }
+
+    protected Ip2GeoStatsRequest(StreamInput in) throws IOException {
+        super(in);
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.stats.ip2geo;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Objects;
+
+import org.opensearch.action.FailedNodeException;
+import org.opensearch.action.support.nodes.BaseNodesResponse;
+import org.opensearch.cluster.ClusterName;
+import org.opensearch.core.common.io.stream.StreamInput;
+import org.opensearch.core.common.io.stream.StreamOutput;
+import org.opensearch.core.common.io.stream.Writeable;
+import org.opensearch.core.xcontent.ToXContentObject;
+import org.opensearch.core.xcontent.XContentBuilder;
+
+public class Ip2GeoStatsResponse extends BaseNodesResponse<Ip2GeoStatsNodeResponse> implements Writeable, ToXContentObject {
+
+    private static final String NODES = "nodes";
+
+    public Ip2GeoStatsResponse(StreamInput in) throws IOException {
+        super(new ClusterName(in), in.readList(Ip2GeoStatsNodeResponse::new), in.readList(FailedNodeException::new));
+    }
+
+    public Ip2GeoStatsResponse(ClusterName clusterName, List<Ip2GeoStatsNodeResponse> nodes, List<FailedNodeException> failures) {
+        super(clusterName, nodes, failures);
+    }
+
+    @Override
+    protected List<Ip2GeoStatsNodeResponse> readNodesFrom(StreamInput in) throws IOException {
+        return in.readList(Ip2GeoStatsNodeResponse::new);
+    }
+
+    @Override
+    protected void writeNodesTo(StreamOutput out, List<Ip2GeoStatsNodeResponse> nodeResponses) throws IOException {
+        out.writeList(nodeResponses);
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject();
+        builder.startObject(NODES);
+        for (Ip2GeoStatsNodeResponse nodeResponse : getNodes()) {
+            builder.startObject(nodeResponse.getNode().getId());
+            nodeResponse.toXContent(builder, params);
+            builder.endObject();
+        }
+        builder.endObject();
+        return builder.endObject();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Ip2GeoStatsResponse otherResponse = (Ip2GeoStatsResponse) o;
+        return Objects.equals(getNodes(), otherResponse.getNodes()) && Objects.equals(failures(), otherResponse.failures());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(getNodes(), failures());
+    }
+
+}
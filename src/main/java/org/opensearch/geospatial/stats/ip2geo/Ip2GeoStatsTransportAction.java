@@ -0,0 +1,76 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.stats.ip2geo;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.opensearch.action.FailedNodeException;
+import org.opensearch.action.support.ActionFilters;
+import org.opensearch.action.support.nodes.TransportNodesAction;
+import org.opensearch.cluster.service.ClusterService;
+import org.opensearch.common.inject.Inject;
+import org.opensearch.core.common.io.stream.StreamInput;
+import org.opensearch.geospatial.ip2geo.dao.Ip2GeoCachedDao;
+import org.opensearch.threadpool.ThreadPool;
+import org.opensearch.transport.TransportService;
+
+public class Ip2GeoStatsTransportAction extends TransportNodesAction<
+    Ip2GeoStatsRequest,
+    Ip2GeoStatsResponse,
+    Ip2GeoStatsNodeRequest,
+    Ip2GeoStatsNodeResponse> {
+
+    private final TransportService transportService;
+    private final Ip2GeoCachedDao ip2GeoCachedDao;
+
+    @Inject
+    public Ip2GeoStatsTransportAction(
+        TransportService transportService,
+        ClusterService clusterService,
+        ThreadPool threadPool,
+        ActionFilters actionFilters,
+        Ip2GeoCachedDao ip2GeoCachedDao
+    ) {
+        super(
+            Ip2GeoStatsAction.NAME,
+            threadPool,
+            clusterService,
+            transportService,
+            actionFilters,
+            Ip2GeoStatsRequest::new,
+            Ip2GeoStatsNodeRequest::new,
+            ThreadPool.Names.MANAGEMENT,
+            Ip2GeoStatsNodeResponse.class
+        );
+        this.transportService = transportService;
+        this.ip2GeoCachedDao = ip2GeoCachedDao;
+    }
+
+    @Override
+    protected Ip2GeoStatsResponse newResponse(
+        Ip2GeoStatsRequest nodesRequest,
+        List<Ip2GeoStatsNodeResponse> nodeResponses,
+        List<FailedNodeException> failures
+    ) {
+        return new Ip2GeoStatsResponse(clusterService.getClusterName(), nodeResponses, failures);
+    }
+
+    @Override
+    protected Ip2GeoStatsNodeRequest newNodeRequest(Ip2GeoStatsRequest nodesRequest) {
+        return new Ip2GeoStatsNodeRequest(nodesRequest);
+    }
+
+    @Override
+    protected Ip2GeoStatsNodeResponse newNodeResponse(StreamInput streamInput) throws IOException {
+        return new Ip2GeoStatsNodeResponse(streamInput);
+    }
+
+    @Override
+    protected Ip2GeoStatsNodeResponse nodeOperation(Ip2GeoStatsNodeRequest nodeRequest) {
+        return new Ip2GeoStatsNodeResponse(transportService.getLocalNode(), ip2GeoCachedDao.getStats());
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.stats.ip2geo;
+
+import org.opensearch.common.metrics.CounterMetric;
+
+/**
+ * Histogram of latencies with fixed buckets in milliseconds
+ *
+ * A latency is counted in the first bucket whose upper bound is greater than the latency.
+ * Latencies of the last upper bound or more are counted in an extra bucket.
+ */
+public final class LatencyHistogram {
+    /**
+     * Exclusive upper bounds of buckets in milliseconds
+     */
+    public static final long[] BUCKET_UPPER_BOUNDS_IN_MILLIS = { 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000 };
+    private final CounterMetric[] buckets;
+    private final CounterMetric totalTimeInMillis = new CounterMetric();
+
+    public LatencyHistogram() {
+        buckets = new CounterMetric[BUCKET_UPPER_BOUNDS_IN_MILLIS.length + 1];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new CounterMetric();
+        }
+    }
+
+    /**
+     * @param tookInMillis the latency in milliseconds
+     */
+    public void record(final long tookInMillis) {
+        int bucket = 0;
+        while (bucket < BUCKET_UPPER_BOUNDS_IN_MILLIS.length && tookInMillis >= BUCKET_UPPER_BOUNDS_IN_MILLIS[bucket]) {
+            bucket++;
+        }
+        buckets[bucket].inc();
+        totalTimeInMillis.inc(tookInMillis);
+    }
+
+    /**
+     * @return the number of latencies in each bucket
+     */
+    public long[] getCounts() {
+        long[] counts = new long[buckets.length];
+        for (int i = 0; i < buckets.length; i++) {
+            counts[i] = buckets[i].count();
+        }
+        return counts;
+    }
+
+    /**
+     * @return the sum of all latencies in milliseconds
+     */
+    public long getTotalTimeInMillis() {
+        return totalTimeInMillis.count();
+    }
+}
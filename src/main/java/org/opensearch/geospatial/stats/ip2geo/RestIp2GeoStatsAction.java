@@ -0,0 +1,44 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.stats.ip2geo;
+
+import static org.opensearch.geospatial.shared.URLBuilder.URL_DELIMITER;
+import static org.opensearch.geospatial.shared.URLBuilder.getPluginURLPrefix;
+import static org.opensearch.rest.RestRequest.Method.GET;
+
+import java.util.List;
+
+import org.opensearch.client.node.NodeClient;
+import org.opensearch.rest.BaseRestHandler;
+import org.opensearch.rest.RestRequest;
+import org.opensearch.rest.action.RestToXContentListener;
+
+/**
+ * Rest handler for ip2geo cache and lookup statistics of each node
+ */
+public class RestIp2GeoStatsAction extends BaseRestHandler {
+
+    private static final String NAME = "ip2geo_stats";
+    public static final String ACTION_OBJECT = "ip2geo";
+
+    public static final String ACTION_STATS = "stats";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public List<Route> routes() {
+        String path = String.join(URL_DELIMITER, getPluginURLPrefix(), ACTION_OBJECT, ACTION_STATS);
+        return List.of(new Route(GET, path));
+    }
+
+    @Override
+    protected RestChannelConsumer prepareRequest(RestRequest restRequest, NodeClient nodeClient) {
+        return channel -> nodeClient.execute(Ip2GeoStatsAction.INSTANCE, new Ip2GeoStatsRequest(), new RestToXContentListener<>(channel));
+    }
+}
@@ -0,0 +1,285 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.index.query.ip2geo;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.InetAddressPoint;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchNoDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.tests.index.RandomIndexWriter;
+import org.junit.Before;
+import org.mockito.ArgumentCaptor;
+import org.opensearch.OpenSearchStatusException;
+import org.opensearch.ResourceNotFoundException;
+import org.opensearch.client.Client;
+import org.opensearch.common.io.stream.BytesStreamOutput;
+import org.opensearch.common.network.InetAddresses;
+import org.opensearch.common.xcontent.json.JsonXContent;
+import org.opensearch.core.action.ActionListener;
+import org.opensearch.core.common.io.stream.BytesStreamInput;
+import org.opensearch.core.rest.RestStatus;
+import org.opensearch.core.xcontent.XContentParser;
+import org.opensearch.geospatial.GeospatialTestHelper;
+import org.opensearch.geospatial.ip2geo.Ip2GeoTestCase;
+import org.opensearch.geospatial.ip2geo.common.DatasourceState;
+import org.opensearch.geospatial.ip2geo.dao.DatasourceMetadata;
+import org.opensearch.geospatial.ip2geo.lookup.GeoIpAttributeIndex;
+import org.opensearch.geospatial.ip2geo.lookup.IpRangeTable;
+import org.opensearch.index.mapper.IpFieldMapper;
+import org.opensearch.index.mapper.KeywordFieldMapper;
+import org.opensearch.index.query.QueryBuilder;
+import org.opensearch.index.query.QueryRewriteContext;
+import org.opensearch.index.query.QueryShardContext;
+import org.opensearch.index.query.QueryShardException;
+
+import lombok.SneakyThrows;
+
+public class Ip2GeoMatchQueryBuilderTests extends Ip2GeoTestCase {
+    private static final String IP_FIELD_NAME = "client_ip";
+    private static final String PROPERTY = "country_iso_code";
+    private String datasourceName;
+    private String indexName;
+    private QueryShardContext context;
+
+    @Before
+    public void init() {
+        datasourceName = GeospatialTestHelper.randomLowerCaseString();
+        indexName = GeospatialTestHelper.randomLowerCaseString();
+        context = mock(QueryShardContext.class);
+        when(context.fieldMapper(IP_FIELD_NAME)).thenReturn(new IpFieldMapper.IpFieldType(IP_FIELD_NAME));
+        when(ip2GeoCachedDao.isMetadataLoaded()).thenReturn(true);
+        when(ip2GeoCachedDao.getDatasourceMetadata(datasourceName)).thenReturn(
+            new DatasourceMetadata(indexName, Long.MAX_VALUE, DatasourceState.AVAILABLE, Arrays.asList(PROPERTY, "city"))
+        );
+        IpRangeTable table = new IpRangeTable.Builder().add("1.0.0.0/24", Map.of(PROPERTY, "AU"))
+            .add("1.0.1.0/24", Map.of(PROPERTY, "AU", "city", "Sydney"))
+            .add("10.0.0.0/24", Map.of(PROPERTY, "US"))
+            .add("2001:db8::/32", Map.of(PROPERTY, "DE"))
+            .build();
+        when(ip2GeoCachedDao.getAttributeIndex(indexName, PROPERTY)).thenReturn(GeoIpAttributeIndex.build(table, PROPERTY));
+    }
+
+    @SneakyThrows
+    public void testFromXContent_whenValidInput_thenSucceed() {
+        String json = String.format(
+            Locale.ROOT,
+            "{\"field\":\"%s\",\"datasource\":\"%s\",\"property\":\"%s\",\"value\":\"US\",\"boost\":2.0}",
+            IP_FIELD_NAME,
+            datasourceName,
+            PROPERTY
+        );
+
+        // Run
+        Ip2GeoMatchQueryBuilder builder;
+        try (XContentParser parser = createParser(JsonXContent.jsonXContent, json)) {
+            builder = Ip2GeoMatchQueryBuilder.fromXContent(parser, () -> ip2GeoCachedDao);
+        }
+
+        // Verify
+        assertEquals(IP_FIELD_NAME, builder.fieldName());
+        assertEquals(datasourceName, builder.datasource());
+        assertEquals(PROPERTY, builder.property());
+        assertEquals("US", builder.value());
+        assertEquals(2.0f, builder.boost(), 0.0f);
+    }
+
+    @SneakyThrows
+    public void testFromXContent_whenNoValue_thenException() {
+        String json = String.format(
+            Locale.ROOT,
+            "{\"field\":\"%s\",\"datasource\":\"%s\",\"property\":\"%s\"}",
+            IP_FIELD_NAME,
+            datasourceName,
+            PROPERTY
+        );
+
+        try (XContentParser parser = createParser(JsonXContent.jsonXContent, json)) {
+            expectThrows(IllegalArgumentException.class, () -> Ip2GeoMatchQueryBuilder.fromXContent(parser, () -> ip2GeoCachedDao));
+        }
+    }
+
+    @SneakyThrows
+    public void testStreamInOut_whenValidInput_thenSucceed() {
+        Ip2GeoMatchQueryBuilder builder = createBuilder("US");
+
+        // Run
+        BytesStreamOutput output = new BytesStreamOutput();
+        builder.writeTo(output);
+        BytesStreamInput input = new BytesStreamInput(output.bytes().toBytesRef().bytes);
+        Ip2GeoMatchQueryBuilder copiedBuilder = new Ip2GeoMatchQueryBuilder(input, () -> ip2GeoCachedDao);
+
+        // Verify
+        assertEquals(builder, copiedBuilder);
+        assertEquals(builder.hashCode(), copiedBuilder.hashCode());
+    }
+
+    @SneakyThrows
+    public void testToQuery_whenValueExists_thenMatchIpsInRanges() {
+        // Run
+        Query australia = createBuilder("AU").toQuery(context);
+        Query germany = createBuilder("DE").toQuery(context);
+
+        // Verify
+        assertTrue(australia instanceof ConstantScoreQuery);
+        try (Directory directory = newDirectory()) {
+            try (RandomIndexWriter writer = new RandomIndexWriter(random(), directory)) {
+                for (String ip : new String[] { "1.0.0.1", "1.0.1.255", "1.0.2.0", "10.0.0.1", "2001:db8::1", "2001:db9::1" }) {
+                    Document document = new Document();
+                    document.add(new InetAddressPoint(IP_FIELD_NAME, InetAddresses.forString(ip)));
+                    writer.addDocument(document);
+                }
+            }
+            try (IndexReader reader = DirectoryReader.open(directory)) {
+                IndexSearcher searcher = newSearcher(reader);
+                assertEquals(2, searcher.count(australia));
+                assertEquals(1, searcher.count(germany));
+            }
+        }
+    }
+
+    @SneakyThrows
+    public void testToQuery_whenNoRangeHasValue_thenMatchNoDocs() {
+        assertTrue(createBuilder("KR").toQuery(context) instanceof MatchNoDocsQuery);
+    }
+
+    @SneakyThrows
+    public void testToQuery_whenUnmappedField_thenMatchNoDocs() {
+        Ip2GeoMatchQueryBuilder builder = new Ip2GeoMatchQueryBuilder("unmapped", datasourceName, PROPERTY, "US", () -> ip2GeoCachedDao);
+
+        assertTrue(builder.toQuery(context) instanceof MatchNoDocsQuery);
+    }
+
+    public void testToQuery_whenNotIpField_thenException() {
+        when(context.fieldMapper("keyword")).thenReturn(new KeywordFieldMapper.KeywordFieldType("keyword"));
+        Ip2GeoMatchQueryBuilder builder = new Ip2GeoMatchQueryBuilder("keyword", datasourceName, PROPERTY, "US", () -> ip2GeoCachedDao);
+
+        // Run
+        QueryShardException exception = expectThrows(QueryShardException.class, () -> builder.toQuery(context));
+
+        // Verify
+        assertTrue(exception.getMessage().contains("unsupported type"));
+    }
+
+    public void testToQuery_whenNoDatasource_thenException() {
+        Ip2GeoMatchQueryBuilder builder = new Ip2GeoMatchQueryBuilder(
+            IP_FIELD_NAME,
+            GeospatialTestHelper.randomLowerCaseString(),
+            PROPERTY,
+            "US",
+            () -> ip2GeoCachedDao
+        );
+
+        expectThrows(ResourceNotFoundException.class, () -> builder.toQuery(context));
+    }
+
+    public void testToQuery_whenUnknownProperty_thenException() {
+        Ip2GeoMatchQueryBuilder builder = new Ip2GeoMatchQueryBuilder(IP_FIELD_NAME, datasourceName, "asn", "1", () -> ip2GeoCachedDao);
+
+        // Run
+        Exception exception = expectThrows(IllegalArgumentException.class, () -> builder.toQuery(context));
+
+        // Verify
+        assertTrue(exception.getMessage().contains("does not exist"));
+    }
+
+    public void testToQuery_whenNotLoaded_thenException() {
+        when(ip2GeoCachedDao.getAttributeIndex(indexName, PROPERTY)).thenReturn(null);
+
+        // Run
+        OpenSearchStatusException exception = expectThrows(OpenSearchStatusException.class, () -> createBuilder("US").toQuery(context));
+
+        // Verify
+        assertEquals(RestStatus.SERVICE_UNAVAILABLE, exception.status());
+        assertTrue(exception.getMessage().contains("not loaded"));
+    }
+
+    @SneakyThrows
+    public void testRewrite_whenCalled_thenResolveCurrentIndex() {
+        Ip2GeoMatchQueryBuilder builder = createBuilder("US");
+        builder.boost(2.0f).queryName("query");
+
+        // Run
+        Ip2GeoMatchQueryBuilder rewritten = (Ip2GeoMatchQueryBuilder) builder.rewrite(mock(QueryRewriteContext.class));
+
+        // Verify
+        assertEquals(indexName, rewritten.indexName());
+        assertEquals(2.0f, rewritten.boost(), 0.0f);
+        assertEquals("query", rewritten.queryName());
+        assertNotEquals(builder, rewritten);
+        assertSame(rewritten, rewritten.rewrite(mock(QueryRewriteContext.class)));
+
+        // Run
+        BytesStreamOutput output = new BytesStreamOutput();
+        rewritten.writeTo(output);
+        BytesStreamInput input = new BytesStreamInput(output.bytes().toBytesRef().bytes);
+        Ip2GeoMatchQueryBuilder copiedBuilder = new Ip2GeoMatchQueryBuilder(input, () -> ip2GeoCachedDao);
+
+        // Verify
+        assertEquals(rewritten, copiedBuilder);
+        assertEquals(rewritten.hashCode(), copiedBuilder.hashCode());
+    }
+
+    @SneakyThrows
+    public void testRewrite_whenMetadataNotLoaded_thenLoadAsynchronously() {
+        when(ip2GeoCachedDao.isMetadataLoaded()).thenReturn(false);
+        Ip2GeoMatchQueryBuilder builder = createBuilder("US");
+        QueryRewriteContext queryRewriteContext = mock(QueryRewriteContext.class);
+
+        // Run
+        QueryBuilder rewritten = builder.rewrite(queryRewriteContext);
+
+        // Verify
+        assertSame(builder, rewritten);
+        verify(ip2GeoCachedDao, never()).getDatasourceMetadata(anyString());
+        ArgumentCaptor<BiConsumer<Client, ActionListener<?>>> captor = ArgumentCaptor.forClass(BiConsumer.class);
+        verify(queryRewriteContext).registerAsyncAction(captor.capture());
+
+        // Run
+        captor.getValue().accept(mock(Client.class), mock(ActionListener.class));
+
+        // Verify
+        verify(ip2GeoCachedDao).loadMetadata(any(ActionListener.class));
+    }
+
+    @SneakyThrows
+    public void testToQuery_whenRewrittenAndIndexChanged_thenUseResolvedIndex() {
+        Ip2GeoMatchQueryBuilder rewritten = (Ip2GeoMatchQueryBuilder) createBuilder("US").rewrite(mock(QueryRewriteContext.class));
+        String newIndexName = GeospatialTestHelper.randomLowerCaseString();
+        when(ip2GeoCachedDao.getDatasourceMetadata(datasourceName)).thenReturn(
+            new DatasourceMetadata(newIndexName, Long.MAX_VALUE, DatasourceState.AVAILABLE, Arrays.asList(PROPERTY, "city"))
+        );
+
+        // Run
+        Query query = rewritten.toQuery(context);
+
+        // Verify
+        assertTrue(query instanceof ConstantScoreQuery);
+        Ip2GeoMatchQueryBuilder rewrittenAgain = (Ip2GeoMatchQueryBuilder) createBuilder("US").rewrite(mock(QueryRewriteContext.class));
+        assertEquals(newIndexName, rewrittenAgain.indexName());
+        assertNotEquals(rewritten, rewrittenAgain);
+    }
+
+    private Ip2GeoMatchQueryBuilder createBuilder(final String value) {
+        return new Ip2GeoMatchQueryBuilder(IP_FIELD_NAME, datasourceName, PROPERTY, value, () -> ip2GeoCachedDao);
+    }
+}
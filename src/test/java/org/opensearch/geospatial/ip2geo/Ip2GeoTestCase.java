@@ -55,6 +55,7 @@ import org.opensearch.geospatial.ip2geo.dao.Ip2GeoProcessorDao;
 import org.opensearch.geospatial.ip2geo.jobscheduler.Datasource;
 import org.opensearch.geospatial.ip2geo.jobscheduler.DatasourceTask;
 import org.opensearch.geospatial.ip2geo.jobscheduler.DatasourceUpdateService;
+import org.opensearch.geospatial.ip2geo.lookup.GeoIpLookupService;
 import org.opensearch.geospatial.ip2geo.processor.Ip2GeoProcessor;
 import org.opensearch.ingest.IngestMetadata;
 import org.opensearch.ingest.IngestService;
@@ -84,6 +85,8 @@ public abstract class Ip2GeoTestCase extends RestActionTestCase {
     @Mock
     protected Ip2GeoCachedDao ip2GeoCachedDao;
     @Mock
+    protected GeoIpLookupService geoIpLookupService;
+    @Mock
     protected ClusterState clusterState;
     @Mock
     protected Metadata metadata;
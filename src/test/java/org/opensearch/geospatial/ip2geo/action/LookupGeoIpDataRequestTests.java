@@ -0,0 +1,70 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.ip2geo.action;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import org.opensearch.action.ActionRequestValidationException;
+import org.opensearch.common.io.stream.BytesStreamOutput;
+import org.opensearch.core.common.io.stream.BytesStreamInput;
+import org.opensearch.geospatial.GeospatialTestHelper;
+import org.opensearch.geospatial.ip2geo.Ip2GeoTestCase;
+import org.opensearch.geospatial.ip2geo.dao.GeoIpRange;
+
+public class LookupGeoIpDataRequestTests extends Ip2GeoTestCase {
+    public void testValidate_whenNoIp_thenError() {
+        LookupGeoIpDataRequest request = new LookupGeoIpDataRequest(GeospatialTestHelper.randomLowerCaseString(), Collections.emptyList());
+
+        // Run
+        ActionRequestValidationException exception = request.validate();
+
+        // Verify
+        assertEquals(1, exception.validationErrors().size());
+        assertTrue(exception.validationErrors().get(0).contains("ips"));
+    }
+
+    public void testValidate_whenValidInput_thenSucceed() {
+        LookupGeoIpDataRequest request = new LookupGeoIpDataRequest(
+            GeospatialTestHelper.randomLowerCaseString(),
+            Arrays.asList(randomIpAddress())
+        );
+
+        assertNull(request.validate());
+    }
+
+    public void testStreamInOut_whenValidInput_thenSucceed() throws Exception {
+        LookupGeoIpDataRequest request = new LookupGeoIpDataRequest(
+            GeospatialTestHelper.randomLowerCaseString(),
+            Arrays.asList(randomIpAddress(), randomIpAddress())
+        );
+
+        // Run
+        BytesStreamOutput output = new BytesStreamOutput();
+        request.writeTo(output);
+        BytesStreamInput input = new BytesStreamInput(output.bytes().toBytesRef().bytes);
+        LookupGeoIpDataRequest copiedRequest = new LookupGeoIpDataRequest(input);
+
+        // Verify
+        assertEquals(request.getIndexName(), copiedRequest.getIndexName());
+        assertEquals(request.getIps(), copiedRequest.getIps());
+    }
+
+    public void testResponseStreamInOut_whenNoMatch_thenSucceed() throws Exception {
+        LookupGeoIpDataResponse response = new LookupGeoIpDataResponse(
+            Arrays.asList(new GeoIpRange("1.0.0.0/24", Map.of("city", "Seattle")), GeoIpRange.NO_MATCH)
+        );
+
+        // Run
+        BytesStreamOutput output = new BytesStreamOutput();
+        response.writeTo(output);
+        BytesStreamInput input = new BytesStreamInput(output.bytes().toBytesRef().bytes);
+
+        // Verify
+        assertEquals(response, new LookupGeoIpDataResponse(input));
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.ip2geo.action;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.store.Directory;
+import org.junit.Before;
+import org.opensearch.action.support.PlainActionFuture;
+import org.opensearch.cluster.metadata.IndexMetadata;
+import org.opensearch.common.util.concurrent.OpenSearchExecutors;
+import org.opensearch.core.index.Index;
+import org.opensearch.core.index.shard.ShardId;
+import org.opensearch.geospatial.GeospatialTestHelper;
+import org.opensearch.geospatial.ip2geo.Ip2GeoTestCase;
+import org.opensearch.geospatial.ip2geo.dao.GeoIpRange;
+import org.opensearch.geospatial.ip2geo.dao.GeoIpShardReaderTests;
+import org.opensearch.index.IndexNotFoundException;
+import org.opensearch.index.IndexService;
+import org.opensearch.index.engine.Engine;
+import org.opensearch.index.shard.IllegalIndexShardStateException;
+import org.opensearch.index.shard.IndexShard;
+import org.opensearch.index.shard.IndexShardState;
+import org.opensearch.index.shard.ShardNotFoundException;
+import org.opensearch.indices.IndicesService;
+import org.opensearch.tasks.Task;
+import org.opensearch.threadpool.ThreadPool;
+
+import lombok.SneakyThrows;
+
+public class LookupGeoIpDataTransportActionTests extends Ip2GeoTestCase {
+    private IndicesService indicesService;
+    private LookupGeoIpDataTransportAction action;
+
+    @Before
+    public void init() {
+        indicesService = mock(IndicesService.class);
+        when(threadPool.executor(ThreadPool.Names.SEARCH)).thenReturn(OpenSearchExecutors.newDirectExecutorService());
+        action = new LookupGeoIpDataTransportAction(
+            transportService,
+            actionFilters,
+            clusterService,
+            indicesService,
+            threadPool,
+            geoIpDataDao
+        );
+    }
+
+    @SneakyThrows
+    public void testDoExecute_whenLocalShard_thenReadShard() {
+        String indexName = GeospatialTestHelper.randomLowerCaseString();
+        Index index = new Index(indexName, GeospatialTestHelper.randomLowerCaseString());
+        IndexMetadata indexMetadata = mock(IndexMetadata.class);
+        when(indexMetadata.getIndex()).thenReturn(index);
+        when(metadata.index(indexName)).thenReturn(indexMetadata);
+        IndexService indexService = mock(IndexService.class);
+        IndexShard indexShard = mock(IndexShard.class);
+        when(indicesService.indexServiceSafe(index)).thenReturn(indexService);
+        when(indexService.getShardOrNull(0)).thenReturn(indexShard);
+        when(indexShard.state()).thenReturn(IndexShardState.STARTED);
+
+        try (Directory directory = newDirectory()) {
+            try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig())) {
+                GeoIpShardReaderTests.addRange(writer, "1.0.0.0/24", "1.0.0.0", "1.0.0.255", Map.of("city", "Seattle"));
+            }
+            Engine.Searcher searcher = new Engine.Searcher(
+                "test",
+                DirectoryReader.open(directory),
+                IndexSearcher.getDefaultSimilarity(),
+                IndexSearcher.getDefaultQueryCache(),
+                IndexSearcher.getDefaultQueryCachingPolicy(),
+                () -> {}
+            );
+            when(indexShard.acquireSearcher(anyString())).thenReturn(searcher);
+
+            // Run
+            PlainActionFuture<LookupGeoIpDataResponse> future = new PlainActionFuture<>();
+            action.doExecute(mock(Task.class), new LookupGeoIpDataRequest(indexName, Arrays.asList("1.0.0.1", "2.0.0.1")), future);
+
+            // Verify
+            assertEquals(
+                Arrays.asList(new GeoIpRange("1.0.0.0/24", Map.of("city", "Seattle")), GeoIpRange.NO_MATCH),
+                future.actionGet().getGeoIpRanges()
+            );
+            searcher.getIndexReader().close();
+        }
+    }
+
+    public void testDoExecute_whenShardNotStarted_thenException() {
+        String indexName = GeospatialTestHelper.randomLowerCaseString();
+        Index index = new Index(indexName, GeospatialTestHelper.randomLowerCaseString());
+        IndexMetadata indexMetadata = mock(IndexMetadata.class);
+        when(indexMetadata.getIndex()).thenReturn(index);
+        when(metadata.index(indexName)).thenReturn(indexMetadata);
+        IndexService indexService = mock(IndexService.class);
+        IndexShard indexShard = mock(IndexShard.class);
+        when(indicesService.indexServiceSafe(index)).thenReturn(indexService);
+        when(indexService.getShardOrNull(0)).thenReturn(indexShard);
+        when(indexShard.shardId()).thenReturn(new ShardId(index, 0));
+        when(indexShard.state()).thenReturn(randomFrom(IndexShardState.RECOVERING, IndexShardState.POST_RECOVERY, IndexShardState.CLOSED));
+        PlainActionFuture<LookupGeoIpDataResponse> future = new PlainActionFuture<>();
+
+        // Run
+        action.doExecute(mock(Task.class), new LookupGeoIpDataRequest(indexName, Arrays.asList(randomIpAddress())), future);
+
+        // Verify
+        expectThrows(IllegalIndexShardStateException.class, future::actionGet);
+        verify(indexShard, never()).acquireSearcher(anyString());
+    }
+
+    public void testDoExecute_whenNoLocalShard_thenException() {
+        String indexName = GeospatialTestHelper.randomLowerCaseString();
+        Index index = new Index(indexName, GeospatialTestHelper.randomLowerCaseString());
+        IndexMetadata indexMetadata = mock(IndexMetadata.class);
+        when(indexMetadata.getIndex()).thenReturn(index);
+        when(metadata.index(indexName)).thenReturn(indexMetadata);
+        IndexService indexService = mock(IndexService.class);
+        when(indicesService.indexServiceSafe(index)).thenReturn(indexService);
+        PlainActionFuture<LookupGeoIpDataResponse> future = new PlainActionFuture<>();
+
+        // Run
+        action.doExecute(mock(Task.class), new LookupGeoIpDataRequest(indexName, Arrays.asList(randomIpAddress())), future);
+
+        // Verify
+        expectThrows(ShardNotFoundException.class, future::actionGet);
+    }
+
+    public void testDoExecute_whenNoIndex_thenException() {
+        PlainActionFuture<LookupGeoIpDataResponse> future = new PlainActionFuture<>();
+
+        // Run
+        action.doExecute(
+            mock(Task.class),
+            new LookupGeoIpDataRequest(GeospatialTestHelper.randomLowerCaseString(), Arrays.asList(randomIpAddress())),
+            future
+        );
+
+        // Verify
+        expectThrows(IndexNotFoundException.class, future::actionGet);
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.ip2geo.action;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.opensearch.action.ActionRequestValidationException;
+import org.opensearch.common.io.stream.BytesStreamOutput;
+import org.opensearch.common.xcontent.json.JsonXContent;
+import org.opensearch.core.common.io.stream.BytesStreamInput;
+import org.opensearch.geospatial.GeospatialTestHelper;
+import org.opensearch.geospatial.ip2geo.Ip2GeoTestCase;
+
+public class LookupIpRequestTests extends Ip2GeoTestCase {
+    public void testValidate_whenValidInput_thenSucceed() {
+        LookupIpRequest request = createRequest(Arrays.asList(randomIpAddress(), "2001:db8::1"));
+
+        assertNull(request.validate());
+    }
+
+    public void testValidate_whenNoIp_thenError() {
+        LookupIpRequest request = createRequest(Collections.emptyList());
+
+        // Run
+        ActionRequestValidationException exception = request.validate();
+
+        // Verify
+        assertEquals(1, exception.validationErrors().size());
+        assertTrue(exception.validationErrors().get(0).contains("ips"));
+    }
+
+    public void testValidate_whenTooManyIps_thenError() {
+        LookupIpRequest request = createRequest(Collections.nCopies(LookupIpRequest.MAX_IPS + 1, randomIpAddress()));
+
+        // Run
+        ActionRequestValidationException exception = request.validate();
+
+        // Verify
+        assertEquals(1, exception.validationErrors().size());
+        assertTrue(exception.validationErrors().get(0).contains("exceed"));
+    }
+
+    public void testValidate_whenInvalidIp_thenError() {
+        LookupIpRequest request = createRequest(Arrays.asList(randomIpAddress(), "invalid"));
+
+        // Run
+        ActionRequestValidationException exception = request.validate();
+
+        // Verify
+        assertEquals(1, exception.validationErrors().size());
+        assertTrue(exception.validationErrors().get(0).contains("[invalid] is not a valid ip address"));
+    }
+
+    public void testValidate_whenEmptyProperties_thenError() {
+        LookupIpRequest request = createRequest(Arrays.asList(randomIpAddress()));
+        request.setProperties(Collections.emptyList());
+
+        // Run
+        ActionRequestValidationException exception = request.validate();
+
+        // Verify
+        assertEquals(1, exception.validationErrors().size());
+        assertTrue(exception.validationErrors().get(0).contains("properties"));
+    }
+
+    public void testValidate_whenBlankName_thenError() {
+        LookupIpRequest request = new LookupIpRequest(" ");
+        request.setIps(Arrays.asList(randomIpAddress()));
+
+        // Run
+        ActionRequestValidationException exception = request.validate();
+
+        // Verify
+        assertEquals(1, exception.validationErrors().size());
+        assertTrue(exception.validationErrors().get(0).contains("no such datasource"));
+    }
+
+    public void testStreamInOut_whenValidInput_thenSucceed() throws Exception {
+        LookupIpRequest request = createRequest(Arrays.asList(randomIpAddress(), randomIpAddress()));
+        request.setProperties(Arrays.asList("city"));
+
+        // Run
+        BytesStreamOutput output = new BytesStreamOutput();
+        request.writeTo(output);
+        BytesStreamInput input = new BytesStreamInput(output.bytes().toBytesRef().bytes);
+        LookupIpRequest copiedRequest = new LookupIpRequest(input);
+
+        // Verify
+        assertEquals(request.getName(), copiedRequest.getName());
+        assertEquals(request.getIps(), copiedRequest.getIps());
+        assertEquals(request.getProperties(), copiedRequest.getProperties());
+    }
+
+    public void testResponseStreamInOut_whenValidInput_thenSucceed() throws Exception {
+        LookupIpResponse response = new LookupIpResponse(
+            Arrays.asList("1.0.0.1", "2.0.0.1"),
+            Arrays.asList(Map.of("city", "Seattle"), Collections.emptyMap()),
+            null
+        );
+
+        // Run
+        BytesStreamOutput output = new BytesStreamOutput();
+        response.writeTo(output);
+        BytesStreamInput input = new BytesStreamInput(output.bytes().toBytesRef().bytes);
+        LookupIpResponse copiedResponse = new LookupIpResponse(input);
+
+        // Verify
+        assertEquals(response.getIps(), copiedResponse.getIps());
+        assertEquals(response.getGeoData(), copiedResponse.getGeoData());
+        assertNull(copiedResponse.getProperties());
+    }
+
+    public void testResponseToXContent_whenProperties_thenOnlyRequestedProperties() throws Exception {
+        List<Map<String, Object>> geoData = Arrays.asList(Map.of("city", "Seattle", "country", "USA"), Collections.emptyMap());
+        LookupIpResponse response = new LookupIpResponse(Arrays.asList("1.0.0.1", "2.0.0.1"), geoData, Arrays.asList("city"));
+
+        // Run
+        String json = response.toXContent(JsonXContent.contentBuilder(), null).toString();
+
+        // Verify
+        assertEquals(
+            "{\"results\":[{\"ip\":\"1.0.0.1\",\"geo_data\":{\"city\":\"Seattle\"}},{\"ip\":\"2.0.0.1\",\"geo_data\":{}}]}",
+            json
+        );
+    }
+
+    public void testResponseToXContent_whenNoProperties_thenAllProperties() throws Exception {
+        LookupIpResponse response = new LookupIpResponse(Arrays.asList("1.0.0.1"), Arrays.asList(Map.of("city", "Seattle")), null);
+
+        // Run
+        String json = response.toXContent(JsonXContent.contentBuilder(), null).toString();
+
+        // Verify
+        assertEquals("{\"results\":[{\"ip\":\"1.0.0.1\",\"geo_data\":{\"city\":\"Seattle\"}}]}", json);
+    }
+
+    private LookupIpRequest createRequest(final List<String> ips) {
+        LookupIpRequest request = new LookupIpRequest(GeospatialTestHelper.randomLowerCaseString());
+        request.setIps(ips);
+        return request;
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.ip2geo.action;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.mockito.ArgumentCaptor;
+import org.opensearch.ResourceNotFoundException;
+import org.opensearch.action.support.PlainActionFuture;
+import org.opensearch.common.util.concurrent.OpenSearchExecutors;
+import org.opensearch.core.action.ActionListener;
+import org.opensearch.geospatial.GeospatialTestHelper;
+import org.opensearch.geospatial.ip2geo.Ip2GeoTestCase;
+import org.opensearch.geospatial.ip2geo.common.DatasourceState;
+import org.opensearch.geospatial.ip2geo.dao.DatasourceMetadata;
+import org.opensearch.geospatial.ip2geo.lookup.GeoIpCoverageFilter;
+import org.opensearch.tasks.Task;
+import org.opensearch.threadpool.ThreadPool;
+
+public class LookupIpTransportActionTests extends Ip2GeoTestCase {
+    private static final Map<String, Object> GEO_DATA = Map.of("country_name", "Australia", "city", "Sydney");
+    private LookupIpTransportAction action;
+    private String datasourceName;
+    private String indexName;
+
+    @Before
+    public void init() {
+        when(threadPool.executor(ThreadPool.Names.SEARCH)).thenReturn(OpenSearchExecutors.newDirectExecutorService());
+        action = new LookupIpTransportAction(transportService, actionFilters, threadPool, ip2GeoCachedDao);
+        datasourceName = GeospatialTestHelper.randomLowerCaseString();
+        indexName = GeospatialTestHelper.randomLowerCaseString();
+    }
+
+    public void testDoExecute_whenDuplicatedIps_thenLookUpDistinctIpsOnce() {
+        mockMetadata(DatasourceState.AVAILABLE, Long.MAX_VALUE);
+        mockGeoData();
+        LookupIpRequest request = createRequest(Arrays.asList("1.0.0.1", "2.0.0.1", "1.0.0.1"));
+
+        // Run
+        PlainActionFuture<LookupIpResponse> future = new PlainActionFuture<>();
+        action.doExecute(mock(Task.class), request, future);
+
+        // Verify
+        verify(ip2GeoCachedDao).getGeoData(eq(indexName), eq(Arrays.asList("1.0.0.1", "2.0.0.1")), any(ActionListener.class));
+        LookupIpResponse response = future.actionGet();
+        assertEquals(request.getIps(), response.getIps());
+        assertEquals(Arrays.asList(GEO_DATA, Collections.emptyMap(), GEO_DATA), response.getGeoData());
+    }
+
+    public void testDoExecute_whenMoreIpsThanBatchSize_thenLookUpInBatches() {
+        mockMetadata(DatasourceState.AVAILABLE, Long.MAX_VALUE);
+        mockGeoData();
+        List<String> ips = new ArrayList<>();
+        for (int i = 0; i < LookupIpTransportAction.BATCH_SIZE + 10; i++) {
+            ips.add(String.format(Locale.ROOT, "1.0.%d.%d", i / 256, i % 256));
+        }
+
+        // Run
+        PlainActionFuture<LookupIpResponse> future = new PlainActionFuture<>();
+        action.doExecute(mock(Task.class), createRequest(ips), future);
+
+        // Verify
+        ArgumentCaptor<List<String>> captor = ArgumentCaptor.forClass(List.class);
+        verify(ip2GeoCachedDao, times(2)).getGeoData(eq(indexName), captor.capture(), any(ActionListener.class));
+        assertEquals(LookupIpTransportAction.BATCH_SIZE, captor.getAllValues().get(0).size());
+        assertEquals(10, captor.getAllValues().get(1).size());
+        assertEquals(Collections.nCopies(ips.size(), GEO_DATA), future.actionGet().getGeoData());
+    }
+
+    public void testDoExecute_whenIpNotCovered_thenNotLookedUp() {
+        mockMetadata(DatasourceState.AVAILABLE, Long.MAX_VALUE);
+        mockGeoData();
+        GeoIpCoverageFilter.Builder builder = new GeoIpCoverageFilter.Builder();
+        builder.add("1.0.0.0/24");
+        when(ip2GeoCachedDao.getCoverageFilter(indexName)).thenReturn(builder.build());
+
+        // Run
+        PlainActionFuture<LookupIpResponse> future = new PlainActionFuture<>();
+        action.doExecute(mock(Task.class), createRequest(Arrays.asList("3.0.0.1", "1.0.0.1")), future);
+
+        // Verify
+        verify(ip2GeoCachedDao).getGeoData(eq(indexName), eq(Arrays.asList("1.0.0.1")), any(ActionListener.class));
+        assertEquals(Arrays.asList(Collections.emptyMap(), GEO_DATA), future.actionGet().getGeoData());
+    }
+
+    public void testDoExecute_whenNoDatasource_thenException() {
+        PlainActionFuture<LookupIpResponse> future = new PlainActionFuture<>();
+
+        // Run
+        action.doExecute(mock(Task.class), createRequest(Arrays.asList(randomIpAddress())), future);
+
+        // Verify
+        expectThrows(ResourceNotFoundException.class, future::actionGet);
+        verify(ip2GeoCachedDao, never()).getGeoData(anyString(), anyList(), any(ActionListener.class));
+    }
+
+    public void testDoExecute_whenNotAvailable_thenException() {
+        mockMetadata(DatasourceState.CREATING, Long.MAX_VALUE);
+        PlainActionFuture<LookupIpResponse> future = new PlainActionFuture<>();
+
+        // Run
+        action.doExecute(mock(Task.class), createRequest(Arrays.asList(randomIpAddress())), future);
+
+        // Verify
+        Exception e = expectThrows(IllegalStateException.class, future::actionGet);
+        assertTrue(e.getMessage().contains("available state"));
+    }
+
+    public void testDoExecute_whenExpired_thenException() {
+        mockMetadata(DatasourceState.AVAILABLE, 0);
+        PlainActionFuture<LookupIpResponse> future = new PlainActionFuture<>();
+
+        // Run
+        action.doExecute(mock(Task.class), createRequest(Arrays.asList(randomIpAddress())), future);
+
+        // Verify
+        Exception e = expectThrows(IllegalStateException.class, future::actionGet);
+        assertTrue(e.getMessage().contains("expired"));
+    }
+
+    public void testDoExecute_whenLookupFailed_thenException() {
+        mockMetadata(DatasourceState.AVAILABLE, Long.MAX_VALUE);
+        doAnswer(invocation -> {
+            invocation.<ActionListener<List<Map<String, Object>>>>getArgument(2).onFailure(new RuntimeException("failed"));
+            return null;
+        }).when(ip2GeoCachedDao).getGeoData(eq(indexName), anyList(), any(ActionListener.class));
+        PlainActionFuture<LookupIpResponse> future = new PlainActionFuture<>();
+
+        // Run
+        action.doExecute(mock(Task.class), createRequest(Arrays.asList(randomIpAddress())), future);
+
+        // Verify
+        Exception e = expectThrows(RuntimeException.class, future::actionGet);
+        assertEquals("failed", e.getMessage());
+    }
+
+    private LookupIpRequest createRequest(final List<String> ips) {
+        LookupIpRequest request = new LookupIpRequest(datasourceName);
+        request.setIps(ips);
+        return request;
+    }
+
+    private void mockMetadata(final DatasourceState state, final long expirationTimeInMillis) {
+        when(ip2GeoCachedDao.getDatasourceMetadata(datasourceName)).thenReturn(
+            new DatasourceMetadata(indexName, expirationTimeInMillis, state, Arrays.asList("country_name", "city"))
+        );
+    }
+
+    /**
+     * Ips in 1.0.0.0/16 have geo data and the others do not
+     */
+    private void mockGeoData() {
+        doAnswer(invocation -> {
+            List<String> ips = invocation.getArgument(1);
+            List<Map<String, Object>> geoData = ips.stream()
+                .map(ip -> ip.startsWith("1.0.") ? GEO_DATA : Collections.<String, Object>emptyMap())
+                .collect(Collectors.toList());
+            invocation.<ActionListener<List<Map<String, Object>>>>getArgument(2).onResponse(geoData);
+            return null;
+        }).when(ip2GeoCachedDao).getGeoData(eq(indexName), anyList(), any(ActionListener.class));
+    }
+}
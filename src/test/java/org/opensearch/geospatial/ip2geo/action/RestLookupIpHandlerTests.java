@@ -0,0 +1,81 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.ip2geo.action;
+
+import static org.opensearch.geospatial.shared.URLBuilder.URL_DELIMITER;
+import static org.opensearch.geospatial.shared.URLBuilder.getPluginURLPrefix;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Before;
+import org.opensearch.common.xcontent.XContentType;
+import org.opensearch.core.common.bytes.BytesArray;
+import org.opensearch.geospatial.GeospatialTestHelper;
+import org.opensearch.rest.RestRequest;
+import org.opensearch.test.rest.FakeRestRequest;
+import org.opensearch.test.rest.RestActionTestCase;
+
+import lombok.SneakyThrows;
+
+public class RestLookupIpHandlerTests extends RestActionTestCase {
+    private String path;
+    private RestLookupIpHandler handler;
+
+    @Before
+    public void setupAction() {
+        handler = new RestLookupIpHandler();
+        controller().registerHandler(handler);
+        path = String.join(URL_DELIMITER, getPluginURLPrefix(), "ip2geo/%s/_lookup");
+    }
+
+    @SneakyThrows
+    public void testPrepareRequest_whenValidInput_thenSucceed() {
+        String datasourceName = GeospatialTestHelper.randomLowerCaseString();
+        String content = "{\"ips\":[\"1.0.0.1\",\"10.0.0.1\"],\"properties\":[\"country_name\"]}";
+        RestRequest request = new FakeRestRequest.Builder(xContentRegistry()).withMethod(RestRequest.Method.POST)
+            .withPath(String.format(Locale.ROOT, path, datasourceName))
+            .withContent(new BytesArray(content), XContentType.JSON)
+            .build();
+        AtomicBoolean isExecuted = new AtomicBoolean(false);
+
+        verifyingClient.setExecuteLocallyVerifier((actionResponse, actionRequest) -> {
+            assertTrue(actionRequest instanceof LookupIpRequest);
+            LookupIpRequest lookupIpRequest = (LookupIpRequest) actionRequest;
+            assertEquals(datasourceName, lookupIpRequest.getName());
+            assertEquals(Arrays.asList("1.0.0.1", "10.0.0.1"), lookupIpRequest.getIps());
+            assertEquals(Arrays.asList("country_name"), lookupIpRequest.getProperties());
+            isExecuted.set(true);
+            return null;
+        });
+
+        dispatchRequest(request);
+        assertTrue(isExecuted.get());
+    }
+
+    @SneakyThrows
+    public void testPrepareRequest_whenNoProperties_thenNull() {
+        String datasourceName = GeospatialTestHelper.randomLowerCaseString();
+        String content = "{\"ips\":[\"1.0.0.1\"]}";
+        RestRequest request = new FakeRestRequest.Builder(xContentRegistry()).withMethod(RestRequest.Method.POST)
+            .withPath(String.format(Locale.ROOT, path, datasourceName))
+            .withContent(new BytesArray(content), XContentType.JSON)
+            .build();
+        AtomicBoolean isExecuted = new AtomicBoolean(false);
+
+        verifyingClient.setExecuteLocallyVerifier((actionResponse, actionRequest) -> {
+            LookupIpRequest lookupIpRequest = (LookupIpRequest) actionRequest;
+            assertEquals(Arrays.asList("1.0.0.1"), lookupIpRequest.getIps());
+            assertNull(lookupIpRequest.getProperties());
+            isExecuted.set(true);
+            return null;
+        });
+
+        dispatchRequest(request);
+        assertTrue(isExecuted.get());
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.ip2geo.action;
+
+import java.util.Arrays;
+
+import org.opensearch.common.io.stream.BytesStreamOutput;
+import org.opensearch.core.common.io.stream.BytesStreamInput;
+import org.opensearch.geospatial.GeospatialTestHelper;
+import org.opensearch.geospatial.ip2geo.Ip2GeoTestCase;
+
+public class WarmUpCacheRequestTests extends Ip2GeoTestCase {
+    public void testStreamInOut_whenValidInput_thenSucceed() throws Exception {
+        WarmUpCacheRequest request = new WarmUpCacheRequest(
+            GeospatialTestHelper.randomLowerCaseString(),
+            GeospatialTestHelper.randomLowerCaseString(),
+            Arrays.asList("country", "city")
+        );
+
+        // Run
+        BytesStreamOutput output = new BytesStreamOutput();
+        request.writeTo(output);
+        BytesStreamInput input = new BytesStreamInput(output.bytes().toBytesRef().bytes);
+        WarmUpCacheRequest copiedRequest = new WarmUpCacheRequest(input);
+
+        // Verify
+        assertEquals(request.getName(), copiedRequest.getName());
+        assertEquals(request.getIndexName(), copiedRequest.getIndexName());
+        assertEquals(request.getFields(), copiedRequest.getFields());
+    }
+
+    public void testStreamInOut_whenNullFields_thenSucceed() throws Exception {
+        WarmUpCacheRequest request = new WarmUpCacheRequest(
+            GeospatialTestHelper.randomLowerCaseString(),
+            GeospatialTestHelper.randomLowerCaseString(),
+            null
+        );
+
+        // Run
+        BytesStreamOutput output = new BytesStreamOutput();
+        request.writeTo(output);
+        BytesStreamInput input = new BytesStreamInput(output.bytes().toBytesRef().bytes);
+        WarmUpCacheRequest copiedRequest = new WarmUpCacheRequest(input);
+
+        // Verify
+        assertNull(copiedRequest.getFields());
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.ip2geo.action;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verify;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.opensearch.core.action.ActionListener;
+import org.opensearch.geospatial.GeospatialTestHelper;
+import org.opensearch.geospatial.ip2geo.Ip2GeoTestCase;
+
+public class WarmUpCacheTransportActionTests extends Ip2GeoTestCase {
+    private WarmUpCacheTransportAction action;
+
+    @Before
+    public void init() {
+        action = new WarmUpCacheTransportAction(transportService, clusterService, threadPool, actionFilters, ip2GeoCachedDao);
+    }
+
+    public void testNodeOperation_whenCalled_thenWarmUpCache() {
+        String datasourceName = GeospatialTestHelper.randomLowerCaseString();
+        String indexName = GeospatialTestHelper.randomLowerCaseString();
+        List<String> fields = Arrays.asList("country", "city");
+        doAnswer(invocation -> {
+            invocation.<ActionListener<Integer>>getArgument(3).onResponse(5);
+            return null;
+        }).when(ip2GeoCachedDao).warmUp(eq(datasourceName), eq(indexName), eq(fields), any(ActionListener.class));
+
+        // Run
+        WarmUpCacheNodeResponse response = action.nodeOperation(
+            new WarmUpCacheNodeRequest(new WarmUpCacheRequest(datasourceName, indexName, fields))
+        );
+
+        // Verify
+        verify(ip2GeoCachedDao).warmUp(eq(datasourceName), eq(indexName), eq(fields), any(ActionListener.class));
+        assertEquals(5, response.getWarmedUpCount());
+    }
+}
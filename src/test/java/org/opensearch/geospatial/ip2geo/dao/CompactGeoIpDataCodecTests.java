@@ -0,0 +1,104 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.ip2geo.dao;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Map;
+
+import org.apache.lucene.store.OutputStreamDataOutput;
+import org.apache.lucene.util.BytesRef;
+import org.opensearch.OpenSearchException;
+import org.opensearch.common.xcontent.XContentHelper;
+import org.opensearch.common.xcontent.XContentType;
+import org.opensearch.core.common.bytes.BytesReference;
+import org.opensearch.geospatial.ip2geo.Ip2GeoTestCase;
+
+import lombok.SneakyThrows;
+
+public class CompactGeoIpDataCodecTests extends Ip2GeoTestCase {
+    private final CompactGeoIpDataCodec codec = new CompactGeoIpDataCodec(Arrays.asList("country", "city"));
+
+    @SneakyThrows
+    public void testCreateDocument_whenIpv4Cidr_thenFirstAndLastIp() {
+        Map<String, Object> document = createDocument("1.0.0.0/22", "USA", "Seattle");
+
+        assertEquals("1.0.0.0", document.get(CompactGeoIpDataCodec.START_FIELD_NAME));
+        assertEquals("1.0.3.255", document.get(CompactGeoIpDataCodec.END_FIELD_NAME));
+        assertEquals(
+            new GeoIpRange("1.0.0.0/22", Map.of("country", "USA", "city", "Seattle")),
+            codec.decode(Base64.getDecoder().decode((String) document.get(GeoIpDataDao.DATA_FIELD_NAME)))
+        );
+    }
+
+    @SneakyThrows
+    public void testCreateDocument_whenIpv6Cidr_thenFirstAndLastIp() {
+        Map<String, Object> document = createDocument("a:b::/32", "Canada", "Vancouver");
+
+        assertEquals("a:b::", document.get(CompactGeoIpDataCodec.START_FIELD_NAME));
+        assertEquals("a:b:ffff:ffff:ffff:ffff:ffff:ffff", document.get(CompactGeoIpDataCodec.END_FIELD_NAME));
+    }
+
+    @SneakyThrows
+    public void testCreateDocument_whenSingleIp_thenSameFirstAndLastIp() {
+        Map<String, Object> document = createDocument("1.0.0.1", "USA", "Seattle");
+
+        assertEquals("1.0.0.1", document.get(CompactGeoIpDataCodec.START_FIELD_NAME));
+        assertEquals("1.0.0.1", document.get(CompactGeoIpDataCodec.END_FIELD_NAME));
+    }
+
+    @SneakyThrows
+    public void testCreateDocument_whenBlankValue_thenSkipField() {
+        Map<String, Object> document = createDocument("1.0.0.0/24", "USA", " ");
+
+        assertEquals(
+            new GeoIpRange("1.0.0.0/24", Map.of("country", "USA")),
+            codec.decode(Base64.getDecoder().decode((String) document.get(GeoIpDataDao.DATA_FIELD_NAME)))
+        );
+    }
+
+    @SneakyThrows
+    public void testCreateDocument_whenBlockId_thenAddBlockId() {
+        BytesReference document = BytesReference.bytes(codec.createDocument(new String[] { "1.0.0.0/24", "USA", "Seattle" }, "00ff"));
+
+        Map<String, Object> source = XContentHelper.convertToMap(document, false, XContentType.JSON).v2();
+        assertEquals("00ff", source.get(GeoIpDataDao.BLOCK_FIELD_NAME));
+        assertNull(createDocument("1.0.0.0/24", "USA", "Seattle").get(GeoIpDataDao.BLOCK_FIELD_NAME));
+    }
+
+    public void testCreateDocument_whenLengthMismatch_thenException() {
+        expectThrows(OpenSearchException.class, () -> codec.createDocument(new String[] { "1.0.0.0/24", "USA" }));
+    }
+
+    @SneakyThrows
+    public void testDecodeDocValue_whenBinaryDocValue_thenDecode() {
+        Map<String, Object> document = createDocument("1.0.0.0/24", "USA", "Seattle");
+        byte[] encoded = Base64.getDecoder().decode((String) document.get(GeoIpDataDao.DATA_FIELD_NAME));
+        ByteArrayOutputStream docValue = new ByteArrayOutputStream();
+        // Bytes before and after the doc value to verify the offset and length are used
+        docValue.write(new byte[] { 1, 2, 3 });
+        try (OutputStreamDataOutput out = new OutputStreamDataOutput(docValue)) {
+            out.writeVInt(1);
+            out.writeVInt(encoded.length);
+            out.writeBytes(encoded, encoded.length);
+            out.writeByte((byte) 4);
+        }
+        byte[] bytes = docValue.toByteArray();
+
+        // Run
+        GeoIpRange range = codec.decodeDocValue(new BytesRef(bytes, 3, bytes.length - 4));
+
+        // Verify
+        assertEquals(new GeoIpRange("1.0.0.0/24", Map.of("country", "USA", "city", "Seattle")), range);
+    }
+
+    @SneakyThrows
+    private Map<String, Object> createDocument(final String... values) {
+        BytesReference document = BytesReference.bytes(codec.createDocument(values));
+        return XContentHelper.convertToMap(document, false, XContentType.JSON).v2();
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.ip2geo.dao;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+import org.opensearch.geospatial.ip2geo.Ip2GeoTestCase;
+import org.opensearch.geospatial.ip2geo.common.DatasourceState;
+import org.opensearch.geospatial.ip2geo.jobscheduler.Datasource;
+
+public class DatasourceMetadataTests extends Ip2GeoTestCase {
+    public void testNew_whenDatasource_thenCopyMetadata() {
+        Datasource datasource = randomDatasource();
+
+        // Run
+        DatasourceMetadata metadata = new DatasourceMetadata(datasource);
+
+        // Verify
+        assertEquals(datasource.currentIndexName(), metadata.getIndexName());
+        assertEquals(datasource.getState(), metadata.getState());
+        assertEquals(datasource.getDatabase().getFields(), metadata.getFields());
+        assertEquals(datasource.expirationDay().toEpochMilli(), metadata.getExpirationTimeInMillis());
+    }
+
+    public void testNew_whenNoExpiration_thenNeverExpire() {
+        Datasource datasource = randomDatasource();
+        datasource.getDatabase().setValidForInDays(null);
+
+        // Run
+        DatasourceMetadata metadata = new DatasourceMetadata(datasource);
+
+        // Verify
+        assertEquals(Long.MAX_VALUE, metadata.getExpirationTimeInMillis());
+        assertFalse(metadata.isExpired());
+    }
+
+    public void testIsExpired_whenDeadlinePassed_thenReturnTrue() {
+        long deadline = Instant.now().minus(1, ChronoUnit.MINUTES).toEpochMilli();
+
+        assertTrue(new DatasourceMetadata(null, deadline, DatasourceState.AVAILABLE, null).isExpired());
+    }
+
+    public void testIsExpired_whenDeadlineNotPassed_thenReturnFalse() {
+        long deadline = Instant.now().plus(1, ChronoUnit.MINUTES).toEpochMilli();
+
+        assertFalse(new DatasourceMetadata(null, deadline, DatasourceState.AVAILABLE, null).isExpired());
+    }
+}
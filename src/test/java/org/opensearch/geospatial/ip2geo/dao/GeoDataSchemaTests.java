@@ -0,0 +1,61 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.ip2geo.dao;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.opensearch.test.OpenSearchTestCase;
+
+public class GeoDataSchemaTests extends OpenSearchTestCase {
+    private final GeoDataSchema schema = new GeoDataSchema(Arrays.asList("country", "city", "time_zone"));
+
+    public void testToRecord_whenFieldsInSchema_thenReturnRecord() {
+        Map<String, Object> geoData = Map.of("country", "USA", "time_zone", "America/Los_Angeles");
+
+        Map<String, Object> record = schema.toRecord(geoData);
+
+        assertTrue(record instanceof GeoDataRecord);
+        assertEquals(geoData, record);
+        assertEquals(geoData.hashCode(), record.hashCode());
+        assertEquals(2, record.size());
+        assertFalse(record.containsKey("city"));
+        assertNull(record.get("city"));
+    }
+
+    public void testToRecord_whenSameValue_thenShareInstance() {
+        Map<String, Object> geoData = new HashMap<>();
+        geoData.put("country", new String("USA"));
+        Map<String, Object> otherGeoData = new HashMap<>();
+        otherGeoData.put("country", new String("USA"));
+
+        assertSame(schema.toRecord(geoData).get("country"), schema.toRecord(otherGeoData).get("country"));
+    }
+
+    public void testToRecord_whenFieldNotInSchema_thenReturnAsItIs() {
+        Map<String, Object> geoData = Map.of("country", "USA", "isp", "Example");
+
+        assertSame(geoData, schema.toRecord(geoData));
+    }
+
+    public void testProject_whenCalled_thenReturnMutableMapOfFields() {
+        GeoDataRecord record = (GeoDataRecord) schema.toRecord(Map.of("country", "USA", "city", "Seattle"));
+
+        Map<String, Object> projected = record.project(schema.indicesOf(Set.of("city", "time_zone", "isp")));
+        projected.put("extra", "value");
+
+        assertEquals(Map.of("city", "Seattle", "extra", "value"), projected);
+        assertEquals(Map.of("country", "USA", "city", "Seattle"), record.project(schema.indicesOf(null)));
+    }
+
+    public void testRecord_whenModified_thenException() {
+        Map<String, Object> record = schema.toRecord(Map.of("country", "USA"));
+
+        expectThrows(UnsupportedOperationException.class, () -> record.put("city", "Seattle"));
+    }
+}
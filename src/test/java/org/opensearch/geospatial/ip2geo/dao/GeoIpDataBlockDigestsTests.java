@@ -0,0 +1,113 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.ip2geo.dao;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.commons.csv.CSVRecord;
+import org.opensearch.geospatial.ip2geo.Ip2GeoTestCase;
+
+import lombok.SneakyThrows;
+
+public class GeoIpDataBlockDigestsTests extends Ip2GeoTestCase {
+    private static final String[] FIELDS = { "network", "country", "city" };
+    private static final int ROWS = 10000;
+
+    public void testSplit_whenRowChanged_thenOnlyItsBlockChanged() {
+        List<CSVRecord> records = records();
+        GeoIpDataBlockDigests digests = split(records);
+        records.set(ROWS / 2, GeoIpDataDocumentEncoderTests.toRecord(network(ROWS / 2), "USA", "Tacoma"));
+
+        // Run
+        GeoIpDataBlockDigests changed = split(records);
+
+        // Verify
+        assertTrue(digests.size() > 1);
+        assertEquals(1, digests.idsNotIn(changed).size());
+        assertEquals(1, changed.idsNotIn(digests).size());
+    }
+
+    public void testSplit_whenRowAdded_thenOnlyItsBlockChanged() {
+        List<CSVRecord> records = records();
+        GeoIpDataBlockDigests digests = split(records);
+        records.add(ROWS / 2, GeoIpDataDocumentEncoderTests.toRecord("255.0.0.0/24", "USA", "Tacoma"));
+
+        // Run
+        GeoIpDataBlockDigests changed = split(records);
+
+        // Verify
+        assertEquals(1, digests.idsNotIn(changed).size());
+        assertTrue(changed.idsNotIn(digests).size() <= 2);
+    }
+
+    public void testSplit_whenSameRows_thenSameDigests() {
+        GeoIpDataBlockDigests digests = split(records());
+
+        // Run
+        GeoIpDataBlockDigests same = split(records());
+
+        // Verify
+        assertEquals(digests.size(), same.size());
+        assertTrue(digests.idsNotIn(same).isEmpty());
+    }
+
+    public void testSplit_whenDifferentFields_thenDifferentDigests() {
+        GeoIpDataBlockDigests digests = split(records());
+
+        // Run
+        GeoIpDataBlockDigests other = split(new String[] { "network", "country", "town" }, records());
+
+        // Verify
+        assertEquals(digests.size(), other.size());
+        assertEquals(digests.size(), digests.idsNotIn(other).size());
+    }
+
+    public void testToId_whenCalled_thenSixteenHexDigits() {
+        assertEquals("00000000000000ff", GeoIpDataBlockDigests.toId(255));
+        assertEquals("ffffffffffffffff", GeoIpDataBlockDigests.toId(-1));
+    }
+
+    @SneakyThrows
+    public void testToBytes_whenFromBytes_thenSameDigests() {
+        GeoIpDataBlockDigests digests = split(records());
+
+        // Run
+        GeoIpDataBlockDigests copy = GeoIpDataBlockDigests.fromBytes(digests.toBytes());
+
+        // Verify
+        assertEquals(digests.size(), copy.size());
+        assertTrue(digests.idsNotIn(copy).isEmpty());
+        assertTrue(copy.idsNotIn(digests).isEmpty());
+    }
+
+    private List<CSVRecord> records() {
+        List<CSVRecord> records = new ArrayList<>(ROWS + 1);
+        for (int i = 0; i < ROWS; i++) {
+            records.add(GeoIpDataDocumentEncoderTests.toRecord(network(i), "USA", "Seattle " + i));
+        }
+        return records;
+    }
+
+    private String network(final int i) {
+        return String.format(Locale.ROOT, "%d.%d.%d.0/24", 1 + i / 65536, (i / 256) % 256, i % 256);
+    }
+
+    private GeoIpDataBlockDigests split(final List<CSVRecord> records) {
+        return split(FIELDS, records);
+    }
+
+    private GeoIpDataBlockDigests split(final String[] fields, final List<CSVRecord> records) {
+        GeoIpDataBlockDigests.Splitter splitter = new GeoIpDataBlockDigests.Splitter(fields);
+        for (int i = 0; i < records.size(); i++) {
+            if (splitter.add(records.get(i)) || i == records.size() - 1) {
+                splitter.finishBlock();
+            }
+        }
+        return splitter.digests();
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.ip2geo.dao;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.opensearch.OpenSearchException;
+import org.opensearch.action.bulk.BulkRequest;
+import org.opensearch.action.bulk.BulkResponse;
+import org.opensearch.client.Client;
+import org.opensearch.common.unit.TimeValue;
+import org.opensearch.core.action.ActionListener;
+import org.opensearch.geospatial.GeospatialTestHelper;
+import org.opensearch.geospatial.ip2geo.Ip2GeoTestCase;
+
+public class GeoIpDataBulkIngesterTests extends Ip2GeoTestCase {
+    private static final TimeValue SHORT_TIMEOUT = TimeValue.timeValueMillis(10);
+
+    public void testSubmit_whenAllSucceed_thenComplete() {
+        AtomicInteger count = new AtomicInteger();
+        verifyingClient.setExecuteVerifier((actionResponse, actionRequest) -> {
+            assertTrue(actionRequest instanceof BulkRequest);
+            count.incrementAndGet();
+            return bulkResponse(false);
+        });
+        GeoIpDataBulkIngester ingester = new GeoIpDataBulkIngester(
+            verifyingClient,
+            GeospatialTestHelper.randomLowerCaseString(),
+            2,
+            TimeValue.timeValueSeconds(30)
+        );
+
+        // Run
+        for (int i = 0; i < 5; i++) {
+            ingester.submit(new BulkRequest());
+        }
+        ingester.awaitCompletion();
+
+        // Verify
+        assertEquals(5, count.get());
+    }
+
+    public void testSubmit_whenMaxRequestsInFlight_thenWaitForOneToComplete() {
+        List<ActionListener<BulkResponse>> listeners = new ArrayList<>();
+        Client client = holdingClient(listeners);
+        GeoIpDataBulkIngester ingester = new GeoIpDataBulkIngester(client, GeospatialTestHelper.randomLowerCaseString(), 2, SHORT_TIMEOUT);
+        ingester.submit(new BulkRequest());
+        ingester.submit(new BulkRequest());
+
+        // Run
+        OpenSearchException exception = expectThrows(OpenSearchException.class, () -> ingester.submit(new BulkRequest()));
+
+        // Verify
+        assertTrue(exception.getMessage().contains("timed out"));
+        assertEquals(2, listeners.size());
+
+        // Run
+        listeners.get(0).onResponse(bulkResponse(false));
+        ingester.submit(new BulkRequest());
+        expectThrows(OpenSearchException.class, ingester::awaitCompletion);
+        listeners.get(1).onResponse(bulkResponse(false));
+        listeners.get(2).onResponse(bulkResponse(false));
+
+        // Verify
+        assertEquals(3, listeners.size());
+        ingester.awaitCompletion();
+    }
+
+    public void testSubmit_whenFailed_thenStopAndAggregateFailures() {
+        List<ActionListener<BulkResponse>> listeners = new ArrayList<>();
+        Client client = holdingClient(listeners);
+        GeoIpDataBulkIngester ingester = new GeoIpDataBulkIngester(client, GeospatialTestHelper.randomLowerCaseString(), 2, SHORT_TIMEOUT);
+        ingester.submit(new BulkRequest());
+        ingester.submit(new BulkRequest());
+
+        // Run
+        listeners.get(0).onResponse(bulkResponse(true));
+        listeners.get(1).onFailure(new RuntimeException("failed"));
+
+        // Verify
+        OpenSearchException exception = expectThrows(OpenSearchException.class, () -> ingester.submit(new BulkRequest()));
+        assertTrue(exception.getMessage().contains("error occurred while ingesting GeoIP data"));
+        assertEquals(1, exception.getSuppressed().length);
+        assertEquals(2, listeners.size());
+        assertSame(exception, expectThrows(OpenSearchException.class, ingester::awaitCompletion));
+    }
+
+    public void testSubmit_whenClientThrows_thenReleaseAndFail() {
+        verifyingClient.setExecuteVerifier((actionResponse, actionRequest) -> { throw new RuntimeException("failed"); });
+        GeoIpDataBulkIngester ingester = new GeoIpDataBulkIngester(
+            verifyingClient,
+            GeospatialTestHelper.randomLowerCaseString(),
+            1,
+            SHORT_TIMEOUT
+        );
+
+        // Run
+        ingester.submit(new BulkRequest());
+
+        // Verify
+        OpenSearchException exception = expectThrows(OpenSearchException.class, ingester::awaitCompletion);
+        assertTrue(exception.getMessage().contains("error occurred while ingesting GeoIP data"));
+    }
+
+    public void testCommittedRows_whenCompletedOutOfOrder_thenCountRowsOfLeadingSucceededRequests() {
+        List<ActionListener<BulkResponse>> listeners = new ArrayList<>();
+        Client client = holdingClient(listeners);
+        GeoIpDataBulkIngester ingester = new GeoIpDataBulkIngester(client, GeospatialTestHelper.randomLowerCaseString(), 3, SHORT_TIMEOUT);
+        ingester.submit(new BulkRequest(), 10);
+        ingester.submit(new BulkRequest(), 20);
+        ingester.submit(new BulkRequest(), 30);
+
+        // Run
+        listeners.get(1).onResponse(bulkResponse(false));
+
+        // Verify
+        assertEquals(0, ingester.committedRows());
+
+        // Run
+        listeners.get(0).onResponse(bulkResponse(false));
+
+        // Verify
+        assertEquals(20, ingester.committedRows());
+
+        // Run
+        listeners.get(2).onResponse(bulkResponse(false));
+
+        // Verify
+        assertEquals(30, ingester.committedRows());
+    }
+
+    public void testCommittedRows_whenFailed_thenDoNotCountRowsOfFailedRequest() {
+        List<ActionListener<BulkResponse>> listeners = new ArrayList<>();
+        Client client = holdingClient(listeners);
+        GeoIpDataBulkIngester ingester = new GeoIpDataBulkIngester(client, GeospatialTestHelper.randomLowerCaseString(), 2, SHORT_TIMEOUT);
+        ingester.submit(new BulkRequest(), 10);
+        ingester.submit(new BulkRequest(), 20);
+
+        // Run
+        listeners.get(0).onResponse(bulkResponse(false));
+        listeners.get(1).onResponse(bulkResponse(true));
+
+        // Verify
+        assertEquals(10, ingester.committedRows());
+        expectThrows(OpenSearchException.class, ingester::awaitCompletion);
+    }
+
+    private Client holdingClient(final List<ActionListener<BulkResponse>> listeners) {
+        Client client = mock(Client.class);
+        when(client.threadPool()).thenReturn(verifyingClient.threadPool());
+        doAnswer(invocation -> {
+            listeners.add(invocation.getArgument(1));
+            return null;
+        }).when(client).bulk(any(BulkRequest.class), any(ActionListener.class));
+        return client;
+    }
+
+    private BulkResponse bulkResponse(final boolean hasFailures) {
+        BulkResponse response = mock(BulkResponse.class);
+        when(response.hasFailures()).thenReturn(hasFailures);
+        when(response.buildFailureMessage()).thenReturn("failure");
+        return response;
+    }
+}
@@ -19,9 +19,16 @@ import java.net.URLConnection;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVParser;
@@ -29,24 +36,55 @@ import org.apache.commons.csv.CSVRecord;
 import org.apache.lucene.search.TotalHits;
 import org.junit.Before;
 import org.opensearch.OpenSearchException;
+import org.opensearch.action.ActionRequest;
+import org.opensearch.action.DocWriteRequest;
 import org.opensearch.action.admin.indices.create.CreateIndexRequest;
 import org.opensearch.action.admin.indices.delete.DeleteIndexRequest;
 import org.opensearch.action.admin.indices.forcemerge.ForceMergeRequest;
 import org.opensearch.action.admin.indices.refresh.RefreshRequest;
 import org.opensearch.action.admin.indices.settings.put.UpdateSettingsRequest;
+import org.opensearch.action.admin.indices.shrink.ResizeRequest;
+import org.opensearch.action.admin.indices.shrink.ResizeType;
 import org.opensearch.action.bulk.BulkRequest;
 import org.opensearch.action.bulk.BulkResponse;
+import org.opensearch.action.delete.DeleteRequest;
+import org.opensearch.action.get.GetRequest;
+import org.opensearch.action.get.GetResponse;
+import org.opensearch.action.index.IndexRequest;
+import org.opensearch.action.search.ClearScrollRequest;
+import org.opensearch.action.search.MultiSearchRequest;
+import org.opensearch.action.search.MultiSearchResponse;
 import org.opensearch.action.search.SearchRequest;
 import org.opensearch.action.search.SearchResponse;
+import org.opensearch.action.search.SearchScrollRequest;
+import org.opensearch.action.support.PlainActionFuture;
 import org.opensearch.action.support.master.AcknowledgedResponse;
+import org.opensearch.cluster.metadata.IndexMetadata;
+import org.opensearch.cluster.metadata.MappingMetadata;
+import org.opensearch.cluster.node.DiscoveryNode;
+import org.opensearch.cluster.routing.IndexRoutingTable;
+import org.opensearch.cluster.routing.IndexShardRoutingTable;
 import org.opensearch.cluster.routing.Preference;
+import org.opensearch.cluster.routing.ShardRouting;
+import org.opensearch.cluster.routing.ShardRoutingState;
 import org.opensearch.common.SuppressForbidden;
+import org.opensearch.common.document.DocumentField;
+import org.opensearch.common.settings.Settings;
+import org.opensearch.common.xcontent.XContentHelper;
+import org.opensearch.common.xcontent.XContentType;
+import org.opensearch.core.common.bytes.BytesArray;
 import org.opensearch.core.common.bytes.BytesReference;
+import org.opensearch.core.index.shard.ShardId;
 import org.opensearch.geospatial.GeospatialTestHelper;
 import org.opensearch.geospatial.ip2geo.Ip2GeoTestCase;
+import org.opensearch.geospatial.ip2geo.action.LookupGeoIpDataRequest;
+import org.opensearch.geospatial.ip2geo.action.LookupGeoIpDataResponse;
 import org.opensearch.geospatial.ip2geo.common.DatasourceManifest;
+import org.opensearch.geospatial.ip2geo.common.Ip2GeoSettings;
+import org.opensearch.geospatial.ip2geo.lookup.GeoIpCoverageFilter;
 import org.opensearch.geospatial.shared.Constants;
 import org.opensearch.index.query.QueryBuilders;
+import org.opensearch.index.shard.ShardNotFoundException;
 import org.opensearch.search.SearchHit;
 import org.opensearch.search.SearchHits;
 
@@ -86,7 +124,37 @@ public class GeoIpDataDaoTests extends Ip2GeoTestCase {
             assertEquals(true, request.settings().getAsBoolean("index.hidden", false));
 
             assertEquals(
-                "{\"dynamic\": false,\"properties\": {\"_cidr\": {\"type\": \"ip_range\",\"doc_values\": false}}}",
+                "{\"dynamic\": false,\"properties\": {\"_cidr\": {\"type\": \"ip_range\",\"doc_values\": false},"
+                    + "\"_coverage\": {\"type\": \"binary\",\"store\": true},"
+                    + "\"_block\": {\"type\": \"keyword\",\"doc_values\": false},"
+                    + "\"_blocks\": {\"type\": \"binary\",\"store\": true}}}",
+                request.mappings()
+            );
+            return null;
+        });
+        verifyingGeoIpDataDao.createIndexIfNotExists(index);
+    }
+
+    public void testCreateIndexIfNotExists_whenCompactIndexEnabled_thenCreateCompactIndex() {
+        clusterSettings.applySettings(Settings.builder().put(Ip2GeoSettings.COMPACT_INDEX_ENABLED.getKey(), true).build());
+        String index = GeospatialTestHelper.randomLowerCaseString();
+        when(metadata.hasIndex(index)).thenReturn(false);
+        verifyingClient.setExecuteVerifier((actionResponse, actionRequest) -> {
+            assertTrue(actionRequest instanceof CreateIndexRequest);
+            CreateIndexRequest request = (CreateIndexRequest) actionRequest;
+            assertEquals(index, request.index());
+            assertEquals(1, (int) request.settings().getAsInt("index.number_of_shards", 0));
+            assertEquals(true, request.settings().getAsBoolean("index.hidden", false));
+            assertEquals("_start", request.settings().get("index.sort.field"));
+            assertEquals("asc", request.settings().get("index.sort.order"));
+
+            assertEquals(
+                "{\"dynamic\": false,\"_source\": {\"enabled\": false},\"_meta\": {\"layout\": \"compact\"},"
+                    + "\"properties\": {\"_start\": {\"type\": \"ip\"},\"_end\": {\"type\": \"ip\"},"
+                    + "\"_data\": {\"type\": \"binary\",\"doc_values\": true},"
+                    + "\"_coverage\": {\"type\": \"binary\",\"store\": true},"
+                    + "\"_block\": {\"type\": \"keyword\",\"doc_values\": false},"
+                    + "\"_blocks\": {\"type\": \"binary\",\"store\": true}}}",
                 request.mappings()
             );
             return null;
@@ -197,6 +265,14 @@ public class GeoIpDataDaoTests extends Ip2GeoTestCase {
             if (actionRequest instanceof BulkRequest) {
                 BulkRequest request = (BulkRequest) actionRequest;
                 assertEquals(2, request.numberOfActions());
+                for (DocWriteRequest<?> docWriteRequest : request.requests()) {
+                    Map<String, Object> source = XContentHelper.convertToMap(
+                        ((IndexRequest) docWriteRequest).source(),
+                        false,
+                        XContentType.JSON
+                    ).v2();
+                    assertNotNull(source.get("_block"));
+                }
                 BulkResponse response = mock(BulkResponse.class);
                 when(response.hasFailures()).thenReturn(false);
                 return response;
@@ -211,6 +287,19 @@ public class GeoIpDataDaoTests extends Ip2GeoTestCase {
                 assertEquals(index, request.indices()[0]);
                 assertEquals(1, request.maxNumSegments());
                 return null;
+            } else if (actionRequest instanceof IndexRequest) {
+                IndexRequest request = (IndexRequest) actionRequest;
+                assertEquals(index, request.index());
+                if ("block_digests".equals(request.id())) {
+                    assertTrue(decodeBlockDigests(request.source()).size() > 0);
+                    return null;
+                }
+                assertEquals("coverage_filter", request.id());
+                GeoIpCoverageFilter filter = decodeCoverageFilter(request.source());
+                assertTrue(filter.mightContain("1.0.0.1"));
+                assertTrue(filter.mightContain("10.0.0.1"));
+                assertFalse(filter.mightContain("2.0.0.1"));
+                return null;
             } else if (actionRequest instanceof UpdateSettingsRequest) {
                 UpdateSettingsRequest request = (UpdateSettingsRequest) actionRequest;
                 assertEquals(1, request.indices().length);
@@ -232,6 +321,69 @@ public class GeoIpDataDaoTests extends Ip2GeoTestCase {
         }
     }
 
+    @SneakyThrows
+    public void testPutGeoIpData_whenStartRow_thenIndexRowsFromStartRowAndCheckpoint() {
+        clusterSettings.applySettings(Settings.builder().put(Ip2GeoSettings.BATCH_SIZE.getKey(), 1).build());
+        String index = GeospatialTestHelper.randomLowerCaseString();
+        List<String> indexedRanges = new ArrayList<>();
+        List<GeoIpCoverageFilter> filters = new ArrayList<>();
+        verifyingClient.setExecuteVerifier((actionResponse, actionRequest) -> {
+            if (actionRequest instanceof BulkRequest) {
+                for (DocWriteRequest<?> request : ((BulkRequest) actionRequest).requests()) {
+                    indexedRanges.add(request.id());
+                }
+                BulkResponse response = mock(BulkResponse.class);
+                when(response.hasFailures()).thenReturn(false);
+                return response;
+            } else if (actionRequest instanceof IndexRequest) {
+                IndexRequest request = (IndexRequest) actionRequest;
+                if ("coverage_filter".equals(request.id())) {
+                    filters.add(decodeCoverageFilter(request.source()));
+                }
+                return null;
+            } else if (actionRequest instanceof RefreshRequest
+                || actionRequest instanceof ForceMergeRequest
+                || actionRequest instanceof UpdateSettingsRequest) {
+                return null;
+            } else {
+                throw new RuntimeException("invalid request is called");
+            }
+        });
+        List<Long> checkpoints = new ArrayList<>();
+
+        // Run
+        verifyingGeoIpDataDao.putGeoIpData(
+            index,
+            new String[] { "network", "country_name" },
+            sampleRecords().iterator(),
+            mock(Runnable.class),
+            1,
+            checkpoints::add
+        );
+
+        // Verify
+        assertEquals(List.of("10.0.0.0/24"), indexedRanges);
+        assertEquals(List.of(2L), checkpoints);
+        assertEquals(1, filters.size());
+        assertTrue(filters.get(0).mightContain("1.0.0.1"));
+        assertTrue(filters.get(0).mightContain("10.0.0.1"));
+    }
+
+    public void testUnfreezeIndex_whenCalled_thenRemoveWriteBlock() {
+        String index = GeospatialTestHelper.randomLowerCaseString();
+        verifyingClient.setExecuteVerifier((actionResponse, actionRequest) -> {
+            assertTrue(actionRequest instanceof UpdateSettingsRequest);
+            UpdateSettingsRequest request = (UpdateSettingsRequest) actionRequest;
+            assertEquals(1, request.indices().length);
+            assertEquals(index, request.indices()[0]);
+            assertEquals(false, request.settings().getAsBoolean("index.blocks.write", true));
+            assertEquals("false", request.settings().get("index.auto_expand_replicas"));
+            return null;
+        });
+
+        verifyingGeoIpDataDao.unfreezeIndex(index);
+    }
+
     public void testGetGeoIpData_whenDataExist_thenReturnTheData() {
         String indexName = GeospatialTestHelper.randomLowerCaseString();
         String ip = randomIpAddress();
@@ -259,10 +411,13 @@ public class GeoIpDataDaoTests extends Ip2GeoTestCase {
         });
 
         // Run
-        Map<String, Object> geoData = verifyingGeoIpDataDao.getGeoIpData(indexName, ip);
+        PlainActionFuture<GeoIpRange> future = new PlainActionFuture<>();
+        verifyingGeoIpDataDao.getGeoIpData(indexName, ip, future);
+        GeoIpRange range = future.actionGet();
 
         // Verify
-        assertEquals("seattle", geoData.get("city"));
+        assertEquals("1.0.0.1/16", range.getCidr());
+        assertEquals("seattle", range.getData().get("city"));
     }
 
     public void testGetGeoIpData_whenNoData_thenReturnEmpty() {
@@ -284,9 +439,588 @@ public class GeoIpDataDaoTests extends Ip2GeoTestCase {
         });
 
         // Run
-        Map<String, Object> geoData = verifyingGeoIpDataDao.getGeoIpData(indexName, ip);
+        PlainActionFuture<GeoIpRange> future = new PlainActionFuture<>();
+        verifyingGeoIpDataDao.getGeoIpData(indexName, ip, future);
+        GeoIpRange range = future.actionGet();
+
+        // Verify
+        assertNull(range.getCidr());
+        assertTrue(range.getData().isEmpty());
+    }
+
+    @SneakyThrows
+    public void testGetGeoIpData_whenCompactLayout_thenDecodeDocValue() {
+        String indexName = GeospatialTestHelper.randomLowerCaseString();
+        String ip = randomIpAddress();
+        mockCompactLayout(indexName, Arrays.asList("country", "city"));
+        CompactGeoIpDataCodec codec = new CompactGeoIpDataCodec(Arrays.asList("country", "city"));
+        Map<String, Object> document = XContentHelper.convertToMap(
+            BytesReference.bytes(codec.createDocument(new String[] { "1.0.0.0/16", "USA", "Seattle" })),
+            false,
+            XContentType.JSON
+        ).v2();
+        verifyingClient.setExecuteVerifier((actionResponse, actionRequest) -> {
+            assert actionRequest instanceof SearchRequest;
+            SearchRequest request = (SearchRequest) actionRequest;
+            assertEquals(Preference.LOCAL.type(), request.preference());
+            assertEquals(1, request.source().size());
+            assertEquals(
+                QueryBuilders.boolQuery()
+                    .filter(QueryBuilders.rangeQuery("_start").lte(ip))
+                    .filter(QueryBuilders.rangeQuery("_end").gte(ip)),
+                request.source().query()
+            );
+            assertFalse(request.source().fetchSource().fetchSource());
+            assertEquals(DATA_FIELD_NAME, request.source().docValueFields().get(0).field);
+
+            DocumentField field = new DocumentField(DATA_FIELD_NAME, Arrays.asList(document.get(DATA_FIELD_NAME)));
+            SearchHit searchHit = new SearchHit(1, "1.0.0.0/16", Map.of(DATA_FIELD_NAME, field), Collections.emptyMap());
+            SearchHit[] searchHitArray = { searchHit };
+            SearchHits searchHits = new SearchHits(searchHitArray, new TotalHits(1l, TotalHits.Relation.EQUAL_TO), 1);
+
+            SearchResponse response = mock(SearchResponse.class);
+            when(response.getHits()).thenReturn(searchHits);
+            return response;
+        });
+
+        // Run
+        PlainActionFuture<GeoIpRange> future = new PlainActionFuture<>();
+        verifyingGeoIpDataDao.getGeoIpData(indexName, ip, future);
+
+        // Verify
+        assertEquals(new GeoIpRange("1.0.0.0/16", Map.of("country", "USA", "city", "Seattle")), future.actionGet());
+    }
+
+    public void testGetCompactCodec_whenCompactLayout_thenReturnCodec() {
+        String indexName = GeospatialTestHelper.randomLowerCaseString();
+        mockCompactLayout(indexName, Arrays.asList("country", "city"));
+
+        // Run
+        CompactGeoIpDataCodec codec = noOpsGeoIpDataDao.getCompactCodec(indexName);
+
+        // Verify
+        assertEquals(Arrays.asList("country", "city"), codec.getFields());
+        assertSame(codec, noOpsGeoIpDataDao.getCompactCodec(indexName));
+    }
+
+    public void testGetCompactCodec_whenDefaultLayout_thenReturnNull() {
+        String indexName = GeospatialTestHelper.randomLowerCaseString();
+        IndexMetadata indexMetadata = mock(IndexMetadata.class);
+        when(indexMetadata.mapping()).thenReturn(new MappingMetadata("_doc", Map.of("dynamic", false)));
+        when(metadata.index(indexName)).thenReturn(indexMetadata);
+
+        assertNull(noOpsGeoIpDataDao.getCompactCodec(indexName));
+    }
+
+    public void testGetCompactCodec_whenNoFieldsYet_thenReturnNull() {
+        String indexName = GeospatialTestHelper.randomLowerCaseString();
+        mockCompactLayout(indexName, null);
+
+        assertNull(noOpsGeoIpDataDao.getCompactCodec(indexName));
+    }
+
+    @SneakyThrows
+    public void testGetCoverageFilter_whenExist_thenReturnFilter() {
+        String indexName = GeospatialTestHelper.randomLowerCaseString();
+        GeoIpCoverageFilter.Builder builder = new GeoIpCoverageFilter.Builder();
+        builder.add("1.0.0.0/24");
+        BytesReference bytes = builder.build().toBytes();
+        verifyingClient.setExecuteVerifier((actionResponse, actionRequest) -> {
+            assertTrue(actionRequest instanceof GetRequest);
+            GetRequest request = (GetRequest) actionRequest;
+            assertEquals(indexName, request.index());
+            assertEquals("coverage_filter", request.id());
+            assertEquals(Preference.LOCAL.type(), request.preference());
+            assertArrayEquals(new String[] { "_coverage" }, request.storedFields());
+            GetResponse response = mock(GetResponse.class);
+            when(response.isExists()).thenReturn(true);
+            when(response.getField("_coverage")).thenReturn(new DocumentField("_coverage", List.of(bytes)));
+            return response;
+        });
+
+        // Run
+        GeoIpCoverageFilter filter = verifyingGeoIpDataDao.getCoverageFilter(indexName);
+
+        // Verify
+        assertTrue(filter.mightContain("1.0.0.1"));
+        assertFalse(filter.mightContain("2.0.0.1"));
+    }
+
+    @SneakyThrows
+    public void testGetCoverageFilter_whenNotExist_thenReturnNull() {
+        verifyingClient.setExecuteVerifier((actionResponse, actionRequest) -> {
+            assertTrue(actionRequest instanceof GetRequest);
+            GetResponse response = mock(GetResponse.class);
+            when(response.isExists()).thenReturn(false);
+            return response;
+        });
+
+        assertNull(verifyingGeoIpDataDao.getCoverageFilter(GeospatialTestHelper.randomLowerCaseString()));
+    }
+
+    public void testCloneIndex_whenCalled_thenCloneWithoutWriteBlock() {
+        String sourceIndex = GeospatialTestHelper.randomLowerCaseString();
+        String index = GeospatialTestHelper.randomLowerCaseString();
+        verifyingClient.setExecuteVerifier((actionResponse, actionRequest) -> {
+            assertTrue(actionRequest instanceof ResizeRequest);
+            ResizeRequest request = (ResizeRequest) actionRequest;
+            assertEquals(ResizeType.CLONE, request.getResizeType());
+            assertEquals(sourceIndex, request.getSourceIndex());
+            assertEquals(index, request.getTargetIndexRequest().index());
+            assertEquals(false, request.getTargetIndexRequest().settings().getAsBoolean("index.blocks.write", true));
+            assertEquals(0, (int) request.getTargetIndexRequest().settings().getAsInt("index.number_of_replicas", 1));
+            assertEquals("false", request.getTargetIndexRequest().settings().get("index.auto_expand_replicas"));
+            return null;
+        });
+
+        verifyingGeoIpDataDao.cloneIndex(sourceIndex, index);
+    }
+
+    @SneakyThrows
+    public void testGetBlockDigests_whenExist_thenReturnDigests() {
+        String indexName = GeospatialTestHelper.randomLowerCaseString();
+        mockDefaultLayout(indexName);
+        GeoIpDataBlockDigests digests = toBlockDigests(sampleRecords());
+        BytesReference bytes = digests.toBytes();
+        verifyingClient.setExecuteVerifier((actionResponse, actionRequest) -> {
+            assertTrue(actionRequest instanceof GetRequest);
+            GetRequest request = (GetRequest) actionRequest;
+            assertEquals(indexName, request.index());
+            assertEquals("block_digests", request.id());
+            assertArrayEquals(new String[] { "_blocks" }, request.storedFields());
+            GetResponse response = mock(GetResponse.class);
+            when(response.isExists()).thenReturn(true);
+            when(response.getField("_blocks")).thenReturn(new DocumentField("_blocks", List.of(bytes)));
+            return response;
+        });
+
+        // Run
+        GeoIpDataBlockDigests result = verifyingGeoIpDataDao.getBlockDigests(indexName);
+
+        // Verify
+        assertEquals(digests.size(), result.size());
+        assertTrue(result.idsNotIn(digests).isEmpty());
+    }
+
+    @SneakyThrows
+    public void testGetBlockDigests_whenOtherLayout_thenReturnNull() {
+        String indexName = GeospatialTestHelper.randomLowerCaseString();
+        mockCompactLayout(indexName, Arrays.asList("country_name"));
+        verifyingClient.setExecuteVerifier((actionResponse, actionRequest) -> { throw new RuntimeException("should not be called"); });
+
+        // Run
+        assertNull(verifyingGeoIpDataDao.getBlockDigests(indexName));
+    }
+
+    @SneakyThrows
+    public void testGetBlockDigests_whenNoIndex_thenReturnNull() {
+        verifyingClient.setExecuteVerifier((actionResponse, actionRequest) -> { throw new RuntimeException("should not be called"); });
+
+        // Run
+        assertNull(verifyingGeoIpDataDao.getBlockDigests(GeospatialTestHelper.randomLowerCaseString()));
+    }
+
+    @SneakyThrows
+    public void testPutGeoIpDataDelta_whenBlocksUnchanged_thenIndexNothingAndDeleteRemovedBlocks() {
+        String index = GeospatialTestHelper.randomLowerCaseString();
+        GeoIpDataBlockDigests.Splitter splitter = new GeoIpDataBlockDigests.Splitter(new String[] { "network", "country_name" });
+        split(splitter, sampleRecords());
+        split(splitter, List.of(GeoIpDataDocumentEncoderTests.toRecord("2.0.0.0/24", "Canada")));
+        GeoIpDataBlockDigests previousDigests = splitter.digests();
+        List<String> removedBlockIds = previousDigests.idsNotIn(toBlockDigests(sampleRecords()));
+        List<String> deletedIds = new ArrayList<>();
+        List<String> indexedIds = new ArrayList<>();
+        List<ActionRequest> requests = new ArrayList<>();
+        verifyingClient.setExecuteVerifier((actionResponse, actionRequest) -> {
+            requests.add(actionRequest);
+            if (actionRequest instanceof SearchRequest) {
+                SearchRequest request = (SearchRequest) actionRequest;
+                assertEquals(QueryBuilders.termsQuery("_block", removedBlockIds), request.source().query());
+                return searchResponse(new String[] { "2.0.0.0/24" });
+            } else if (actionRequest instanceof SearchScrollRequest) {
+                return searchResponse(new String[0]);
+            } else if (actionRequest instanceof ClearScrollRequest) {
+                return null;
+            } else if (actionRequest instanceof BulkRequest) {
+                for (DocWriteRequest<?> request : ((BulkRequest) actionRequest).requests()) {
+                    assertTrue(request instanceof DeleteRequest);
+                    deletedIds.add(request.id());
+                }
+                BulkResponse response = mock(BulkResponse.class);
+                when(response.hasFailures()).thenReturn(false);
+                return response;
+            } else if (actionRequest instanceof IndexRequest) {
+                IndexRequest request = (IndexRequest) actionRequest;
+                indexedIds.add(request.id());
+                if ("block_digests".equals(request.id())) {
+                    assertTrue(decodeBlockDigests(request.source()).idsNotIn(previousDigests).isEmpty());
+                }
+                return null;
+            } else if (actionRequest instanceof RefreshRequest
+                || actionRequest instanceof ForceMergeRequest
+                || actionRequest instanceof UpdateSettingsRequest) {
+                return null;
+            } else {
+                throw new RuntimeException("invalid request is called");
+            }
+        });
+        Runnable renewLock = mock(Runnable.class);
+
+        // Run
+        verifyingGeoIpDataDao.putGeoIpDataDelta(
+            index,
+            new String[] { "network", "country_name" },
+            sampleRecords().iterator(),
+            renewLock,
+            previousDigests
+        );
+
+        // Verify
+        assertEquals(Arrays.asList("2.0.0.0/24"), deletedIds);
+        assertEquals(Arrays.asList("coverage_filter", "block_digests"), indexedIds);
+        assertTrue(requests.get(0) instanceof RefreshRequest);
+        assertTrue(requests.get(1) instanceof SearchRequest);
+    }
+
+    @SneakyThrows
+    public void testPutGeoIpDataDelta_whenBlockChanged_thenIndexChangedBlock() {
+        String index = GeospatialTestHelper.randomLowerCaseString();
+        List<CSVRecord> records = List.of(
+            GeoIpDataDocumentEncoderTests.toRecord("1.0.0.0/24", "Australia"),
+            GeoIpDataDocumentEncoderTests.toRecord("10.0.0.0/24", "Canada")
+        );
+        GeoIpDataBlockDigests previousDigests = toBlockDigests(sampleRecords());
+        List<String> indexedRanges = new ArrayList<>();
+        verifyingClient.setExecuteVerifier((actionResponse, actionRequest) -> {
+            if (actionRequest instanceof BulkRequest) {
+                for (DocWriteRequest<?> request : ((BulkRequest) actionRequest).requests()) {
+                    indexedRanges.add(request.id());
+                }
+                BulkResponse response = mock(BulkResponse.class);
+                when(response.hasFailures()).thenReturn(false);
+                return response;
+            } else if (actionRequest instanceof SearchRequest || actionRequest instanceof SearchScrollRequest) {
+                return searchResponse(new String[0]);
+            } else if (actionRequest instanceof ClearScrollRequest
+                || actionRequest instanceof IndexRequest
+                || actionRequest instanceof RefreshRequest
+                || actionRequest instanceof ForceMergeRequest
+                || actionRequest instanceof UpdateSettingsRequest) {
+                return null;
+            } else {
+                throw new RuntimeException("invalid request is called");
+            }
+        });
+
+        // Run
+        verifyingGeoIpDataDao.putGeoIpDataDelta(
+            index,
+            new String[] { "network", "country_name" },
+            records.iterator(),
+            mock(Runnable.class),
+            previousDigests
+        );
+
+        // Verify
+        assertTrue(indexedRanges.contains("10.0.0.0/24"));
+        assertEquals(toBlockDigests(records).size() == 1, indexedRanges.contains("1.0.0.0/24"));
+    }
+
+    @SneakyThrows
+    private GeoIpCoverageFilter decodeCoverageFilter(final BytesReference source) {
+        Map<String, Object> sourceMap = XContentHelper.convertToMap(source, false, XContentType.JSON).v2();
+        return GeoIpCoverageFilter.fromBytes(new BytesArray(Base64.getDecoder().decode((String) sourceMap.get("_coverage"))));
+    }
+
+    @SneakyThrows
+    private GeoIpDataBlockDigests decodeBlockDigests(final BytesReference source) {
+        Map<String, Object> sourceMap = XContentHelper.convertToMap(source, false, XContentType.JSON).v2();
+        return GeoIpDataBlockDigests.fromBytes(new BytesArray(Base64.getDecoder().decode((String) sourceMap.get("_blocks"))));
+    }
+
+    private void mockDefaultLayout(final String indexName) {
+        IndexMetadata indexMetadata = mock(IndexMetadata.class);
+        when(indexMetadata.mapping()).thenReturn(new MappingMetadata("_doc", Map.of("dynamic", false)));
+        when(metadata.index(indexName)).thenReturn(indexMetadata);
+    }
+
+    @SneakyThrows
+    private List<CSVRecord> sampleRecords() {
+        try (CSVParser csvParser = CSVParser.parse(sampleIp2GeoFile(), StandardCharsets.UTF_8, CSVFormat.RFC4180)) {
+            List<CSVRecord> records = csvParser.getRecords();
+            return records.subList(1, records.size());
+        }
+    }
+
+    private GeoIpDataBlockDigests toBlockDigests(final List<CSVRecord> records) {
+        GeoIpDataBlockDigests.Splitter splitter = new GeoIpDataBlockDigests.Splitter(new String[] { "network", "country_name" });
+        split(splitter, records);
+        return splitter.digests();
+    }
+
+    /**
+     * Split records into blocks in the same way as putting GeoIP data does
+     */
+    private void split(final GeoIpDataBlockDigests.Splitter splitter, final List<CSVRecord> records) {
+        for (int i = 0; i < records.size(); i++) {
+            if (splitter.add(records.get(i)) || i == records.size() - 1) {
+                splitter.finishBlock();
+            }
+        }
+    }
+
+    private SearchResponse searchResponse(final String[] ids) {
+        SearchHit[] hits = Arrays.stream(ids)
+            .map(id -> new SearchHit(1, id, Collections.emptyMap(), Collections.emptyMap()))
+            .toArray(SearchHit[]::new);
+        SearchResponse response = mock(SearchResponse.class);
+        when(response.getHits()).thenReturn(new SearchHits(hits, new TotalHits(ids.length, TotalHits.Relation.EQUAL_TO), 1));
+        when(response.getScrollId()).thenReturn(GeospatialTestHelper.randomLowerCaseString());
+        return response;
+    }
+
+    private void mockCompactLayout(final String indexName, final List<String> fields) {
+        Map<String, Object> meta = new HashMap<>();
+        meta.put("layout", "compact");
+        if (fields != null) {
+            meta.put("fields", fields);
+        }
+        IndexMetadata indexMetadata = mock(IndexMetadata.class);
+        when(indexMetadata.mapping()).thenReturn(new MappingMetadata("_doc", Map.of("_meta", meta)));
+        when(metadata.index(indexName)).thenReturn(indexMetadata);
+    }
+
+    public void testGetGeoIpData_whenMultipleIps_thenReturnDataInOrder() {
+        String indexName = GeospatialTestHelper.randomLowerCaseString();
+        List<String> ips = Arrays.asList(randomIpAddress(), randomIpAddress());
+        verifyingClient.setExecuteVerifier((actionResponse, actionRequest) -> {
+            assert actionRequest instanceof MultiSearchRequest;
+            MultiSearchRequest request = (MultiSearchRequest) actionRequest;
+            assertEquals(2, request.requests().size());
+            for (int i = 0; i < ips.size(); i++) {
+                assertEquals(Preference.LOCAL.type(), request.requests().get(i).preference());
+                assertEquals(QueryBuilders.termQuery(IP_RANGE_FIELD_NAME, ips.get(i)), request.requests().get(i).source().query());
+            }
+
+            String data = String.format(
+                Locale.ROOT,
+                "{\"%s\":\"1.0.0.1/16\",\"%s\":{\"city\":\"seattle\"}}",
+                IP_RANGE_FIELD_NAME,
+                DATA_FIELD_NAME
+            );
+            SearchHit searchHit = new SearchHit(1);
+            searchHit.sourceRef(BytesReference.fromByteBuffer(ByteBuffer.wrap(data.getBytes(StandardCharsets.UTF_8))));
+            SearchHit[] searchHitArray = { searchHit };
+            SearchResponse hitResponse = mock(SearchResponse.class);
+            when(hitResponse.getHits()).thenReturn(new SearchHits(searchHitArray, new TotalHits(1l, TotalHits.Relation.EQUAL_TO), 1));
+            SearchResponse noHitResponse = mock(SearchResponse.class);
+            when(noHitResponse.getHits()).thenReturn(new SearchHits(new SearchHit[0], new TotalHits(0l, TotalHits.Relation.EQUAL_TO), 0));
+
+            MultiSearchResponse.Item[] items = {
+                new MultiSearchResponse.Item(hitResponse, null),
+                new MultiSearchResponse.Item(noHitResponse, null) };
+            return new MultiSearchResponse(items, 1);
+        });
+
+        // Run
+        PlainActionFuture<List<GeoIpRange>> future = new PlainActionFuture<>();
+        verifyingGeoIpDataDao.getGeoIpData(indexName, ips, future);
+        List<GeoIpRange> ranges = future.actionGet();
+
+        // Verify
+        assertEquals(2, ranges.size());
+        assertEquals("1.0.0.1/16", ranges.get(0).getCidr());
+        assertEquals("seattle", ranges.get(0).getData().get("city"));
+        assertEquals(GeoIpRange.NO_MATCH, ranges.get(1));
+    }
+
+    public void testGetGeoIpData_whenStartedLocalShard_thenLookupLocalShard() {
+        String indexName = GeospatialTestHelper.randomLowerCaseString();
+        String ip = randomIpAddress();
+        mockStartedLocalShard(indexName);
+        GeoIpRange geoIpRange = new GeoIpRange("1.0.0.1/16", Map.of("city", "seattle"));
+        verifyingClient.setExecuteVerifier((actionResponse, actionRequest) -> {
+            assertTrue(actionRequest instanceof LookupGeoIpDataRequest);
+            LookupGeoIpDataRequest request = (LookupGeoIpDataRequest) actionRequest;
+            assertEquals(indexName, request.getIndexName());
+            assertEquals(Arrays.asList(ip), request.getIps());
+            return new LookupGeoIpDataResponse(Arrays.asList(geoIpRange));
+        });
+
+        // Run
+        PlainActionFuture<GeoIpRange> future = new PlainActionFuture<>();
+        verifyingGeoIpDataDao.getGeoIpData(indexName, ip, future);
+
+        // Verify
+        assertEquals(geoIpRange, future.actionGet());
+    }
+
+    public void testGetGeoIpData_whenMultipleIpsAndStartedLocalShard_thenLookupLocalShardOnce() {
+        String indexName = GeospatialTestHelper.randomLowerCaseString();
+        List<String> ips = Arrays.asList(randomIpAddress(), randomIpAddress());
+        mockStartedLocalShard(indexName);
+        List<GeoIpRange> geoIpRanges = Arrays.asList(new GeoIpRange("1.0.0.1/16", Map.of("city", "seattle")), GeoIpRange.NO_MATCH);
+        verifyingClient.setExecuteVerifier((actionResponse, actionRequest) -> {
+            assertTrue(actionRequest instanceof LookupGeoIpDataRequest);
+            assertEquals(ips, ((LookupGeoIpDataRequest) actionRequest).getIps());
+            return new LookupGeoIpDataResponse(geoIpRanges);
+        });
+
+        // Run
+        PlainActionFuture<List<GeoIpRange>> future = new PlainActionFuture<>();
+        verifyingGeoIpDataDao.getGeoIpData(indexName, ips, future);
+
+        // Verify
+        assertEquals(geoIpRanges, future.actionGet());
+    }
+
+    public void testGetGeoIpData_whenLocalShardLookupFailed_thenFallBackToSearch() {
+        String indexName = GeospatialTestHelper.randomLowerCaseString();
+        String ip = randomIpAddress();
+        String failedIp = randomValueOtherThan(ip, this::randomIpAddress);
+        mockStartedLocalShard(indexName);
+        verifyingClient.setExecuteVerifier((actionResponse, actionRequest) -> {
+            if (actionRequest instanceof LookupGeoIpDataRequest) {
+                throw new ShardNotFoundException(new ShardId(indexName, GeospatialTestHelper.randomLowerCaseString(), 0));
+            }
+            assertTrue(actionRequest instanceof MultiSearchRequest);
+            MultiSearchResponse.Item[] items = {
+                new MultiSearchResponse.Item(searchResponse(new String[0]), null),
+                new MultiSearchResponse.Item(null, new RuntimeException("failed")) };
+            return new MultiSearchResponse(items, 1);
+        });
+        Map<String, Exception> failures = new HashMap<>();
+
+        // Run
+        PlainActionFuture<List<GeoIpRange>> future = new PlainActionFuture<>();
+        verifyingGeoIpDataDao.getGeoIpData(indexName, Arrays.asList(ip, failedIp), failures::put, future);
+
+        // Verify
+        assertEquals(Arrays.asList(GeoIpRange.NO_MATCH, null), future.actionGet());
+        assertEquals(Set.of(failedIp), failures.keySet());
+    }
+
+    private void mockStartedLocalShard(final String indexName) {
+        String nodeId = GeospatialTestHelper.randomLowerCaseString();
+        IndexRoutingTable indexRoutingTable = mock(IndexRoutingTable.class);
+        ShardRouting shardRouting = mock(ShardRouting.class);
+        DiscoveryNode localNode = mock(DiscoveryNode.class);
+        when(routingTable.index(indexName)).thenReturn(indexRoutingTable);
+        when(indexRoutingTable.shards()).thenReturn(Map.of(0, mock(IndexShardRoutingTable.class)));
+        when(indexRoutingTable.shardsWithState(ShardRoutingState.STARTED)).thenReturn(Arrays.asList(shardRouting));
+        when(shardRouting.currentNodeId()).thenReturn(nodeId);
+        when(clusterService.localNode()).thenReturn(localNode);
+        when(localNode.getId()).thenReturn(nodeId);
+    }
+
+    public void testGetGeoIpData_whenMultiSearchItemFailed_thenException() {
+        String indexName = GeospatialTestHelper.randomLowerCaseString();
+        verifyingClient.setExecuteVerifier((actionResponse, actionRequest) -> {
+            MultiSearchResponse.Item[] items = { new MultiSearchResponse.Item(null, new RuntimeException("failed")) };
+            return new MultiSearchResponse(items, 1);
+        });
+
+        // Run
+        PlainActionFuture<List<GeoIpRange>> future = new PlainActionFuture<>();
+        verifyingGeoIpDataDao.getGeoIpData(indexName, Arrays.asList(randomIpAddress()), future);
+
+        // Verify
+        expectThrows(OpenSearchException.class, future::actionGet);
+    }
+
+    public void testGetGeoIpData_whenMultiSearchItemFailedWithFailureHandler_thenFailOnlyItsIp() {
+        String indexName = GeospatialTestHelper.randomLowerCaseString();
+        String ip = randomIpAddress();
+        String failedIp = randomValueOtherThan(ip, this::randomIpAddress);
+        verifyingClient.setExecuteVerifier((actionResponse, actionRequest) -> {
+            MultiSearchResponse.Item[] items = {
+                new MultiSearchResponse.Item(searchResponse(new String[0]), null),
+                new MultiSearchResponse.Item(null, new RuntimeException("failed")) };
+            return new MultiSearchResponse(items, 1);
+        });
+        Map<String, Exception> failures = new HashMap<>();
+
+        // Run
+        PlainActionFuture<List<GeoIpRange>> future = new PlainActionFuture<>();
+        verifyingGeoIpDataDao.getGeoIpData(indexName, Arrays.asList(ip, failedIp), failures::put, future);
+
+        // Verify
+        assertEquals(Arrays.asList(GeoIpRange.NO_MATCH, null), future.actionGet());
+        assertEquals(Set.of(failedIp), failures.keySet());
+        assertTrue(failures.get(failedIp) instanceof OpenSearchException);
+    }
+
+    public void testGetGeoIpData_whenNoIp_thenNoRequest() {
+        verifyingClient.setExecuteVerifier((actionResponse, actionRequest) -> { throw new RuntimeException("Shouldn't get called"); });
+
+        // Run
+        PlainActionFuture<List<GeoIpRange>> future = new PlainActionFuture<>();
+        verifyingGeoIpDataDao.getGeoIpData(GeospatialTestHelper.randomLowerCaseString(), Collections.emptyList(), future);
+
+        // Verify
+        assertTrue(future.actionGet().isEmpty());
+    }
+
+    public void testGetGeoIpData_whenTimedOut_thenException() {
+        verifyingClient.setExecuteVerifier((actionResponse, actionRequest) -> {
+            SearchResponse response = mock(SearchResponse.class);
+            when(response.isTimedOut()).thenReturn(true);
+            return response;
+        });
+
+        // Run
+        PlainActionFuture<GeoIpRange> future = new PlainActionFuture<>();
+        verifyingGeoIpDataDao.getGeoIpData(GeospatialTestHelper.randomLowerCaseString(), randomIpAddress(), future);
+
+        // Verify
+        expectThrows(OpenSearchException.class, future::actionGet);
+    }
+
+    public void testGetGeoIpRanges_whenCalled_thenReturnCidrs() {
+        String indexName = GeospatialTestHelper.randomLowerCaseString();
+        verifyingClient.setExecuteVerifier((actionResponse, actionRequest) -> {
+            assert actionRequest instanceof SearchRequest;
+            SearchRequest request = (SearchRequest) actionRequest;
+            assertEquals(Preference.LOCAL.type(), request.preference());
+            assertEquals(10, request.source().size());
+            assertEquals(
+                QueryBuilders.rangeQuery(IP_RANGE_FIELD_NAME).from("1.0.0.0").to("1.0.0.255").relation("intersects"),
+                request.source().query()
+            );
+
+            String data = String.format(Locale.ROOT, "{\"%s\":\"1.0.0.0/28\"}", IP_RANGE_FIELD_NAME);
+            SearchHit searchHit = new SearchHit(1);
+            searchHit.sourceRef(BytesReference.fromByteBuffer(ByteBuffer.wrap(data.getBytes(StandardCharsets.UTF_8))));
+            SearchHit[] searchHitArray = { searchHit };
+            SearchResponse response = mock(SearchResponse.class);
+            when(response.getHits()).thenReturn(new SearchHits(searchHitArray, new TotalHits(1l, TotalHits.Relation.EQUAL_TO), 1));
+            return response;
+        });
+
+        // Run
+        PlainActionFuture<List<String>> future = new PlainActionFuture<>();
+        verifyingGeoIpDataDao.getGeoIpRanges(indexName, "1.0.0.0", "1.0.0.255", 10, future);
+
+        // Verify
+        assertEquals(Arrays.asList("1.0.0.0/28"), future.actionGet());
+    }
+
+    public void testGetGeoIpRanges_whenMoreRangesThanMax_thenReturnNull() {
+        verifyingClient.setExecuteVerifier((actionResponse, actionRequest) -> {
+            String data = String.format(Locale.ROOT, "{\"%s\":\"1.0.0.0/28\"}", IP_RANGE_FIELD_NAME);
+            SearchHit searchHit = new SearchHit(1);
+            searchHit.sourceRef(BytesReference.fromByteBuffer(ByteBuffer.wrap(data.getBytes(StandardCharsets.UTF_8))));
+            SearchHit[] searchHitArray = { searchHit };
+            SearchResponse response = mock(SearchResponse.class);
+            when(response.getHits()).thenReturn(new SearchHits(searchHitArray, new TotalHits(2l, TotalHits.Relation.EQUAL_TO), 1));
+            return response;
+        });
+
+        // Run
+        PlainActionFuture<List<String>> future = new PlainActionFuture<>();
+        verifyingGeoIpDataDao.getGeoIpRanges(GeospatialTestHelper.randomLowerCaseString(), "1.0.0.0", "1.0.0.255", 1, future);
 
         // Verify
-        assertTrue(geoData.isEmpty());
+        assertNull(future.actionGet());
     }
 }
@@ -0,0 +1,85 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.ip2geo.dao;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.csv.CSVRecord;
+import org.opensearch.core.common.bytes.BytesReference;
+import org.opensearch.geospatial.ip2geo.Ip2GeoTestCase;
+
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Compare rows per second of {@link GeoIpDataDocumentEncoder} with {@link GeoIpDataDao#createDocument(String[], String[])}
+ *
+ * Rows resemble the GeoLite2 City data with a few blank values. Both paths produce the document bytes to be sent in a bulk request.
+ * It is skipped unless tests.ip2geo.benchmark system property is set to true.
+ */
+@Log4j2
+public class GeoIpDataDocumentEncoderBenchmarkTests extends Ip2GeoTestCase {
+    private static final String[] FIELDS = {
+        "network",
+        "country_iso_code",
+        "country_name",
+        "subdivision_1_name",
+        "city_name",
+        "time_zone",
+        "location" };
+    private static final int ROWS = 200_000;
+    private static final int BATCH_SIZE = 10_000;
+    private static final int ROUNDS = 5;
+
+    public void testBenchmark_whenCalled_thenLogRowsPerSecond() throws IOException {
+        assumeTrue("benchmark is disabled", Boolean.getBoolean("tests.ip2geo.benchmark"));
+        List<CSVRecord> records = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            records.add(
+                GeoIpDataDocumentEncoderTests.toRecord(
+                    String.format(Locale.ROOT, "%d.%d.%d.0/24", 1 + i / 65536, (i / 256) % 256, i % 256),
+                    "US",
+                    "United States",
+                    i % 3 == 0 ? "" : "Washington",
+                    i % 5 == 0 ? "" : "Seattle " + i,
+                    "America/Los_Angeles",
+                    String.format(Locale.ROOT, "%.4f, %.4f", 47.6062 + i % 100 / 1000.0, -122.3321)
+                )
+            );
+        }
+        GeoIpDataDao geoIpDataDao = new GeoIpDataDao(clusterService, client, urlDenyListChecker);
+
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            long generatorBytes = 0;
+            for (CSVRecord record : records) {
+                generatorBytes += BytesReference.bytes(geoIpDataDao.createDocument(FIELDS, record.values())).length();
+            }
+            long generator = System.nanoTime() - start;
+            start = System.nanoTime();
+            long encoderBytes = 0;
+            GeoIpDataDocumentEncoder encoder = new GeoIpDataDocumentEncoder(FIELDS);
+            for (int i = 0; i < ROWS; i++) {
+                encoderBytes += encoder.encode(records.get(i)).length();
+                if ((i + 1) % BATCH_SIZE == 0) {
+                    encoder.newBatch();
+                }
+            }
+            long direct = System.nanoTime() - start;
+            assertEquals(generatorBytes, encoderBytes);
+            log.info(
+                "round {}: json generator {} rows/s, direct encoder {} rows/s for {} rows",
+                round,
+                ROWS * TimeUnit.SECONDS.toNanos(1) / Math.max(1, generator),
+                ROWS * TimeUnit.SECONDS.toNanos(1) / Math.max(1, direct),
+                ROWS
+            );
+        }
+    }
+}
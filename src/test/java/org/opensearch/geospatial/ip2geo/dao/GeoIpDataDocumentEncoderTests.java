@@ -0,0 +1,130 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.ip2geo.dao;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.opensearch.OpenSearchException;
+import org.opensearch.common.xcontent.XContentHelper;
+import org.opensearch.common.xcontent.XContentType;
+import org.opensearch.core.common.bytes.BytesReference;
+import org.opensearch.geospatial.ip2geo.Ip2GeoTestCase;
+
+import lombok.SneakyThrows;
+
+public class GeoIpDataDocumentEncoderTests extends Ip2GeoTestCase {
+    private static final String[] FIELDS = { "network", "country", "location", "city" };
+
+    public void testEncode_whenBlankValue_thenDoNotAdd() {
+        GeoIpDataDocumentEncoder encoder = new GeoIpDataDocumentEncoder(FIELDS);
+
+        // Run
+        BytesReference document = encoder.encode(toRecord("1.0.0.0/25", "USA", " ", "Seattle"));
+
+        // Verify
+        assertEquals("{\"_cidr\":\"1.0.0.0/25\",\"_data\":{\"country\":\"USA\",\"city\":\"Seattle\"}}", document.utf8ToString());
+    }
+
+    public void testEncode_whenAllBlank_thenEmptyData() {
+        GeoIpDataDocumentEncoder encoder = new GeoIpDataDocumentEncoder(FIELDS);
+
+        // Run
+        BytesReference document = encoder.encode(toRecord("1.0.0.0/25", "", " ", "\t"));
+
+        // Verify
+        assertEquals("{\"_cidr\":\"1.0.0.0/25\",\"_data\":{}}", document.utf8ToString());
+    }
+
+    @SneakyThrows
+    public void testEncode_whenSpecialCharacters_thenSameAsCreateDocument() {
+        String[] fields = { "network", "country \"name\"", "city\\name", "note" };
+        GeoIpDataDocumentEncoder encoder = new GeoIpDataDocumentEncoder(fields);
+        GeoIpDataDao geoIpDataDao = new GeoIpDataDao(clusterService, client, urlDenyListChecker);
+        List<String[]> rows = List.of(
+            new String[] { "1.0.0.0/24", "Česko", "Zürich", "line\nbreak\ttab\u0001" },
+            new String[] { "a:b::/32", "日本", "東京 🗼", "\"quoted\" \\ slash \u001f" },
+            new String[] { "2.0.0.0/24", "한국", " ", "é\r\b\f" }
+        );
+
+        for (String[] row : rows) {
+            // Run
+            BytesReference document = encoder.encode(toRecord(row));
+
+            // Verify
+            assertEquals(BytesReference.bytes(geoIpDataDao.createDocument(fields, row)).utf8ToString(), document.utf8ToString());
+        }
+    }
+
+    public void testEncode_whenBlockId_thenAddBlockId() {
+        GeoIpDataDocumentEncoder encoder = new GeoIpDataDocumentEncoder(FIELDS);
+
+        // Run
+        BytesReference document = encoder.encode(toRecord("1.0.0.0/25", "USA", " ", "Seattle"), "00000000000000ff");
+
+        // Verify
+        assertEquals(
+            "{\"_cidr\":\"1.0.0.0/25\",\"_block\":\"00000000000000ff\",\"_data\":{\"country\":\"USA\",\"city\":\"Seattle\"}}",
+            document.utf8ToString()
+        );
+    }
+
+    public void testEncode_whenNewBatch_thenPreviousDocumentsUnchanged() {
+        GeoIpDataDocumentEncoder encoder = new GeoIpDataDocumentEncoder(FIELDS);
+        BytesReference first = encoder.encode(toRecord("1.0.0.0/25", "USA", "", "Seattle"));
+        String expected = first.utf8ToString();
+
+        // Run
+        encoder.newBatch();
+        for (int i = 0; i < 1000; i++) {
+            encoder.encode(toRecord("2.0.0.0/25", "Canada", "", "Vancouver"));
+        }
+
+        // Verify
+        assertEquals(expected, first.utf8ToString());
+    }
+
+    @SneakyThrows
+    public void testEncode_whenBufferGrows_thenPreviousDocumentsUnchanged() {
+        GeoIpDataDocumentEncoder encoder = new GeoIpDataDocumentEncoder(FIELDS);
+        BytesReference first = encoder.encode(toRecord("1.0.0.0/25", "USA", "", "Seattle"));
+
+        // Run
+        BytesReference large = encoder.encode(toRecord("2.0.0.0/25", "Canada", "", randomAlphaOfLength(10000)));
+
+        // Verify
+        assertEquals("{\"_cidr\":\"1.0.0.0/25\",\"_data\":{\"country\":\"USA\",\"city\":\"Seattle\"}}", first.utf8ToString());
+        assertEquals("Canada", ((Map<String, Object>) toMap(large).get("_data")).get("country"));
+    }
+
+    public void testEncode_whenFieldsAndValuesLengthDoesNotMatch_thenThrowException() {
+        GeoIpDataDocumentEncoder encoder = new GeoIpDataDocumentEncoder(FIELDS);
+
+        // Run
+        Exception e = expectThrows(OpenSearchException.class, () -> encoder.encode(toRecord("1.0.0.0/25", "USA", " ")));
+
+        // Verify
+        assertTrue(e.getMessage().contains("does not match"));
+    }
+
+    @SneakyThrows
+    static CSVRecord toRecord(final String... values) {
+        String line = Arrays.stream(values).map(value -> "\"" + value.replace("\"", "\"\"") + "\"").collect(Collectors.joining(","));
+        try (CSVParser parser = CSVParser.parse(line, CSVFormat.RFC4180)) {
+            return parser.getRecords().get(0);
+        }
+    }
+
+    private static Map<String, Object> toMap(final BytesReference document) throws IOException {
+        return XContentHelper.convertToMap(document, false, XContentType.JSON).v2();
+    }
+}
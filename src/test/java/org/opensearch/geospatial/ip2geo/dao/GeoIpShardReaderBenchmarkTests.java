@@ -0,0 +1,110 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.ip2geo.dao;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.document.InetAddressRange;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+import org.opensearch.common.Randomness;
+import org.opensearch.common.network.InetAddresses;
+import org.opensearch.common.xcontent.XContentHelper;
+import org.opensearch.common.xcontent.XContentType;
+import org.opensearch.core.common.bytes.BytesArray;
+import org.opensearch.geospatial.ip2geo.Ip2GeoTestCase;
+import org.opensearch.index.mapper.SourceFieldMapper;
+
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Compare the local shard lookup with the shard level work of the search path
+ *
+ * The search path is approximated by a top docs search per ip followed by loading all stored fields of the hit.
+ * Request parsing and search context creation of the search layer are not included, so the gap in a cluster is bigger.
+ * It is skipped unless tests.ip2geo.benchmark system property is set to true.
+ */
+@Log4j2
+public class GeoIpShardReaderBenchmarkTests extends Ip2GeoTestCase {
+    private static final int RANGES = 100_000;
+    private static final int IPS = 10_000;
+    private static final int ROUNDS = 5;
+
+    public void testBenchmark_whenCalled_thenSameResultAndLogElapsedTime() throws IOException {
+        assumeTrue("benchmark is disabled", Boolean.getBoolean("tests.ip2geo.benchmark"));
+        try (Directory directory = newFSDirectory(createTempDir())) {
+            try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig())) {
+                for (int i = 0; i < RANGES; i++) {
+                    String prefix = String.format(Locale.ROOT, "%d.%d.%d.", 1 + i / 65536, (i / 256) % 256, i % 256);
+                    GeoIpShardReaderTests.addRange(writer, prefix + "0/24", prefix + "0", prefix + "255", Map.of("city", "city" + i));
+                }
+                writer.forceMerge(1);
+            }
+            List<String> ips = new ArrayList<>(IPS);
+            for (int i = 0; i < IPS; i++) {
+                int range = Randomness.get().nextInt(RANGES);
+                ips.add(String.format(Locale.ROOT, "%d.%d.%d.1", 1 + range / 65536, (range / 256) % 256, range % 256));
+            }
+            try (DirectoryReader reader = DirectoryReader.open(directory)) {
+                IndexSearcher searcher = new IndexSearcher(reader);
+                assertEquals(searchPath(searcher, ips), GeoIpShardReader.read(searcher, ips));
+                for (int round = 0; round < ROUNDS; round++) {
+                    long start = System.nanoTime();
+                    GeoIpShardReader.read(searcher, ips);
+                    long localShardLookup = System.nanoTime() - start;
+                    start = System.nanoTime();
+                    searchPath(searcher, ips);
+                    long search = System.nanoTime() - start;
+                    log.info(
+                        "round {}: local shard lookup {} ms, search path {} ms for {} ips",
+                        round,
+                        TimeUnit.NANOSECONDS.toMillis(localShardLookup),
+                        TimeUnit.NANOSECONDS.toMillis(search),
+                        IPS
+                    );
+                }
+            }
+        }
+    }
+
+    private List<GeoIpRange> searchPath(final IndexSearcher searcher, final List<String> ips) throws IOException {
+        List<GeoIpRange> ranges = new ArrayList<>(ips.size());
+        for (String ip : ips) {
+            TopDocs topDocs = searcher.search(
+                InetAddressRange.newIntersectsQuery(
+                    GeoIpDataDao.IP_RANGE_FIELD_NAME,
+                    InetAddresses.forString(ip),
+                    InetAddresses.forString(ip)
+                ),
+                1
+            );
+            if (topDocs.scoreDocs.length == 0) {
+                ranges.add(GeoIpRange.NO_MATCH);
+                continue;
+            }
+            BytesArray source = new BytesArray(
+                searcher.storedFields().document(topDocs.scoreDocs[0].doc).getBinaryValue(SourceFieldMapper.NAME)
+            );
+            Map<String, Object> sourceMap = XContentHelper.convertToMap(source, false, XContentType.JSON).v2();
+            ranges.add(
+                new GeoIpRange(
+                    (String) sourceMap.get(GeoIpDataDao.IP_RANGE_FIELD_NAME),
+                    (Map<String, Object>) sourceMap.get(GeoIpDataDao.DATA_FIELD_NAME)
+                )
+            );
+        }
+        return ranges;
+    }
+}
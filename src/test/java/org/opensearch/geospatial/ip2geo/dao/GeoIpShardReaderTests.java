@@ -0,0 +1,188 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.ip2geo.dao;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.lucene.document.BinaryDocValuesField;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.InetAddressPoint;
+import org.apache.lucene.document.InetAddressRange;
+import org.apache.lucene.document.SortedSetDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.OutputStreamDataOutput;
+import org.apache.lucene.util.BytesRef;
+import org.opensearch.common.collect.Tuple;
+import org.opensearch.common.network.InetAddresses;
+import org.opensearch.common.xcontent.XContentFactory;
+import org.opensearch.common.xcontent.XContentHelper;
+import org.opensearch.common.xcontent.XContentType;
+import org.opensearch.core.common.bytes.BytesReference;
+import org.opensearch.geospatial.ip2geo.Ip2GeoTestCase;
+import org.opensearch.index.mapper.SourceFieldMapper;
+
+public class GeoIpShardReaderTests extends Ip2GeoTestCase {
+    public void testRead_whenIpsInRanges_thenReturnRangesInOrder() throws IOException {
+        try (Directory directory = newDirectory()) {
+            try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig())) {
+                addRange(writer, "1.0.0.0/24", "1.0.0.0", "1.0.0.255", Map.of("city", "Seattle"));
+                addRange(writer, "2.0.0.0/24", "2.0.0.0", "2.0.0.255", Map.of("city", "Portland"));
+                addRange(writer, "a::/64", "a::", "a::ffff:ffff:ffff:ffff", Map.of("city", "Vancouver"));
+            }
+            try (DirectoryReader reader = DirectoryReader.open(directory)) {
+                // Run
+                List<GeoIpRange> ranges = GeoIpShardReader.read(
+                    new IndexSearcher(reader),
+                    Arrays.asList("2.0.0.1", "3.0.0.1", "1.0.0.10", "a::1")
+                );
+
+                // Verify
+                assertEquals(
+                    Arrays.asList(
+                        new GeoIpRange("2.0.0.0/24", Map.of("city", "Portland")),
+                        GeoIpRange.NO_MATCH,
+                        new GeoIpRange("1.0.0.0/24", Map.of("city", "Seattle")),
+                        new GeoIpRange("a::/64", Map.of("city", "Vancouver"))
+                    ),
+                    ranges
+                );
+            }
+        }
+    }
+
+    public void testRead_whenInvalidIp_thenException() throws IOException {
+        try (Directory directory = newDirectory()) {
+            try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig())) {
+                addRange(writer, "1.0.0.0/24", "1.0.0.0", "1.0.0.255", Map.of("city", "Seattle"));
+            }
+            try (DirectoryReader reader = DirectoryReader.open(directory)) {
+                expectThrows(IllegalArgumentException.class, () -> GeoIpShardReader.read(new IndexSearcher(reader), Arrays.asList("ip")));
+            }
+        }
+    }
+
+    public void testRead_whenCompactLayout_thenReturnRangesInOrder() throws IOException {
+        CompactGeoIpDataCodec codec = new CompactGeoIpDataCodec(Arrays.asList("country", "city"));
+        try (Directory directory = newDirectory()) {
+            try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig())) {
+                addCompactRange(writer, codec, "1.0.0.0/24", "1.0.0.0", "1.0.0.255", "USA", "Seattle");
+                addCompactRange(writer, codec, "a::/64", "a::", "a::ffff:ffff:ffff:ffff", "Canada", "Vancouver");
+                // Ranges in another segment
+                writer.commit();
+                addCompactRange(writer, codec, "2.0.0.0/24", "2.0.0.0", "2.0.0.255", "USA", "");
+            }
+            try (DirectoryReader reader = DirectoryReader.open(directory)) {
+                // Run
+                List<GeoIpRange> ranges = GeoIpShardReader.read(
+                    new IndexSearcher(reader),
+                    codec,
+                    Arrays.asList("2.0.0.1", "0.0.0.1", "1.0.1.1", "1.0.0.255", "a::1")
+                );
+
+                // Verify
+                assertEquals(
+                    Arrays.asList(
+                        new GeoIpRange("2.0.0.0/24", Map.of("country", "USA")),
+                        GeoIpRange.NO_MATCH,
+                        GeoIpRange.NO_MATCH,
+                        new GeoIpRange("1.0.0.0/24", Map.of("country", "USA", "city", "Seattle")),
+                        new GeoIpRange("a::/64", Map.of("country", "Canada", "city", "Vancouver"))
+                    ),
+                    ranges
+                );
+            }
+        }
+    }
+
+    public void testRead_whenCompactLayoutWithDeletedRange_thenNoMatch() throws IOException {
+        CompactGeoIpDataCodec codec = new CompactGeoIpDataCodec(Arrays.asList("city"));
+        try (Directory directory = newDirectory()) {
+            try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig())) {
+                addCompactRange(writer, codec, "1.0.0.0/24", "1.0.0.0", "1.0.0.255", "Seattle");
+                InetAddress start = InetAddresses.forString("1.0.0.0");
+                writer.deleteDocuments(InetAddressPoint.newExactQuery(CompactGeoIpDataCodec.START_FIELD_NAME, start));
+            }
+            try (DirectoryReader reader = DirectoryReader.open(directory)) {
+                // Run
+                List<GeoIpRange> ranges = GeoIpShardReader.read(new IndexSearcher(reader), codec, Arrays.asList("1.0.0.1"));
+
+                // Verify
+                assertEquals(Arrays.asList(GeoIpRange.NO_MATCH), ranges);
+            }
+        }
+    }
+
+    /**
+     * Add a document in the same layout as a GeoIP data index
+     */
+    public static void addRange(
+        final IndexWriter writer,
+        final String cidr,
+        final String from,
+        final String to,
+        final Map<String, Object> data
+    ) throws IOException {
+        Document document = new Document();
+        document.add(new InetAddressRange(GeoIpDataDao.IP_RANGE_FIELD_NAME, InetAddresses.forString(from), InetAddresses.forString(to)));
+        BytesReference source = BytesReference.bytes(
+            XContentFactory.jsonBuilder()
+                .startObject()
+                .field(GeoIpDataDao.IP_RANGE_FIELD_NAME, cidr)
+                .field(GeoIpDataDao.DATA_FIELD_NAME, data)
+                .endObject()
+        );
+        document.add(new StoredField(SourceFieldMapper.NAME, BytesReference.toBytes(source)));
+        writer.addDocument(document);
+    }
+
+    /**
+     * Add a document in the same way as the compact layout of a GeoIP data index
+     */
+    public static void addCompactRange(
+        final IndexWriter writer,
+        final CompactGeoIpDataCodec codec,
+        final String cidr,
+        final String from,
+        final String to,
+        final String... values
+    ) throws IOException {
+        String[] record = new String[values.length + 1];
+        record[0] = cidr;
+        System.arraycopy(values, 0, record, 1, values.length);
+        BytesReference json = BytesReference.bytes(codec.createDocument(record));
+        Map<String, Object> source = XContentHelper.convertToMap(json, false, XContentType.JSON).v2();
+        byte[] encoded = Base64.getDecoder().decode((String) source.get(GeoIpDataDao.DATA_FIELD_NAME));
+        ByteArrayOutputStream docValue = new ByteArrayOutputStream();
+        try (OutputStreamDataOutput out = new OutputStreamDataOutput(docValue)) {
+            out.writeVInt(1);
+            out.writeVInt(encoded.length);
+            out.writeBytes(encoded, encoded.length);
+        }
+
+        Document document = new Document();
+        for (Tuple<String, String> field : Arrays.asList(
+            new Tuple<>(CompactGeoIpDataCodec.START_FIELD_NAME, from),
+            new Tuple<>(CompactGeoIpDataCodec.END_FIELD_NAME, to)
+        )) {
+            InetAddress address = InetAddresses.forString(field.v2());
+            document.add(new InetAddressPoint(field.v1(), address));
+            document.add(new SortedSetDocValuesField(field.v1(), new BytesRef(InetAddressPoint.encode(address))));
+        }
+        document.add(new BinaryDocValuesField(GeoIpDataDao.DATA_FIELD_NAME, new BytesRef(docValue.toByteArray())));
+        writer.addDocument(document);
+    }
+}
@@ -5,27 +5,60 @@
 
 package org.opensearch.geospatial.ip2geo.dao;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
 
 import org.junit.Before;
+import org.opensearch.OpenSearchException;
+import org.opensearch.action.support.PlainActionFuture;
 import org.opensearch.common.network.NetworkAddress;
+import org.opensearch.common.settings.Settings;
+import org.opensearch.common.unit.TimeValue;
 import org.opensearch.common.xcontent.XContentFactory;
+import org.opensearch.core.action.ActionListener;
+import org.opensearch.core.common.breaker.CircuitBreaker;
+import org.opensearch.core.common.breaker.CircuitBreakingException;
+import org.opensearch.core.common.breaker.NoopCircuitBreaker;
 import org.opensearch.core.common.bytes.BytesReference;
 import org.opensearch.core.index.shard.ShardId;
 import org.opensearch.geospatial.GeospatialTestHelper;
 import org.opensearch.geospatial.ip2geo.Ip2GeoTestCase;
 import org.opensearch.geospatial.ip2geo.common.DatasourceState;
+import org.opensearch.geospatial.ip2geo.common.Ip2GeoSettings;
 import org.opensearch.geospatial.ip2geo.jobscheduler.Datasource;
+import org.opensearch.geospatial.ip2geo.lookup.IpRangeTable;
+import org.opensearch.geospatial.plugin.GeospatialPlugin;
+import org.opensearch.geospatial.stats.ip2geo.Ip2GeoCacheStats;
+import org.opensearch.geospatial.stats.ip2geo.Ip2GeoDatasourceStats;
 import org.opensearch.index.IndexNotFoundException;
 import org.opensearch.index.engine.Engine;
+import org.opensearch.threadpool.Scheduler;
+import org.opensearch.threadpool.ThreadPool;
 
 import lombok.SneakyThrows;
 
@@ -34,7 +67,7 @@ public class Ip2GeoCachedDaoTests extends Ip2GeoTestCase {
 
     @Before
     public void init() {
-        ip2GeoCachedDao = new Ip2GeoCachedDao(clusterService, datasourceDao, geoIpDataDao);
+        ip2GeoCachedDao = createCachedDao();
     }
 
     public void testGetIndexName_whenCalled_thenReturnIndexName() {
@@ -58,6 +91,41 @@ public class Ip2GeoCachedDaoTests extends Ip2GeoTestCase {
         assertNull(indexName);
     }
 
+    public void testLoadMetadata_whenNotLoaded_thenLoadAsynchronously() {
+        Datasource datasource = randomDatasource();
+        doAnswer(invocation -> {
+            invocation.<ActionListener<List<Datasource>>>getArgument(0).onResponse(Arrays.asList(datasource));
+            return null;
+        }).when(datasourceDao).getAllDatasources(any(ActionListener.class));
+        assertFalse(ip2GeoCachedDao.isMetadataLoaded());
+
+        // Run
+        PlainActionFuture<Void> future = new PlainActionFuture<>();
+        ip2GeoCachedDao.loadMetadata(future);
+
+        // Verify
+        future.actionGet();
+        assertTrue(ip2GeoCachedDao.isMetadataLoaded());
+        assertEquals(datasource.currentIndexName(), ip2GeoCachedDao.getIndexName(datasource.getName()));
+        verify(datasourceDao, never()).getAllDatasources();
+    }
+
+    public void testLoadMetadata_whenIndexNotFound_thenLoadEmptyMetadata() {
+        doAnswer(invocation -> {
+            invocation.<ActionListener<List<Datasource>>>getArgument(0).onFailure(new IndexNotFoundException("not found"));
+            return null;
+        }).when(datasourceDao).getAllDatasources(any(ActionListener.class));
+
+        // Run
+        PlainActionFuture<Void> future = new PlainActionFuture<>();
+        ip2GeoCachedDao.loadMetadata(future);
+
+        // Verify
+        future.actionGet();
+        assertTrue(ip2GeoCachedDao.isMetadataLoaded());
+        assertNull(ip2GeoCachedDao.getIndexName(GeospatialTestHelper.randomLowerCaseString()));
+    }
+
     public void testIsExpired_whenExpired_thenReturnTrue() {
         Datasource datasource = randomDatasource();
         datasource.getUpdateStats().setLastSucceededAt(Instant.MIN);
@@ -118,17 +186,361 @@ public class Ip2GeoCachedDaoTests extends Ip2GeoTestCase {
         assertEquals(datasource.getState(), state);
     }
 
+    public void testGetDatasourceMetadata_whenNoDatasource_thenReturnNull() {
+        when(datasourceDao.getAllDatasources()).thenReturn(Arrays.asList(randomDatasource()));
+
+        // Run
+        DatasourceMetadata metadata = ip2GeoCachedDao.getDatasourceMetadata(GeospatialTestHelper.randomLowerCaseString());
+
+        // Verify
+        assertNull(metadata);
+    }
+
+    @SneakyThrows
+    public void testGetDatasourceMetadata_whenUpdated_thenPreviousSnapshotUnchanged() {
+        Datasource datasource = randomDatasource();
+        String oldIndexName = datasource.currentIndexName();
+        when(datasourceDao.getAllDatasources()).thenReturn(Arrays.asList(datasource));
+        DatasourceMetadata snapshot = ip2GeoCachedDao.getDatasourceMetadata(datasource.getName());
+
+        datasource.setCurrentIndex(datasource.newIndexName(GeospatialTestHelper.randomLowerCaseString()));
+
+        // Run
+        ip2GeoCachedDao.postIndex(mock(ShardId.class), mockIndex(datasource), mockIndexResult(Engine.Result.Type.SUCCESS));
+
+        // Verify
+        assertEquals(oldIndexName, snapshot.getIndexName());
+        assertEquals(datasource.currentIndexName(), ip2GeoCachedDao.getDatasourceMetadata(datasource.getName()).getIndexName());
+    }
+
+    public void testPostIndex_whenOnlyCheckpointChanged_thenNotRepublished() {
+        Datasource datasource = randomDatasource();
+        datasource.setState(DatasourceState.AVAILABLE);
+        when(datasourceDao.getAllDatasources()).thenReturn(Arrays.asList(datasource));
+        DatasourceMetadata snapshot = ip2GeoCachedDao.getDatasourceMetadata(datasource.getName());
+
+        datasource.setCheckpoint(
+            new Datasource.Checkpoint(
+                GeospatialTestHelper.randomLowerCaseString(),
+                datasource.newIndexName(GeospatialTestHelper.randomLowerCaseString()),
+                null,
+                randomNonNegativeLong()
+            )
+        );
+
+        // Run
+        ip2GeoCachedDao.postIndex(mock(ShardId.class), mockIndex(datasource), mockIndexResult(Engine.Result.Type.SUCCESS));
+
+        // Verify
+        assertSame(snapshot, ip2GeoCachedDao.getDatasourceMetadata(datasource.getName()));
+        verify(geoIpLookupService, never()).prepare(anyString());
+    }
+
+    @SneakyThrows
+    public void testPostIndex_whenExecutorDeferred_thenApplyEventsInOrderOnExecutor() {
+        List<Runnable> tasks = new ArrayList<>();
+        Ip2GeoCachedDao deferredCachedDao = new Ip2GeoCachedDao(
+            clusterService,
+            datasourceDao,
+            geoIpDataDao,
+            geoIpLookupService,
+            new NoopCircuitBreaker(GeospatialPlugin.IP2GEO_CACHE_BREAKER),
+            tasks::add
+        );
+        when(datasourceDao.getAllDatasources()).thenReturn(Arrays.asList());
+        Datasource datasource = randomDatasource();
+        datasource.setState(DatasourceState.AVAILABLE);
+        Engine.Delete delete = mock(Engine.Delete.class);
+        when(delete.id()).thenReturn(datasource.getName());
+        Engine.DeleteResult deleteResult = mock(Engine.DeleteResult.class);
+        when(deleteResult.getResultType()).thenReturn(Engine.Result.Type.SUCCESS);
+
+        // Run
+        deferredCachedDao.postIndex(mock(ShardId.class), mockIndex(datasource), mockIndexResult(Engine.Result.Type.SUCCESS));
+        deferredCachedDao.postDelete(mock(ShardId.class), delete, deleteResult);
+
+        // Verify nothing is parsed nor published on the indexing thread
+        assertEquals(1, tasks.size());
+        assertFalse(deferredCachedDao.has(datasource.getName()));
+
+        // Run
+        tasks.get(0).run();
+
+        // Verify the delete is applied after the index
+        verify(geoIpLookupService).prepare(datasource.currentIndexName());
+        assertFalse(deferredCachedDao.has(datasource.getName()));
+    }
+
     public void testGetGeoData_whenCalled_thenReturnGeoData() {
         Datasource datasource = randomDatasource();
         String ip = NetworkAddress.format(randomIp(false));
         Map<String, Object> expectedGeoData = Map.of("city", "Seattle");
-        when(geoIpDataDao.getGeoIpData(datasource.currentIndexName(), ip)).thenReturn(expectedGeoData);
+        mockGeoIpData(datasource.currentIndexName(), Map.of(ip, expectedGeoData));
+
+        // Run
+        PlainActionFuture<Map<String, Object>> future = new PlainActionFuture<>();
+        ip2GeoCachedDao.getGeoData(datasource.currentIndexName(), ip, future);
+
+        // Verify
+        assertEquals(expectedGeoData, future.actionGet());
+
+        // Run again, the ip is cached now
+        ip2GeoCachedDao.getGeoData(datasource.currentIndexName(), ip, new PlainActionFuture<>());
+
+        // Verify
+        verify(geoIpDataDao, times(1)).getGeoIpData(anyString(), anyString(), any(ActionListener.class));
+    }
+
+    public void testGetGeoData_whenDatasourceHasFields_thenReturnRecord() {
+        Datasource datasource = randomDatasource();
+        when(datasourceDao.getAllDatasources()).thenReturn(Arrays.asList(datasource));
+        List<String> fields = datasource.getDatabase().getFields();
+        Map<String, Object> expectedGeoData = Map.of(fields.get(0), "Seattle");
+        mockGeoIpData(datasource.currentIndexName(), Map.of("1.0.0.1", expectedGeoData, "2.0.0.1", Map.of(fields.get(0), "Seattle")));
+
+        // Run
+        PlainActionFuture<Map<String, Object>> future = new PlainActionFuture<>();
+        ip2GeoCachedDao.getGeoData(datasource.currentIndexName(), "1.0.0.1", future);
+        PlainActionFuture<Map<String, Object>> otherFuture = new PlainActionFuture<>();
+        ip2GeoCachedDao.getGeoData(datasource.currentIndexName(), "2.0.0.1", otherFuture);
+
+        // Verify
+        assertTrue(future.actionGet() instanceof GeoDataRecord);
+        assertEquals(expectedGeoData, future.actionGet());
+        assertSame(future.actionGet().get(fields.get(0)), otherFuture.actionGet().get(fields.get(0)));
+    }
+
+    public void testGetGeoData_whenLoadInFlight_thenShareLoad() {
+        String indexName = GeospatialTestHelper.randomLowerCaseString();
+        String ip = NetworkAddress.format(randomIp(false));
+        Map<String, Object> expectedGeoData = Map.of("city", "Seattle");
+        AtomicReference<ActionListener<GeoIpRange>> loadListener = new AtomicReference<>();
+        doAnswer(invocation -> {
+            loadListener.set(invocation.getArgument(2));
+            return null;
+        }).when(geoIpDataDao).getGeoIpData(eq(indexName), eq(ip), any(ActionListener.class));
+
+        // Run
+        PlainActionFuture<Map<String, Object>> first = new PlainActionFuture<>();
+        PlainActionFuture<Map<String, Object>> second = new PlainActionFuture<>();
+        ip2GeoCachedDao.getGeoData(indexName, ip, first);
+        ip2GeoCachedDao.getGeoData(indexName, ip, second);
+
+        // Verify
+        assertFalse(first.isDone());
+        assertFalse(second.isDone());
+        verify(geoIpDataDao, times(1)).getGeoIpData(anyString(), anyString(), any(ActionListener.class));
+
+        // Run
+        loadListener.get().onResponse(new GeoIpRange(ip, expectedGeoData));
+
+        // Verify
+        assertEquals(expectedGeoData, first.actionGet());
+        assertEquals(expectedGeoData, second.actionGet());
+    }
+
+    public void testGetGeoData_whenLoadFailed_thenFailAndRetryNextTime() {
+        String indexName = GeospatialTestHelper.randomLowerCaseString();
+        String ip = NetworkAddress.format(randomIp(false));
+        doAnswer(invocation -> {
+            invocation.<ActionListener<GeoIpRange>>getArgument(2).onFailure(new RuntimeException("failed"));
+            return null;
+        }).when(geoIpDataDao).getGeoIpData(eq(indexName), eq(ip), any(ActionListener.class));
+
+        // Run
+        PlainActionFuture<Map<String, Object>> future = new PlainActionFuture<>();
+        ip2GeoCachedDao.getGeoData(indexName, ip, future);
+        ip2GeoCachedDao.getGeoData(indexName, ip, new PlainActionFuture<>());
+
+        // Verify
+        expectThrows(RuntimeException.class, future::actionGet);
+        verify(geoIpDataDao, times(2)).getGeoIpData(anyString(), anyString(), any(ActionListener.class));
+    }
+
+    public void testGetGeoData_whenMultipleIps_thenRetrieveDistinctMissesOnce() {
+        Datasource datasource = randomDatasource();
+        String indexName = datasource.currentIndexName();
+        String cachedIp = NetworkAddress.format(randomIp(false));
+        String missedIp = NetworkAddress.format(randomIp(true));
+        Map<String, Object> cachedGeoData = Map.of("city", "Seattle");
+        Map<String, Object> missedGeoData = Map.of("city", "Sydney");
+        mockGeoIpData(indexName, Map.of(cachedIp, cachedGeoData, missedIp, missedGeoData));
+        ip2GeoCachedDao.getGeoData(indexName, cachedIp, new PlainActionFuture<>());
+
+        // Run
+        PlainActionFuture<List<Map<String, Object>>> future = new PlainActionFuture<>();
+        ip2GeoCachedDao.getGeoData(indexName, Arrays.asList(missedIp, cachedIp, missedIp), future);
+
+        // Verify
+        assertEquals(Arrays.asList(missedGeoData, cachedGeoData, missedGeoData), future.actionGet());
+        verify(geoIpDataDao).getGeoIpData(eq(indexName), eq(List.of(missedIp)), any(BiConsumer.class), any(ActionListener.class));
+
+        // Run again, all ips are cached now
+        ip2GeoCachedDao.getGeoData(indexName, Arrays.asList(missedIp, cachedIp), new PlainActionFuture<>());
+
+        // Verify
+        verify(geoIpDataDao, times(1)).getGeoIpData(anyString(), anyList(), any(BiConsumer.class), any(ActionListener.class));
+    }
+
+    public void testGetGeoData_whenSomeIpsFailed_thenReportFailedIpsOnly() {
+        Datasource datasource = randomDatasource();
+        String indexName = datasource.currentIndexName();
+        String ip = "1.0.0.1";
+        String failedIp = "2.0.0.1";
+        Map<String, Object> geoData = Map.of("city", "Seattle");
+        OpenSearchException exception = new OpenSearchException("failed to get geoip data");
+        doAnswer(invocation -> {
+            invocation.<BiConsumer<String, OpenSearchException>>getArgument(2).accept(failedIp, exception);
+            invocation.<ActionListener<List<GeoIpRange>>>getArgument(3).onResponse(Arrays.asList(new GeoIpRange(ip, geoData), null));
+            return null;
+        }).when(geoIpDataDao).getGeoIpData(eq(indexName), anyList(), any(BiConsumer.class), any(ActionListener.class));
+        Map<String, Exception> failures = new ConcurrentHashMap<>();
+
+        // Run
+        PlainActionFuture<List<Map<String, Object>>> future = new PlainActionFuture<>();
+        ip2GeoCachedDao.getGeoData(indexName, Arrays.asList(ip, failedIp), failures::put, future);
+
+        // Verify
+        assertEquals(Arrays.asList(geoData, null), future.actionGet());
+        assertEquals(Map.of(failedIp, exception), failures);
+    }
+
+
+    public void testGetGeoData_whenIpInCachedRange_thenUseCachedRange() {
+        String indexName = GeospatialTestHelper.randomLowerCaseString();
+        Map<String, Object> geoData = Map.of("city", "Seattle");
+        doAnswer(invocation -> {
+            invocation.<ActionListener<GeoIpRange>>getArgument(2).onResponse(new GeoIpRange("1.0.0.0/24", geoData));
+            return null;
+        }).when(geoIpDataDao).getGeoIpData(eq(indexName), anyString(), any(ActionListener.class));
+        ip2GeoCachedDao.getGeoData(indexName, "1.0.0.1", new PlainActionFuture<>());
+
+        // Run
+        PlainActionFuture<Map<String, Object>> future = new PlainActionFuture<>();
+        ip2GeoCachedDao.getGeoData(indexName, "1.0.0.255", future);
+        PlainActionFuture<Map<String, Object>> ipv4MappedFuture = new PlainActionFuture<>();
+        ip2GeoCachedDao.getGeoData(indexName, "::ffff:1.0.0.2", ipv4MappedFuture);
+        ip2GeoCachedDao.getGeoData(indexName, "1.0.1.0", new PlainActionFuture<>());
+
+        // Verify
+        assertEquals(geoData, future.actionGet());
+        assertEquals(geoData, ipv4MappedFuture.actionGet());
+        verify(geoIpDataDao).getGeoIpData(eq(indexName), eq("1.0.0.1"), any(ActionListener.class));
+        verify(geoIpDataDao).getGeoIpData(eq(indexName), eq("1.0.1.0"), any(ActionListener.class));
+        verify(geoIpDataDao, times(2)).getGeoIpData(anyString(), anyString(), any(ActionListener.class));
+    }
+
+    public void testGetGeoData_whenNoMatch_thenCacheOnlyTheIp() {
+        String indexName = GeospatialTestHelper.randomLowerCaseString();
+        mockGeoIpData(indexName, Collections.emptyMap());
+
+        // Run
+        PlainActionFuture<Map<String, Object>> future = new PlainActionFuture<>();
+        ip2GeoCachedDao.getGeoData(indexName, "2001:db8::1", future);
+        ip2GeoCachedDao.getGeoData(indexName, "2001:db8::1", new PlainActionFuture<>());
+        ip2GeoCachedDao.getGeoData(indexName, "2001:db8::2", new PlainActionFuture<>());
+
+        // Verify
+        assertTrue(future.actionGet().isEmpty());
+        verify(geoIpDataDao, times(2)).getGeoIpData(anyString(), anyString(), any(ActionListener.class));
+    }
+
+    public void testGetGeoData_whenNoMatch_thenCacheGapBetweenRanges() {
+        String indexName = GeospatialTestHelper.randomLowerCaseString();
+        mockGeoIpData(indexName, Collections.emptyMap());
+        doAnswer(invocation -> {
+            invocation.<ActionListener<List<String>>>getArgument(4).onResponse(Arrays.asList("1.0.0.0/28", "1.0.0.128/25"));
+            return null;
+        }).when(geoIpDataDao).getGeoIpRanges(eq(indexName), eq("1.0.0.0"), eq("1.0.0.255"), anyInt(), any(ActionListener.class));
 
         // Run
-        Map<String, Object> geoData = ip2GeoCachedDao.getGeoData(datasource.currentIndexName(), ip);
+        PlainActionFuture<Map<String, Object>> future = new PlainActionFuture<>();
+        ip2GeoCachedDao.getGeoData(indexName, "1.0.0.50", future);
+        PlainActionFuture<Map<String, Object>> firstInGapFuture = new PlainActionFuture<>();
+        ip2GeoCachedDao.getGeoData(indexName, "1.0.0.16", firstInGapFuture);
+        PlainActionFuture<Map<String, Object>> lastInGapFuture = new PlainActionFuture<>();
+        ip2GeoCachedDao.getGeoData(indexName, "1.0.0.127", lastInGapFuture);
+        ip2GeoCachedDao.getGeoData(indexName, "1.0.0.15", new PlainActionFuture<>());
 
         // Verify
-        assertEquals(expectedGeoData, geoData);
+        assertTrue(future.actionGet().isEmpty());
+        assertTrue(firstInGapFuture.actionGet().isEmpty());
+        assertTrue(lastInGapFuture.actionGet().isEmpty());
+        verify(geoIpDataDao).getGeoIpData(eq(indexName), eq("1.0.0.50"), any(ActionListener.class));
+        verify(geoIpDataDao).getGeoIpData(eq(indexName), eq("1.0.0.15"), any(ActionListener.class));
+        verify(geoIpDataDao, times(2)).getGeoIpData(anyString(), anyString(), any(ActionListener.class));
+        assertEquals(2, ip2GeoCachedDao.getNotFoundCacheStats().getHits());
+    }
+
+    public void testGetGeoData_whenTooManyRangesAroundNoMatch_thenCacheOnlyTheIp() {
+        String indexName = GeospatialTestHelper.randomLowerCaseString();
+        mockGeoIpData(indexName, Collections.emptyMap());
+        doAnswer(invocation -> {
+            invocation.<ActionListener<List<String>>>getArgument(4).onResponse(null);
+            return null;
+        }).when(geoIpDataDao).getGeoIpRanges(eq(indexName), anyString(), anyString(), anyInt(), any(ActionListener.class));
+
+        // Run
+        ip2GeoCachedDao.getGeoData(indexName, "2001:db8::1", new PlainActionFuture<>());
+        ip2GeoCachedDao.getGeoData(indexName, "2001:db8::1", new PlainActionFuture<>());
+        ip2GeoCachedDao.getGeoData(indexName, "2001:db8::2", new PlainActionFuture<>());
+
+        // Verify
+        verify(geoIpDataDao).getGeoIpRanges(
+            eq(indexName),
+            eq("2001:db8::"),
+            eq("2001:db8:0:ffff:ffff:ffff:ffff:ffff"),
+            anyInt(),
+            any(ActionListener.class)
+        );
+        verify(geoIpDataDao, times(2)).getGeoIpData(anyString(), anyString(), any(ActionListener.class));
+    }
+
+    public void testGetGeoData_whenLookupIsLoaded_thenUseLookup() {
+        Datasource datasource = randomDatasource();
+        IpRangeTable rangeTable = new IpRangeTable.Builder().add("1.0.0.0/24", Map.of("city", "Seattle")).build();
+        when(geoIpLookupService.getLookup(datasource.currentIndexName())).thenReturn(rangeTable);
+
+        // Run
+        PlainActionFuture<Map<String, Object>> future = new PlainActionFuture<>();
+        ip2GeoCachedDao.getGeoData(datasource.currentIndexName(), "1.0.0.1", future);
+        PlainActionFuture<List<Map<String, Object>>> batchFuture = new PlainActionFuture<>();
+        ip2GeoCachedDao.getGeoData(datasource.currentIndexName(), Arrays.asList("1.0.0.1", "2.0.0.1"), batchFuture);
+
+        // Verify
+        assertEquals(Map.of("city", "Seattle"), future.actionGet());
+        assertEquals(Arrays.asList(Map.of("city", "Seattle"), Collections.emptyMap()), batchFuture.actionGet());
+        verify(geoIpDataDao, never()).getGeoIpData(anyString(), anyString(), any(ActionListener.class));
+    }
+
+    @SneakyThrows
+    public void testPostIndex_whenIndexChanged_thenReleaseLookup() {
+        Datasource datasource = randomDatasource();
+        String oldIndexName = datasource.currentIndexName();
+        when(datasourceDao.getAllDatasources()).thenReturn(Arrays.asList(datasource));
+        ip2GeoCachedDao.has(datasource.getName());
+        mockGeoIpData(oldIndexName, Map.of("1.0.0.1", Map.of("city", "Seattle")));
+        ip2GeoCachedDao.getGeoData(oldIndexName, "1.0.0.1", new PlainActionFuture<>());
+
+        datasource.setCurrentIndex(datasource.newIndexName(GeospatialTestHelper.randomLowerCaseString()));
+        datasource.setState(DatasourceState.AVAILABLE);
+        ShardId shardId = mock(ShardId.class);
+        Engine.Index index = mock(Engine.Index.class);
+        BytesReference bytesReference = BytesReference.bytes(datasource.toXContent(XContentFactory.jsonBuilder(), null));
+        when(index.source()).thenReturn(bytesReference);
+        Engine.IndexResult result = mock(Engine.IndexResult.class);
+        when(result.getResultType()).thenReturn(Engine.Result.Type.SUCCESS);
+
+        // Run
+        ip2GeoCachedDao.postIndex(shardId, index, result);
+
+        // Verify
+        verify(geoIpLookupService).remove(oldIndexName);
+        verify(geoIpLookupService).prepare(datasource.currentIndexName());
+
+        // Verify cached data of the old index is evicted
+        ip2GeoCachedDao.getGeoData(oldIndexName, "1.0.0.1", new PlainActionFuture<>());
+        verify(geoIpDataDao, times(2)).getGeoIpData(eq(oldIndexName), eq("1.0.0.1"), any(ActionListener.class));
     }
 
     @SneakyThrows
@@ -175,6 +587,20 @@ public class Ip2GeoCachedDaoTests extends Ip2GeoTestCase {
         assertEquals(datasource.getState(), ip2GeoCachedDao.getState(datasource.getName()));
     }
 
+    @SneakyThrows
+    private Engine.Index mockIndex(final Datasource datasource) {
+        Engine.Index index = mock(Engine.Index.class);
+        when(index.id()).thenReturn(datasource.getName());
+        when(index.source()).thenReturn(BytesReference.bytes(datasource.toXContent(XContentFactory.jsonBuilder(), null)));
+        return index;
+    }
+
+    private Engine.IndexResult mockIndexResult(final Engine.Result.Type type) {
+        Engine.IndexResult result = mock(Engine.IndexResult.class);
+        when(result.getResultType()).thenReturn(type);
+        return result;
+    }
+
     public void testPostDelete_whenFailed_thenNoUpdate() {
         Datasource datasource = randomDatasource();
         when(datasourceDao.getAllDatasources()).thenReturn(Arrays.asList(datasource));
@@ -217,7 +643,7 @@ public class Ip2GeoCachedDaoTests extends Ip2GeoTestCase {
         for (int i = 0; i < cacheSize; i++) {
             String ip = NetworkAddress.format(randomIp(false));
             ips.add(ip);
-            geoDataCache.putIfAbsent(datasource, ip, addr -> Collections.emptyMap());
+            geoDataCache.put(datasource, ip, Collections.emptyMap());
         }
 
         // Verify all data exist in the cache
@@ -232,7 +658,7 @@ public class Ip2GeoCachedDaoTests extends Ip2GeoTestCase {
 
         // Add (newCacheSize - cacheSize + 1) data and the first data should not be available in the cache
         for (int i = 0; i < newCacheSize - cacheSize + 1; i++) {
-            geoDataCache.putIfAbsent(datasource, NetworkAddress.format(randomIp(false)), addr -> Collections.emptyMap());
+            geoDataCache.put(datasource, NetworkAddress.format(randomIp(false)), Collections.emptyMap());
         }
         assertNull(geoDataCache.get(datasource, ips.get(0)));
     }
@@ -246,7 +672,7 @@ public class Ip2GeoCachedDaoTests extends Ip2GeoTestCase {
         for (int i = 0; i < cacheSize; i++) {
             String ip = NetworkAddress.format(randomIp(false));
             ips.add(ip);
-            geoDataCache.putIfAbsent(datasource, ip, addr -> Collections.emptyMap());
+            geoDataCache.put(datasource, ip, Collections.emptyMap());
         }
 
         // Verify all data exist in the cache
@@ -262,4 +688,364 @@ public class Ip2GeoCachedDaoTests extends Ip2GeoTestCase {
         assertTrue(deleted.stream().allMatch(ip -> geoDataCache.get(datasource, ip) == null));
         assertTrue(retained.stream().allMatch(ip -> geoDataCache.get(datasource, ip) != null));
     }
+
+    public void testPut_whenCalled_thenChargeCircuitBreaker() {
+        String indexName = GeospatialTestHelper.randomLowerCaseString();
+        CircuitBreaker circuitBreaker = mock(CircuitBreaker.class);
+        Ip2GeoCachedDao.GeoDataCache geoDataCache = new Ip2GeoCachedDao.GeoDataCache(10, -1, circuitBreaker);
+
+        // Run
+        geoDataCache.put(indexName, "1.0.0.0/24", Map.of("city", "Seattle"));
+
+        // Verify
+        long memorySize = geoDataCache.getMemorySize();
+        assertTrue(memorySize > 0);
+        verify(circuitBreaker).addEstimateBytesAndMaybeBreak(memorySize, GeospatialPlugin.IP2GEO_CACHE_BREAKER);
+
+        // Run
+        geoDataCache.invalidate(indexName);
+
+        // Verify
+        verify(circuitBreaker).addWithoutBreaking(-memorySize);
+        assertEquals(0, geoDataCache.getMemorySize());
+        assertNull(geoDataCache.get(indexName, "1.0.0.1"));
+    }
+
+    public void testPut_whenCircuitBreakerTripped_thenNotCached() {
+        String indexName = GeospatialTestHelper.randomLowerCaseString();
+        CircuitBreaker circuitBreaker = mock(CircuitBreaker.class);
+        when(circuitBreaker.addEstimateBytesAndMaybeBreak(anyLong(), anyString())).thenThrow(
+            new CircuitBreakingException("tripped", CircuitBreaker.Durability.TRANSIENT)
+        );
+        Ip2GeoCachedDao.GeoDataCache geoDataCache = new Ip2GeoCachedDao.GeoDataCache(10, -1, circuitBreaker);
+
+        // Run
+        geoDataCache.put(indexName, "1.0.0.0/24", Map.of("city", "Seattle"));
+
+        // Verify
+        assertNull(geoDataCache.get(indexName, "1.0.0.1"));
+        verify(circuitBreaker, never()).addWithoutBreaking(anyLong());
+    }
+
+    public void testPut_whenSameRangeTwice_thenReleasePreviousRange() {
+        String indexName = GeospatialTestHelper.randomLowerCaseString();
+        CircuitBreaker circuitBreaker = mock(CircuitBreaker.class);
+        Ip2GeoCachedDao.GeoDataCache geoDataCache = new Ip2GeoCachedDao.GeoDataCache(10, -1, circuitBreaker);
+        geoDataCache.put(indexName, "1.0.0.0/24", Map.of("city", "Seattle"));
+        long memorySize = geoDataCache.getMemorySize();
+
+        // Run
+        geoDataCache.put(indexName, "1.0.0.0/24", Map.of("city", "Seattle"));
+
+        // Verify
+        verify(circuitBreaker).addWithoutBreaking(-memorySize);
+        assertEquals(memorySize, geoDataCache.getMemorySize());
+        assertEquals(1, geoDataCache.getStats(indexName).getEntries());
+    }
+
+    @SneakyThrows
+    public void testPut_whenResizedConcurrently_thenReleaseAllMemoryOnInvalidate() {
+        String indexName = GeospatialTestHelper.randomLowerCaseString();
+        AtomicLong used = new AtomicLong();
+        CircuitBreaker circuitBreaker = mock(CircuitBreaker.class);
+        when(circuitBreaker.addEstimateBytesAndMaybeBreak(anyLong(), anyString())).thenAnswer(
+            invocation -> (double) used.addAndGet(invocation.getArgument(0))
+        );
+        when(circuitBreaker.addWithoutBreaking(anyLong())).thenAnswer(invocation -> used.addAndGet(invocation.getArgument(0)));
+        Ip2GeoCachedDao.GeoDataCache geoDataCache = new Ip2GeoCachedDao.GeoDataCache(100, -1, circuitBreaker);
+        List<String> ips = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            ips.add(NetworkAddress.format(randomIp(false)));
+        }
+        Thread writer = new Thread(() -> ips.forEach(ip -> geoDataCache.put(indexName, ip, Map.of("city", "Seattle"))));
+
+        // Run
+        writer.start();
+        for (int i = 0; i < 100; i++) {
+            geoDataCache.updateMaxSize(randomIntBetween(1, 100));
+        }
+        writer.join();
+
+        // Verify
+        assertEquals(geoDataCache.getMemorySize(), used.get());
+
+        // Run
+        geoDataCache.invalidate(indexName);
+
+        // Verify
+        assertEquals(0, used.get());
+    }
+
+    public void testUpdateMaxMemorySize_whenSmallerSize_thenEvictByMemorySize() {
+        String indexName = GeospatialTestHelper.randomLowerCaseString();
+        Ip2GeoCachedDao.GeoDataCache geoDataCache = new Ip2GeoCachedDao.GeoDataCache(10, -1, mock(CircuitBreaker.class));
+        geoDataCache.put(indexName, "1.0.0.0/24", Map.of("city", "Seattle"));
+        long entrySize = geoDataCache.getMemorySize();
+
+        // Run
+        geoDataCache.updateMaxMemorySize(entrySize * 2);
+        for (int i = 2; i <= 4; i++) {
+            geoDataCache.put(indexName, String.format(Locale.ROOT, "%d.0.0.0/24", i), Map.of("city", "Seattle"));
+        }
+
+        // Verify
+        assertEquals(entrySize * 2, geoDataCache.getMemorySize());
+        assertNull(geoDataCache.get(indexName, "1.0.0.1"));
+        assertNull(geoDataCache.get(indexName, "2.0.0.1"));
+        assertNotNull(geoDataCache.get(indexName, "3.0.0.1"));
+        assertNotNull(geoDataCache.get(indexName, "4.0.0.1"));
+    }
+
+    public void testWarmUp_whenCalled_thenCacheRecentlyUsedRangesFromNewIndex() {
+        Datasource datasource = randomDatasource();
+        when(datasourceDao.getAllDatasources()).thenReturn(Arrays.asList(datasource));
+        String newIndexName = GeospatialTestHelper.randomLowerCaseString();
+        mockGeoIpData(datasource.currentIndexName(), Map.of("1.0.0.1", Map.of("city", "Seattle")));
+        ip2GeoCachedDao.getGeoData(datasource.currentIndexName(), "1.0.0.1", new PlainActionFuture<>());
+        doAnswer(invocation -> {
+            List<String> ips = invocation.getArgument(1);
+            assertEquals(Arrays.asList("1.0.0.1"), ips);
+            invocation.<ActionListener<List<GeoIpRange>>>getArgument(2)
+                .onResponse(Arrays.asList(new GeoIpRange("1.0.0.0/24", Map.of("city", "Bellevue"))));
+            return null;
+        }).when(geoIpDataDao).getGeoIpData(eq(newIndexName), anyList(), any(ActionListener.class));
+
+        // Run
+        PlainActionFuture<Integer> future = new PlainActionFuture<>();
+        ip2GeoCachedDao.warmUp(datasource.getName(), newIndexName, Arrays.asList("city"), future);
+
+        // Verify
+        assertEquals(1, (int) future.actionGet());
+        verify(geoIpLookupService).prepare(newIndexName);
+        PlainActionFuture<Map<String, Object>> geoData = new PlainActionFuture<>();
+        ip2GeoCachedDao.getGeoData(newIndexName, "1.0.0.2", geoData);
+        assertEquals(Map.of("city", "Bellevue"), geoData.actionGet());
+        assertTrue(geoData.actionGet() instanceof GeoDataRecord);
+        verify(geoIpDataDao, never()).getGeoIpData(eq(newIndexName), anyString(), any(ActionListener.class));
+    }
+
+    public void testWarmUp_whenSameIndex_thenSkip() {
+        Datasource datasource = randomDatasource();
+        when(datasourceDao.getAllDatasources()).thenReturn(Arrays.asList(datasource));
+
+        // Run
+        PlainActionFuture<Integer> future = new PlainActionFuture<>();
+        ip2GeoCachedDao.warmUp(datasource.getName(), datasource.currentIndexName(), null, future);
+
+        // Verify
+        assertEquals(0, (int) future.actionGet());
+        verify(geoIpDataDao, never()).getGeoIpData(anyString(), anyList(), any(ActionListener.class));
+    }
+
+    @SneakyThrows
+    public void testPersistHotKeys_whenRestarted_thenLoadHotKeysIntoCache() {
+        Path directory = createTempDir();
+        Datasource datasource = randomDatasource();
+        datasource.setState(DatasourceState.AVAILABLE);
+        when(datasourceDao.getAllDatasources()).thenReturn(Arrays.asList(datasource));
+        mockGeoIpData(datasource.currentIndexName(), Map.of("1.0.0.1", Map.of("city", "Seattle")));
+        ip2GeoCachedDao.initialize(directory, threadPool);
+        ip2GeoCachedDao.getGeoData(datasource.currentIndexName(), "1.0.0.1", new PlainActionFuture<>());
+
+        // Run
+        ip2GeoCachedDao.persistHotKeys();
+
+        // Verify
+        assertTrue(Files.exists(directory.resolve("cache_hot_keys.json")));
+
+        // Run a new instance as after a restart
+        Ip2GeoCachedDao restarted = createCachedDao();
+        restarted.initialize(directory, threadPool);
+        restarted.has(datasource.getName());
+
+        // Verify
+        verify(geoIpDataDao).getGeoIpData(eq(datasource.currentIndexName()), eq(Arrays.asList("1.0.0.1")), any(ActionListener.class));
+        PlainActionFuture<Map<String, Object>> geoData = new PlainActionFuture<>();
+        restarted.getGeoData(datasource.currentIndexName(), "1.0.0.1", geoData);
+        assertEquals(Map.of("city", "Seattle"), geoData.actionGet());
+        verify(geoIpDataDao, times(1)).getGeoIpData(anyString(), anyString(), any(ActionListener.class));
+    }
+
+    @SneakyThrows
+    public void testInitialize_whenIndexIsNotCurrent_thenDropHotKeys() {
+        Path directory = createTempDir();
+        Files.writeString(directory.resolve("cache_hot_keys.json"), "{\"old_index\":[\"1.0.0.1\"]}");
+        Datasource datasource = randomDatasource();
+        datasource.setState(DatasourceState.AVAILABLE);
+        when(datasourceDao.getAllDatasources()).thenReturn(Arrays.asList(datasource));
+        ip2GeoCachedDao.initialize(directory, threadPool);
+
+        // Run
+        ip2GeoCachedDao.has(datasource.getName());
+        ip2GeoCachedDao.persistHotKeys();
+
+        // Verify
+        verify(geoIpDataDao, never()).getGeoIpData(anyString(), anyList(), any(ActionListener.class));
+        assertEquals("{}", Files.readString(directory.resolve("cache_hot_keys.json")));
+    }
+
+    @SneakyThrows
+    public void testPersistHotKeys_whenDatasourceNotLoaded_thenKeepFile() {
+        Path directory = createTempDir();
+        Files.writeString(directory.resolve("cache_hot_keys.json"), "{\"index\":[\"1.0.0.1\"]}");
+        ip2GeoCachedDao.initialize(directory, threadPool);
+
+        // Run
+        ip2GeoCachedDao.persistHotKeys();
+
+        // Verify
+        assertEquals("{\"index\":[\"1.0.0.1\"]}", Files.readString(directory.resolve("cache_hot_keys.json")));
+    }
+
+    @SneakyThrows
+    public void testInitialize_whenPersistIntervalChanged_thenReschedule() {
+        Scheduler.Cancellable task = mock(Scheduler.Cancellable.class);
+        when(threadPool.scheduleWithFixedDelay(any(Runnable.class), any(TimeValue.class), anyString())).thenReturn(task);
+
+        // Run
+        ip2GeoCachedDao.initialize(createTempDir(), threadPool);
+
+        // Verify
+        verify(threadPool).scheduleWithFixedDelay(any(Runnable.class), eq(TimeValue.timeValueMinutes(5)), eq(ThreadPool.Names.GENERIC));
+
+        // Run
+        clusterSettings.applySettings(Settings.builder().put(Ip2GeoSettings.CACHE_PERSIST_INTERVAL.getKey(), "0s").build());
+
+        // Verify
+        verify(task).cancel();
+        verify(threadPool, times(1)).scheduleWithFixedDelay(any(Runnable.class), any(TimeValue.class), anyString());
+    }
+
+    private Ip2GeoCachedDao createCachedDao() {
+        return new Ip2GeoCachedDao(
+            clusterService,
+            datasourceDao,
+            geoIpDataDao,
+            geoIpLookupService,
+            new NoopCircuitBreaker(GeospatialPlugin.IP2GEO_CACHE_BREAKER),
+            Runnable::run
+        );
+    }
+
+    public void testGetStats_whenCalled_thenReturnStatsOfDatasource() {
+        Datasource datasource = randomDatasource();
+        when(datasourceDao.getAllDatasources()).thenReturn(Arrays.asList(datasource));
+        String ip = NetworkAddress.format(randomIp(false));
+        mockGeoIpData(datasource.currentIndexName(), Map.of(ip, Map.of("city", "Seattle")));
+        ip2GeoCachedDao.getGeoData(datasource.currentIndexName(), ip, new PlainActionFuture<>());
+        ip2GeoCachedDao.getGeoData(datasource.currentIndexName(), ip, new PlainActionFuture<>());
+        ip2GeoCachedDao.recordProcessed(datasource.getName(), 3);
+        ip2GeoCachedDao.recordExpired(datasource.getName(), 1);
+
+        // Run
+        List<Ip2GeoDatasourceStats> stats = ip2GeoCachedDao.getStats();
+
+        // Verify
+        assertEquals(1, stats.size());
+        Ip2GeoDatasourceStats datasourceStats = stats.get(0);
+        assertEquals(datasource.getName(), datasourceStats.getDatasource());
+        assertEquals(datasource.currentIndexName(), datasourceStats.getIndexName());
+        assertEquals(1, datasourceStats.getCacheStats().getHits());
+        assertEquals(1, datasourceStats.getCacheStats().getMisses());
+        assertEquals(1, datasourceStats.getCacheStats().getEntries());
+        assertTrue(datasourceStats.getCacheStats().getMemorySizeInBytes() > 0);
+        assertEquals(1, datasourceStats.getNotFoundCacheStats().getMisses());
+        assertEquals(0, datasourceStats.getNotFoundCacheStats().getEntries());
+        assertEquals(1, datasourceStats.getLoadCount());
+        assertEquals(3, datasourceStats.getProcessedCount());
+        assertEquals(1, datasourceStats.getExpiredCount());
+    }
+
+    public void testGetStats_whenEvicted_thenCountEvictions() {
+        String indexName = GeospatialTestHelper.randomLowerCaseString();
+        Ip2GeoCachedDao.GeoDataCache geoDataCache = new Ip2GeoCachedDao.GeoDataCache(1);
+
+        // Run
+        geoDataCache.put(indexName, "1.0.0.0/24", Map.of("city", "Seattle"));
+        geoDataCache.put(indexName, "2.0.0.0/24", Map.of("city", "Seattle"));
+
+        // Verify
+        Ip2GeoCacheStats stats = geoDataCache.getStats(indexName);
+        assertEquals(1, stats.getEvictions());
+        assertEquals(1, stats.getEntries());
+        assertEquals(geoDataCache.getMemorySize(), stats.getMemorySizeInBytes());
+
+        // Run
+        geoDataCache.invalidate(indexName);
+
+        // Verify
+        assertEquals(Ip2GeoCacheStats.EMPTY, geoDataCache.getStats(indexName));
+    }
+
+    public void testPut_whenNoisyIndex_thenOtherIndexKeepsEntries() {
+        String indexName = GeospatialTestHelper.randomLowerCaseString();
+        String noisyIndexName = GeospatialTestHelper.randomLowerCaseString();
+        Ip2GeoCachedDao.GeoDataCache geoDataCache = new Ip2GeoCachedDao.GeoDataCache(10);
+        for (int i = 1; i <= 5; i++) {
+            geoDataCache.put(indexName, String.format(Locale.ROOT, "%d.0.0.0/24", i), Map.of("country", "USA"));
+        }
+
+        // Run
+        for (int i = 1; i <= 100; i++) {
+            geoDataCache.put(noisyIndexName, String.format(Locale.ROOT, "10.0.%d.0/24", i), Map.of("asn", "1"));
+        }
+
+        // Verify
+        for (int i = 1; i <= 5; i++) {
+            assertNotNull(geoDataCache.get(indexName, String.format(Locale.ROOT, "%d.0.0.1", i)));
+        }
+        assertEquals(5, geoDataCache.getStats(indexName).getCapacity());
+        assertEquals(5, geoDataCache.getStats(noisyIndexName).getEntries());
+        assertEquals(95, geoDataCache.getStats(noisyIndexName).getEvictions());
+    }
+
+    public void testRebalance_whenHits_thenGiveMoreCapacityToPartitionWithMoreHits() {
+        String indexName = GeospatialTestHelper.randomLowerCaseString();
+        String otherIndexName = GeospatialTestHelper.randomLowerCaseString();
+        Ip2GeoCachedDao.GeoDataCache geoDataCache = new Ip2GeoCachedDao.GeoDataCache(100);
+        geoDataCache.put(indexName, "1.0.0.0/24", Map.of("country", "USA"));
+        geoDataCache.put(otherIndexName, "1.0.0.0/24", Map.of("asn", "1"));
+        for (int i = 0; i < 10; i++) {
+            geoDataCache.get(indexName, "1.0.0.1");
+        }
+
+        // Run
+        geoDataCache.rebalance(false);
+
+        // Verify
+        assertEquals(75, geoDataCache.getStats(indexName).getCapacity());
+        assertEquals(25, geoDataCache.getStats(otherIndexName).getCapacity());
+
+        // Run without hits
+        geoDataCache.rebalance(false);
+
+        // Verify
+        assertEquals(50, geoDataCache.getStats(indexName).getCapacity());
+        assertEquals(50, geoDataCache.getStats(otherIndexName).getCapacity());
+        assertNotNull(geoDataCache.get(indexName, "1.0.0.1"));
+        assertNotNull(geoDataCache.get(otherIndexName, "1.0.0.1"));
+    }
+
+    private void mockGeoIpData(final String indexName, final Map<String, Map<String, Object>> geoIpData) {
+        doAnswer(invocation -> {
+            invocation.<ActionListener<GeoIpRange>>getArgument(2).onResponse(toGeoIpRange(geoIpData, invocation.getArgument(1)));
+            return null;
+        }).when(geoIpDataDao).getGeoIpData(eq(indexName), anyString(), any(ActionListener.class));
+        doAnswer(invocation -> {
+            List<String> ips = invocation.getArgument(1);
+            invocation.<ActionListener<List<GeoIpRange>>>getArgument(2)
+                .onResponse(ips.stream().map(ip -> toGeoIpRange(geoIpData, ip)).collect(Collectors.toList()));
+            return null;
+        }).when(geoIpDataDao).getGeoIpData(eq(indexName), anyList(), any(ActionListener.class));
+        doAnswer(invocation -> {
+            List<String> ips = invocation.getArgument(1);
+            invocation.<ActionListener<List<GeoIpRange>>>getArgument(3)
+                .onResponse(ips.stream().map(ip -> toGeoIpRange(geoIpData, ip)).collect(Collectors.toList()));
+            return null;
+        }).when(geoIpDataDao).getGeoIpData(eq(indexName), anyList(), any(BiConsumer.class), any(ActionListener.class));
+    }
+
+    private GeoIpRange toGeoIpRange(final Map<String, Map<String, Object>> geoIpData, final String ip) {
+        return geoIpData.containsKey(ip) ? new GeoIpRange(ip, geoIpData.get(ip)) : GeoIpRange.NO_MATCH;
+    }
 }
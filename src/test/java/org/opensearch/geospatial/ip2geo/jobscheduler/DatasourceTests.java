@@ -13,7 +13,10 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Locale;
 
+import org.opensearch.Version;
+import org.opensearch.common.io.stream.BytesStreamOutput;
 import org.opensearch.common.xcontent.XContentFactory;
+import org.opensearch.core.common.io.stream.StreamInput;
 import org.opensearch.geospatial.GeospatialTestHelper;
 import org.opensearch.geospatial.ip2geo.Ip2GeoTestCase;
 import org.opensearch.jobscheduler.spi.schedule.IntervalSchedule;
@@ -39,6 +42,16 @@ public class DatasourceTests extends Ip2GeoTestCase {
         datasource.getUpdateStats().setLastSucceededAt(Instant.now().truncatedTo(ChronoUnit.MILLIS));
         datasource.getUpdateStats().setLastSkippedAt(Instant.now().truncatedTo(ChronoUnit.MILLIS));
         datasource.getUpdateStats().setLastFailedAt(Instant.now().truncatedTo(ChronoUnit.MILLIS));
+        datasource.getUpdateStats().setReplicationStartedShards(1);
+        datasource.getUpdateStats().setReplicationTotalShards(2);
+        datasource.setCheckpoint(
+            new Datasource.Checkpoint(
+                GeospatialTestHelper.randomLowerCaseString(),
+                GeospatialTestHelper.randomLowerCaseString(),
+                GeospatialTestHelper.randomLowerCaseString(),
+                randomPositiveLong()
+            )
+        );
 
         Datasource anotherDatasource = Datasource.PARSER.parse(
             createParser(datasource.toXContent(XContentFactory.jsonBuilder(), null)),
@@ -60,6 +73,51 @@ public class DatasourceTests extends Ip2GeoTestCase {
         assertTrue(datasource.equals(anotherDatasource));
     }
 
+    @SneakyThrows
+    public void testStream_whenCheckpoint_thenSucceed() {
+        Datasource datasource = randomDatasource();
+        String sha256Hash = GeospatialTestHelper.randomLowerCaseString();
+        datasource.setCheckpoint(new Datasource.Checkpoint(sha256Hash, datasource.currentIndexName(), null, randomPositiveLong()));
+        BytesStreamOutput output = new BytesStreamOutput();
+
+        // Run
+        datasource.writeTo(output);
+        Datasource anotherDatasource = new Datasource(output.bytes().streamInput());
+
+        // Verify
+        assertEquals(datasource.getCheckpoint(), anotherDatasource.getCheckpoint());
+    }
+
+    @SneakyThrows
+    public void testStream_whenPreviousVersion_thenSkipUpdateProgress() {
+        Datasource datasource = randomDatasource();
+        datasource.setCheckpoint(
+            new Datasource.Checkpoint(
+                GeospatialTestHelper.randomLowerCaseString(),
+                datasource.currentIndexName(),
+                null,
+                randomPositiveLong()
+            )
+        );
+        datasource.getUpdateStats().setReplicationStartedShards(1);
+        datasource.getUpdateStats().setReplicationTotalShards(2);
+        BytesStreamOutput output = new BytesStreamOutput();
+        output.setVersion(Version.V_2_14_0);
+
+        // Run
+        datasource.writeTo(output);
+        StreamInput input = output.bytes().streamInput();
+        input.setVersion(Version.V_2_14_0);
+        Datasource anotherDatasource = new Datasource(input);
+
+        // Verify
+        assertNull(anotherDatasource.getCheckpoint());
+        assertNull(anotherDatasource.getUpdateStats().getReplicationStartedShards());
+        assertNull(anotherDatasource.getUpdateStats().getReplicationTotalShards());
+        assertEquals(datasource.getName(), anotherDatasource.getName());
+        assertEquals(datasource.getDatabase(), anotherDatasource.getDatabase());
+    }
+
     public void testCurrentIndexName_whenNotExpired_thenReturnName() {
         String id = GeospatialTestHelper.randomLowerCaseString();
         Instant now = Instant.now();
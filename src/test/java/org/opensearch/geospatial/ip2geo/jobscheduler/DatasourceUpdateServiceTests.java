@@ -6,9 +6,11 @@
 package org.opensearch.geospatial.ip2geo.jobscheduler;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
@@ -19,20 +21,36 @@ import java.io.File;
 import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.function.LongConsumer;
 
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVParser;
 import org.junit.Before;
 import org.opensearch.OpenSearchException;
+import org.opensearch.cluster.ClusterName;
+import org.opensearch.cluster.ClusterState;
+import org.opensearch.cluster.TimeoutClusterStateListener;
+import org.opensearch.cluster.node.DiscoveryNodes;
+import org.opensearch.cluster.routing.RoutingTable;
 import org.opensearch.cluster.routing.ShardRouting;
+import org.opensearch.cluster.service.ClusterApplierService;
 import org.opensearch.common.SuppressForbidden;
+import org.opensearch.common.io.stream.BytesStreamOutput;
+import org.opensearch.common.settings.Settings;
 import org.opensearch.geospatial.GeospatialTestHelper;
 import org.opensearch.geospatial.ip2geo.Ip2GeoTestCase;
+import org.opensearch.geospatial.ip2geo.action.WarmUpCacheAction;
+import org.opensearch.geospatial.ip2geo.action.WarmUpCacheRequest;
+import org.opensearch.geospatial.ip2geo.action.WarmUpCacheResponse;
 import org.opensearch.geospatial.ip2geo.common.DatasourceManifest;
 import org.opensearch.geospatial.ip2geo.common.DatasourceState;
+import org.opensearch.geospatial.ip2geo.common.Ip2GeoSettings;
+import org.opensearch.geospatial.ip2geo.dao.GeoIpDataBlockDigests;
 import org.opensearch.jobscheduler.spi.schedule.IntervalSchedule;
 
 import lombok.SneakyThrows;
@@ -43,7 +61,13 @@ public class DatasourceUpdateServiceTests extends Ip2GeoTestCase {
 
     @Before
     public void init() {
-        datasourceUpdateService = new DatasourceUpdateService(clusterService, datasourceDao, geoIpDataDao, urlDenyListChecker);
+        datasourceUpdateService = new DatasourceUpdateService(
+            clusterService,
+            verifyingClient,
+            datasourceDao,
+            geoIpDataDao,
+            urlDenyListChecker
+        );
     }
 
     @SneakyThrows
@@ -87,10 +111,58 @@ public class DatasourceUpdateServiceTests extends Ip2GeoTestCase {
         datasourceUpdateService.updateOrCreateGeoIpData(datasource, mock(Runnable.class));
 
         // Verify
-        verify(geoIpDataDao).putGeoIpData(eq(datasource.currentIndexName()), isA(String[].class), any(Iterator.class), any(Runnable.class));
+        verify(geoIpDataDao).putGeoIpData(
+            eq(datasource.currentIndexName()),
+            isA(String[].class),
+            any(Iterator.class),
+            any(Runnable.class),
+            eq(0L),
+            any(LongConsumer.class)
+        );
         verify(urlDenyListChecker).toUrlIfNotInDenyList(datasource.getEndpoint());
     }
 
+    public void testWarmUpCache_whenCurrentIndexExists_thenWarmUpAllNodes() {
+        Datasource datasource = randomDatasource();
+        String indexName = GeospatialTestHelper.randomLowerCaseString();
+        List<String> fields = Arrays.asList("country", "city");
+        verifyingClient.setExecuteVerifier((actionResponse, actionRequest) -> {
+            assertTrue(actionRequest instanceof WarmUpCacheRequest);
+            WarmUpCacheRequest request = (WarmUpCacheRequest) actionRequest;
+            assertEquals(datasource.getName(), request.getName());
+            assertEquals(indexName, request.getIndexName());
+            assertEquals(fields, request.getFields());
+            return new WarmUpCacheResponse(ClusterName.DEFAULT, Collections.emptyList(), Collections.emptyList());
+        });
+
+        // Run
+        datasourceUpdateService.warmUpCache(datasource, indexName, fields);
+
+        // Verify
+        verify(verifyingClient).execute(eq(WarmUpCacheAction.INSTANCE), any(WarmUpCacheRequest.class));
+    }
+
+    public void testWarmUpCache_whenFailed_thenNoException() {
+        Datasource datasource = randomDatasource();
+        verifyingClient.setExecuteVerifier((actionResponse, actionRequest) -> { throw new RuntimeException("failed"); });
+
+        // Run
+        datasourceUpdateService.warmUpCache(datasource, GeospatialTestHelper.randomLowerCaseString(), null);
+
+        // Verify
+        verify(verifyingClient).execute(eq(WarmUpCacheAction.INSTANCE), any(WarmUpCacheRequest.class));
+    }
+
+    public void testWarmUpCache_whenNoCurrentIndex_thenSkip() {
+        Datasource datasource = new Datasource();
+
+        // Run
+        datasourceUpdateService.warmUpCache(datasource, GeospatialTestHelper.randomLowerCaseString(), null);
+
+        // Verify
+        verify(verifyingClient, never()).execute(any(), any());
+    }
+
     @SneakyThrows
     public void testUpdateOrCreateGeoIpData_whenInvalidData_thenThrowException() {
         File manifestFile = new File(this.getClass().getClassLoader().getResource("ip2geo/manifest.json").getFile());
@@ -164,35 +236,269 @@ public class DatasourceUpdateServiceTests extends Ip2GeoTestCase {
         assertNotNull(datasource.getUpdateStats().getLastSucceededAt());
         assertNotNull(datasource.getUpdateStats().getLastProcessingTimeInMillis());
         verify(datasourceDao, times(2)).updateDatasource(datasource);
-        verify(geoIpDataDao).putGeoIpData(eq(datasource.currentIndexName()), isA(String[].class), any(Iterator.class), any(Runnable.class));
+        verify(geoIpDataDao).putGeoIpData(
+            eq(datasource.currentIndexName()),
+            isA(String[].class),
+            any(Iterator.class),
+            any(Runnable.class),
+            eq(0L),
+            any(LongConsumer.class)
+        );
         verify(urlDenyListChecker).toUrlIfNotInDenyList(datasource.getEndpoint());
     }
 
+    @SneakyThrows
+    public void testUpdateOrCreateGeoIpData_whenDeltaUpdateEnabled_thenPutDeltaIntoClone() {
+        clusterSettings.applySettings(Settings.builder().put(Ip2GeoSettings.DELTA_UPDATE_ENABLED.getKey(), true).build());
+        Datasource datasource = datasourceToUpdate();
+        String currentIndex = datasource.newIndexName(GeospatialTestHelper.randomLowerCaseString());
+        datasource.setCurrentIndex(currentIndex);
+        GeoIpDataBlockDigests digests = blockDigests();
+        when(geoIpDataDao.getBlockDigests(currentIndex)).thenReturn(digests);
+
+        // Run
+        datasourceUpdateService.updateOrCreateGeoIpData(datasource, mock(Runnable.class));
+
+        // Verify
+        assertNotEquals(currentIndex, datasource.currentIndexName());
+        verify(geoIpDataDao).cloneIndex(currentIndex, datasource.currentIndexName());
+        verify(geoIpDataDao).putGeoIpDataDelta(
+            eq(datasource.currentIndexName()),
+            isA(String[].class),
+            any(Iterator.class),
+            any(Runnable.class),
+            eq(digests),
+            eq(0L),
+            any(LongConsumer.class)
+        );
+        verify(geoIpDataDao, never()).createIndexIfNotExists(anyString());
+        verify(geoIpDataDao, never()).putGeoIpData(
+            anyString(),
+            isA(String[].class),
+            any(Iterator.class),
+            any(Runnable.class),
+            anyLong(),
+            any(LongConsumer.class)
+        );
+    }
+
+    @SneakyThrows
+    public void testUpdateOrCreateGeoIpData_whenNoBlockDigests_thenPutAllIntoNewIndex() {
+        clusterSettings.applySettings(Settings.builder().put(Ip2GeoSettings.DELTA_UPDATE_ENABLED.getKey(), true).build());
+        Datasource datasource = datasourceToUpdate();
+        String currentIndex = datasource.newIndexName(GeospatialTestHelper.randomLowerCaseString());
+        datasource.setCurrentIndex(currentIndex);
+        when(geoIpDataDao.getBlockDigests(currentIndex)).thenReturn(null);
+
+        // Run
+        datasourceUpdateService.updateOrCreateGeoIpData(datasource, mock(Runnable.class));
+
+        // Verify
+        verify(geoIpDataDao).createIndexIfNotExists(datasource.currentIndexName());
+        verify(geoIpDataDao).putGeoIpData(
+            eq(datasource.currentIndexName()),
+            isA(String[].class),
+            any(Iterator.class),
+            any(Runnable.class),
+            eq(0L),
+            any(LongConsumer.class)
+        );
+        verify(geoIpDataDao, never()).cloneIndex(anyString(), anyString());
+    }
+
+    @SneakyThrows
+    public void testUpdateOrCreateGeoIpData_whenFieldsChanged_thenPutAllIntoNewIndex() {
+        clusterSettings.applySettings(Settings.builder().put(Ip2GeoSettings.DELTA_UPDATE_ENABLED.getKey(), true).build());
+        Datasource datasource = datasourceToUpdate();
+        datasource.getDatabase().setFields(Collections.emptyList());
+        datasource.setCurrentIndex(datasource.newIndexName(GeospatialTestHelper.randomLowerCaseString()));
+
+        // Run
+        datasourceUpdateService.updateOrCreateGeoIpData(datasource, mock(Runnable.class));
+
+        // Verify
+        verify(geoIpDataDao, never()).getBlockDigests(anyString());
+        verify(geoIpDataDao).putGeoIpData(
+            eq(datasource.currentIndexName()),
+            isA(String[].class),
+            any(Iterator.class),
+            any(Runnable.class),
+            eq(0L),
+            any(LongConsumer.class)
+        );
+    }
+
+    @SneakyThrows
+    public void testUpdateOrCreateGeoIpData_whenCheckpointOfSameFile_thenResumeFromCheckpoint() {
+        File manifestFile = new File(this.getClass().getClassLoader().getResource("ip2geo/manifest.json").getFile());
+        DatasourceManifest manifest = DatasourceManifest.Builder.build(manifestFile.toURI().toURL());
+        Datasource datasource = datasourceToUpdate();
+        String checkpointIndex = datasource.newIndexName(GeospatialTestHelper.randomLowerCaseString());
+        long rowOffset = randomLongBetween(1, 1000);
+        datasource.getIndices().add(checkpointIndex);
+        datasource.setCheckpoint(new Datasource.Checkpoint(manifest.getSha256Hash(), checkpointIndex, null, rowOffset));
+        when(metadata.hasIndex(checkpointIndex)).thenReturn(true);
+
+        // Run
+        datasourceUpdateService.updateOrCreateGeoIpData(datasource, mock(Runnable.class));
+
+        // Verify
+        assertEquals(checkpointIndex, datasource.currentIndexName());
+        assertNull(datasource.getCheckpoint());
+        assertEquals(1, datasource.getIndices().size());
+        verify(geoIpDataDao).unfreezeIndex(checkpointIndex);
+        verify(geoIpDataDao).putGeoIpData(
+            eq(checkpointIndex),
+            isA(String[].class),
+            any(Iterator.class),
+            any(Runnable.class),
+            eq(rowOffset),
+            any(LongConsumer.class)
+        );
+        verify(geoIpDataDao, never()).createIndexIfNotExists(anyString());
+    }
+
+    @SneakyThrows
+    public void testUpdateOrCreateGeoIpData_whenCheckpointOfDifferentFile_thenStartOver() {
+        Datasource datasource = datasourceToUpdate();
+        String checkpointIndex = datasource.newIndexName(GeospatialTestHelper.randomLowerCaseString());
+        datasource.getIndices().add(checkpointIndex);
+        datasource.setCheckpoint(new Datasource.Checkpoint(GeospatialTestHelper.randomLowerCaseString(), checkpointIndex, null, 10));
+        when(metadata.hasIndex(checkpointIndex)).thenReturn(true);
+
+        // Run
+        datasourceUpdateService.updateOrCreateGeoIpData(datasource, mock(Runnable.class));
+
+        // Verify
+        assertNotEquals(checkpointIndex, datasource.currentIndexName());
+        assertNull(datasource.getCheckpoint());
+        verify(geoIpDataDao, never()).unfreezeIndex(anyString());
+        verify(geoIpDataDao).createIndexIfNotExists(datasource.currentIndexName());
+        verify(geoIpDataDao).putGeoIpData(
+            eq(datasource.currentIndexName()),
+            isA(String[].class),
+            any(Iterator.class),
+            any(Runnable.class),
+            eq(0L),
+            any(LongConsumer.class)
+        );
+    }
+
+    @SneakyThrows
+    public void testUpdateOrCreateGeoIpData_whenRowsCommitted_thenSaveCheckpoint() {
+        clusterSettings.applySettings(Settings.builder().put(Ip2GeoSettings.CHECKPOINT_INTERVAL.getKey(), "0s").build());
+        Datasource datasource = datasourceToUpdate();
+        long committedRows = randomLongBetween(1, 1000);
+        doAnswer(invocation -> {
+            LongConsumer checkpoint = invocation.getArgument(5);
+            checkpoint.accept(committedRows);
+            assertEquals(committedRows, datasource.getCheckpoint().getRowOffset());
+            return null;
+        }).when(geoIpDataDao)
+            .putGeoIpData(anyString(), isA(String[].class), any(Iterator.class), any(Runnable.class), anyLong(), any(LongConsumer.class));
+
+        // Run
+        datasourceUpdateService.updateOrCreateGeoIpData(datasource, mock(Runnable.class));
+
+        // Verify
+        verify(datasourceDao, times(3)).updateDatasource(datasource);
+    }
+
+    public void testUpdateOrCreateGeoIpData_whenCheckpointIntervalNotElapsed_thenSkipCheckpoint() {
+        Datasource datasource = datasourceToUpdate();
+        doAnswer(invocation -> {
+            LongConsumer checkpoint = invocation.getArgument(5);
+            checkpoint.accept(randomLongBetween(1, 1000));
+            assertEquals(0, datasource.getCheckpoint().getRowOffset());
+            return null;
+        }).when(geoIpDataDao)
+            .putGeoIpData(anyString(), isA(String[].class), any(Iterator.class), any(Runnable.class), anyLong(), any(LongConsumer.class));
+
+        // Run
+        datasourceUpdateService.updateOrCreateGeoIpData(datasource, mock(Runnable.class));
+
+        // Verify
+        verify(datasourceDao, times(2)).updateDatasource(datasource);
+    }
+
+    public void testWaitUntilAllShardsStarted_whenAllStarted_thenReturnWithoutWaiting() {
+        Datasource datasource = randomDatasource();
+        String indexName = GeospatialTestHelper.randomLowerCaseString();
+        when(routingTable.allShards(indexName)).thenReturn(Arrays.asList(shardRouting(true), shardRouting(true)));
+
+        // Run
+        datasourceUpdateService.waitUntilAllShardsStarted(datasource, indexName, 10);
+
+        // Verify
+        assertEquals(2, (int) datasource.getUpdateStats().getReplicationStartedShards());
+        assertEquals(2, (int) datasource.getUpdateStats().getReplicationTotalShards());
+        verify(datasourceDao, never()).updateDatasource(any());
+    }
+
+    public void testWaitUntilAllShardsStarted_whenShardsStarted_thenReportProgress() {
+        Datasource datasource = randomDatasource();
+        String indexName = GeospatialTestHelper.randomLowerCaseString();
+        when(routingTable.allShards(indexName)).thenReturn(Arrays.asList(shardRouting(true), shardRouting(false)));
+        RoutingTable newRoutingTable = mock(RoutingTable.class);
+        when(newRoutingTable.allShards(indexName)).thenReturn(Arrays.asList(shardRouting(true), shardRouting(true)));
+        ClusterState newState = mock(ClusterState.class);
+        when(newState.version()).thenReturn(1L);
+        when(newState.nodes()).thenReturn(DiscoveryNodes.EMPTY_NODES);
+        when(newState.routingTable()).thenReturn(newRoutingTable);
+        mockClusterApplierService(newState);
+        List<Integer> reportedStartedShards = new ArrayList<>();
+        doAnswer(invocation -> {
+            reportedStartedShards.add(datasource.getUpdateStats().getReplicationStartedShards());
+            return null;
+        }).when(datasourceDao).updateDatasource(datasource);
+
+        // Run
+        datasourceUpdateService.waitUntilAllShardsStarted(datasource, indexName, 10000);
+
+        // Verify
+        assertEquals(Arrays.asList(1, 2), reportedStartedShards);
+        assertEquals(2, (int) datasource.getUpdateStats().getReplicationTotalShards());
+    }
+
     public void testWaitUntilAllShardsStarted_whenTimedOut_thenThrowException() {
+        Datasource datasource = randomDatasource();
         String indexName = GeospatialTestHelper.randomLowerCaseString();
-        ShardRouting shardRouting = mock(ShardRouting.class);
-        when(shardRouting.started()).thenReturn(false);
-        when(routingTable.allShards(indexName)).thenReturn(Arrays.asList(shardRouting));
+        when(routingTable.allShards(indexName)).thenReturn(Arrays.asList(shardRouting(false)));
+        ClusterApplierService clusterApplierService = mockClusterApplierService(clusterState);
+        doAnswer(invocation -> {
+            TimeoutClusterStateListener listener = invocation.getArgument(1);
+            listener.onTimeout(invocation.getArgument(0));
+            return null;
+        }).when(clusterApplierService).addTimeoutListener(any(), any(TimeoutClusterStateListener.class));
 
         // Run
-        Exception e = expectThrows(OpenSearchException.class, () -> datasourceUpdateService.waitUntilAllShardsStarted(indexName, 10));
+        Exception e = expectThrows(
+            OpenSearchException.class,
+            () -> datasourceUpdateService.waitUntilAllShardsStarted(datasource, indexName, 10)
+        );
 
         // Verify
         assertTrue(e.getMessage().contains("did not complete"));
+        assertEquals(0, (int) datasource.getUpdateStats().getReplicationStartedShards());
+        verify(datasourceDao).updateDatasource(datasource);
     }
 
     @SneakyThrows
     public void testWaitUntilAllShardsStarted_whenInterrupted_thenThrowException() {
+        Datasource datasource = randomDatasource();
         String indexName = GeospatialTestHelper.randomLowerCaseString();
-        ShardRouting shardRouting = mock(ShardRouting.class);
-        when(shardRouting.started()).thenReturn(false);
-        when(routingTable.allShards(indexName)).thenReturn(Arrays.asList(shardRouting));
+        when(routingTable.allShards(indexName)).thenReturn(Arrays.asList(shardRouting(false)));
+        mockClusterApplierService(clusterState);
 
         // Run
         Thread.currentThread().interrupt();
-        Exception e = expectThrows(RuntimeException.class, () -> datasourceUpdateService.waitUntilAllShardsStarted(indexName, 10));
+        Exception e = expectThrows(
+            RuntimeException.class,
+            () -> datasourceUpdateService.waitUntilAllShardsStarted(datasource, indexName, 10000)
+        );
 
         // Verify
+        assertTrue(Thread.interrupted());
         assertEquals(InterruptedException.class, e.getCause().getClass());
     }
 
@@ -235,6 +541,22 @@ public class DatasourceUpdateServiceTests extends Ip2GeoTestCase {
         verify(geoIpDataDao).deleteIp2GeoDataIndex(oldIndex);
     }
 
+    @SneakyThrows
+    public void testDeleteUnusedIndices_whenCheckpoint_thenKeepCheckpointIndex() {
+        Datasource datasource = randomDatasource();
+        String checkpointIndex = datasource.newIndexName(GeospatialTestHelper.randomLowerCaseString());
+        datasource.setIndices(new ArrayList<>(Arrays.asList(datasource.currentIndexName(), checkpointIndex)));
+        datasource.setCheckpoint(new Datasource.Checkpoint(GeospatialTestHelper.randomLowerCaseString(), checkpointIndex, null, 10));
+        when(metadata.hasIndex(checkpointIndex)).thenReturn(true);
+
+        // Run
+        datasourceUpdateService.deleteUnusedIndices(datasource);
+
+        // Verify
+        assertTrue(datasource.getIndices().contains(checkpointIndex));
+        verify(geoIpDataDao, never()).deleteIp2GeoDataIndex(checkpointIndex);
+    }
+
     public void testUpdateDatasource_whenNoChange_thenNoUpdate() {
         Datasource datasource = randomDatasource();
 
@@ -274,4 +596,47 @@ public class DatasourceUpdateServiceTests extends Ip2GeoTestCase {
         List<String> expectedFields = Arrays.asList("country_name");
         assertEquals(expectedFields, fields);
     }
+
+    @SneakyThrows
+    private Datasource datasourceToUpdate() {
+        File manifestFile = new File(this.getClass().getClassLoader().getResource("ip2geo/manifest.json").getFile());
+        DatasourceManifest manifest = DatasourceManifest.Builder.build(manifestFile.toURI().toURL());
+
+        File sampleFile = new File(this.getClass().getClassLoader().getResource("ip2geo/sample_valid.csv").getFile());
+        when(geoIpDataDao.getDatabaseReader(any())).thenReturn(CSVParser.parse(sampleFile, StandardCharsets.UTF_8, CSVFormat.RFC4180));
+        ShardRouting shardRouting = mock(ShardRouting.class);
+        when(shardRouting.started()).thenReturn(true);
+        when(routingTable.allShards(anyString())).thenReturn(Arrays.asList(shardRouting));
+
+        Datasource datasource = new Datasource();
+        datasource.setName(GeospatialTestHelper.randomLowerCaseString());
+        datasource.setState(DatasourceState.AVAILABLE);
+        datasource.getDatabase().setUpdatedAt(Instant.ofEpochMilli(manifest.getUpdatedAt() - 1));
+        datasource.getDatabase().setSha256Hash(manifest.getSha256Hash().substring(1));
+        datasource.getDatabase().setFields(Arrays.asList("country_name"));
+        datasource.setEndpoint(manifestFile.toURI().toURL().toExternalForm());
+        return datasource;
+    }
+
+    private ShardRouting shardRouting(final boolean started) {
+        ShardRouting shardRouting = mock(ShardRouting.class);
+        when(shardRouting.started()).thenReturn(started);
+        return shardRouting;
+    }
+
+    private ClusterApplierService mockClusterApplierService(final ClusterState appliedState) {
+        ClusterApplierService clusterApplierService = mock(ClusterApplierService.class);
+        when(clusterApplierService.state()).thenReturn(appliedState);
+        when(clusterService.getClusterApplierService()).thenReturn(clusterApplierService);
+        when(clusterState.nodes()).thenReturn(DiscoveryNodes.EMPTY_NODES);
+        return clusterApplierService;
+    }
+
+    @SneakyThrows
+    private GeoIpDataBlockDigests blockDigests() {
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            out.writeLongArray(new long[] { randomLong() });
+            return GeoIpDataBlockDigests.fromBytes(out.bytes());
+        }
+    }
 }
@@ -0,0 +1,106 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.ip2geo.lookup;
+
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Map;
+
+import org.opensearch.test.OpenSearchTestCase;
+
+public class GeoIpAttributeIndexTests extends OpenSearchTestCase {
+    private static final String PROPERTY = "country";
+
+    public void testBuild_whenAdjacentRanges_thenMerge() {
+        IpRangeTable table = new IpRangeTable.Builder().add("1.0.0.0/24", Map.of(PROPERTY, "Australia", "city", "Sydney"))
+            .add("1.0.1.0/24", Map.of(PROPERTY, "Australia", "city", "Melbourne"))
+            .add("1.0.4.0/24", Map.of(PROPERTY, "Australia", "city", "Sydney"))
+            .add("1.0.2.0/23", Map.of(PROPERTY, "China"))
+            .build();
+
+        // Run
+        GeoIpAttributeIndex index = GeoIpAttributeIndex.build(table, PROPERTY);
+
+        // Verify
+        assertEquals(PROPERTY, index.getProperty());
+        assertEquals(2, index.size());
+        GeoIpAttributeIndex.Ranges australia = index.getRanges("Australia");
+        assertEquals(2, australia.ipv4Count());
+        assertIpv4Range(australia, 0, "1.0.0.0/23");
+        assertIpv4Range(australia, 1, "1.0.4.0/24");
+        GeoIpAttributeIndex.Ranges china = index.getRanges("China");
+        assertEquals(1, china.ipv4Count());
+        assertIpv4Range(china, 0, "1.0.2.0/23");
+    }
+
+    public void testBuild_whenIpv6_thenMerge() {
+        IpRangeTable table = new IpRangeTable.Builder().add("2001:db8::/33", Map.of(PROPERTY, "USA"))
+            .add("2001:db8:8000::/33", Map.of(PROPERTY, "USA"))
+            .add("2001:200::/23", Map.of(PROPERTY, "Korea"))
+            .add("10.0.0.0/24", Map.of(PROPERTY, "USA"))
+            .build();
+
+        // Run
+        GeoIpAttributeIndex.Ranges usa = GeoIpAttributeIndex.build(table, PROPERTY).getRanges("USA");
+
+        // Verify
+        assertEquals(1, usa.ipv4Count());
+        assertIpv4Range(usa, 0, "10.0.0.0/24");
+        assertEquals(1, usa.ipv6Count());
+        long[] expected = IpAddressCodec.parseCidr("2001:db8::/32");
+        assertEquals(expected[0], usa.ipv6StartHigh(0));
+        assertEquals(expected[1], usa.ipv6StartLow(0));
+        assertEquals(expected[2], usa.ipv6EndHigh(0));
+        assertEquals(expected[3], usa.ipv6EndLow(0));
+    }
+
+    public void testBuild_whenNoProperty_thenSkip() {
+        IpRangeTable table = new IpRangeTable.Builder().add("1.0.0.0/24", Map.of("city", "Sydney")).build();
+
+        // Run
+        GeoIpAttributeIndex index = GeoIpAttributeIndex.build(table, PROPERTY);
+
+        // Verify
+        assertEquals(0, index.size());
+        assertTrue(index.getRanges("Sydney").isEmpty());
+    }
+
+    public void testBuild_whenLookupFile_thenSameAsRangeTable() throws Exception {
+        IpRangeTable.Builder tableBuilder = new IpRangeTable.Builder();
+        GeoIpLookupFile.Writer writer = new GeoIpLookupFile.Writer();
+        for (int i = 0; i < 100; i++) {
+            String cidr = String.format(Locale.ROOT, "%d.%d.0.0/16", 1 + i / 256, i % 256);
+            Map<String, Object> data = Map.of(PROPERTY, randomFrom("Australia", "China", "USA"));
+            tableBuilder.add(cidr, data);
+            writer.add(cidr, data);
+        }
+        Path file = createTempDir().resolve("lookup");
+        writer.write(file);
+        GeoIpLookupFile lookupFile = GeoIpLookupFile.open(file);
+
+        // Run
+        GeoIpAttributeIndex fromTable = GeoIpAttributeIndex.build(tableBuilder.build(), PROPERTY);
+        GeoIpAttributeIndex fromFile = GeoIpAttributeIndex.build(lookupFile, PROPERTY);
+
+        // Verify
+        assertEquals(fromTable.size(), fromFile.size());
+        for (String value : new String[] { "Australia", "China", "USA" }) {
+            GeoIpAttributeIndex.Ranges expected = fromTable.getRanges(value);
+            GeoIpAttributeIndex.Ranges actual = fromFile.getRanges(value);
+            assertEquals(expected.ipv4Count(), actual.ipv4Count());
+            for (int i = 0; i < expected.ipv4Count(); i++) {
+                assertEquals(expected.ipv4Start(i), actual.ipv4Start(i));
+                assertEquals(expected.ipv4End(i), actual.ipv4End(i));
+            }
+        }
+    }
+
+    private void assertIpv4Range(final GeoIpAttributeIndex.Ranges ranges, final int index, final String cidr) {
+        long[] expected = IpAddressCodec.parseCidr(cidr);
+        assertEquals(expected[0], ranges.ipv4Start(index));
+        assertEquals(expected[1], ranges.ipv4End(index));
+    }
+}
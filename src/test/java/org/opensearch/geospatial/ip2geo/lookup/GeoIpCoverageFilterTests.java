@@ -0,0 +1,98 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.ip2geo.lookup;
+
+import org.opensearch.test.OpenSearchTestCase;
+
+import lombok.SneakyThrows;
+
+public class GeoIpCoverageFilterTests extends OpenSearchTestCase {
+    public void testMightContain_whenIpv4_thenCheckCoveredPrefixes() {
+        GeoIpCoverageFilter.Builder builder = new GeoIpCoverageFilter.Builder();
+        builder.add("1.0.0.0/24");
+        builder.add("2.0.0.0/15");
+        builder.add("3.0.0.128/25");
+        builder.add("4.0.0.1");
+        GeoIpCoverageFilter filter = builder.build();
+
+        assertTrue(filter.mightContain("1.0.0.1"));
+        assertTrue(filter.mightContain("2.0.0.1"));
+        assertTrue(filter.mightContain("2.1.255.255"));
+        assertTrue(filter.mightContain("3.0.0.200"));
+        assertTrue(filter.mightContain("4.0.0.1"));
+        // A range narrower than /24 covers the whole /24 prefix
+        assertTrue(filter.mightContain("3.0.0.1"));
+
+        assertFalse(filter.mightContain("1.0.1.1"));
+        assertFalse(filter.mightContain("2.2.0.0"));
+        assertFalse(filter.mightContain("0.255.255.255"));
+        assertFalse(filter.mightContain("255.255.255.255"));
+    }
+
+    public void testMightContain_whenIpv4MappedIpv6_thenCheckIpv4Prefixes() {
+        GeoIpCoverageFilter.Builder builder = new GeoIpCoverageFilter.Builder();
+        builder.add("1.0.0.0/24");
+        GeoIpCoverageFilter filter = builder.build();
+
+        assertTrue(filter.mightContain("::ffff:1.0.0.1"));
+        assertFalse(filter.mightContain("::ffff:1.0.1.1"));
+    }
+
+    public void testMightContain_whenIpv6_thenCheckCoveredPrefixes() {
+        GeoIpCoverageFilter.Builder builder = new GeoIpCoverageFilter.Builder();
+        builder.add("2001:db8::/32");
+        builder.add("2001:200::/23");
+        builder.add("2a00::/12");
+        builder.add("2c0f:f000:1:2::/64");
+        builder.add("2c0f:f000:1:3::1");
+        GeoIpCoverageFilter filter = builder.build();
+
+        assertTrue(filter.mightContain("2001:db8::1"));
+        assertTrue(filter.mightContain("2001:db8:ffff:ffff:ffff:ffff:ffff:ffff"));
+        assertTrue(filter.mightContain("2001:201::1"));
+        assertTrue(filter.mightContain("2a0f:ffff::1"));
+        assertTrue(filter.mightContain("2c0f:f000:1:2::ffff"));
+        assertTrue(filter.mightContain("2c0f:f000:1:3::1"));
+
+        assertFalse(filter.mightContain("2a10::1"));
+        assertFalse(filter.mightContain("ffff::1"));
+        assertFalse(filter.mightContain("::1"));
+    }
+
+    public void testMightContain_whenNoIpv6Range_thenReturnFalseForIpv6() {
+        GeoIpCoverageFilter.Builder builder = new GeoIpCoverageFilter.Builder();
+        builder.add("1.0.0.0/24");
+        GeoIpCoverageFilter filter = builder.build();
+
+        assertFalse(filter.mightContain("2001:db8::1"));
+    }
+
+    public void testMightContain_whenInvalidIp_thenReturnTrue() {
+        GeoIpCoverageFilter filter = new GeoIpCoverageFilter.Builder().build();
+
+        assertTrue(filter.mightContain("invalid"));
+    }
+
+    public void testAdd_whenInvalidCidr_thenException() {
+        expectThrows(IllegalArgumentException.class, () -> new GeoIpCoverageFilter.Builder().add("1.0.0.0/33"));
+    }
+
+    @SneakyThrows
+    public void testFromBytes_whenSerialized_thenSameResult() {
+        GeoIpCoverageFilter.Builder builder = new GeoIpCoverageFilter.Builder();
+        builder.add("1.0.0.0/24");
+        builder.add("2001:db8::/32");
+
+        // Run
+        GeoIpCoverageFilter filter = GeoIpCoverageFilter.fromBytes(builder.build().toBytes());
+
+        // Verify
+        assertTrue(filter.mightContain("1.0.0.1"));
+        assertFalse(filter.mightContain("1.0.1.1"));
+        assertTrue(filter.mightContain("2001:db8::1"));
+        assertFalse(filter.mightContain("ffff::1"));
+    }
+}
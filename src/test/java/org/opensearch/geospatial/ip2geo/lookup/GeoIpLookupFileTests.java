@@ -0,0 +1,152 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.ip2geo.lookup;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.opensearch.common.network.NetworkAddress;
+import org.opensearch.test.OpenSearchTestCase;
+
+public class GeoIpLookupFileTests extends OpenSearchTestCase {
+    private static final Map<String, Object> AUSTRALIA = Map.of("country", "Australia", "city", "Sydney");
+    private static final Map<String, Object> USA = Map.of("country", "USA", "city", "Seattle");
+    private static final Map<String, Object> KOREA = Map.of("country", "대한민국", "city", "서울");
+
+    public void testLookup_whenIpv4_thenReturnData() throws Exception {
+        GeoIpLookupFile lookupFile = write(
+            new GeoIpLookupFile.Writer().add("10.0.0.0/24", USA).add("1.0.0.0/24", AUSTRALIA).add("1.0.2.0/23", AUSTRALIA)
+        );
+
+        assertEquals(AUSTRALIA, lookupFile.lookup("1.0.0.0"));
+        assertEquals(AUSTRALIA, lookupFile.lookup("1.0.0.255"));
+        assertEquals(AUSTRALIA, lookupFile.lookup("1.0.3.1"));
+        assertEquals(USA, lookupFile.lookup("10.0.0.100"));
+        assertTrue(lookupFile.lookup("0.255.255.255").isEmpty());
+        assertTrue(lookupFile.lookup("1.0.1.0").isEmpty());
+        assertTrue(lookupFile.lookup("255.255.255.255").isEmpty());
+        assertEquals(3, lookupFile.size());
+        assertEquals(2, lookupFile.recordCount());
+    }
+
+    public void testLookup_whenIpv6_thenReturnData() throws Exception {
+        GeoIpLookupFile lookupFile = write(
+            new GeoIpLookupFile.Writer().add("2001:db8::/32", USA).add("2001:200::/23", KOREA).add("1.0.0.0/24", AUSTRALIA)
+        );
+
+        assertEquals(USA, lookupFile.lookup("2001:db8::1"));
+        assertEquals(USA, lookupFile.lookup("2001:db8:ffff:ffff:ffff:ffff:ffff:ffff"));
+        assertEquals(KOREA, lookupFile.lookup("2001:200::1"));
+        assertTrue(lookupFile.lookup("2001:db9::").isEmpty());
+        assertTrue(lookupFile.lookup("::1").isEmpty());
+        assertTrue(lookupFile.lookup("ffff::1").isEmpty());
+    }
+
+    public void testLookup_whenEmptyFile_thenReturnEmpty() throws Exception {
+        GeoIpLookupFile lookupFile = write(new GeoIpLookupFile.Writer());
+
+        assertTrue(lookupFile.lookup("1.0.0.1").isEmpty());
+        assertTrue(lookupFile.lookup("::1").isEmpty());
+        assertEquals(0, lookupFile.size());
+    }
+
+    public void testLookup_whenRandomRanges_thenSameAsRangeTable() throws Exception {
+        GeoIpLookupFile.Writer writer = new GeoIpLookupFile.Writer();
+        IpRangeTable.Builder builder = new IpRangeTable.Builder();
+        for (int i = 0; i < 256; i++) {
+            String cidr = String.format(Locale.ROOT, "%d.%d.0.0/16", 1 + i / 16, i);
+            Map<String, Object> data = new HashMap<>();
+            data.put("city", randomAlphaOfLength(5));
+            data.put("index", i % 10);
+            writer.add(cidr, data);
+            builder.add(cidr, Map.of("city", data.get("city"), "index", String.valueOf(i % 10)));
+        }
+        GeoIpLookupFile lookupFile = write(writer);
+        IpRangeTable table = builder.build();
+
+        for (int i = 0; i < 100; i++) {
+            String ip = NetworkAddress.format(randomIp(true));
+            assertEquals(table.lookup(ip), lookupFile.lookup(ip));
+            int rangeIndex = randomIntBetween(0, 255);
+            ip = String.format(
+                Locale.ROOT,
+                "%d.%d.%d.%d",
+                1 + rangeIndex / 16,
+                rangeIndex,
+                randomIntBetween(0, 255),
+                randomIntBetween(0, 255)
+            );
+            assertFalse(lookupFile.lookup(ip).isEmpty());
+            assertEquals(table.lookup(ip), lookupFile.lookup(ip));
+        }
+        assertEquals(table.size(), lookupFile.size());
+    }
+
+    public void testOpen_whenSmallSegments_thenSameAsSingleSegment() throws Exception {
+        GeoIpLookupFile.Writer writer = new GeoIpLookupFile.Writer();
+        for (int i = 0; i < 51; i++) {
+            writer.add(String.format(Locale.ROOT, "%d.0.0.0/8", 1 + i), Map.of("city", randomAlphaOfLength(randomIntBetween(1, 40))));
+            writer.add(String.format(Locale.ROOT, "2001:%x::/32", i), Map.of("city", randomAlphaOfLength(randomIntBetween(1, 40))));
+        }
+        Path path = createTempDir().resolve("data");
+        writer.write(path);
+
+        // Run
+        GeoIpLookupFile lookupFile = GeoIpLookupFile.open(path);
+        GeoIpLookupFile segmentedLookupFile = GeoIpLookupFile.open(path, 4);
+
+        // Verify values spanning segments are read
+        assertEquals(lookupFile.size(), segmentedLookupFile.size());
+        for (int i = 0; i < 51; i++) {
+            String ipv4 = String.format(Locale.ROOT, "%d.0.0.1", 1 + i);
+            String ipv6 = String.format(Locale.ROOT, "2001:%x::1", i);
+            assertFalse(lookupFile.lookup(ipv4).isEmpty());
+            assertEquals(lookupFile.lookup(ipv4), segmentedLookupFile.lookup(ipv4));
+            assertEquals(lookupFile.lookup(ipv6), segmentedLookupFile.lookup(ipv6));
+        }
+    }
+
+    public void testWrite_whenWritten_thenDeleteRecordsFile() throws Exception {
+        Path directory = createTempDir();
+        GeoIpLookupFile.Writer writer = new GeoIpLookupFile.Writer(directory).add("1.0.0.0/24", AUSTRALIA).add("2.0.0.0/24", USA);
+
+        // Run
+        Path path = createTempDir().resolve("data");
+        writer.write(path);
+
+        // Verify
+        assertEquals(USA, GeoIpLookupFile.open(path).lookup("2.0.0.1"));
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    public void testOpen_whenInvalidFile_thenException() throws Exception {
+        Path path = createTempDir().resolve("invalid");
+        Files.write(path, new byte[] { 1, 2, 3 });
+
+        expectThrows(IllegalStateException.class, () -> GeoIpLookupFile.open(path));
+    }
+
+    public void testWrite_whenFileExists_thenReplace() throws Exception {
+        Path path = createTempDir().resolve("data");
+        new GeoIpLookupFile.Writer().add("1.0.0.0/24", AUSTRALIA).write(path);
+        new GeoIpLookupFile.Writer().add("1.0.0.0/24", USA).write(path);
+
+        assertEquals(USA, GeoIpLookupFile.open(path).lookup("1.0.0.1"));
+        assertFalse(Files.exists(path.resolveSibling("data.tmp")));
+    }
+
+    private GeoIpLookupFile write(final GeoIpLookupFile.Writer writer) throws Exception {
+        Path path = createTempDir().resolve("data");
+        writer.write(path);
+        return GeoIpLookupFile.open(path);
+    }
+}
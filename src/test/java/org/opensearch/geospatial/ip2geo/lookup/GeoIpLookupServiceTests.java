@@ -0,0 +1,184 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.ip2geo.lookup;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+import org.junit.Before;
+import org.opensearch.geospatial.GeospatialTestHelper;
+import org.opensearch.geospatial.ip2geo.Ip2GeoTestCase;
+
+import lombok.SneakyThrows;
+
+public class GeoIpLookupServiceTests extends Ip2GeoTestCase {
+    private GeoIpLookupService lookupService;
+
+    @Before
+    public void init() {
+        lookupService = new GeoIpLookupService(clusterService, geoIpDataDao, Runnable::run);
+    }
+
+    public void testGetRangeTable_whenSmallIndex_thenLoadInMemory() {
+        String indexName = GeospatialTestHelper.randomLowerCaseString();
+        when(geoIpDataDao.getGeoIpDataCount(indexName)).thenReturn(1L);
+        doAnswer(invocation -> {
+            BiConsumer<String, Map<String, Object>> consumer = invocation.getArgument(1);
+            consumer.accept("1.0.0.0/24", Map.of("city", "Seattle"));
+            return null;
+        }).when(geoIpDataDao).forEachGeoIpData(anyString(), any());
+
+        // Run, the first call loads the table using the direct executor
+        lookupService.getLookup(indexName);
+        GeoIpLookup lookup = lookupService.getLookup(indexName);
+
+        // Verify
+        assertTrue(lookup instanceof IpRangeTable);
+        assertEquals(Map.of("city", "Seattle"), lookup.lookup("1.0.0.1"));
+        verify(geoIpDataDao, times(1)).forEachGeoIpData(anyString(), any());
+    }
+
+    public void testGetRangeTable_whenLargeIndex_thenSkip() {
+        String indexName = GeospatialTestHelper.randomLowerCaseString();
+        when(geoIpDataDao.getGeoIpDataCount(indexName)).thenReturn(Long.MAX_VALUE);
+
+        // Run
+        assertNull(lookupService.getLookup(indexName));
+        assertNull(lookupService.getLookup(indexName));
+
+        // Verify
+        verify(geoIpDataDao, times(1)).getGeoIpDataCount(indexName);
+        verify(geoIpDataDao, never()).forEachGeoIpData(anyString(), any());
+    }
+
+    public void testGetRangeTable_whenRemoved_thenReload() {
+        String indexName = GeospatialTestHelper.randomLowerCaseString();
+        when(geoIpDataDao.getGeoIpDataCount(indexName)).thenReturn(0L);
+        lookupService.getLookup(indexName);
+        assertNotNull(lookupService.getLookup(indexName));
+
+        // Run
+        lookupService.remove(indexName);
+        lookupService.getLookup(indexName);
+
+        // Verify
+        verify(geoIpDataDao, times(2)).getGeoIpDataCount(indexName);
+    }
+
+    public void testGetRangeTable_whenLoadFailed_thenReturnNull() {
+        String indexName = GeospatialTestHelper.randomLowerCaseString();
+        when(geoIpDataDao.getGeoIpDataCount(indexName)).thenThrow(new RuntimeException("failed"));
+
+        // Run
+        assertNull(lookupService.getLookup(indexName));
+        assertNull(lookupService.getLookup(indexName));
+
+        // Verify the failed load is not retried immediately
+        verify(geoIpDataDao, times(1)).getGeoIpDataCount(indexName);
+    }
+
+    @SneakyThrows
+    public void testGetCoverageFilter_whenLoaded_thenReturnFilter() {
+        String indexName = GeospatialTestHelper.randomLowerCaseString();
+        GeoIpCoverageFilter filter = new GeoIpCoverageFilter.Builder().build();
+        when(geoIpDataDao.getCoverageFilter(indexName)).thenReturn(filter);
+
+        // Run, the first call loads the filter using the direct executor
+        assertNull(lookupService.getCoverageFilter(indexName));
+
+        // Verify
+        assertSame(filter, lookupService.getCoverageFilter(indexName));
+        verify(geoIpDataDao, times(1)).getCoverageFilter(indexName);
+    }
+
+    @SneakyThrows
+    public void testGetCoverageFilter_whenNoFilter_thenDoNotReload() {
+        String indexName = GeospatialTestHelper.randomLowerCaseString();
+        when(geoIpDataDao.getCoverageFilter(indexName)).thenReturn(null);
+
+        // Run
+        assertNull(lookupService.getCoverageFilter(indexName));
+        assertNull(lookupService.getCoverageFilter(indexName));
+
+        // Verify
+        verify(geoIpDataDao, times(1)).getCoverageFilter(indexName);
+    }
+
+    @SneakyThrows
+    public void testGetCoverageFilter_whenRemoved_thenReload() {
+        String indexName = GeospatialTestHelper.randomLowerCaseString();
+        when(geoIpDataDao.getCoverageFilter(indexName)).thenReturn(new GeoIpCoverageFilter.Builder().build());
+        lookupService.getCoverageFilter(indexName);
+        assertNotNull(lookupService.getCoverageFilter(indexName));
+
+        // Run
+        lookupService.remove(indexName);
+
+        // Verify
+        assertNull(lookupService.getCoverageFilter(indexName));
+        verify(geoIpDataDao, times(2)).getCoverageFilter(indexName);
+    }
+
+    public void testGetAttributeIndex_whenLoaded_thenReturnIndex() {
+        String indexName = GeospatialTestHelper.randomLowerCaseString();
+        when(geoIpDataDao.getGeoIpDataCount(indexName)).thenReturn(1L);
+        doAnswer(invocation -> {
+            BiConsumer<String, Map<String, Object>> consumer = invocation.getArgument(1);
+            consumer.accept("1.0.0.0/24", Map.of("country", "Australia"));
+            return null;
+        }).when(geoIpDataDao).forEachGeoIpData(anyString(), any());
+
+        // Run, the first call loads the lookup using the direct executor
+        assertNull(lookupService.getAttributeIndex(indexName, "country"));
+        GeoIpAttributeIndex index = lookupService.getAttributeIndex(indexName, "country");
+
+        // Verify
+        assertEquals(1, index.getRanges("Australia").ipv4Count());
+        assertSame(index, lookupService.getAttributeIndex(indexName, "country"));
+    }
+
+    public void testGetAttributeIndex_whenNewIndexLoaded_thenBuildRequestedProperties() {
+        String indexName = GeospatialTestHelper.randomLowerCaseString();
+        String newIndexName = GeospatialTestHelper.randomLowerCaseString();
+        when(geoIpDataDao.getGeoIpDataCount(anyString())).thenReturn(1L);
+        doAnswer(invocation -> {
+            BiConsumer<String, Map<String, Object>> consumer = invocation.getArgument(1);
+            consumer.accept("1.0.0.0/24", Map.of("country", "Australia"));
+            return null;
+        }).when(geoIpDataDao).forEachGeoIpData(anyString(), any());
+        lookupService.getAttributeIndex(indexName, "country");
+
+        // Run, a datasource update prepares the new index
+        lookupService.prepare(newIndexName);
+
+        // Verify
+        GeoIpAttributeIndex index = lookupService.getAttributeIndex(newIndexName, "country");
+        assertNotNull(index);
+        assertEquals(1, index.getRanges("Australia").ipv4Count());
+    }
+
+    public void testGetAttributeIndex_whenRemoved_thenReturnNull() {
+        String indexName = GeospatialTestHelper.randomLowerCaseString();
+        when(geoIpDataDao.getGeoIpDataCount(indexName)).thenReturn(0L);
+        lookupService.getAttributeIndex(indexName, "country");
+        assertNotNull(lookupService.getAttributeIndex(indexName, "country"));
+        when(geoIpDataDao.getGeoIpDataCount(indexName)).thenReturn(Long.MAX_VALUE);
+
+        // Run
+        lookupService.remove(indexName);
+
+        // Verify
+        assertNull(lookupService.getAttributeIndex(indexName, "country"));
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.ip2geo.lookup;
+
+import java.net.InetAddress;
+
+import org.opensearch.common.network.InetAddresses;
+import org.opensearch.common.network.NetworkAddress;
+import org.opensearch.test.OpenSearchTestCase;
+
+public class IpAddressCodecTests extends OpenSearchTestCase {
+    public void testParseIpv4_whenValidIpv4_thenReturnLong() {
+        assertEquals(0L, IpAddressCodec.parseIpv4("0.0.0.0"));
+        assertEquals(0x01020304L, IpAddressCodec.parseIpv4("1.2.3.4"));
+        assertEquals(0xFFFFFFFFL, IpAddressCodec.parseIpv4("255.255.255.255"));
+    }
+
+    public void testParseIpv4_whenRandomIpv4_thenSameAsInetAddresses() {
+        for (int i = 0; i < 100; i++) {
+            InetAddress address = randomIp(true);
+            assertEquals(IpAddressCodec.ipv4ToLong(address.getAddress()), IpAddressCodec.parseIpv4(NetworkAddress.format(address)));
+        }
+    }
+
+    public void testParseIpv4_whenNotIpv4_thenReturnNotIpv4() {
+        assertEquals(IpAddressCodec.NOT_IPV4, IpAddressCodec.parseIpv4("::1"));
+        assertEquals(IpAddressCodec.NOT_IPV4, IpAddressCodec.parseIpv4("1.2.3"));
+        assertEquals(IpAddressCodec.NOT_IPV4, IpAddressCodec.parseIpv4("1.2.3.4.5"));
+        assertEquals(IpAddressCodec.NOT_IPV4, IpAddressCodec.parseIpv4("1.2.3.256"));
+        assertEquals(IpAddressCodec.NOT_IPV4, IpAddressCodec.parseIpv4("1..3.4"));
+        assertEquals(IpAddressCodec.NOT_IPV4, IpAddressCodec.parseIpv4("01.2.3.4"));
+        assertEquals(IpAddressCodec.NOT_IPV4, IpAddressCodec.parseIpv4("a.b.c.d"));
+    }
+
+    public void testParseCidr_whenIpv4_thenReturnRange() {
+        assertArrayEquals(new long[] { 0x01000000L, 0x010000FFL }, IpAddressCodec.parseCidr("1.0.0.0/24"));
+        assertArrayEquals(new long[] { 0x01000000L, 0x010000FFL }, IpAddressCodec.parseCidr("1.0.0.17/24"));
+        assertArrayEquals(new long[] { 0L, 0xFFFFFFFFL }, IpAddressCodec.parseCidr("0.0.0.0/0"));
+        assertArrayEquals(new long[] { 0x01020304L, 0x01020304L }, IpAddressCodec.parseCidr("1.2.3.4"));
+    }
+
+    public void testParseCidr_whenIpv6_thenReturnRange() {
+        long[] range = IpAddressCodec.parseCidr("2001:db8::/32");
+        byte[] start = InetAddresses.forString("2001:db8::").getAddress();
+        byte[] end = InetAddresses.forString("2001:db8:ffff:ffff:ffff:ffff:ffff:ffff").getAddress();
+        assertArrayEquals(
+            new long[] {
+                IpAddressCodec.ipv6High(start),
+                IpAddressCodec.ipv6Low(start),
+                IpAddressCodec.ipv6High(end),
+                IpAddressCodec.ipv6Low(end) },
+            range
+        );
+
+        range = IpAddressCodec.parseCidr("2001:db8::1/128");
+        assertEquals(range[0], range[2]);
+        assertEquals(range[1], range[3]);
+    }
+}
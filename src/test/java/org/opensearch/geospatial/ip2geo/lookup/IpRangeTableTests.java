@@ -0,0 +1,66 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.ip2geo.lookup;
+
+import java.util.Map;
+
+import org.opensearch.test.OpenSearchTestCase;
+
+public class IpRangeTableTests extends OpenSearchTestCase {
+    private static final Map<String, Object> AUSTRALIA = Map.of("country", "Australia");
+    private static final Map<String, Object> USA = Map.of("country", "USA");
+
+    public void testLookup_whenIpv4InRange_thenReturnData() {
+        IpRangeTable table = new IpRangeTable.Builder().add("10.0.0.0/24", USA)
+            .add("1.0.0.0/24", AUSTRALIA)
+            .add("1.0.2.0/23", AUSTRALIA)
+            .build();
+
+        assertEquals(AUSTRALIA, table.lookup("1.0.0.0"));
+        assertEquals(AUSTRALIA, table.lookup("1.0.0.255"));
+        assertEquals(AUSTRALIA, table.lookup("1.0.3.1"));
+        assertEquals(USA, table.lookup("10.0.0.100"));
+        assertEquals(3, table.size());
+        assertEquals(2, table.recordCount());
+    }
+
+    public void testLookup_whenIpv4NotInRange_thenReturnEmpty() {
+        IpRangeTable table = new IpRangeTable.Builder().add("1.0.0.0/24", AUSTRALIA).add("10.0.0.0/24", USA).build();
+
+        assertTrue(table.lookup("0.255.255.255").isEmpty());
+        assertTrue(table.lookup("1.0.1.0").isEmpty());
+        assertTrue(table.lookup("10.0.1.0").isEmpty());
+        assertEquals(IpRangeTable.NO_MATCH, table.ordinalOf("255.255.255.255"));
+    }
+
+    public void testLookup_whenIpv6_thenReturnData() {
+        IpRangeTable table = new IpRangeTable.Builder().add("2001:db8::/32", USA)
+            .add("2001:200::/23", AUSTRALIA)
+            .add("1.0.0.0/24", AUSTRALIA)
+            .build();
+
+        assertEquals(USA, table.lookup("2001:db8::1"));
+        assertEquals(USA, table.lookup("2001:db8:ffff:ffff:ffff:ffff:ffff:ffff"));
+        assertEquals(AUSTRALIA, table.lookup("2001:200::1"));
+        assertTrue(table.lookup("2001:db9::").isEmpty());
+        assertTrue(table.lookup("::1").isEmpty());
+        assertTrue(table.lookup("ffff::1").isEmpty());
+    }
+
+    public void testLookup_whenEmptyTable_thenReturnEmpty() {
+        IpRangeTable table = new IpRangeTable.Builder().build();
+
+        assertTrue(table.lookup("1.0.0.1").isEmpty());
+        assertTrue(table.lookup("::1").isEmpty());
+        assertEquals(0, table.size());
+    }
+
+    public void testLookup_whenInvalidIp_thenException() {
+        IpRangeTable table = new IpRangeTable.Builder().add("1.0.0.0/24", AUSTRALIA).build();
+
+        expectThrows(IllegalArgumentException.class, () -> table.lookup("invalid"));
+    }
+}
@@ -6,9 +6,13 @@
 package org.opensearch.geospatial.ip2geo.processor;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -19,17 +23,24 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 import org.junit.Before;
 import org.mockito.ArgumentCaptor;
 import org.opensearch.OpenSearchException;
 import org.opensearch.common.Randomness;
+import org.opensearch.core.action.ActionListener;
 import org.opensearch.geospatial.GeospatialTestHelper;
 import org.opensearch.geospatial.ip2geo.Ip2GeoTestCase;
 import org.opensearch.geospatial.ip2geo.common.DatasourceState;
 import org.opensearch.geospatial.ip2geo.common.ParameterValidator;
+import org.opensearch.geospatial.ip2geo.dao.DatasourceMetadata;
+import org.opensearch.geospatial.ip2geo.dao.GeoDataRecord;
+import org.opensearch.geospatial.ip2geo.dao.GeoDataSchema;
 import org.opensearch.geospatial.ip2geo.jobscheduler.Datasource;
+import org.opensearch.geospatial.ip2geo.lookup.GeoIpCoverageFilter;
 import org.opensearch.ingest.IngestDocument;
+import org.opensearch.ingest.IngestDocumentWrapper;
 
 import lombok.SneakyThrows;
 
@@ -96,7 +107,7 @@ public class Ip2GeoProcessorTests extends Ip2GeoTestCase {
         source.put("ip", ip);
         IngestDocument document = new IngestDocument(source, new HashMap<>());
 
-        when(ip2GeoCachedDao.has(datasourceName)).thenReturn(false);
+        when(ip2GeoCachedDao.getDatasourceMetadata(datasourceName)).thenReturn(null);
         BiConsumer<IngestDocument, Exception> handler = mock(BiConsumer.class);
 
         // Run
@@ -115,12 +126,9 @@ public class Ip2GeoProcessorTests extends Ip2GeoTestCase {
         BiConsumer<IngestDocument, Exception> handler = mock(BiConsumer.class);
 
         String indexName = GeospatialTestHelper.randomLowerCaseString();
-        when(ip2GeoCachedDao.getIndexName(datasourceName)).thenReturn(indexName);
-        when(ip2GeoCachedDao.has(datasourceName)).thenReturn(true);
-        when(ip2GeoCachedDao.getState(datasourceName)).thenReturn(DatasourceState.AVAILABLE);
-        when(ip2GeoCachedDao.isExpired(datasourceName)).thenReturn(true);
+        mockDatasourceMetadata(datasourceName, indexName, DatasourceState.AVAILABLE, true);
         Map<String, Object> geoData = Map.of("city", "Seattle", "country", "USA");
-        when(ip2GeoCachedDao.getGeoData(eq(indexName), any())).thenReturn(geoData);
+        mockGeoData(indexName, geoData);
 
         // Run for single ip
         String ip = randomIpAddress();
@@ -139,6 +147,7 @@ public class Ip2GeoProcessorTests extends Ip2GeoTestCase {
         // Verify
         verify(handler).accept(documentWithIps, null);
         assertEquals("ip2geo_data_expired", documentWithIp.getFieldValue(DEFAULT_TARGET_FIELD + ".error", String.class));
+        verify(ip2GeoCachedDao, times(2)).recordExpired(datasourceName, 1);
     }
 
     @SneakyThrows
@@ -148,12 +157,9 @@ public class Ip2GeoProcessorTests extends Ip2GeoTestCase {
         BiConsumer<IngestDocument, Exception> handler = mock(BiConsumer.class);
 
         String indexName = GeospatialTestHelper.randomLowerCaseString();
-        when(ip2GeoCachedDao.getIndexName(datasourceName)).thenReturn(indexName);
-        when(ip2GeoCachedDao.has(datasourceName)).thenReturn(true);
-        when(ip2GeoCachedDao.getState(datasourceName)).thenReturn(DatasourceState.CREATE_FAILED);
-        when(ip2GeoCachedDao.isExpired(datasourceName)).thenReturn(false);
+        mockDatasourceMetadata(datasourceName, indexName, DatasourceState.CREATE_FAILED, false);
         Map<String, Object> geoData = Map.of("city", "Seattle", "country", "USA");
-        when(ip2GeoCachedDao.getGeoData(eq(indexName), any())).thenReturn(geoData);
+        mockGeoData(indexName, geoData);
 
         // Run for single ip
         String ip = randomIpAddress();
@@ -178,12 +184,9 @@ public class Ip2GeoProcessorTests extends Ip2GeoTestCase {
         BiConsumer<IngestDocument, Exception> handler = mock(BiConsumer.class);
 
         String indexName = GeospatialTestHelper.randomLowerCaseString();
-        when(ip2GeoCachedDao.getIndexName(datasourceName)).thenReturn(indexName);
-        when(ip2GeoCachedDao.has(datasourceName)).thenReturn(true);
-        when(ip2GeoCachedDao.getState(datasourceName)).thenReturn(DatasourceState.AVAILABLE);
-        when(ip2GeoCachedDao.isExpired(datasourceName)).thenReturn(false);
+        mockDatasourceMetadata(datasourceName, indexName, DatasourceState.AVAILABLE, false);
         Map<String, Object> geoData = Map.of("city", "Seattle", "country", "USA");
-        when(ip2GeoCachedDao.getGeoData(eq(indexName), any())).thenReturn(geoData);
+        mockGeoData(indexName, geoData);
 
         // Run for single ip
         String ip = randomIpAddress();
@@ -206,6 +209,37 @@ public class Ip2GeoProcessorTests extends Ip2GeoTestCase {
         assertEquals(geoData.get("country"), addedValue.get("country"));
     }
 
+    public void testExecute_whenIpNotCovered_thenNoLookup() {
+        String datasourceName = GeospatialTestHelper.randomLowerCaseString();
+        Ip2GeoProcessor processor = createProcessor(datasourceName, Collections.emptyMap());
+        BiConsumer<IngestDocument, Exception> handler = mock(BiConsumer.class);
+
+        String indexName = GeospatialTestHelper.randomLowerCaseString();
+        mockDatasourceMetadata(datasourceName, indexName, DatasourceState.AVAILABLE, false);
+        Map<String, Object> geoData = Map.of("city", "Seattle", "country", "USA");
+        mockGeoData(indexName, geoData);
+        GeoIpCoverageFilter.Builder builder = new GeoIpCoverageFilter.Builder();
+        builder.add("1.0.0.0/24");
+        when(ip2GeoCachedDao.getCoverageFilter(indexName)).thenReturn(builder.build());
+
+        // Run for single ip
+        IngestDocument documentWithIp = createDocument("2.0.0.1");
+        processor.execute(documentWithIp, handler);
+
+        // Verify
+        assertFalse(documentWithIp.hasField(DEFAULT_TARGET_FIELD));
+        verify(ip2GeoCachedDao, never()).getGeoData(anyString(), anyString(), any(ActionListener.class));
+        verify(handler).accept(documentWithIp, null);
+
+        // Run for multi ips
+        IngestDocument documentWithIps = createDocument(Arrays.asList("2.0.0.1", "1.0.0.1"));
+        processor.execute(documentWithIps, handler);
+
+        // Verify
+        verify(ip2GeoCachedDao).getGeoData(eq(indexName), eq(Arrays.asList("1.0.0.1")), any(ActionListener.class));
+        assertEquals(1, documentWithIps.getFieldValue(DEFAULT_TARGET_FIELD, List.class).size());
+    }
+
     @SneakyThrows
     public void testExecute_whenPropertiesSet_thenFilteredGeoIpDataIsAdded() {
         String datasourceName = GeospatialTestHelper.randomLowerCaseString();
@@ -213,12 +247,9 @@ public class Ip2GeoProcessorTests extends Ip2GeoTestCase {
         BiConsumer<IngestDocument, Exception> handler = mock(BiConsumer.class);
 
         String indexName = GeospatialTestHelper.randomLowerCaseString();
-        when(ip2GeoCachedDao.getIndexName(datasourceName)).thenReturn(indexName);
-        when(ip2GeoCachedDao.has(datasourceName)).thenReturn(true);
-        when(ip2GeoCachedDao.getState(datasourceName)).thenReturn(DatasourceState.AVAILABLE);
-        when(ip2GeoCachedDao.isExpired(datasourceName)).thenReturn(false);
+        mockDatasourceMetadata(datasourceName, indexName, DatasourceState.AVAILABLE, false);
         Map<String, Object> geoData = Map.of("city", "Seattle", "country", "USA");
-        when(ip2GeoCachedDao.getGeoData(eq(indexName), any())).thenReturn(geoData);
+        mockGeoData(indexName, geoData);
 
         // Run for single ip
         String ip = randomIpAddress();
@@ -241,6 +272,26 @@ public class Ip2GeoProcessorTests extends Ip2GeoTestCase {
         assertEquals(geoData.get("country"), addedValue.get("country"));
     }
 
+    public void testExecute_whenGeoDataRecord_thenProjectedGeoIpDataIsAdded() {
+        String datasourceName = GeospatialTestHelper.randomLowerCaseString();
+        Ip2GeoProcessor processor = createProcessor(datasourceName, Map.of(Ip2GeoProcessor.CONFIG_PROPERTIES, Arrays.asList("country")));
+        BiConsumer<IngestDocument, Exception> handler = mock(BiConsumer.class);
+
+        String indexName = GeospatialTestHelper.randomLowerCaseString();
+        mockDatasourceMetadata(datasourceName, indexName, DatasourceState.AVAILABLE, false);
+        GeoDataSchema schema = new GeoDataSchema(Arrays.asList("city", "country"));
+        mockGeoData(indexName, schema.toRecord(Map.of("city", "Seattle", "country", "USA")));
+
+        // Run
+        IngestDocument document = createDocument(randomIpAddress());
+        processor.execute(document, handler);
+
+        // Verify
+        Map<String, Object> addedValue = document.getFieldValue("ip2geo", Map.class);
+        assertEquals(Map.of("country", "USA"), addedValue);
+        assertFalse(addedValue instanceof GeoDataRecord);
+    }
+
     @SneakyThrows
     public void testExecute_whenNoHandler_thenException() {
         String datasourceName = GeospatialTestHelper.randomLowerCaseString();
@@ -269,6 +320,249 @@ public class Ip2GeoProcessorTests extends Ip2GeoTestCase {
         assertTrue(captor.getValue().getMessage().contains("should only contain strings"));
     }
 
+    @SneakyThrows
+    public void testExecute_whenGeoDataRetrievalFailed_thenException() {
+        String datasourceName = GeospatialTestHelper.randomLowerCaseString();
+        Ip2GeoProcessor processor = createProcessor(datasourceName, Collections.emptyMap());
+        BiConsumer<IngestDocument, Exception> handler = mock(BiConsumer.class);
+
+        String indexName = GeospatialTestHelper.randomLowerCaseString();
+        mockDatasourceMetadata(datasourceName, indexName, DatasourceState.AVAILABLE, false);
+        RuntimeException exception = new RuntimeException("failed");
+        doAnswer(invocation -> {
+            invocation.<ActionListener<Map<String, Object>>>getArgument(2).onFailure(exception);
+            return null;
+        }).when(ip2GeoCachedDao).getGeoData(eq(indexName), anyString(), any(ActionListener.class));
+
+        // Run
+        processor.execute(createDocument(randomIpAddress()), handler);
+
+        // Verify
+        verify(handler).accept(null, exception);
+    }
+
+    @SneakyThrows
+    public void testBatchExecute_whenCalled_thenDistinctIpsAreLookedUpOnce() {
+        String datasourceName = GeospatialTestHelper.randomLowerCaseString();
+        Ip2GeoProcessor processor = createProcessor(datasourceName, Collections.emptyMap());
+        Consumer<List<IngestDocumentWrapper>> handler = mock(Consumer.class);
+
+        String indexName = GeospatialTestHelper.randomLowerCaseString();
+        mockDatasourceMetadata(datasourceName, indexName, DatasourceState.AVAILABLE, false);
+        Map<String, Object> geoData = Map.of("city", "Seattle", "country", "USA");
+        mockGeoData(indexName, geoData);
+
+        String ip = randomIpAddress();
+        String otherIp = randomValueOtherThan(ip, this::randomIpAddress);
+        IngestDocument documentWithIp = createDocument(ip);
+        IngestDocument documentWithIps = createDocument(Arrays.asList(otherIp, ip));
+        IngestDocument documentWithoutIp = new IngestDocument(new HashMap<>(), new HashMap<>());
+        List<IngestDocumentWrapper> wrappers = Arrays.asList(
+            new IngestDocumentWrapper(0, documentWithIp, null),
+            new IngestDocumentWrapper(1, documentWithIps, null),
+            new IngestDocumentWrapper(2, documentWithoutIp, null)
+        );
+
+        // Run
+        processor.batchExecute(wrappers, handler);
+
+        // Verify
+        verify(ip2GeoCachedDao).getGeoData(
+            eq(indexName),
+            eq(Arrays.asList(ip, otherIp)),
+            any(BiConsumer.class),
+            any(ActionListener.class)
+        );
+        ArgumentCaptor<List<IngestDocumentWrapper>> captor = ArgumentCaptor.forClass(List.class);
+        verify(handler).accept(captor.capture());
+        List<IngestDocumentWrapper> results = captor.getValue();
+        assertEquals(3, results.size());
+        assertEquals(geoData.get("city"), results.get(0).getIngestDocument().getFieldValue("ip2geo.city", String.class));
+        assertEquals(2, results.get(1).getIngestDocument().getFieldValue("ip2geo", List.class).size());
+        assertNull(results.get(2).getIngestDocument());
+        assertTrue(results.get(2).getException() instanceof IllegalArgumentException);
+        assertEquals(2, results.get(2).getSlot());
+        verify(ip2GeoCachedDao).recordProcessed(datasourceName, 2);
+    }
+
+    public void testBatchExecute_whenIpNotCovered_thenNotLookedUp() {
+        String datasourceName = GeospatialTestHelper.randomLowerCaseString();
+        Ip2GeoProcessor processor = createProcessor(datasourceName, Collections.emptyMap());
+        Consumer<List<IngestDocumentWrapper>> handler = mock(Consumer.class);
+
+        String indexName = GeospatialTestHelper.randomLowerCaseString();
+        mockDatasourceMetadata(datasourceName, indexName, DatasourceState.AVAILABLE, false);
+        Map<String, Object> geoData = Map.of("city", "Seattle", "country", "USA");
+        mockGeoData(indexName, geoData);
+        GeoIpCoverageFilter.Builder builder = new GeoIpCoverageFilter.Builder();
+        builder.add("1.0.0.0/24");
+        when(ip2GeoCachedDao.getCoverageFilter(indexName)).thenReturn(builder.build());
+
+        IngestDocument coveredDocument = createDocument("1.0.0.1");
+        IngestDocument notCoveredDocument = createDocument("2.0.0.1");
+        List<IngestDocumentWrapper> wrappers = Arrays.asList(
+            new IngestDocumentWrapper(0, coveredDocument, null),
+            new IngestDocumentWrapper(1, notCoveredDocument, null)
+        );
+
+        // Run
+        processor.batchExecute(wrappers, handler);
+
+        // Verify
+        verify(ip2GeoCachedDao).getGeoData(eq(indexName), eq(Arrays.asList("1.0.0.1")), any(BiConsumer.class), any(ActionListener.class));
+        ArgumentCaptor<List<IngestDocumentWrapper>> captor = ArgumentCaptor.forClass(List.class);
+        verify(handler).accept(captor.capture());
+        List<IngestDocumentWrapper> results = captor.getValue();
+        assertEquals(geoData.get("city"), results.get(0).getIngestDocument().getFieldValue("ip2geo.city", String.class));
+        assertFalse(results.get(1).getIngestDocument().hasField(DEFAULT_TARGET_FIELD));
+        assertNull(results.get(1).getException());
+        verify(ip2GeoCachedDao).recordProcessed(datasourceName, 2);
+    }
+
+    @SneakyThrows
+    public void testBatchExecute_whenInvalidIp_thenFailOnlyItsDocument() {
+        String datasourceName = GeospatialTestHelper.randomLowerCaseString();
+        Ip2GeoProcessor processor = createProcessor(datasourceName, Collections.emptyMap());
+        Consumer<List<IngestDocumentWrapper>> handler = mock(Consumer.class);
+
+        String indexName = GeospatialTestHelper.randomLowerCaseString();
+        mockDatasourceMetadata(datasourceName, indexName, DatasourceState.AVAILABLE, false);
+        Map<String, Object> geoData = Map.of("city", "Seattle", "country", "USA");
+        mockGeoData(indexName, geoData);
+        String ip = randomIpAddress();
+        List<IngestDocumentWrapper> wrappers = Arrays.asList(
+            new IngestDocumentWrapper(0, createDocument(ip), null),
+            new IngestDocumentWrapper(1, createDocument("not.an.ip"), null),
+            new IngestDocumentWrapper(2, createDocument(Arrays.asList(ip, "1.0.0.256")), null)
+        );
+
+        // Run
+        processor.batchExecute(wrappers, handler);
+
+        // Verify
+        verify(ip2GeoCachedDao).getGeoData(eq(indexName), eq(Arrays.asList(ip)), any(BiConsumer.class), any(ActionListener.class));
+        ArgumentCaptor<List<IngestDocumentWrapper>> captor = ArgumentCaptor.forClass(List.class);
+        verify(handler).accept(captor.capture());
+        List<IngestDocumentWrapper> results = captor.getValue();
+        assertEquals(geoData.get("city"), results.get(0).getIngestDocument().getFieldValue("ip2geo.city", String.class));
+        assertNull(results.get(0).getException());
+        assertNull(results.get(1).getIngestDocument());
+        assertTrue(results.get(1).getException().getMessage().contains("not.an.ip"));
+        assertNull(results.get(2).getIngestDocument());
+        assertTrue(results.get(2).getException().getMessage().contains("1.0.0.256"));
+        verify(ip2GeoCachedDao).recordProcessed(datasourceName, 1);
+    }
+
+    @SneakyThrows
+    public void testBatchExecute_whenLookupOfIpFailed_thenFailOnlyDocumentsWithTheIp() {
+        String datasourceName = GeospatialTestHelper.randomLowerCaseString();
+        Ip2GeoProcessor processor = createProcessor(datasourceName, Collections.emptyMap());
+        Consumer<List<IngestDocumentWrapper>> handler = mock(Consumer.class);
+
+        String indexName = GeospatialTestHelper.randomLowerCaseString();
+        mockDatasourceMetadata(datasourceName, indexName, DatasourceState.AVAILABLE, false);
+        Map<String, Object> geoData = Map.of("city", "Seattle", "country", "USA");
+        String ip = "1.0.0.1";
+        String failedIp = "2.0.0.1";
+        OpenSearchException exception = new OpenSearchException("failed to get geoip data");
+        doAnswer(invocation -> {
+            invocation.<BiConsumer<String, Exception>>getArgument(2).accept(failedIp, exception);
+            invocation.<ActionListener<List<Map<String, Object>>>>getArgument(3).onResponse(Arrays.asList(geoData, null));
+            return null;
+        }).when(ip2GeoCachedDao)
+            .getGeoData(eq(indexName), eq(Arrays.asList(ip, failedIp)), any(BiConsumer.class), any(ActionListener.class));
+        List<IngestDocumentWrapper> wrappers = Arrays.asList(
+            new IngestDocumentWrapper(0, createDocument(ip), null),
+            new IngestDocumentWrapper(1, createDocument(failedIp), null),
+            new IngestDocumentWrapper(2, createDocument(Arrays.asList(ip, failedIp)), null)
+        );
+
+        // Run
+        processor.batchExecute(wrappers, handler);
+
+        // Verify
+        ArgumentCaptor<List<IngestDocumentWrapper>> captor = ArgumentCaptor.forClass(List.class);
+        verify(handler).accept(captor.capture());
+        List<IngestDocumentWrapper> results = captor.getValue();
+        assertEquals(geoData.get("city"), results.get(0).getIngestDocument().getFieldValue("ip2geo.city", String.class));
+        assertNull(results.get(0).getException());
+        assertSame(exception, results.get(1).getException());
+        assertSame(exception, results.get(2).getException());
+        verify(ip2GeoCachedDao).recordProcessed(datasourceName, 1);
+    }
+
+    @SneakyThrows
+    public void testBatchExecute_whenTargetFieldNotSettable_thenFailOnlyItsDocument() {
+        String datasourceName = GeospatialTestHelper.randomLowerCaseString();
+        Ip2GeoProcessor processor = createProcessor(datasourceName, Map.of(Ip2GeoProcessor.CONFIG_TARGET_FIELD, "geo.ip2geo"));
+        Consumer<List<IngestDocumentWrapper>> handler = mock(Consumer.class);
+
+        String indexName = GeospatialTestHelper.randomLowerCaseString();
+        mockDatasourceMetadata(datasourceName, indexName, DatasourceState.AVAILABLE, false);
+        Map<String, Object> geoData = Map.of("city", "Seattle", "country", "USA");
+        mockGeoData(indexName, geoData);
+        String ip = randomIpAddress();
+        IngestDocument badDocument = createDocument(ip);
+        badDocument.setFieldValue("geo", "not a map");
+        List<IngestDocumentWrapper> wrappers = Arrays.asList(
+            new IngestDocumentWrapper(0, createDocument(ip), null),
+            new IngestDocumentWrapper(1, badDocument, null),
+            new IngestDocumentWrapper(2, createDocument(ip), null)
+        );
+
+        // Run
+        processor.batchExecute(wrappers, handler);
+
+        // Verify
+        ArgumentCaptor<List<IngestDocumentWrapper>> captor = ArgumentCaptor.forClass(List.class);
+        verify(handler).accept(captor.capture());
+        List<IngestDocumentWrapper> results = captor.getValue();
+        assertEquals(geoData.get("city"), results.get(0).getIngestDocument().getFieldValue("geo.ip2geo.city", String.class));
+        assertNull(results.get(0).getException());
+        assertNull(results.get(1).getIngestDocument());
+        assertTrue(results.get(1).getException() instanceof IllegalArgumentException);
+        assertEquals(geoData.get("city"), results.get(2).getIngestDocument().getFieldValue("geo.ip2geo.city", String.class));
+        assertNull(results.get(2).getException());
+        verify(ip2GeoCachedDao).recordProcessed(datasourceName, 2);
+    }
+
+    @SneakyThrows
+    public void testBatchExecute_whenExpired_thenExpiredMsg() {
+        String datasourceName = GeospatialTestHelper.randomLowerCaseString();
+        Ip2GeoProcessor processor = createProcessor(datasourceName, Collections.emptyMap());
+        Consumer<List<IngestDocumentWrapper>> handler = mock(Consumer.class);
+
+        String indexName = GeospatialTestHelper.randomLowerCaseString();
+        mockDatasourceMetadata(datasourceName, indexName, DatasourceState.AVAILABLE, true);
+        IngestDocument document = createDocument(randomIpAddress());
+
+        // Run
+        processor.batchExecute(Arrays.asList(new IngestDocumentWrapper(0, document, null)), handler);
+
+        // Verify
+        verify(handler).accept(any());
+        verify(ip2GeoCachedDao, never()).getGeoData(anyString(), anyList(), any(BiConsumer.class), any(ActionListener.class));
+        assertEquals("ip2geo_data_expired", document.getFieldValue(DEFAULT_TARGET_FIELD + ".error", String.class));
+        verify(ip2GeoCachedDao).recordExpired(datasourceName, 1);
+    }
+
+    @SneakyThrows
+    public void testBatchExecute_whenNotAvailable_thenException() {
+        String datasourceName = GeospatialTestHelper.randomLowerCaseString();
+        Ip2GeoProcessor processor = createProcessor(datasourceName, Collections.emptyMap());
+        Consumer<List<IngestDocumentWrapper>> handler = mock(Consumer.class);
+        mockDatasourceMetadata(datasourceName, null, DatasourceState.CREATE_FAILED, false);
+
+        // Run
+        processor.batchExecute(Arrays.asList(new IngestDocumentWrapper(0, createDocument(randomIpAddress()), null)), handler);
+
+        // Verify
+        ArgumentCaptor<List<IngestDocumentWrapper>> captor = ArgumentCaptor.forClass(List.class);
+        verify(handler).accept(captor.capture());
+        assertNull(captor.getValue().get(0).getIngestDocument());
+        assertTrue(captor.getValue().get(0).getException().getMessage().contains("not in an available state"));
+    }
+
     @SneakyThrows
     public void testCreate_whenInvalidDatasourceName_thenFails() {
         String invalidName = "_" + GeospatialTestHelper.randomLowerCaseString();
@@ -303,6 +597,35 @@ public class Ip2GeoProcessorTests extends Ip2GeoTestCase {
         );
     }
 
+    private void mockDatasourceMetadata(
+        final String datasourceName,
+        final String indexName,
+        final DatasourceState state,
+        final boolean expired
+    ) {
+        long expirationTimeInMillis = expired ? Long.MIN_VALUE : Long.MAX_VALUE;
+        when(ip2GeoCachedDao.getDatasourceMetadata(datasourceName)).thenReturn(
+            new DatasourceMetadata(indexName, expirationTimeInMillis, state, null)
+        );
+    }
+
+    private void mockGeoData(final String indexName, final Map<String, Object> geoData) {
+        doAnswer(invocation -> {
+            invocation.<ActionListener<Map<String, Object>>>getArgument(2).onResponse(geoData);
+            return null;
+        }).when(ip2GeoCachedDao).getGeoData(eq(indexName), anyString(), any(ActionListener.class));
+        doAnswer(invocation -> {
+            List<String> ips = invocation.getArgument(1);
+            invocation.<ActionListener<List<Map<String, Object>>>>getArgument(2).onResponse(Collections.nCopies(ips.size(), geoData));
+            return null;
+        }).when(ip2GeoCachedDao).getGeoData(eq(indexName), anyList(), any(ActionListener.class));
+        doAnswer(invocation -> {
+            List<String> ips = invocation.getArgument(1);
+            invocation.<ActionListener<List<Map<String, Object>>>>getArgument(3).onResponse(Collections.nCopies(ips.size(), geoData));
+            return null;
+        }).when(ip2GeoCachedDao).getGeoData(eq(indexName), anyList(), any(BiConsumer.class), any(ActionListener.class));
+    }
+
     private IngestDocument createDocument(String ip) {
         Map<String, Object> source = new HashMap<>();
         source.put("ip", ip);
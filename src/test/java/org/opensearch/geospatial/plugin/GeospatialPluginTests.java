@@ -35,6 +35,7 @@ import org.opensearch.env.NodeEnvironment;
 import org.opensearch.geospatial.action.upload.geojson.UploadGeoJSONAction;
 import org.opensearch.geospatial.ip2geo.action.RestDeleteDatasourceHandler;
 import org.opensearch.geospatial.ip2geo.action.RestGetDatasourceHandler;
+import org.opensearch.geospatial.ip2geo.action.RestLookupIpHandler;
 import org.opensearch.geospatial.ip2geo.action.RestPutDatasourceHandler;
 import org.opensearch.geospatial.ip2geo.action.RestUpdateDatasourceHandler;
 import org.opensearch.geospatial.ip2geo.common.Ip2GeoExecutor;
@@ -48,9 +49,11 @@ import org.opensearch.geospatial.ip2geo.jobscheduler.DatasourceUpdateService;
 import org.opensearch.geospatial.ip2geo.listener.Ip2GeoListener;
 import org.opensearch.geospatial.processor.FeatureProcessor;
 import org.opensearch.geospatial.rest.action.upload.geojson.RestUploadGeoJSONAction;
+import org.opensearch.geospatial.stats.ip2geo.RestIp2GeoStatsAction;
 import org.opensearch.geospatial.stats.upload.RestUploadStatsAction;
 import org.opensearch.geospatial.stats.upload.UploadStats;
 import org.opensearch.indices.SystemIndexDescriptor;
+import org.opensearch.indices.breaker.BreakerSettings;
 import org.opensearch.ingest.IngestService;
 import org.opensearch.ingest.Processor;
 import org.opensearch.plugins.ActionPlugin;
@@ -71,7 +74,9 @@ public class GeospatialPluginTests extends OpenSearchTestCase {
         new RestPutDatasourceHandler(clusterSettings, urlDenyListChecker),
         new RestGetDatasourceHandler(),
         new RestUpdateDatasourceHandler(urlDenyListChecker),
-        new RestDeleteDatasourceHandler()
+        new RestDeleteDatasourceHandler(),
+        new RestLookupIpHandler(),
+        new RestIp2GeoStatsAction()
     );
 
     private final Set<String> SUPPORTED_SYSTEM_INDEX_PATTERN = Set.of(IP2GEO_DATA_INDEX_NAME_PREFIX);
@@ -171,6 +176,12 @@ public class GeospatialPluginTests extends OpenSearchTestCase {
         assertEquals(classes, plugin.getGuiceServiceClasses());
     }
 
+    public void testGetCircuitBreaker() {
+        BreakerSettings breakerSettings = plugin.getCircuitBreaker(Settings.EMPTY);
+        assertEquals(GeospatialPlugin.IP2GEO_CACHE_BREAKER, breakerSettings.getName());
+        assertTrue(breakerSettings.getLimit() > 0);
+    }
+
     public void testIsAnIngestPlugin() {
         assertTrue(plugin instanceof IngestPlugin);
     }
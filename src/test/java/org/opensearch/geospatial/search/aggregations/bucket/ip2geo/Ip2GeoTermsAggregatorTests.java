@@ -0,0 +1,280 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.search.aggregations.bucket.ip2geo;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.apache.lucene.document.InetAddressPoint;
+import org.apache.lucene.document.SortedSetDocValuesField;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.tests.index.RandomIndexWriter;
+import org.apache.lucene.util.BytesRef;
+import org.junit.Before;
+import org.mockito.ArgumentCaptor;
+import org.opensearch.OpenSearchStatusException;
+import org.opensearch.ResourceNotFoundException;
+import org.opensearch.client.Client;
+import org.opensearch.common.CheckedConsumer;
+import org.opensearch.common.io.stream.BytesStreamOutput;
+import org.opensearch.common.network.InetAddresses;
+import org.opensearch.common.xcontent.json.JsonXContent;
+import org.opensearch.core.action.ActionListener;
+import org.opensearch.core.common.io.stream.BytesStreamInput;
+import org.opensearch.core.rest.RestStatus;
+import org.opensearch.core.xcontent.XContentParser;
+import org.opensearch.geospatial.GeospatialTestHelper;
+import org.opensearch.geospatial.ip2geo.common.DatasourceState;
+import org.opensearch.geospatial.ip2geo.dao.DatasourceMetadata;
+import org.opensearch.geospatial.ip2geo.dao.Ip2GeoCachedDao;
+import org.opensearch.geospatial.ip2geo.lookup.IpRangeTable;
+import org.opensearch.index.mapper.IpFieldMapper;
+import org.opensearch.index.mapper.MappedFieldType;
+import org.opensearch.index.query.QueryRewriteContext;
+import org.opensearch.plugins.SearchPlugin;
+import org.opensearch.search.aggregations.AggregationBuilder;
+import org.opensearch.search.aggregations.AggregatorTestCase;
+import org.opensearch.search.aggregations.bucket.terms.StringTerms;
+
+public class Ip2GeoTermsAggregatorTests extends AggregatorTestCase {
+    private static final String IP_FIELD_NAME = "client_ip";
+    private static final String DATASOURCE_NAME = "my-datasource";
+    private static final String INDEX_NAME = ".geospatial-ip2geo-data.my-datasource.1";
+    private static final String PROPERTY = "country_iso_code";
+
+    private Ip2GeoCachedDao ip2GeoCachedDao;
+
+    @Before
+    public void init() {
+        IpRangeTable table = new IpRangeTable.Builder().add("1.0.0.0/24", Map.of(PROPERTY, "AU", "city", "Sydney"))
+            .add("1.0.1.0/24", Map.of(PROPERTY, "AU", "city", "Melbourne"))
+            .add("10.0.0.0/24", Map.of(PROPERTY, "US"))
+            .add("2001:db8::/32", Map.of(PROPERTY, "DE"))
+            .add("20.0.0.0/24", Map.of("city", "Unknown"))
+            .build();
+        ip2GeoCachedDao = mock(Ip2GeoCachedDao.class);
+        when(ip2GeoCachedDao.getDatasourceMetadata(DATASOURCE_NAME)).thenReturn(
+            new DatasourceMetadata(INDEX_NAME, Long.MAX_VALUE, DatasourceState.AVAILABLE, Arrays.asList(PROPERTY, "city"))
+        );
+        when(ip2GeoCachedDao.getLookup(INDEX_NAME)).thenReturn(table);
+        when(ip2GeoCachedDao.isMetadataLoaded()).thenReturn(true);
+    }
+
+    public void testNoDocs() throws IOException {
+        testCase(createBuilder(), iw -> {
+            // Intentionally not writing any docs
+        }, terms -> assertEquals(0, terms.getBuckets().size()));
+    }
+
+    public void testUnmapped() throws IOException {
+        Ip2GeoTermsAggregationBuilder builder = createBuilder().field(GeospatialTestHelper.randomLowerCaseString());
+        testCase(builder, iw -> iw.addDocument(ipDocument("1.0.0.1")), terms -> assertEquals(0, terms.getBuckets().size()));
+    }
+
+    public void testWithSeveralDocs() throws IOException {
+        testCase(createBuilder(), iw -> {
+            iw.addDocument(ipDocument("1.0.0.1"));
+            iw.addDocument(ipDocument("1.0.1.1"));
+            // Two ips of a document mapped to the same value are counted once
+            iw.addDocument(ipDocument("1.0.0.2", "1.0.1.2"));
+            iw.addDocument(ipDocument("1.0.0.3", "10.0.0.1"));
+            iw.addDocument(ipDocument("10.0.0.2"));
+            iw.addDocument(ipDocument("2001:db8::1"));
+            // Ips without geo data or without the property are not counted
+            iw.addDocument(ipDocument("3.0.0.1"));
+            iw.addDocument(ipDocument("20.0.0.1"));
+            iw.addDocument(Collections.emptyList());
+        }, terms -> {
+            assertEquals(3, terms.getBuckets().size());
+            assertBucket(terms.getBuckets().get(0), "AU", 4);
+            assertBucket(terms.getBuckets().get(1), "US", 2);
+            assertBucket(terms.getBuckets().get(2), "DE", 1);
+            assertEquals(0, terms.getSumOfOtherDocCounts());
+        });
+    }
+
+    public void testSize() throws IOException {
+        Ip2GeoTermsAggregationBuilder builder = createBuilder().size(1);
+        testCase(builder, iw -> {
+            iw.addDocument(ipDocument("1.0.0.1"));
+            iw.addDocument(ipDocument("10.0.0.1"));
+            iw.addDocument(ipDocument("10.0.0.2"));
+        }, terms -> {
+            assertEquals(1, terms.getBuckets().size());
+            assertBucket(terms.getBuckets().get(0), "US", 2);
+            assertEquals(1, terms.getSumOfOtherDocCounts());
+        });
+    }
+
+    public void testLookupNotLoaded() {
+        when(ip2GeoCachedDao.getLookup(INDEX_NAME)).thenReturn(null);
+
+        // Run
+        OpenSearchStatusException exception = expectThrows(
+            OpenSearchStatusException.class,
+            () -> testCase(createBuilder(), iw -> iw.addDocument(ipDocument("1.0.0.1")), terms -> fail())
+        );
+
+        // Verify
+        assertEquals(RestStatus.SERVICE_UNAVAILABLE, exception.status());
+        assertTrue(exception.getMessage().contains("not loaded"));
+    }
+
+    public void testNoDatasource() {
+        Ip2GeoTermsAggregationBuilder builder = createBuilder().datasource(GeospatialTestHelper.randomLowerCaseString());
+        expectThrows(
+            ResourceNotFoundException.class,
+            () -> testCase(builder, iw -> iw.addDocument(ipDocument("1.0.0.1")), terms -> fail())
+        );
+    }
+
+    public void testBuilderStreamInOut() throws IOException {
+        Ip2GeoTermsAggregationBuilder builder = createBuilder().size(randomIntBetween(1, 100)).shardSize(randomIntBetween(100, 200));
+
+        // Run
+        BytesStreamOutput output = new BytesStreamOutput();
+        builder.writeTo(output);
+        BytesStreamInput input = new BytesStreamInput(output.bytes().toBytesRef().bytes);
+        Ip2GeoTermsAggregationBuilder copiedBuilder = new Ip2GeoTermsAggregationBuilder(input);
+
+        // Verify
+        assertEquals(builder, copiedBuilder);
+        assertEquals(builder.hashCode(), copiedBuilder.hashCode());
+    }
+
+    public void testRewrite() throws IOException {
+        Ip2GeoTermsAggregationBuilder builder = createBuilder(() -> ip2GeoCachedDao);
+
+        // Run
+        Ip2GeoTermsAggregationBuilder rewritten = (Ip2GeoTermsAggregationBuilder) builder.rewrite(mock(QueryRewriteContext.class));
+
+        // Verify
+        assertEquals(INDEX_NAME, rewritten.indexName());
+        assertNotEquals(builder, rewritten);
+        assertSame(rewritten, rewritten.rewrite(mock(QueryRewriteContext.class)));
+
+        // Run
+        BytesStreamOutput output = new BytesStreamOutput();
+        rewritten.writeTo(output);
+        BytesStreamInput input = new BytesStreamInput(output.bytes().toBytesRef().bytes);
+        Ip2GeoTermsAggregationBuilder copiedBuilder = new Ip2GeoTermsAggregationBuilder(input, () -> ip2GeoCachedDao);
+
+        // Verify
+        assertEquals(rewritten, copiedBuilder);
+        assertEquals(rewritten.hashCode(), copiedBuilder.hashCode());
+    }
+
+    public void testRewriteWhenMetadataNotLoaded() throws IOException {
+        when(ip2GeoCachedDao.isMetadataLoaded()).thenReturn(false);
+        Ip2GeoTermsAggregationBuilder builder = createBuilder(() -> ip2GeoCachedDao);
+        QueryRewriteContext queryRewriteContext = mock(QueryRewriteContext.class);
+
+        // Run
+        AggregationBuilder rewritten = builder.rewrite(queryRewriteContext);
+
+        // Verify
+        assertNull(((Ip2GeoTermsAggregationBuilder) rewritten).indexName());
+        verify(ip2GeoCachedDao, never()).getDatasourceMetadata(anyString());
+        ArgumentCaptor<BiConsumer<Client, ActionListener<?>>> captor = ArgumentCaptor.forClass(BiConsumer.class);
+        verify(queryRewriteContext).registerAsyncAction(captor.capture());
+
+        // Run
+        captor.getValue().accept(mock(Client.class), mock(ActionListener.class));
+
+        // Verify
+        verify(ip2GeoCachedDao).loadMetadata(any(ActionListener.class));
+    }
+
+    public void testRewriteThenIndexChanged() throws IOException {
+        Ip2GeoTermsAggregationBuilder rewritten = (Ip2GeoTermsAggregationBuilder) createBuilder(() -> ip2GeoCachedDao).rewrite(
+            mock(QueryRewriteContext.class)
+        );
+        when(ip2GeoCachedDao.getDatasourceMetadata(DATASOURCE_NAME)).thenReturn(
+            new DatasourceMetadata(
+                GeospatialTestHelper.randomLowerCaseString(),
+                Long.MAX_VALUE,
+                DatasourceState.AVAILABLE,
+                Arrays.asList(PROPERTY, "city")
+            )
+        );
+
+        testCase(
+            rewritten,
+            iw -> iw.addDocument(ipDocument("1.0.0.1")),
+            terms -> assertBucket(terms.getBuckets().get(0), "AU", 1)
+        );
+    }
+
+    @Override
+    protected List<SearchPlugin> getSearchPlugins() {
+        return Collections.singletonList(new SearchPlugin() {
+            @Override
+            public List<AggregationSpec> getAggregations() {
+                return List.of(
+                    new AggregationSpec(
+                        Ip2GeoTermsAggregationBuilder.NAME,
+                        in -> new Ip2GeoTermsAggregationBuilder(in, () -> ip2GeoCachedDao),
+                        (parser, name) -> Ip2GeoTermsAggregationBuilder.parse(parser, name, () -> ip2GeoCachedDao)
+                    ).setAggregatorRegistrar(builder -> Ip2GeoTermsAggregationBuilder.registerAggregators(builder, () -> ip2GeoCachedDao))
+                );
+            }
+        });
+    }
+
+    private void testCase(
+        final Ip2GeoTermsAggregationBuilder builder,
+        final CheckedConsumer<RandomIndexWriter, IOException> buildIndex,
+        final Consumer<StringTerms> verify
+    ) throws IOException {
+        MappedFieldType fieldType = new IpFieldMapper.IpFieldType(IP_FIELD_NAME);
+        testCase(builder, new MatchAllDocsQuery(), buildIndex, verify, fieldType);
+    }
+
+    private Ip2GeoTermsAggregationBuilder createBuilder() {
+        return new Ip2GeoTermsAggregationBuilder("_name").field(IP_FIELD_NAME).datasource(DATASOURCE_NAME).property(PROPERTY);
+    }
+
+    private Ip2GeoTermsAggregationBuilder createBuilder(final Supplier<Ip2GeoCachedDao> ip2GeoCachedDaoSupplier) throws IOException {
+        String json = String.format(
+            Locale.ROOT,
+            "{\"field\":\"%s\",\"datasource\":\"%s\",\"property\":\"%s\"}",
+            IP_FIELD_NAME,
+            DATASOURCE_NAME,
+            PROPERTY
+        );
+        try (XContentParser parser = createParser(JsonXContent.jsonXContent, json)) {
+            return Ip2GeoTermsAggregationBuilder.parse(parser, "_name", ip2GeoCachedDaoSupplier);
+        }
+    }
+
+    private static List<IndexableField> ipDocument(final String... ips) {
+        return Arrays.stream(ips)
+            .map(ip -> new BytesRef(InetAddressPoint.encode(InetAddresses.forString(ip))))
+            .<IndexableField>map(value -> new SortedSetDocValuesField(IP_FIELD_NAME, value))
+            .collect(Collectors.toList());
+    }
+
+    private static void assertBucket(final StringTerms.Bucket bucket, final String key, final long docCount) {
+        assertEquals(key, bucket.getKeyAsString());
+        assertEquals(docCount, bucket.getDocCount());
+    }
+}
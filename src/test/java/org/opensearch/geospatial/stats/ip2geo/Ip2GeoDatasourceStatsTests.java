@@ -0,0 +1,102 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.stats.ip2geo;
+
+import static org.opensearch.geospatial.GeospatialTestHelper.randomLowerCaseString;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import org.opensearch.common.io.stream.BytesStreamOutput;
+import org.opensearch.common.xcontent.XContentHelper;
+import org.opensearch.common.xcontent.XContentType;
+import org.opensearch.core.common.Strings;
+import org.opensearch.core.common.io.stream.StreamInput;
+import org.opensearch.test.OpenSearchTestCase;
+
+public class Ip2GeoDatasourceStatsTests extends OpenSearchTestCase {
+
+    public void testStream() throws IOException {
+        Ip2GeoDatasourceStats stats = randomDatasourceStats();
+        BytesStreamOutput output = new BytesStreamOutput();
+        stats.writeTo(output);
+        StreamInput in = StreamInput.wrap(output.bytes().toBytesRef().bytes);
+
+        Ip2GeoDatasourceStats serializedStats = new Ip2GeoDatasourceStats(in);
+        assertEquals("mismatch stats during serialization", stats, serializedStats);
+    }
+
+    public void testStream_whenNoIndex_thenSucceed() throws IOException {
+        Ip2GeoDatasourceStats stats = new Ip2GeoDatasourceStats(
+            randomLowerCaseString(),
+            null,
+            Ip2GeoCacheStats.EMPTY,
+            Ip2GeoCacheStats.EMPTY,
+            0,
+            new LatencyHistogram().getCounts(),
+            0,
+            0
+        );
+        BytesStreamOutput output = new BytesStreamOutput();
+        stats.writeTo(output);
+        StreamInput in = StreamInput.wrap(output.bytes().toBytesRef().bytes);
+
+        assertEquals(stats, new Ip2GeoDatasourceStats(in));
+    }
+
+    public void testToXContent() {
+        Ip2GeoDatasourceStats stats = randomDatasourceStats();
+        String json = Strings.toString(XContentType.JSON, stats);
+
+        Map<String, Object> content = XContentHelper.convertToMap(XContentType.JSON.xContent(), json, false);
+
+        assertEquals(stats.getIndexName(), content.get("index"));
+        Map<String, Object> cache = (Map<String, Object>) content.get("cache");
+        assertEquals(stats.getCacheStats().getHits(), ((Number) cache.get("hits")).longValue());
+        assertEquals(stats.getCacheStats().getMemorySizeInBytes(), ((Number) cache.get("memory_size_in_bytes")).longValue());
+        assertEquals(stats.getCacheStats().getCapacity(), ((Number) cache.get("capacity")).longValue());
+        Map<String, Object> notFoundCache = (Map<String, Object>) content.get("not_found_cache");
+        assertEquals(stats.getNotFoundCacheStats().getMisses(), ((Number) notFoundCache.get("misses")).longValue());
+        Map<String, Object> load = (Map<String, Object>) content.get("load");
+        assertEquals(stats.getLoadCount(), ((Number) load.get("count")).longValue());
+        List<Map<String, Object>> histogram = (List<Map<String, Object>>) load.get("latency_histogram_in_millis");
+        assertEquals(LatencyHistogram.BUCKET_UPPER_BOUNDS_IN_MILLIS.length + 1, histogram.size());
+        assertEquals(1, ((Number) histogram.get(0).get("lt")).longValue());
+        assertTrue(histogram.get(histogram.size() - 1).containsKey("gte"));
+        Map<String, Object> processor = (Map<String, Object>) content.get("processor");
+        assertEquals(stats.getProcessedCount(), ((Number) processor.get("documents")).longValue());
+        assertEquals(stats.getExpiredCount(), ((Number) processor.get("expired_data_returns")).longValue());
+    }
+
+    public static Ip2GeoDatasourceStats randomDatasourceStats() {
+        long[] loadLatencyCounts = new long[LatencyHistogram.BUCKET_UPPER_BOUNDS_IN_MILLIS.length + 1];
+        for (int i = 0; i < loadLatencyCounts.length; i++) {
+            loadLatencyCounts[i] = randomNonNegativeLong();
+        }
+        return new Ip2GeoDatasourceStats(
+            randomLowerCaseString(),
+            randomLowerCaseString(),
+            randomCacheStats(),
+            randomCacheStats(),
+            randomNonNegativeLong(),
+            loadLatencyCounts,
+            randomNonNegativeLong(),
+            randomNonNegativeLong()
+        );
+    }
+
+    private static Ip2GeoCacheStats randomCacheStats() {
+        return new Ip2GeoCacheStats(
+            randomNonNegativeLong(),
+            randomNonNegativeLong(),
+            randomNonNegativeLong(),
+            randomNonNegativeLong(),
+            randomNonNegativeLong(),
+            randomNonNegativeLong()
+        );
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.stats.ip2geo;
+
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.emptySet;
+import static org.opensearch.geospatial.GeospatialTestHelper.randomLowerCaseString;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.opensearch.Version;
+import org.opensearch.cluster.node.DiscoveryNode;
+import org.opensearch.common.io.stream.BytesStreamOutput;
+import org.opensearch.core.common.io.stream.StreamInput;
+import org.opensearch.test.OpenSearchTestCase;
+
+public class Ip2GeoStatsNodeResponseTests extends OpenSearchTestCase {
+
+    public void testStream() throws IOException {
+        DiscoveryNode node = new DiscoveryNode(
+            randomLowerCaseString(),
+            randomLowerCaseString(),
+            buildNewFakeTransportAddress(),
+            emptyMap(),
+            emptySet(),
+            Version.CURRENT
+        );
+        Ip2GeoStatsNodeResponse nodeResponse = new Ip2GeoStatsNodeResponse(
+            node,
+            List.of(Ip2GeoDatasourceStatsTests.randomDatasourceStats(), Ip2GeoDatasourceStatsTests.randomDatasourceStats())
+        );
+        BytesStreamOutput output = new BytesStreamOutput();
+        nodeResponse.writeTo(output);
+        StreamInput in = StreamInput.wrap(output.bytes().toBytesRef().bytes);
+
+        Ip2GeoStatsNodeResponse serializedNodeResponse = new Ip2GeoStatsNodeResponse(in);
+        assertNotNull("serialized node response cannot be null", serializedNodeResponse);
+        assertEquals(node.getId(), serializedNodeResponse.getNode().getId());
+        assertEquals("mismatch stats during serialization", nodeResponse.getDatasourceStats(), serializedNodeResponse.getDatasourceStats());
+    }
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright OpenSearch Contributors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.opensearch.geospatial.stats.ip2geo;
+
+import org.opensearch.test.OpenSearchTestCase;
+
+public class LatencyHistogramTests extends OpenSearchTestCase {
+
+    public void testRecord_whenCalled_thenCountInBucket() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        // Run
+        histogram.record(0);
+        histogram.record(1);
+        histogram.record(4);
+        histogram.record(5000);
+        histogram.record(100000);
+
+        // Verify
+        long[] counts = histogram.getCounts();
+        assertEquals(LatencyHistogram.BUCKET_UPPER_BOUNDS_IN_MILLIS.length + 1, counts.length);
+        assertEquals(1, counts[0]);
+        assertEquals(1, counts[1]);
+        assertEquals(1, counts[2]);
+        assertEquals(2, counts[counts.length - 1]);
+        assertEquals(105005, histogram.getTotalTimeInMillis());
+    }
+}